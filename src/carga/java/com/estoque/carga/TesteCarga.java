@@ -0,0 +1,326 @@
+package com.estoque.carga;
+
+import com.estoque.ControleEstoqueApplication;
+import com.estoque.service.AvaliacaoEstoqueMemoria;
+import com.estoque.service.ConjuntoEstoqueBaixo;
+import com.estoque.service.DepositoService;
+import com.estoque.service.IndiceBuscaProdutos;
+import com.estoque.service.IndiceSkus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga HTTP de ponta a ponta: sobe a aplicação no H2 com um catálogo sintético e dispara
+ * uma mistura de requisições a uma taxa constante (modelo aberto). Cada requisição tem um horário
+ * previsto de partida, e a latência é medida a partir dele, não de quando o gerador conseguiu
+ * enviá-la: se o servidor (ou o próprio gerador) atrasar, a espera entra na medição em vez de
+ * simplesmente reduzir a taxa, o que evita a omissão coordenada.
+ *
+ * <p>Configuração por propriedades de sistema (repassadas pelo perfil Maven {@code carga}):
+ * {@code carga.rps}, {@code carga.duracao} e {@code carga.aquecimento} (segundos),
+ * {@code carga.mix} (pesos por operação, ex. {@code sku=50,saida=10,buscar=25,listar=15}),
+ * {@code carga.produtos} (tamanho do catálogo), {@code carga.execucao} (modo de execução da
+ * aplicação, PLATAFORMA ou VIRTUAL) e {@code carga.resultado} (arquivo JSON).
+ */
+public final class TesteCarga {
+
+    enum Operacao {
+        SKU("GET /api/produtos/sku/{sku}"),
+        SAIDA("POST /api/movimentacoes/saida"),
+        BUSCAR("GET /api/produtos/buscar"),
+        LISTAR("GET /api/produtos");
+
+        private final String rotulo;
+
+        Operacao(String rotulo) {
+            this.rotulo = rotulo;
+        }
+    }
+
+    private static final String[] NOMES = {"Caderno", "Caneta", "Grampeador", "Mouse", "Teclado", "Monitor", "Cabo HDMI",
+            "Cadeira", "Mesa", "Lápis", "Borracha", "Notebook", "Fone de ouvido", "Pendrive", "Etiqueta", "Envelope"};
+    private static final String[] ADJETIVOS = {"azul", "preto", "sem fio", "universitário", "reforçado", "compacto", "premium"};
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final int rps;
+    private final int duracao;
+    private final int aquecimento;
+    private final Map<Operacao, Integer> mix;
+    private final int produtos;
+    private final String execucao;
+    private final String resultado;
+
+    private final Map<Operacao, Histogram> latencias = new EnumMap<>(Operacao.class);
+    private final Map<Operacao, AtomicLong> erros = new EnumMap<>(Operacao.class);
+    private final Map<Operacao, AtomicLong> statusErro = new EnumMap<>(Operacao.class);
+    private final Random aleatorio = new Random(42);
+
+    private final AtomicLong emAndamento = new AtomicLong();
+    private final int somaPesos;
+
+    private HttpClient cliente;
+    private String base;
+    private List<Long> ids;
+
+    private TesteCarga() {
+        rps = Integer.getInteger("carga.rps", 200);
+        duracao = Integer.getInteger("carga.duracao", 60);
+        aquecimento = Integer.getInteger("carga.aquecimento", 10);
+        mix = lerMix(System.getProperty("carga.mix", "sku=50,saida=10,buscar=25,listar=15"));
+        produtos = Integer.getInteger("carga.produtos", 10_000);
+        execucao = System.getProperty("carga.execucao", "PLATAFORMA");
+        resultado = System.getProperty("carga.resultado", "target/carga-resultado.json");
+        somaPesos = mix.values().stream().mapToInt(Integer::intValue).sum();
+        for (Operacao operacao : Operacao.values()) {
+            latencias.put(operacao, new ConcurrentHistogram(3));
+            erros.put(operacao, new AtomicLong());
+            statusErro.put(operacao, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new TesteCarga().executar();
+        // Threads do cliente HTTP e da aplicação não devem segurar a JVM do exec-maven-plugin
+        System.exit(0);
+    }
+
+    private void executar() throws Exception {
+        if (rps <= 0 || duracao <= 0 || aquecimento < 0 || produtos <= 0) {
+            throw new IllegalArgumentException("carga.rps, carga.duracao e carga.produtos devem ser positivos");
+        }
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ControleEstoqueApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+                        "--spring.main.banner-mode=off", "--spring.datasource.url=jdbc:h2:mem:carga",
+                        "--estoque.execucao.modo=" + execucao);
+        ExecutorService executor = Executors.newFixedThreadPool(32, tarefa -> {
+            Thread thread = new Thread(tarefa, "carga-cliente");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            semear(contexto);
+            base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+            cliente = HttpClient.newBuilder().executor(executor).connectTimeout(TIMEOUT).build();
+
+            System.out.printf("Carga: %d req/s por %ds (+%ds de aquecimento), %d produtos, mix %s, threads %s%n",
+                    rps, duracao, aquecimento, produtos, mix, execucao);
+            long atrasoMaximo = disparar();
+            relatar(atrasoMaximo);
+        } finally {
+            executor.shutdownNow();
+            contexto.close();
+        }
+    }
+
+    // Estoque alto o bastante para que as saídas não se esgotem durante o teste
+    private void semear(ConfigurableApplicationContext contexto) {
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Long> categorias = jdbc.queryForList("SELECT id FROM categorias", Long.class);
+        List<Object[]> linhas = new ArrayList<>(produtos);
+        for (int i = 0; i < produtos; i++) {
+            String nome = NOMES[i % NOMES.length] + " " + ADJETIVOS[i / NOMES.length % ADJETIVOS.length] + " " + i;
+            BigDecimal custo = BigDecimal.valueOf(100 + i % 9_900, 2);
+            linhas.add(new Object[]{nome, "Descrição do produto " + i, sku(i), custo.multiply(new BigDecimal("1.40")), custo,
+                    i % 20, categorias.get(i % categorias.size())});
+        }
+        jdbc.batchUpdate("INSERT INTO produtos (nome, descricao, sku, preco, preco_custo, quantidade_estoque, quantidade_minima, "
+                + "ativo, categoria_id, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?, 1000000000, ?, true, ?, NOW(), NOW())", linhas);
+
+        ids = jdbc.queryForList("SELECT id FROM produtos WHERE sku LIKE 'CAR-%' ORDER BY sku", Long.class);
+
+        contexto.getBean(DepositoService.class).inicializar();
+        contexto.getBean(IndiceBuscaProdutos.class).reconstruir();
+        contexto.getBean(IndiceSkus.class).reconstruir();
+        contexto.getBean(ConjuntoEstoqueBaixo.class).reconstruir();
+        contexto.getBean(AvaliacaoEstoqueMemoria.class).reconstruir();
+    }
+
+    /**
+     * Envia as requisições nos horários previstos e retorna o maior atraso do gerador em relação
+     * a eles, em nanossegundos. As que partem durante o aquecimento não entram nas estatísticas.
+     */
+    private long disparar() throws InterruptedException {
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / rps;
+        long total = (long) rps * (aquecimento + duracao);
+        long medidasAPartirDe = (long) rps * aquecimento;
+        long inicio = System.nanoTime();
+        long atrasoMaximo = 0;
+
+        for (long i = 0; i < total; i++) {
+            long previsto = inicio + i * intervalo;
+            long espera;
+            while ((espera = previsto - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            atrasoMaximo = Math.max(atrasoMaximo, -espera);
+
+            Operacao operacao = sortear();
+            boolean medir = i >= medidasAPartirDe;
+            emAndamento.incrementAndGet();
+            cliente.sendAsync(requisicao(operacao), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resposta, falha) -> {
+                        registrar(operacao, previsto, resposta, falha, medir);
+                        emAndamento.decrementAndGet();
+                    });
+        }
+
+        long limite = System.nanoTime() + TIMEOUT.toNanos() + TimeUnit.SECONDS.toNanos(5);
+        while (emAndamento.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(50);
+        }
+        if (emAndamento.get() > 0) {
+            System.out.println("Requisições ainda pendentes ao final: " + emAndamento.get());
+        }
+        return atrasoMaximo;
+    }
+
+    private HttpRequest requisicao(Operacao operacao) {
+        int produto = aleatorio.nextInt(produtos);
+        String caminho;
+        HttpRequest.BodyPublisher corpo = null;
+        switch (operacao) {
+            case SKU:
+                caminho = "/api/produtos/sku/" + sku(produto);
+                break;
+            case SAIDA:
+                caminho = "/api/movimentacoes/saida?produtoId=" + ids.get(produto) + "&quantidade=1&motivo=carga";
+                corpo = HttpRequest.BodyPublishers.noBody();
+                break;
+            case BUSCAR:
+                String termo = NOMES[aleatorio.nextInt(NOMES.length)] + " " + ADJETIVOS[aleatorio.nextInt(ADJETIVOS.length)];
+                caminho = "/api/produtos/buscar?termo=" + URLEncoder.encode(termo, StandardCharsets.UTF_8);
+                break;
+            default:
+                caminho = "/api/produtos?limite=50";
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + caminho)).timeout(TIMEOUT);
+        return (corpo == null ? builder.GET() : builder.POST(corpo)).build();
+    }
+
+    private void registrar(Operacao operacao, long previsto, HttpResponse<?> resposta, Throwable falha, boolean medir) {
+        if (!medir) {
+            return;
+        }
+        latencias.get(operacao).recordValue(System.nanoTime() - previsto);
+        if (falha != null) {
+            erros.get(operacao).incrementAndGet();
+        } else if (resposta.statusCode() >= 400) {
+            statusErro.get(operacao).incrementAndGet();
+        }
+    }
+
+    private void relatar(long atrasoMaximo) throws IOException {
+        Map<String, Object> relatorio = new LinkedHashMap<>();
+        relatorio.put("rps", rps);
+        relatorio.put("duracaoSegundos", duracao);
+        relatorio.put("produtos", produtos);
+        relatorio.put("mix", mix);
+        relatorio.put("execucao", execucao);
+        relatorio.put("atrasoMaximoGeradorMs", atrasoMaximo / 1e6);
+
+        System.out.printf("%n%-32s %9s %8s %10s %10s %10s %10s%n", "Endpoint", "Req.", "Erros %", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Operacao operacao : Operacao.values()) {
+            Histogram histograma = latencias.get(operacao);
+            long total = histograma.getTotalCount();
+            if (total == 0) {
+                continue;
+            }
+            long falhas = erros.get(operacao).get() + statusErro.get(operacao).get();
+            double percentualErros = 100.0 * falhas / total;
+            System.out.printf("%-32s %9d %8.2f %10.2f %10.2f %10.2f %10.2f%n", operacao.rotulo, total, percentualErros,
+                    ms(histograma, 50), ms(histograma, 99), ms(histograma, 99.9), histograma.getMaxValue() / 1e6);
+
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("requisicoes", total);
+            linha.put("falhasConexao", erros.get(operacao).get());
+            linha.put("respostasErro", statusErro.get(operacao).get());
+            linha.put("percentualErros", percentualErros);
+            linha.put("p50Ms", ms(histograma, 50));
+            linha.put("p99Ms", ms(histograma, 99));
+            linha.put("p999Ms", ms(histograma, 99.9));
+            linha.put("maxMs", histograma.getMaxValue() / 1e6);
+            endpoints.put(operacao.rotulo, linha);
+        }
+        relatorio.put("endpoints", endpoints);
+        System.out.printf("%nMaior atraso do gerador em relação ao previsto: %.2f ms%n", atrasoMaximo / 1e6);
+
+        File arquivo = new File(resultado);
+        if (arquivo.getParentFile() != null) {
+            arquivo.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(arquivo, relatorio);
+        System.out.println("Resultado salvo em " + arquivo.getAbsolutePath());
+    }
+
+    private Operacao sortear() {
+        int sorteio = aleatorio.nextInt(somaPesos);
+        for (Map.Entry<Operacao, Integer> peso : mix.entrySet()) {
+            sorteio -= peso.getValue();
+            if (sorteio < 0) {
+                return peso.getKey();
+            }
+        }
+        throw new IllegalStateException("Mix sem operações");
+    }
+
+    private static Map<Operacao, Integer> lerMix(String texto) {
+        Map<Operacao, Integer> mix = new EnumMap<>(Operacao.class);
+        for (String parte : texto.split(",")) {
+            String[] chaveValor = parte.trim().split("=");
+            if (chaveValor.length != 2) {
+                throw new IllegalArgumentException("Item do mix inválido: " + parte);
+            }
+            int peso = Integer.parseInt(chaveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("Peso negativo no mix: " + parte);
+            }
+            if (peso > 0) {
+                mix.put(Operacao.valueOf(chaveValor[0].trim().toUpperCase(Locale.ROOT)), peso);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("O mix precisa de ao menos uma operação com peso positivo");
+        }
+        return mix;
+    }
+
+    private static String sku(int indice) {
+        return String.format("CAR-%07d", indice);
+    }
+
+    private static double ms(Histogram histograma, double percentil) {
+        return histograma.getValueAtPercentile(percentil) / 1e6;
+    }
+}
@@ -0,0 +1,73 @@
+package com.estoque.benchmark;
+
+import com.estoque.ControleEstoqueApplication;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.service.AvaliacaoEstoqueMemoria;
+import com.estoque.service.AvaliacaoEstoqueService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Valor do estoque por categoria: agregação SQL no H2 contra a soma fork-join sobre os arrays
+ * em memória, com o catálogo semeado em lote antes das medições.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvaliacaoEstoqueBenchmark {
+
+    @Param({"10000", "100000"})
+    private int produtos;
+
+    private ConfigurableApplicationContext contexto;
+    private AvaliacaoEstoqueService avaliacaoService;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(ControleEstoqueApplication.class)
+                .web(WebApplicationType.NONE)
+                // Sem reaproveitar resultados: o H2 devolveria a mesma agregação sem executá-la de novo
+                .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-avaliacao;OPTIMIZE_REUSE_RESULTS=FALSE");
+
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Long> categorias = jdbc.queryForList("SELECT id FROM categorias", Long.class);
+        List<Object[]> linhas = new ArrayList<>(produtos);
+        for (int i = 0; i < produtos; i++) {
+            BigDecimal custo = BigDecimal.valueOf(100 + i % 9_900, 2);
+            linhas.add(new Object[]{"Produto " + i, "BEN-" + i, custo.multiply(new BigDecimal("1.40")), custo, i % 500,
+                    i % 10 == 0 ? null : categorias.get(i % categorias.size())});
+        }
+        jdbc.batchUpdate("INSERT INTO produtos (nome, sku, preco, preco_custo, quantidade_estoque, quantidade_minima, ativo, "
+                + "categoria_id, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?, 0, true, ?, NOW(), NOW())", linhas);
+
+        contexto.getBean(AvaliacaoEstoqueMemoria.class).reconstruir();
+        avaliacaoService = contexto.getBean(AvaliacaoEstoqueService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ValorEstoqueCategoriaDTO> sql() {
+        return avaliacaoService.avaliar(AvaliacaoEstoqueService.Modo.SQL);
+    }
+
+    @Benchmark
+    public List<ValorEstoqueCategoriaDTO> memoria() {
+        return avaliacaoService.avaliar(AvaliacaoEstoqueService.Modo.MEMORIA);
+    }
+}
@@ -0,0 +1,81 @@
+package com.estoque.benchmark;
+
+import com.estoque.ControleEstoqueApplication;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.service.IndiceBuscaProdutos;
+import com.estoque.service.ProdutoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca textual por tamanho de catálogo: um termo que casa com boa parte dos produtos, um que
+ * casa com um só e um termo curto, que percorre todos os documentos em vez dos trigramas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaProdutosBenchmark {
+
+    private static final String[] NOMES = {"Caderno", "Caneta", "Grampeador", "Mouse", "Teclado", "Monitor", "Cabo HDMI",
+            "Cadeira", "Mesa", "Lápis", "Borracha", "Notebook", "Fone de ouvido", "Pendrive", "Etiqueta", "Envelope"};
+    private static final String[] ADJETIVOS = {"azul", "preto", "sem fio", "universitário", "reforçado", "compacto", "premium"};
+
+    @Param({"1000", "10000", "100000"})
+    private int produtos;
+
+    private ConfigurableApplicationContext contexto;
+    private ProdutoService produtoService;
+    private String skuRaro;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(ControleEstoqueApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-busca;OPTIMIZE_REUSE_RESULTS=FALSE");
+
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Object[]> linhas = new ArrayList<>(produtos);
+        for (int i = 0; i < produtos; i++) {
+            String nome = NOMES[i % NOMES.length] + " " + ADJETIVOS[i / NOMES.length % ADJETIVOS.length] + " " + i;
+            linhas.add(new Object[]{nome, "Descrição do produto " + i, String.format("BUS-%07d", i), BigDecimal.valueOf(1000 + i, 2)});
+        }
+        jdbc.batchUpdate("INSERT INTO produtos (nome, descricao, sku, preco, quantidade_estoque, quantidade_minima, ativo, "
+                + "criado_em, atualizado_em) VALUES (?, ?, ?, ?, 10, 0, true, NOW(), NOW())", linhas);
+        skuRaro = String.format("BUS-%07d", produtos / 2);
+
+        contexto.getBean(IndiceBuscaProdutos.class).reconstruir();
+        produtoService = contexto.getBean(ProdutoService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ProdutoDTO> termoComum() {
+        return produtoService.buscarPorTermo("caderno");
+    }
+
+    @Benchmark
+    public List<ProdutoDTO> termoRaro() {
+        return produtoService.buscarPorTermo(skuRaro);
+    }
+
+    @Benchmark
+    public List<ProdutoDTO> termoCurto() {
+        return produtoService.buscarPorTermo("ca");
+    }
+}
@@ -0,0 +1,67 @@
+package com.estoque.benchmark;
+
+import com.estoque.ControleEstoqueApplication;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.service.DepositoService;
+import com.estoque.service.MovimentacaoEstoqueService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de uma movimentação no H2, da transação ao DTO: UPDATE atômico (na saída), leitura do
+ * produto, INSERT da movimentação e atualização das estruturas em memória após o commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovimentacaoEstoqueBenchmark {
+
+    private ConfigurableApplicationContext contexto;
+    private MovimentacaoEstoqueService movimentacaoService;
+    private Long produtoEntrada;
+    private Long produtoSaida;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(ControleEstoqueApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-movimentacao");
+
+        // Estoque alto o bastante para que as saídas não se esgotem durante as medições
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        for (String sku : new String[]{"BEN-ENTRADA", "BEN-SAIDA"}) {
+            jdbc.update("INSERT INTO produtos (nome, sku, preco, preco_custo, quantidade_estoque, quantidade_minima, ativo, "
+                    + "criado_em, atualizado_em) VALUES (?, ?, 10.00, 5.00, 1000000000, 0, true, NOW(), NOW())", "Produto " + sku, sku);
+        }
+        produtoEntrada = jdbc.queryForObject("SELECT id FROM produtos WHERE sku = 'BEN-ENTRADA'", Long.class);
+        produtoSaida = jdbc.queryForObject("SELECT id FROM produtos WHERE sku = 'BEN-SAIDA'", Long.class);
+        // Inseridos por fora do serviço: o estoque vai para o depósito padrão
+        contexto.getBean(DepositoService.class).inicializar();
+
+        movimentacaoService = contexto.getBean(MovimentacaoEstoqueService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public MovimentacaoEstoqueDTO entrada() {
+        return movimentacaoService.registrarEntrada(produtoEntrada, 1, "Benchmark");
+    }
+
+    @Benchmark
+    public MovimentacaoEstoqueDTO saida() {
+        return movimentacaoService.registrarSaida(produtoSaida, 1, "Benchmark");
+    }
+}
@@ -0,0 +1,63 @@
+package com.estoque.benchmark;
+
+import com.estoque.ControleEstoqueApplication;
+import com.estoque.dto.ProdutoDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização de listas de {@link ProdutoDTO} com o ObjectMapper configurado pela aplicação,
+ * nos tamanhos de página das listagens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoProdutosBenchmark {
+
+    @Param({"1", "50", "1000"})
+    private int produtos;
+
+    private ConfigurableApplicationContext contexto;
+    private ObjectWriter escritor;
+    private List<ProdutoDTO> lista;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        // O contexto só fornece o ObjectMapper com as propriedades spring.jackson.* da aplicação
+        contexto = new SpringApplicationBuilder(ControleEstoqueApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-serializacao");
+        escritor = contexto.getBean(ObjectMapper.class).writer();
+
+        lista = new ArrayList<>(produtos);
+        for (int i = 0; i < produtos; i++) {
+            lista.add(new ProdutoDTO((long) i, "Caderno universitário " + i, "Caderno espiral com 200 folhas",
+                    "BEN-" + i, new BigDecimal("24.90"), new BigDecimal("12.40"), i % 40, 5, true,
+                    i % 3 == 0 ? null : 4L, i % 3 == 0 ? null : "Papelaria", i % 40 <= 5));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public byte[] serializar() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(lista);
+    }
+}
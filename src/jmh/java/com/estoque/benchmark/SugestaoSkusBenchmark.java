@@ -0,0 +1,62 @@
+package com.estoque.benchmark;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.SugestaoSkuDTO;
+import com.estoque.service.IndiceSkus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sugestão de SKUs por prefixo sobre o índice em memória, sem banco: o índice é montado em lote
+ * com SKUs de famílias variadas e cada chamada consulta o próximo de uma lista fixa de prefixos
+ * de um a dois caracteres após a família.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SugestaoSkusBenchmark {
+
+    private static final String[] FAMILIAS = {"NOT", "MOU", "MON", "TEC", "CAB", "IMP", "PAP", "CAD", "HDD", "SSD"};
+
+    @Param({"200000"})
+    private int skus;
+
+    private IndiceSkus indice;
+    private String[] prefixos;
+    private int proximo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        Random random = new Random(42);
+        List<ProdutoDTO> produtos = new ArrayList<>(skus);
+        for (long id = 1; id <= skus; id++) {
+            ProdutoDTO produto = new ProdutoDTO();
+            produto.setId(id);
+            produto.setSku(FAMILIAS[random.nextInt(FAMILIAS.length)] + "-" + Long.toString(id * 7919, 36).toUpperCase() + "-" + (id % 1000));
+            produtos.add(produto);
+        }
+        // Sem repositório: o lote entra direto, como na importação
+        indice = new IndiceSkus(null, null);
+        indice.adicionarTodos(produtos);
+
+        prefixos = new String[10_000];
+        for (int i = 0; i < prefixos.length; i++) {
+            String codigo = Long.toString(random.nextInt(skus) * 7919L, 36).toUpperCase();
+            prefixos[i] = FAMILIAS[random.nextInt(FAMILIAS.length)] + "-" + codigo.substring(0, 1 + random.nextInt(2));
+        }
+    }
+
+    @Benchmark
+    public List<SugestaoSkuDTO> sugerir() {
+        String prefixo = prefixos[proximo];
+        proximo = (proximo + 1) % prefixos.length;
+        return indice.sugerir(prefixo, 10);
+    }
+}
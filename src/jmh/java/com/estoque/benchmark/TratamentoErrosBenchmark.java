@@ -0,0 +1,73 @@
+package com.estoque.benchmark;
+
+import com.estoque.config.GlobalExceptionHandler;
+import com.estoque.controller.ProdutoController;
+import com.estoque.dto.ProdutoDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos de erro do {@link GlobalExceptionHandler}: criação da exceção (com a pilha, como ao
+ * ser lançada pelos serviços), montagem da resposta e serialização do corpo em JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TratamentoErrosBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectWriter escritor;
+    private MethodParameter parametroCriar;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        escritor = Jackson2ObjectMapperBuilder.json().build().writer();
+        parametroCriar = new MethodParameter(ProdutoController.class.getMethod("criar", ProdutoDTO.class), 0);
+    }
+
+    @Benchmark
+    public byte[] naoEncontrado() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(handler.handleEntityNotFound(
+                new EntityNotFoundException("Produto não encontrado com id: 42")).getBody());
+    }
+
+    @Benchmark
+    public byte[] argumentoInvalido() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(handler.handleIllegalArgument(
+                new IllegalArgumentException("Cursor inválido")).getBody());
+    }
+
+    @Benchmark
+    public byte[] estadoInvalido() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(handler.handleIllegalState(
+                new IllegalStateException("Estoque insuficiente. Disponível: 3, Solicitado: 5")).getBody());
+    }
+
+    @Benchmark
+    public byte[] validacao() throws JsonProcessingException {
+        BeanPropertyBindingResult erros = new BeanPropertyBindingResult(new ProdutoDTO(), "produtoDTO");
+        erros.rejectValue("nome", "NotBlank", "Nome é obrigatório");
+        erros.rejectValue("preco", "NotNull", "Preço é obrigatório");
+        erros.rejectValue("quantidadeMinima", "PositiveOrZero", "Quantidade mínima deve ser zero ou positiva");
+        return escritor.writeValueAsBytes(handler.handleValidationErrors(
+                new MethodArgumentNotValidException(parametroCriar, erros)).getBody());
+    }
+
+    @Benchmark
+    public byte[] inesperado() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(handler.handleGenericException(
+                new RuntimeException("Falha inesperada")).getBody());
+    }
+}
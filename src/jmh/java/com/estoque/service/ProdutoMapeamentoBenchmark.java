@@ -0,0 +1,62 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.Categoria;
+import com.estoque.model.Produto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeamento entidade → DTO de {@link ProdutoService}, com e sem categoria. Fica no pacote do
+ * serviço porque o método não é público.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProdutoMapeamentoBenchmark {
+
+    private Produto comCategoria;
+    private Produto semCategoria;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        Categoria categoria = new Categoria();
+        categoria.setId(4L);
+        categoria.setNome("Papelaria");
+
+        comCategoria = produto(1L);
+        comCategoria.setCategoria(categoria);
+        semCategoria = produto(2L);
+    }
+
+    @Benchmark
+    public ProdutoDTO comCategoria() {
+        return ProdutoService.toDTO(comCategoria);
+    }
+
+    @Benchmark
+    public ProdutoDTO semCategoria() {
+        return ProdutoService.toDTO(semCategoria);
+    }
+
+    private Produto produto(Long id) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome("Caderno universitário " + id);
+        produto.setDescricao("Caderno espiral com 200 folhas");
+        produto.setSku("BEN-" + id);
+        produto.setPreco(new BigDecimal("24.90"));
+        produto.setPrecoCusto(new BigDecimal("12.40"));
+        produto.setQuantidadeEstoque(30);
+        produto.setQuantidadeMinima(5);
+        produto.setCriadoEm(LocalDateTime.now());
+        produto.setAtualizadoEm(LocalDateTime.now());
+        return produto;
+    }
+}
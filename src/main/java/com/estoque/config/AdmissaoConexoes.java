@@ -0,0 +1,102 @@
+package com.estoque.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limite de conexões em uso ao mesmo tempo, à frente do pool. Com threads virtuais o número de
+ * requisições simultâneas deixa de ser limitado pelas threads do Tomcat; o semáforo (justo, em
+ * ordem de chegada) faz as excedentes esperarem sem ocupar conexão e desiste após o tempo
+ * configurado, enquanto o pool mantém o tamanho que o banco comporta.
+ */
+public class AdmissaoConexoes implements MeterBinder {
+
+    private final Semaphore permissoes;
+    private final int limite;
+    private final long esperaMs;
+
+    public AdmissaoConexoes(int limite, long esperaMs) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite de conexões simultâneas deve ser positivo");
+        }
+        this.permissoes = new Semaphore(limite, true);
+        this.limite = limite;
+        this.esperaMs = esperaMs;
+    }
+
+    public DataSource envolver(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                adquirir();
+                return liberarAoFechar(() -> super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                adquirir();
+                return liberarAoFechar(() -> super.getConnection(username, password));
+            }
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("estoque.conexoes.admissao.aguardando", permissoes, Semaphore::getQueueLength)
+                .description("Requisições aguardando a admissão a uma conexão do banco")
+                .register(registry);
+        Gauge.builder("estoque.conexoes.admissao.em-uso", permissoes, p -> limite - p.availablePermits())
+                .description("Conexões admitidas e ainda não devolvidas")
+                .register(registry);
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permissoes.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Nenhuma conexão liberada em " + esperaMs + " ms (limite de " + limite + ")");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrompido aguardando conexão", ex);
+        }
+    }
+
+    private Connection liberarAoFechar(Abertura abertura) throws SQLException {
+        Connection conexao;
+        try {
+            conexao = abertura.abrir();
+        } catch (SQLException | RuntimeException ex) {
+            permissoes.release();
+            throw ex;
+        }
+
+        AtomicBoolean devolvida = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("close") && devolvida.compareAndSet(false, true)) {
+                        permissoes.release();
+                    }
+                    try {
+                        return metodo.invoke(conexao, argumentos);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+
+    private interface Abertura {
+        Connection abrir() throws SQLException;
+    }
+}
@@ -0,0 +1,104 @@
+package com.estoque.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache que descarta o valor carregado por uma leitura que começou antes de uma remoção. Sem isso,
+ * quem leu a linha antiga antes do commit de uma alteração a guardaria depois da remoção feita
+ * após o commit, e o valor antigo ficaria no cache até expirar.
+ *
+ * <p>Os {@code @Cacheable} usam {@code sync = true}: a carga passa por {@link #get(Object, Callable)},
+ * sob o bloqueio da chave no Caffeine, e a remoção da mesma chave espera a carga terminar. A
+ * limpeza não espera: percorre as chaves e pula as que estão sendo calculadas. Por isso cada
+ * remoção avança a geração da faixa da chave (a limpeza avança todas), e uma carga que termina
+ * numa geração diferente da que viu ao começar é removida em seguida.
+ */
+final class CacheComGeracoes implements Cache {
+
+    private static final int FAIXAS = 256;
+
+    private final Cache cache;
+    private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS);
+    private final AtomicLong limpezas = new AtomicLong();
+
+    CacheComGeracoes(Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return cache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return cache.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return cache.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long vista = geracao(key);
+        T valor = cache.get(key, valueLoader);
+        if (vista != geracao(key)) {
+            cache.evict(key);
+        }
+        return valor;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return cache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        geracoes.incrementAndGet(faixa(key));
+        cache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        geracoes.incrementAndGet(faixa(key));
+        return cache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        limpezas.incrementAndGet();
+        cache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        limpezas.incrementAndGet();
+        return cache.invalidate();
+    }
+
+    // As duas parcelas só crescem: a soma muda sempre que uma delas muda
+    private long geracao(Object key) {
+        return limpezas.get() + geracoes.get(faixa(key));
+    }
+
+    private static int faixa(Object key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % FAIXAS;
+    }
+}
@@ -0,0 +1,60 @@
+package com.estoque.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches de leitura em memória (Caffeine), um por nome configurado em {@code estoque.cache.specs},
+ * cada um com sua especificação de tamanho e expiração. Um nome não configurado recebe um cache
+ * limitado pelo padrão, nunca um sem limite. Todos passam por {@link CacheComGeracoes}, para que
+ * uma leitura anterior a uma remoção não devolva ao cache o valor removido.
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheConfig.CachesProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(CachesProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new CacheComGeracoes(super.adaptCaffeineCache(name, cache));
+            }
+        };
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(1_000).recordStats());
+        properties.getSpecs().forEach((nome, spec) ->
+                cacheManager.registerCustomCache(nome, Caffeine.from(spec).recordStats().build()));
+        return cacheManager;
+    }
+
+    // As métricas do Caffeine (cache.gets etc.) só reconhecem CaffeineCache: aqui, o cache por baixo do envoltório
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<CacheComGeracoes> metricasCacheComGeracoes() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "estoque.cache")
+    public static class CachesProperties {
+
+        // Nome do cache -> especificação Caffeine (ex.: maximumSize=1000,expireAfterWrite=10m)
+        private Map<String, String> specs = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,31 @@
+package com.estoque.config;
+
+import com.estoque.service.Carga;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+
+/**
+ * Aplica o {@link Carga} dos serviços. Fica por fora do {@code @Transactional}: a vaga é obtida
+ * antes de a transação abrir a conexão, que já sai do pool da classe.
+ */
+@Aspect
+@RequiredArgsConstructor
+public class CargaAspect implements Ordered {
+
+    private final PoolsPorCarga pools;
+
+    @Around("@annotation(carga)")
+    public Object limitar(ProceedingJoinPoint chamada, Carga carga) throws Throwable {
+        return pools.executar(carga.value(), chamada::proceed);
+    }
+
+    // Qualquer ordem antes da do @Transactional (LOWEST_PRECEDENCE) serve; HIGHEST_PRECEDENCE não,
+    // porque passaria à frente do interceptor que expõe a invocação e impediria ligar o parâmetro
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.estoque.config;
+
+import com.estoque.service.TipoCarga;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classes de carga ({@code estoque.cargas.habilitadas=true}). Para cada classe, em
+ * {@code estoque.cargas.<classe>.*}: {@code concorrencia}, {@code fila}, {@code espera-ms},
+ * {@code retry-after-s} e {@code tamanho-pool}; com {@code tamanho-pool} a classe ganha um pool
+ * próprio no mesmo banco, senão usa o pool principal ({@code spring.datasource.hikari}). Os pools
+ * próprios herdam a configuração do principal ({@code spring.datasource.*} e
+ * {@code spring.datasource.hikari.*}) e mudam apenas o nome e o tamanho.
+ */
+@Configuration
+@ConditionalOnProperty(name = "estoque.cargas.habilitadas", havingValue = "true")
+public class CargasConfig {
+
+    // Estáticos: o pós-processador precisa existir antes do DataSource
+    @Bean
+    public static PoolsPorCarga poolsPorCarga(Environment ambiente) {
+        int poolPrincipal = ambiente.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        Map<TipoCarga, PoolsPorCarga.Limites> limites = new EnumMap<>(TipoCarga.class);
+        Map<TipoCarga, DataSource> pools = new EnumMap<>(TipoCarga.class);
+        HikariConfig principal = configuracaoPrincipal(ambiente);
+
+        for (TipoCarga tipo : TipoCarga.values()) {
+            String prefixo = "estoque.cargas." + tipo.name().toLowerCase(Locale.ROOT) + ".";
+            Integer tamanhoPool = ambiente.getProperty(prefixo + "tamanho-pool", Integer.class);
+            int concorrencia = ambiente.getProperty(prefixo + "concorrencia", Integer.class,
+                    tamanhoPool != null ? tamanhoPool : poolPrincipal);
+            limites.put(tipo, new PoolsPorCarga.Limites(concorrencia,
+                    ambiente.getProperty(prefixo + "fila", Integer.class, 0),
+                    ambiente.getProperty(prefixo + "espera-ms", Long.class, 0L),
+                    ambiente.getProperty(prefixo + "retry-after-s", Long.class, 1L)));
+
+            if (tamanhoPool != null) {
+                HikariDataSource pool = new HikariDataSource();
+                principal.copyStateTo(pool);
+                pool.setPoolName("carga-" + tipo.name().toLowerCase(Locale.ROOT));
+                pool.setMaximumPoolSize(tamanhoPool);
+                pools.put(tipo, pool);
+            }
+        }
+        return new PoolsPorCarga(limites, pools);
+    }
+
+    // Mesmas propriedades que o Spring Boot aplica ao pool principal
+    static HikariConfig configuracaoPrincipal(Environment ambiente) {
+        HikariConfig configuracao = new HikariConfig();
+        configuracao.setJdbcUrl(ambiente.getRequiredProperty("spring.datasource.url"));
+        configuracao.setUsername(ambiente.getProperty("spring.datasource.username"));
+        configuracao.setPassword(ambiente.getProperty("spring.datasource.password"));
+        String driver = ambiente.getProperty("spring.datasource.driver-class-name");
+        if (driver != null) {
+            configuracao.setDriverClassName(driver);
+        }
+        Binder.get(ambiente).bind("spring.datasource.hikari", Bindable.ofInstance(configuracao));
+        return configuracao;
+    }
+
+    // Antes das réplicas e dos demais envoltórios: o roteamento por carga fica junto dos pools, e a
+    // AdmissaoConexoes (modo VIRTUAL) envolve o roteador, contando também as conexões dos pools das classes.
+    // O tipo declarado precisa revelar o PriorityOrdered (ver ReplicasLeituraConfig)
+    @Bean
+    static RoteamentoCargaPostProcessor roteamentoCarga(PoolsPorCarga pools) {
+        return new RoteamentoCargaPostProcessor(pools);
+    }
+
+    @Bean
+    public CargaAspect cargaAspect(PoolsPorCarga pools) {
+        return new CargaAspect(pools);
+    }
+
+    // Como nas réplicas: a conexão precisa voltar ao pool a cada transação para que a próxima
+    // chamada da mesma requisição (open-in-view) use o pool da sua classe
+    @Bean
+    public HibernatePropertiesCustomizer conexaoPorTransacaoCargas() {
+        return propriedades -> propriedades.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    static final class RoteamentoCargaPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final PoolsPorCarga pools;
+
+        private RoteamentoCargaPostProcessor(PoolsPorCarga pools) {
+            this.pools = pools;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof HikariDataSource ? pools.rotear((DataSource) bean) : bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.estoque.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+/**
+ * Contabiliza os comandos SQL executados pelo DataSource (via datasource-proxy): quantidade e
+ * tempo por requisição HTTP, na thread que a atende, e registra no log os comandos acima do
+ * limite com o método do controller e os parâmetros. As opções podem ser trocadas em execução
+ * pelo endpoint {@code /actuator/sql}; desligada, a contabilidade não mede nem registra nada.
+ */
+@Slf4j
+public class ContabilidadeSql implements QueryExecutionListener {
+
+    // Lotes grandes (importação, arquivamento) gerariam entradas de log enormes
+    private static final int TAMANHO_MAXIMO_LOG = 4_000;
+    private static final String INICIO = ContabilidadeSql.class.getName() + ".inicio";
+
+    private final ThreadLocal<Contagem> atual = new ThreadLocal<>();
+    private final DefaultQueryLogEntryCreator formatador = new DefaultQueryLogEntryCreator();
+
+    private volatile boolean habilitada;
+    private volatile long limiteLentoMs;
+    private volatile boolean registrarTodos;
+
+    public ContabilidadeSql(boolean habilitada, long limiteLentoMs, boolean registrarTodos) {
+        configurar(habilitada, limiteLentoMs, registrarTodos);
+    }
+
+    public void configurar(Boolean habilitada, Long limiteLentoMs, Boolean registrarTodos) {
+        if (limiteLentoMs != null && limiteLentoMs < 0) {
+            throw new IllegalArgumentException("O limite de comando lento deve ser zero ou positivo");
+        }
+        if (habilitada != null) {
+            this.habilitada = habilitada;
+        }
+        if (limiteLentoMs != null) {
+            this.limiteLentoMs = limiteLentoMs;
+        }
+        if (registrarTodos != null) {
+            this.registrarTodos = registrarTodos;
+        }
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public long getLimiteLentoMs() {
+        return limiteLentoMs;
+    }
+
+    public boolean isRegistrarTodos() {
+        return registrarTodos;
+    }
+
+    /** Passa a contar os comandos da thread corrente; retorna a contagem até {@link #encerrar()}. */
+    public Contagem iniciar() {
+        Contagem contagem = new Contagem();
+        atual.set(contagem);
+        return contagem;
+    }
+
+    public void encerrar() {
+        atual.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (habilitada) {
+            execInfo.addCustomValue(INICIO, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long inicio = execInfo.getCustomValue(INICIO, Long.class);
+        if (!habilitada || inicio == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        Contagem contagem = atual.get();
+        if (contagem != null) {
+            contagem.comandos++;
+            contagem.nanos += nanos;
+        }
+
+        boolean lento = nanos >= limiteLentoMs * 1_000_000;
+        if (lento || registrarTodos) {
+            String entrada = formatador.getLogEntry(execInfo, queryInfoList, false, false, false);
+            if (entrada.length() > TAMANHO_MAXIMO_LOG) {
+                entrada = entrada.substring(0, TAMANHO_MAXIMO_LOG) + "... (" + entrada.length() + " caracteres)";
+            }
+            if (lento) {
+                log.warn("SQL lento ({} ms) em {}: {}", nanos / 1_000_000, origem(), entrada);
+            } else {
+                log.info("SQL em {}: {}", origem(), entrada);
+            }
+        }
+    }
+
+    // O método do controller que atende a requisição corrente, ou a thread fora de requisições
+    private static String origem() {
+        RequestAttributes requisicao = RequestContextHolder.getRequestAttributes();
+        Object handler = requisicao == null ? null
+                : requisicao.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod metodo = (HandlerMethod) handler;
+            return metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName();
+        }
+        return "thread " + Thread.currentThread().getName();
+    }
+
+    public static final class Contagem {
+
+        private int comandos;
+        private long nanos;
+
+        public int getComandos() {
+            return comandos;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
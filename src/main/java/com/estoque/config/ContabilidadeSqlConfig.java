@@ -0,0 +1,43 @@
+package com.estoque.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Envolve o DataSource num proxy que repassa cada comando à {@link ContabilidadeSql}. Substitui o
+ * {@code spring.jpa.show-sql}: {@code estoque.sql.registrar-todos} registra todos os comandos, já
+ * com os parâmetros e a origem.
+ */
+@Configuration
+public class ContabilidadeSqlConfig {
+
+    // Estáticos: o pós-processador precisa existir antes do DataSource, sem instanciar esta classe
+    @Bean
+    public static ContabilidadeSql contabilidadeSql(@Value("${estoque.sql.habilitada:true}") boolean habilitada,
+                                                    @Value("${estoque.sql.limite-lento-ms:200}") long limiteLentoMs,
+                                                    @Value("${estoque.sql.registrar-todos:false}") boolean registrarTodos) {
+        return new ContabilidadeSql(habilitada, limiteLentoMs, registrarTodos);
+    }
+
+    @Bean
+    public static BeanPostProcessor proxyDataSource(ContabilidadeSql contabilidade) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(beanName)
+                            .listener(contabilidade)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
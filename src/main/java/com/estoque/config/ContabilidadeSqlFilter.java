@@ -0,0 +1,129 @@
+package com.estoque.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conta os comandos SQL de cada requisição e os devolve nos cabeçalhos {@code X-SQL-Count} e
+ * {@code X-SQL-Time} (ms), escritos no último momento antes de a resposta começar a ser enviada.
+ * Comandos executados depois disso (carregamento lazy durante a serialização) ficam fora dos
+ * cabeçalhos, mas entram nas métricas, registradas ao fim da requisição. Só conta a thread da
+ * requisição: o streaming assíncrono (exportação, SSE) roda em outras threads.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContabilidadeSqlFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO_QUANTIDADE = "X-SQL-Count";
+    public static final String CABECALHO_TEMPO = "X-SQL-Time";
+
+    private final ContabilidadeSql contabilidade;
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!contabilidade.isHabilitada()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ContabilidadeSql.Contagem contagem = contabilidade.iniciar();
+        RespostaComCabecalhos resposta = new RespostaComCabecalhos(response, contagem);
+        try {
+            chain.doFilter(request, resposta);
+        } finally {
+            contabilidade.encerrar();
+            resposta.escreverCabecalhos();
+            registrar(request, contagem);
+        }
+    }
+
+    private void registrar(HttpServletRequest request, ContabilidadeSql.Contagem contagem) {
+        Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String tag = rota == null ? "sem-rota" : rota.toString();
+        DistributionSummary.builder("estoque.requisicao.sql.comandos")
+                .description("Comandos SQL por requisição HTTP")
+                .tag("rota", tag)
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                .register(registry)
+                .record(contagem.getComandos());
+        Timer.builder("estoque.requisicao.sql.tempo")
+                .description("Tempo total em comandos SQL por requisição HTTP")
+                .tag("rota", tag)
+                .register(registry)
+                .record(contagem.getNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static final class RespostaComCabecalhos extends HttpServletResponseWrapper {
+
+        private final ContabilidadeSql.Contagem contagem;
+        private boolean escritos;
+
+        RespostaComCabecalhos(HttpServletResponse response, ContabilidadeSql.Contagem contagem) {
+            super(response);
+            this.contagem = contagem;
+        }
+
+        void escreverCabecalhos() {
+            if (escritos || isCommitted()) {
+                return;
+            }
+            escritos = true;
+            setHeader(CABECALHO_QUANTIDADE, Integer.toString(contagem.getComandos()));
+            setHeader(CABECALHO_TEMPO, String.format(Locale.ROOT, "%.3f", contagem.getNanos() / 1e6));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            escreverCabecalhos();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            escreverCabecalhos();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            escreverCabecalhos();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            escreverCabecalhos();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            escreverCabecalhos();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            escreverCabecalhos();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.estoque.config;
 
+import com.estoque.service.CargaSaturadaException;
+import com.estoque.service.ResultadoIncertoException;
 import javax.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -45,6 +48,28 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    @ExceptionHandler(CargaSaturadaException.class)
+    public ResponseEntity<Map<String, Object>> handleCargaSaturada(CargaSaturadaException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Serviço sobrecarregado");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSegundos()))
+                .body(response);
+    }
+
+    @ExceptionHandler(ResultadoIncertoException.class)
+    public ResponseEntity<Map<String, Object>> handleResultadoIncerto(ResultadoIncertoException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
+        response.put("error", "Resultado desconhecido");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationErrors(MethodArgumentNotValidException ex) {
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,73 @@
+package com.estoque.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Leitura das próprias escritas com réplicas: a requisição que altera dados (qualquer método além
+ * de GET, HEAD e OPTIONS) usa só a primária e marca o cliente com um cookie; enquanto a marca
+ * estiver dentro da janela da política, as leituras desse cliente também ficam na primária.
+ * Com open-in-view a conexão de uma requisição de escrita seria reaproveitada entre transações,
+ * então fixar a primária na requisição inteira também evita uma escrita numa réplica.
+ */
+@RequiredArgsConstructor
+public class LeituraAposEscritaFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "estoque-ultima-escrita";
+
+    private final ReplicasLeitura replicas;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean escrita = !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                || "OPTIONS".equals(request.getMethod()));
+        if (escrita) {
+            marcar(response);
+        }
+        if (!escrita && !escreveuRecentemente(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        replicas.fixarPrimaria();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            replicas.liberarPrimaria();
+        }
+    }
+
+    // Antes de a resposta começar a ser enviada; marcar uma escrita que acabou falhando só adia as réplicas
+    private void marcar(HttpServletResponse response) {
+        Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (replicas.getJanelaMs() + 999) / 1000));
+        response.addCookie(cookie);
+    }
+
+    private boolean escreveuRecentemente(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return replicas.exigePrimaria(Long.parseLong(cookie.getValue()));
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package com.estoque.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Habilita o {@code @Timed} nos serviços: cada método público vira um timer
+ * {@code estoque.servico} com as tags {@code class} e {@code method}.
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
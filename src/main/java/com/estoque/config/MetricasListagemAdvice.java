@@ -0,0 +1,55 @@
+package com.estoque.config;
+
+import com.estoque.dto.PaginaDTO;
+import com.estoque.service.MetricasEstoque;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Mede quantas linhas cada listagem (GET que devolve uma lista ou uma página) retorna, com o
+ * padrão da rota como tag para não criar uma série por id ou SKU.
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class MetricasListagemAdvice implements ResponseBodyAdvice<Object> {
+
+    private final MetricasEstoque metricas;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+
+        Collection<?> linhas = null;
+        if (body instanceof Collection) {
+            linhas = (Collection<?>) body;
+        } else if (body instanceof PaginaDTO) {
+            linhas = ((PaginaDTO<?>) body).getItens();
+        }
+        Object rota = ((ServletServerHttpRequest) request).getServletRequest()
+                .getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (linhas != null && rota != null) {
+            metricas.linhasListagem(rota.toString(), linhas.size());
+        }
+        return body;
+    }
+}
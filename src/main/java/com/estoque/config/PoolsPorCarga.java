@@ -0,0 +1,225 @@
+package com.estoque.config;
+
+import com.estoque.service.CargaSaturadaException;
+import com.estoque.service.TipoCarga;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolamento por classe de carga ({@link TipoCarga}): cada classe tem um limite de chamadas em
+ * execução, uma fila limitada com espera máxima e, opcionalmente, um pool de conexões próprio; as
+ * classes sem pool próprio usam o pool principal. A classe vale para a thread enquanto o método
+ * anotado executa, e as conexões abertas nesse intervalo vêm do pool dela.
+ */
+public class PoolsPorCarga implements MeterBinder, Closeable {
+
+    private final Map<TipoCarga, Classe> classes = new EnumMap<>(TipoCarga.class);
+    private final Map<TipoCarga, DataSource> pools;
+    private final ThreadLocal<TipoCarga> atual = new ThreadLocal<>();
+
+    public PoolsPorCarga(Map<TipoCarga, Limites> limites, Map<TipoCarga, DataSource> pools) {
+        for (TipoCarga tipo : TipoCarga.values()) {
+            Limites limite = limites.get(tipo);
+            if (limite == null) {
+                throw new IllegalArgumentException("Limites ausentes para a carga " + tipo);
+            }
+            classes.put(tipo, new Classe(tipo, limite));
+        }
+        this.pools = new EnumMap<>(TipoCarga.class);
+        this.pools.putAll(pools);
+    }
+
+    /** O DataSource da aplicação: entrega a conexão do pool da classe corrente da thread. */
+    public DataSource rotear(DataSource principal) {
+        return new Roteador(principal);
+    }
+
+    /**
+     * Executa a chamada na classe informada, esperando vaga conforme os limites dela. Dentro de
+     * outra chamada já admitida, executa direto na classe de fora.
+     */
+    public Object executar(TipoCarga tipo, Chamada chamada) throws Throwable {
+        if (atual.get() != null) {
+            return chamada.executar();
+        }
+        Classe classe = classes.get(tipo);
+        classe.admitir();
+        atual.set(tipo);
+        try {
+            return chamada.executar();
+        } finally {
+            atual.remove();
+            classe.permissoes.release();
+        }
+    }
+
+    // Os pools das classes não são beans: sem isto, só o principal teria as métricas hikaricp.*
+    // (com a tag pool=carga-<classe> nos demais)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        classes.values().forEach(classe -> classe.registrar(registry));
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof HikariDataSource) {
+                HikariDataSource hikari = (HikariDataSource) pool;
+                if (hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof Closeable) {
+                ((Closeable) pool).close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Chamada {
+        Object executar() throws Throwable;
+    }
+
+    /**
+     * @param concorrencia chamadas em execução ao mesmo tempo
+     * @param fila         chamadas que podem aguardar vaga; além disso, a recusa é imediata
+     * @param esperaMs     espera máxima por vaga
+     * @param retryAfterSegundos sugerido ao cliente recusado
+     */
+    public static final class Limites {
+
+        private final int concorrencia;
+        private final int fila;
+        private final long esperaMs;
+        private final long retryAfterSegundos;
+
+        public Limites(int concorrencia, int fila, long esperaMs, long retryAfterSegundos) {
+            if (concorrencia < 1 || fila < 0 || esperaMs < 0 || retryAfterSegundos < 0) {
+                throw new IllegalArgumentException("A concorrência deve ser positiva; fila, espera e Retry-After não podem ser negativos");
+            }
+            this.concorrencia = concorrencia;
+            this.fila = fila;
+            this.esperaMs = esperaMs;
+            this.retryAfterSegundos = retryAfterSegundos;
+        }
+    }
+
+    private static final class Classe {
+
+        private final TipoCarga tipo;
+        private final Limites limites;
+        private final Semaphore permissoes;
+        private final AtomicInteger aguardando = new AtomicInteger();
+        private final AtomicLong rejeitadas = new AtomicLong();
+        private volatile Timer espera;
+
+        private Classe(TipoCarga tipo, Limites limites) {
+            this.tipo = tipo;
+            this.limites = limites;
+            this.permissoes = new Semaphore(limites.concorrencia, true);
+        }
+
+        private void admitir() {
+            long inicio = System.nanoTime();
+            if (!permissoes.tryAcquire()) {
+                if (aguardando.incrementAndGet() > limites.fila) {
+                    aguardando.decrementAndGet();
+                    throw rejeitar("fila cheia");
+                }
+                try {
+                    if (!permissoes.tryAcquire(limites.esperaMs, TimeUnit.MILLISECONDS)) {
+                        throw rejeitar("nenhuma vaga em " + limites.esperaMs + " ms");
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw rejeitar("interrompida aguardando vaga");
+                } finally {
+                    aguardando.decrementAndGet();
+                }
+            }
+            Timer timer = espera;
+            if (timer != null) {
+                timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private CargaSaturadaException rejeitar(String motivo) {
+            rejeitadas.incrementAndGet();
+            return new CargaSaturadaException("Carga " + tipo + " saturada (" + limites.concorrencia + " em execução): " + motivo,
+                    limites.retryAfterSegundos);
+        }
+
+        private void registrar(MeterRegistry registry) {
+            String classe = tipo.name();
+            espera = Timer.builder("estoque.carga.espera")
+                    .description("Espera por vaga na classe de carga antes de executar")
+                    .tag("classe", classe)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            FunctionCounter.builder("estoque.carga.rejeitadas", rejeitadas, AtomicLong::get)
+                    .description("Chamadas recusadas por saturação da classe de carga")
+                    .tag("classe", classe)
+                    .register(registry);
+            Gauge.builder("estoque.carga.em-execucao", permissoes, p -> limites.concorrencia - p.availablePermits())
+                    .description("Chamadas em execução na classe de carga")
+                    .tag("classe", classe)
+                    .register(registry);
+            Gauge.builder("estoque.carga.aguardando", aguardando, AtomicInteger::get)
+                    .description("Chamadas aguardando vaga na classe de carga")
+                    .tag("classe", classe)
+                    .register(registry);
+        }
+    }
+
+    private final class Roteador extends AbstractDataSource {
+
+        private final DataSource principal;
+
+        private Roteador(DataSource principal) {
+            this.principal = principal;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            TipoCarga tipo = atual.get();
+            DataSource pool = tipo == null ? null : pools.get(tipo);
+            return (pool == null ? principal : pool).getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return principal.getConnection(username, password);
+        }
+
+        // Métricas e diagnósticos do pool (Hikari) enxergam o pool principal
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : principal.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || principal.isWrapperFor(iface);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.estoque.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réplicas de leitura: transações {@code readOnly} vão para uma réplica saudável, em rodízio, e o
+ * restante para a primária. Uma verificação periódica tira de circulação a réplica que não
+ * responde ou cujo atraso de replicação passa do máximo; sem réplica saudável, tudo vai para a
+ * primária. Pela política {@link Politica#LER_PROPRIAS_ESCRITAS}, quem acabou de escrever lê da
+ * primária durante uma janela (ver {@link LeituraAposEscritaFilter}).
+ */
+@Slf4j
+public class ReplicasLeitura implements MeterBinder, Closeable {
+
+    public enum Politica { LER_PROPRIAS_ESCRITAS, SEMPRE_REPLICA }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final String consultaAtraso;
+    private final long atrasoMaximoMs;
+    private final Politica politica;
+    private final long janelaMs;
+    private final ThreadLocal<Boolean> primariaFixada = new ThreadLocal<>();
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final AtomicLong conexoesPrimaria = new AtomicLong();
+    private final AtomicLong conexoesReplica = new AtomicLong();
+    private final ScheduledExecutorService verificador;
+
+    /**
+     * @param replicas       nome e DataSource de cada réplica, na ordem do rodízio
+     * @param consultaAtraso consulta que devolve o atraso de replicação em ms; vazia, só a conexão é verificada
+     * @param intervaloMs    intervalo entre verificações; zero não agenda (verificação só por {@link #verificar()})
+     */
+    public ReplicasLeitura(Map<String, DataSource> replicas, String consultaAtraso, long atrasoMaximoMs,
+                           long intervaloMs, Politica politica, long janelaMs) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma réplica de leitura");
+        }
+        if (atrasoMaximoMs < 0 || intervaloMs < 0 || janelaMs < 0) {
+            throw new IllegalArgumentException("Atraso máximo, intervalo e janela das réplicas não podem ser negativos");
+        }
+        replicas.forEach((nome, dataSource) -> this.replicas.add(new Replica(nome, dataSource)));
+        this.consultaAtraso = consultaAtraso;
+        this.atrasoMaximoMs = atrasoMaximoMs;
+        this.politica = politica;
+        this.janelaMs = janelaMs;
+
+        verificar();
+        if (intervaloMs > 0) {
+            verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "verificacao-replicas");
+                thread.setDaemon(true);
+                return thread;
+            });
+            verificador.scheduleWithFixedDelay(this::verificar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        } else {
+            verificador = null;
+        }
+    }
+
+    /**
+     * O DataSource da aplicação: a conexão real só é obtida no primeiro comando, quando a
+     * transação (e o seu {@code readOnly}) já está definida.
+     */
+    public DataSource rotear(DataSource primaria) {
+        return new LazyConnectionDataSourceProxy(new Roteador(primaria));
+    }
+
+    /** Quem escreveu em {@code ultimaEscritaMs} (epoch) ainda deve ler da primária? */
+    public boolean exigePrimaria(long ultimaEscritaMs) {
+        return politica == Politica.LER_PROPRIAS_ESCRITAS && System.currentTimeMillis() - ultimaEscritaMs < janelaMs;
+    }
+
+    public long getJanelaMs() {
+        return janelaMs;
+    }
+
+    /** Leva todas as conexões da thread corrente à primária até {@link #liberarPrimaria()}. */
+    public void fixarPrimaria() {
+        primariaFixada.set(Boolean.TRUE);
+    }
+
+    public void liberarPrimaria() {
+        primariaFixada.remove();
+    }
+
+    public void verificar() {
+        for (Replica replica : replicas) {
+            boolean saudavel;
+            String motivo = null;
+            try (Connection conexao = replica.dataSource.getConnection()) {
+                long atraso = atraso(conexao);
+                saudavel = atraso <= atrasoMaximoMs;
+                if (!saudavel) {
+                    motivo = "atraso de " + atraso + " ms";
+                }
+            } catch (SQLException | RuntimeException ex) {
+                saudavel = false;
+                motivo = ex.getMessage();
+            }
+            if (saudavel != replica.saudavel) {
+                if (saudavel) {
+                    log.info("Réplica {} de volta ao rodízio de leitura", replica.nome);
+                } else {
+                    log.warn("Réplica {} fora do rodízio de leitura: {}", replica.nome, motivo);
+                }
+                replica.saudavel = saudavel;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("estoque.replicas.saudaveis", replicas, r -> r.stream().filter(replica -> replica.saudavel).count())
+                .description("Réplicas de leitura no rodízio")
+                .register(registry);
+        FunctionCounter.builder("estoque.replicas.conexoes", conexoesReplica, AtomicLong::get)
+                .description("Conexões entregues pelo roteamento de leitura, por destino")
+                .tag("destino", "replica")
+                .register(registry);
+        FunctionCounter.builder("estoque.replicas.conexoes", conexoesPrimaria, AtomicLong::get)
+                .description("Conexões entregues pelo roteamento de leitura, por destino")
+                .tag("destino", "primaria")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (verificador != null) {
+            verificador.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private long atraso(Connection conexao) throws SQLException {
+        if (!StringUtils.hasText(consultaAtraso)) {
+            if (!conexao.isValid(5)) {
+                throw new SQLException("Conexão inválida");
+            }
+            return 0;
+        }
+        try (Statement comando = conexao.createStatement(); ResultSet resultado = comando.executeQuery(consultaAtraso)) {
+            return resultado.next() ? resultado.getLong(1) : 0;
+        }
+    }
+
+    // Em rodízio a partir da próxima da vez, pulando as que estão fora
+    private Replica escolher() {
+        int inicio = Math.floorMod(proxima.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            if (replica.saudavel) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private final class Roteador extends AbstractDataSource {
+
+        private final DataSource primaria;
+
+        private Roteador(DataSource primaria) {
+            this.primaria = primaria;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && primariaFixada.get() == null) {
+                Replica replica = escolher();
+                if (replica != null) {
+                    try {
+                        Connection conexao = replica.dataSource.getConnection();
+                        conexoesReplica.incrementAndGet();
+                        return conexao;
+                    } catch (SQLException ex) {
+                        // Caiu entre duas verificações: fica fora até a próxima e a leitura segue na primária
+                        log.warn("Réplica {} fora do rodízio de leitura: {}", replica.nome, ex.getMessage());
+                        replica.saudavel = false;
+                    }
+                }
+            }
+            conexoesPrimaria.incrementAndGet();
+            return primaria.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            conexoesPrimaria.incrementAndGet();
+            return primaria.getConnection(username, password);
+        }
+
+        // Métricas e diagnósticos do pool (Hikari) enxergam a primária
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : primaria.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || primaria.isWrapperFor(iface);
+        }
+    }
+
+    private static final class Replica {
+
+        private final String nome;
+        private final DataSource dataSource;
+        private volatile boolean saudavel = true;
+
+        private Replica(String nome, DataSource dataSource) {
+            this.nome = nome;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.estoque.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Roteamento de leituras para réplicas ({@code estoque.replicas.habilitadas=true}). Cada URL de
+ * {@code estoque.replicas.urls} ganha um pool próprio, somente leitura, com as credenciais da
+ * primária salvo indicação em contrário; as transações {@code readOnly} passam a usar esses pools
+ * (ver {@link ReplicasLeitura}). Só o DataSource da aplicação é roteado, o bean
+ * {@code estoque.replicas.datasource} ({@code dataSource}, o do Spring Boot, por padrão).
+ */
+@Configuration
+@ConditionalOnProperty(name = "estoque.replicas.habilitadas", havingValue = "true")
+public class ReplicasLeituraConfig {
+
+    // Estáticos: o pós-processador precisa existir antes do DataSource
+    @Bean
+    public static ReplicasLeitura replicasLeitura(
+            @Value("${estoque.replicas.urls}") String[] urls,
+            @Value("${estoque.replicas.usuario:${spring.datasource.username:}}") String usuario,
+            @Value("${estoque.replicas.senha:${spring.datasource.password:}}") String senha,
+            @Value("${estoque.replicas.tamanho-pool:${spring.datasource.hikari.maximum-pool-size:10}}") int tamanhoPool,
+            @Value("${estoque.replicas.espera-conexao-ms:2000}") long esperaConexaoMs,
+            @Value("${estoque.replicas.consulta-atraso:}") String consultaAtraso,
+            @Value("${estoque.replicas.atraso-maximo-ms:5000}") long atrasoMaximoMs,
+            @Value("${estoque.replicas.intervalo-verificacao-ms:5000}") long intervaloMs,
+            @Value("${estoque.replicas.politica:LER_PROPRIAS_ESCRITAS}") ReplicasLeitura.Politica politica,
+            @Value("${estoque.replicas.janela-ms:5000}") long janelaMs) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            String nome = "replica-" + (i + 1);
+            // Sem abrir conexões aqui: uma réplica fora do ar não impede a subida, só fica fora do rodízio
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(nome);
+            pool.setJdbcUrl(urls[i].trim());
+            pool.setUsername(usuario);
+            pool.setPassword(senha);
+            pool.setMaximumPoolSize(tamanhoPool);
+            pool.setConnectionTimeout(esperaConexaoMs);
+            pool.setReadOnly(true);
+            replicas.put(nome, pool);
+        }
+        return new ReplicasLeitura(replicas, consultaAtraso, atrasoMaximoMs, intervaloMs, politica, janelaMs);
+    }
+
+    // Antes dos demais pós-processadores de DataSource (salvo o das classes de carga, que envolve
+    // o pool principal), para que a contabilidade de SQL e a admissão de conexões envolvam também
+    // as réplicas. O tipo declarado precisa revelar o PriorityOrdered: a ordem dos
+    // pós-processadores é decidida antes de instanciá-los
+    @Bean
+    static RoteamentoPostProcessor roteamentoLeitura(ReplicasLeitura replicas,
+                                                     @Value("${estoque.replicas.datasource:dataSource}") String beanPrimaria) {
+        return new RoteamentoPostProcessor(replicas, beanPrimaria);
+    }
+
+    @Bean
+    public LeituraAposEscritaFilter leituraAposEscritaFilter(ReplicasLeitura replicas) {
+        return new LeituraAposEscritaFilter(replicas);
+    }
+
+    // O Hibernate prenderia a primeira conexão à sessão, que com open-in-view dura a requisição:
+    // devolvê-la a cada transação permite rotear cada uma conforme o seu readOnly
+    @Bean
+    public HibernatePropertiesCustomizer conexaoPorTransacao() {
+        return propriedades -> propriedades.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    static final class RoteamentoPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final ReplicasLeitura replicas;
+        private final String beanPrimaria;
+
+        RoteamentoPostProcessor(ReplicasLeitura replicas, String beanPrimaria) {
+            this.replicas = replicas;
+            this.beanPrimaria = beanPrimaria;
+        }
+
+        // Só o DataSource da aplicação: outro DataSource declarado como bean (de outro banco, por
+        // exemplo) não tem réplicas e seguiria para as da primária
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof DataSource && beanPrimaria.equals(beanName) ? replicas.rotear((DataSource) bean) : bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.estoque.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Liga, desliga e ajusta a contabilidade de SQL sem reiniciar: {@code GET /actuator/sql} mostra
+ * as opções e {@code POST /actuator/sql} com {@code {"limiteLentoMs": 50}} (por exemplo) as altera.
+ */
+@Component
+@Endpoint(id = "sql")
+@RequiredArgsConstructor
+public class SqlEndpoint {
+
+    private final ContabilidadeSql contabilidade;
+
+    @ReadOperation
+    public Map<String, Object> opcoes() {
+        Map<String, Object> opcoes = new LinkedHashMap<>();
+        opcoes.put("habilitada", contabilidade.isHabilitada());
+        opcoes.put("limiteLentoMs", contabilidade.getLimiteLentoMs());
+        opcoes.put("registrarTodos", contabilidade.isRegistrarTodos());
+        return opcoes;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configurar(@Nullable Boolean habilitada, @Nullable Long limiteLentoMs, @Nullable Boolean registrarTodos) {
+        contabilidade.configurar(habilitada, limiteLentoMs, registrarTodos);
+        return opcoes();
+    }
+}
@@ -0,0 +1,75 @@
+package com.estoque.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo de execução opcional ({@code estoque.execucao.modo=VIRTUAL}): o Tomcat atende cada
+ * requisição numa thread virtual, assim como o executor de tarefas da aplicação (requisições
+ * assíncronas do MVC e {@code @Async}). Exige um JVM 21 ou mais novo em execução; o build
+ * continua em Java 11, por isso o executor é obtido por reflexão. Como a quantidade de
+ * requisições simultâneas deixa de ter teto, o acesso ao banco passa pela {@link AdmissaoConexoes}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "estoque.execucao.modo", havingValue = "VIRTUAL")
+public class ThreadsVirtuaisConfig {
+
+    private final ExecutorService executor = threadsVirtuais();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> threadsVirtuaisTomcat() {
+        log.info("Requisições HTTP atendidas em threads virtuais");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(executor);
+    }
+
+    // Estáticos: o pós-processador precisa existir antes do DataSource
+    @Bean
+    public static AdmissaoConexoes admissaoConexoes(
+            @Value("${estoque.execucao.conexoes-simultaneas:${spring.datasource.hikari.maximum-pool-size:10}}") int limite,
+            @Value("${estoque.execucao.espera-conexao-ms:30000}") long esperaMs) {
+        return new AdmissaoConexoes(limite, esperaMs);
+    }
+
+    @Bean
+    public static BeanPostProcessor admissaoDataSource(AdmissaoConexoes admissao) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? admissao.envolver((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    static ExecutorService threadsVirtuais() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("estoque.execucao.modo=VIRTUAL exige Java 21 ou mais novo; em execução: "
+                    + System.getProperty("java.version"), ex);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.estoque.controller;
+
+import com.estoque.dto.EstatisticasCacheDTO;
+import com.estoque.service.CachesLeitura;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/caches")
+@RequiredArgsConstructor
+@Tag(name = "Caches", description = "Estatísticas dos caches de leitura")
+public class CacheController {
+
+    private final CachesLeitura cachesLeitura;
+
+    @GetMapping
+    @Operation(summary = "Estatísticas dos caches", description = "Retorna tamanho, acertos, faltas, taxa de acerto e remoções por expiração ou tamanho de cada cache")
+    public ResponseEntity<List<EstatisticasCacheDTO>> estatisticas() {
+        return ResponseEntity.ok(cachesLeitura.estatisticas());
+    }
+}
@@ -1,6 +1,7 @@
 package com.estoque.controller;
 
 import com.estoque.dto.CategoriaDTO;
+import com.estoque.dto.PaginaDTO;
 import com.estoque.service.CategoriaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,8 +13,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/categorias")
 @RequiredArgsConstructor
@@ -23,9 +22,11 @@ public class CategoriaController {
     private final CategoriaService categoriaService;
 
     @GetMapping
-    @Operation(summary = "Listar todas as categorias", description = "Retorna a lista completa de categorias cadastradas")
-    public ResponseEntity<List<CategoriaDTO>> listarTodas() {
-        return ResponseEntity.ok(categoriaService.listarTodas());
+    @Operation(summary = "Listar todas as categorias", description = "Retorna as categorias cadastradas em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<CategoriaDTO>> listarTodas(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(categoriaService.listarTodas(cursor, limite));
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,51 @@
+package com.estoque.controller;
+
+import com.estoque.dto.DepositoDTO;
+import com.estoque.dto.EstoqueDepositoDTO;
+import com.estoque.service.DepositoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import javax.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/depositos")
+@RequiredArgsConstructor
+@Tag(name = "Depósitos", description = "Depósitos e estoque de cada produto por depósito")
+public class DepositoController {
+
+    private final DepositoService depositoService;
+
+    @GetMapping
+    @Operation(summary = "Listar todos os depósitos", description = "Retorna os depósitos cadastrados ordenados por código")
+    public ResponseEntity<List<DepositoDTO>> listarTodos() {
+        return ResponseEntity.ok(depositoService.listarTodos());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Buscar depósito por ID", description = "Retorna um depósito específico pelo seu ID")
+    public ResponseEntity<DepositoDTO> buscarPorId(@Parameter(description = "ID do depósito") @PathVariable Long id) {
+        return ResponseEntity.ok(depositoService.buscarPorId(id));
+    }
+
+    @PostMapping
+    @Operation(summary = "Criar novo depósito", description = "Cadastra um novo depósito, inicialmente sem estoque")
+    @ApiResponse(responseCode = "201", description = "Depósito criado com sucesso")
+    public ResponseEntity<DepositoDTO> criar(@Valid @RequestBody DepositoDTO dto) {
+        DepositoDTO deposito = depositoService.criar(dto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(deposito);
+    }
+
+    @GetMapping("/produto/{produtoId}")
+    @Operation(summary = "Estoque do produto por depósito", description = "Retorna a quantidade do produto em cada depósito; a soma é o estoque total do produto")
+    public ResponseEntity<List<EstoqueDepositoDTO>> estoquesDoProduto(@Parameter(description = "ID do produto") @PathVariable Long produtoId) {
+        return ResponseEntity.ok(depositoService.estoquesDoProduto(produtoId));
+    }
+}
@@ -0,0 +1,26 @@
+package com.estoque.controller;
+
+import com.estoque.service.EventosEstoqueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/eventos")
+@RequiredArgsConstructor
+@Tag(name = "Eventos", description = "Notificações de alterações de estoque em tempo real")
+public class EventoEstoqueController {
+
+    private final EventosEstoqueService eventosService;
+
+    @GetMapping(path = "/estoque", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Assinar alterações de estoque", description = "Stream Server-Sent Events com os novos saldos dos produtos (evento 'estoque'), as movimentações registradas e as alterações de cadastro de produtos (evento 'produto'), enviados após o commit")
+    public SseEmitter assinar() {
+        return eventosService.assinar();
+    }
+}
@@ -1,33 +1,91 @@
 package com.estoque.controller;
 
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
 import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ResultadoLoteDTO;
 import com.estoque.model.TipoMovimentacao;
+import com.estoque.service.ExportacaoMovimentacaoService;
 import com.estoque.service.MovimentacaoEstoqueService;
+import com.estoque.service.MovimentacaoLoteService;
+import com.estoque.service.PipelineMovimentacoes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/movimentacoes")
 @RequiredArgsConstructor
-@Tag(name = "Movimentações", description = "Operações de entrada, saída e ajuste de estoque")
+@Tag(name = "Movimentações", description = "Operações de entrada, saída, ajuste e transferência de estoque")
 public class MovimentacaoEstoqueController {
 
     private final MovimentacaoEstoqueService movimentacaoService;
+    private final MovimentacaoLoteService loteService;
+    private final ExportacaoMovimentacaoService exportacaoService;
+    private final PipelineMovimentacoes pipeline;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    @Operation(summary = "Listar todas as movimentações", description = "Retorna o histórico completo de movimentações de estoque")
-    public ResponseEntity<List<MovimentacaoEstoqueDTO>> listarTodas() {
-        return ResponseEntity.ok(movimentacaoService.listarTodas());
+    @Operation(summary = "Listar todas as movimentações", description = "Retorna o histórico de movimentações de estoque em páginas, das mais recentes para as mais antigas")
+    public ResponseEntity<PaginaDTO<MovimentacaoEstoqueDTO>> listarTodas(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(movimentacaoService.listarTodas(cursor, limite));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exportar movimentações", description = "Transmite o histórico de movimentações como NDJSON ou CSV, com filtros opcionais por produto, tipo e período")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @Parameter(description = "Formato do arquivo (NDJSON ou CSV)") @RequestParam(defaultValue = "NDJSON") ExportacaoMovimentacaoService.Formato formato,
+            @Parameter(description = "ID do produto") @RequestParam(required = false) Long produtoId,
+            @Parameter(description = "Tipo da movimentação") @RequestParam(required = false) TipoMovimentacao tipo,
+            @Parameter(description = "Data/hora inicial (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @Parameter(description = "Data/hora final (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim) {
+        boolean csv = formato == ExportacaoMovimentacaoService.Formato.CSV;
+        // A consulta grava num arquivo temporário e só então o arquivo segue ao cliente: a vaga de
+        // RELATORIO e a conexão ficam presas ao tempo da consulta, não ao ritmo de leitura do cliente
+        StreamingResponseBody corpo = saida -> {
+            Path temporario = Files.createTempFile("movimentacoes-", csv ? ".csv" : ".ndjson");
+            try {
+                try (OutputStream arquivo = Files.newOutputStream(temporario)) {
+                    exportacaoService.exportar(formato, produtoId, tipo, inicio, fim, arquivo);
+                }
+                Files.copy(temporario, saida);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=movimentacoes." + (csv ? "csv" : "ndjson"))
+                .body(corpo);
     }
 
     @GetMapping("/{id}")
@@ -37,23 +95,31 @@ public class MovimentacaoEstoqueController {
     }
 
     @GetMapping("/produto/{produtoId}")
-    @Operation(summary = "Listar movimentações por produto", description = "Retorna todas as movimentações de um produto específico")
-    public ResponseEntity<List<MovimentacaoEstoqueDTO>> listarPorProduto(@Parameter(description = "ID do produto") @PathVariable Long produtoId) {
-        return ResponseEntity.ok(movimentacaoService.listarPorProduto(produtoId));
+    @Operation(summary = "Listar movimentações por produto", description = "Retorna as movimentações de um produto específico em páginas, das mais recentes para as mais antigas")
+    public ResponseEntity<PaginaDTO<MovimentacaoEstoqueDTO>> listarPorProduto(
+            @Parameter(description = "ID do produto") @PathVariable Long produtoId,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(movimentacaoService.listarPorProduto(produtoId, cursor, limite));
     }
 
     @GetMapping("/periodo")
     @Operation(summary = "Listar movimentações por período", description = "Retorna movimentações dentro de um intervalo de datas")
-    public ResponseEntity<List<MovimentacaoEstoqueDTO>> listarPorPeriodo(
+    public ResponseEntity<PaginaDTO<MovimentacaoEstoqueDTO>> listarPorPeriodo(
             @Parameter(description = "Data/hora inicial (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
-            @Parameter(description = "Data/hora final (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim) {
-        return ResponseEntity.ok(movimentacaoService.listarPorPeriodo(inicio, fim));
+            @Parameter(description = "Data/hora final (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(movimentacaoService.listarPorPeriodo(inicio, fim, cursor, limite));
     }
 
     @GetMapping("/tipo/{tipo}")
-    @Operation(summary = "Listar movimentações por tipo", description = "Retorna movimentações filtradas por tipo (ENTRADA, SAIDA, AJUSTE)")
-    public ResponseEntity<List<MovimentacaoEstoqueDTO>> listarPorTipo(@Parameter(description = "Tipo da movimentação") @PathVariable TipoMovimentacao tipo) {
-        return ResponseEntity.ok(movimentacaoService.listarPorTipo(tipo));
+    @Operation(summary = "Listar movimentações por tipo", description = "Retorna movimentações filtradas por tipo (ENTRADA, SAIDA, AJUSTE, TRANSFERENCIA)")
+    public ResponseEntity<PaginaDTO<MovimentacaoEstoqueDTO>> listarPorTipo(
+            @Parameter(description = "Tipo da movimentação") @PathVariable TipoMovimentacao tipo,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(movimentacaoService.listarPorTipo(tipo, cursor, limite));
     }
 
     @PostMapping("/entrada")
@@ -62,8 +128,11 @@ public class MovimentacaoEstoqueController {
     public ResponseEntity<MovimentacaoEstoqueDTO> registrarEntrada(
             @Parameter(description = "ID do produto") @RequestParam Long produtoId,
             @Parameter(description = "Quantidade a adicionar") @RequestParam Integer quantidade,
+            @Parameter(description = "ID do depósito (padrão se omitido)") @RequestParam(required = false) Long depositoId,
             @Parameter(description = "Motivo da entrada") @RequestParam(required = false) String motivo) {
-        MovimentacaoEstoqueDTO movimentacao = movimentacaoService.registrarEntrada(produtoId, quantidade, motivo);
+        MovimentacaoEstoqueDTO movimentacao = pipeline.isHabilitado()
+                ? pipeline.registrar(produtoId, depositoId, TipoMovimentacao.ENTRADA, quantidade, motivo)
+                : movimentacaoService.registrarEntrada(produtoId, depositoId, quantidade, motivo);
         return ResponseEntity.status(HttpStatus.CREATED).body(movimentacao);
     }
 
@@ -73,19 +142,99 @@ public class MovimentacaoEstoqueController {
     public ResponseEntity<MovimentacaoEstoqueDTO> registrarSaida(
             @Parameter(description = "ID do produto") @RequestParam Long produtoId,
             @Parameter(description = "Quantidade a remover") @RequestParam Integer quantidade,
+            @Parameter(description = "ID do depósito (padrão se omitido)") @RequestParam(required = false) Long depositoId,
             @Parameter(description = "Motivo da saída") @RequestParam(required = false) String motivo) {
-        MovimentacaoEstoqueDTO movimentacao = movimentacaoService.registrarSaida(produtoId, quantidade, motivo);
+        MovimentacaoEstoqueDTO movimentacao = pipeline.isHabilitado()
+                ? pipeline.registrar(produtoId, depositoId, TipoMovimentacao.SAIDA, quantidade, motivo)
+                : movimentacaoService.registrarSaida(produtoId, depositoId, quantidade, motivo);
         return ResponseEntity.status(HttpStatus.CREATED).body(movimentacao);
     }
 
     @PostMapping("/ajuste")
-    @Operation(summary = "Registrar ajuste de estoque", description = "Define uma nova quantidade absoluta para o estoque de um produto")
+    @Operation(summary = "Registrar ajuste de estoque", description = "Define uma nova quantidade absoluta para o estoque de um produto em um depósito; o total do produto varia pela diferença")
     @ApiResponse(responseCode = "201", description = "Ajuste registrado com sucesso")
     public ResponseEntity<MovimentacaoEstoqueDTO> registrarAjuste(
             @Parameter(description = "ID do produto") @RequestParam Long produtoId,
-            @Parameter(description = "Nova quantidade do estoque") @RequestParam Integer novaQuantidade,
+            @Parameter(description = "Nova quantidade do estoque no depósito") @RequestParam Integer novaQuantidade,
+            @Parameter(description = "ID do depósito (padrão se omitido)") @RequestParam(required = false) Long depositoId,
             @Parameter(description = "Motivo do ajuste") @RequestParam(required = false) String motivo) {
-        MovimentacaoEstoqueDTO movimentacao = movimentacaoService.registrarAjuste(produtoId, novaQuantidade, motivo);
+        MovimentacaoEstoqueDTO movimentacao = movimentacaoService.registrarAjuste(produtoId, depositoId, novaQuantidade, motivo);
         return ResponseEntity.status(HttpStatus.CREATED).body(movimentacao);
     }
+
+    @PostMapping("/transferencia")
+    @Operation(summary = "Transferir estoque entre depósitos", description = "Move quantidade de um depósito para outro de forma atômica; o total do produto não muda")
+    @ApiResponse(responseCode = "201", description = "Transferência registrada com sucesso")
+    public ResponseEntity<MovimentacaoEstoqueDTO> transferir(
+            @Parameter(description = "ID do produto") @RequestParam Long produtoId,
+            @Parameter(description = "ID do depósito de origem") @RequestParam Long origemId,
+            @Parameter(description = "ID do depósito de destino") @RequestParam Long destinoId,
+            @Parameter(description = "Quantidade a transferir") @RequestParam Integer quantidade,
+            @Parameter(description = "Motivo da transferência") @RequestParam(required = false) String motivo) {
+        MovimentacaoEstoqueDTO movimentacao = movimentacaoService.transferir(produtoId, origemId, destinoId, quantidade, motivo);
+        return ResponseEntity.status(HttpStatus.CREATED).body(movimentacao);
+    }
+
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Registrar lote de movimentações", description = "Aplica uma lista de entradas, saídas e ajustes em blocos transacionais e retorna o resultado de cada linha")
+    public ResponseEntity<ResultadoLoteDTO> registrarLote(@RequestBody List<ItemMovimentacaoLoteDTO> itens) {
+        return ResponseEntity.ok(loteService.registrarLote(itens.iterator()));
+    }
+
+    @PostMapping(value = "/lote", consumes = "application/x-ndjson")
+    @Operation(summary = "Registrar lote de movimentações (NDJSON)", description = "Mesmo que o lote JSON, mas lê um item por linha à medida que o corpo chega; linhas ilegíveis falham sem interromper o lote")
+    public ResponseEntity<ResultadoLoteDTO> registrarLoteNdjson(InputStream corpo) throws IOException {
+        try (BufferedReader linhas = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8))) {
+            return ResponseEntity.ok(loteService.registrarLote(new ItensNdjson(linhas, objectMapper.readerFor(ItemMovimentacaoLoteDTO.class))));
+        }
+    }
+
+    /**
+     * Um item por linha não vazia. Os blocos anteriores já foram confirmados quando uma linha
+     * chega, então uma linha ilegível não interrompe o lote: vira um item que falha na sua posição.
+     */
+    private static final class ItensNdjson implements Iterator<ItemMovimentacaoLoteDTO> {
+
+        private final BufferedReader linhas;
+        private final ObjectReader leitor;
+        private String proxima;
+
+        private ItensNdjson(BufferedReader linhas, ObjectReader leitor) {
+            this.linhas = linhas;
+            this.leitor = leitor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (proxima == null) {
+                    String linha = linhas.readLine();
+                    if (linha == null) {
+                        return false;
+                    }
+                    if (!linha.isBlank()) {
+                        proxima = linha;
+                    }
+                }
+                return true;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public ItemMovimentacaoLoteDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String linha = proxima;
+            proxima = null;
+            try {
+                ItemMovimentacaoLoteDTO item = leitor.readValue(linha);
+                return item != null ? item : ItemMovimentacaoLoteDTO.ilegivel("Linha ilegível: item nulo");
+            } catch (JsonProcessingException ex) {
+                return ItemMovimentacaoLoteDTO.ilegivel("Linha ilegível: " + ex.getOriginalMessage());
+            }
+        }
+    }
 }
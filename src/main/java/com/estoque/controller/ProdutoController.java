@@ -1,6 +1,12 @@
 package com.estoque.controller;
 
+import com.estoque.dto.EstoqueEmDTO;
+import com.estoque.dto.PaginaDTO;
 import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ResultadoImportacaoDTO;
+import com.estoque.dto.SugestaoSkuDTO;
+import com.estoque.service.EstoqueHistoricoService;
+import com.estoque.service.ImportacaoProdutoService;
 import com.estoque.service.ProdutoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -8,10 +14,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import javax.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,17 +31,23 @@ import java.util.List;
 public class ProdutoController {
 
     private final ProdutoService produtoService;
+    private final EstoqueHistoricoService estoqueHistoricoService;
+    private final ImportacaoProdutoService importacaoService;
 
     @GetMapping
-    @Operation(summary = "Listar todos os produtos", description = "Retorna a lista completa de produtos cadastrados")
-    public ResponseEntity<List<ProdutoDTO>> listarTodos() {
-        return ResponseEntity.ok(produtoService.listarTodos());
+    @Operation(summary = "Listar todos os produtos", description = "Retorna os produtos cadastrados em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<ProdutoDTO>> listarTodos(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(produtoService.listarTodos(cursor, limite));
     }
 
     @GetMapping("/ativos")
-    @Operation(summary = "Listar produtos ativos", description = "Retorna apenas os produtos que estão ativos no sistema")
-    public ResponseEntity<List<ProdutoDTO>> listarAtivos() {
-        return ResponseEntity.ok(produtoService.listarAtivos());
+    @Operation(summary = "Listar produtos ativos", description = "Retorna apenas os produtos que estão ativos no sistema, em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<ProdutoDTO>> listarAtivos(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(produtoService.listarAtivos(cursor, limite));
     }
 
     @GetMapping("/{id}")
@@ -40,16 +56,44 @@ public class ProdutoController {
         return ResponseEntity.ok(produtoService.buscarPorId(id));
     }
 
+    @GetMapping("/{id}/estoque-em")
+    @Operation(summary = "Consultar estoque em uma data", description = "Retorna o saldo do produto no instante informado, a partir do snapshot diário mais próximo e das movimentações seguintes")
+    public ResponseEntity<EstoqueEmDTO> estoqueEm(
+            @Parameter(description = "ID do produto") @PathVariable Long id,
+            @Parameter(description = "Data/hora da consulta (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime data) {
+        return ResponseEntity.ok(estoqueHistoricoService.estoqueEm(id, data));
+    }
+
+    @GetMapping("/estoque-em")
+    @Operation(summary = "Consultar estoque de todos os produtos em uma data", description = "Retorna o saldo de cada produto existente no instante informado, para fechamentos de período, em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<EstoqueEmDTO>> estoqueEmTodos(
+            @Parameter(description = "Data/hora da consulta (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime data,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(estoqueHistoricoService.estoqueEmTodos(data, cursor, limite));
+    }
+
     @GetMapping("/sku/{sku}")
     @Operation(summary = "Buscar produto por SKU", description = "Retorna um produto específico pelo seu código SKU")
     public ResponseEntity<ProdutoDTO> buscarPorSku(@Parameter(description = "Código SKU do produto") @PathVariable String sku) {
         return ResponseEntity.ok(produtoService.buscarPorSku(sku));
     }
 
+    @GetMapping("/sku/sugestoes")
+    @Operation(summary = "Sugerir SKUs por prefixo", description = "Retorna SKUs que começam com o prefixo informado, em ordem alfabética")
+    public ResponseEntity<List<SugestaoSkuDTO>> sugerirSkus(
+            @Parameter(description = "Início do código SKU") @RequestParam String prefixo,
+            @Parameter(description = "Quantidade máxima de sugestões") @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(produtoService.sugerirSkus(prefixo, limite));
+    }
+
     @GetMapping("/categoria/{categoriaId}")
-    @Operation(summary = "Buscar produtos por categoria", description = "Retorna todos os produtos de uma categoria específica")
-    public ResponseEntity<List<ProdutoDTO>> buscarPorCategoria(@Parameter(description = "ID da categoria") @PathVariable Long categoriaId) {
-        return ResponseEntity.ok(produtoService.buscarPorCategoria(categoriaId));
+    @Operation(summary = "Buscar produtos por categoria", description = "Retorna os produtos de uma categoria específica, em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<ProdutoDTO>> buscarPorCategoria(
+            @Parameter(description = "ID da categoria") @PathVariable Long categoriaId,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(produtoService.buscarPorCategoria(categoriaId, cursor, limite));
     }
 
     @GetMapping("/buscar")
@@ -59,9 +103,11 @@ public class ProdutoController {
     }
 
     @GetMapping("/estoque-baixo")
-    @Operation(summary = "Listar produtos com estoque baixo", description = "Retorna produtos com quantidade abaixo do estoque mínimo")
-    public ResponseEntity<List<ProdutoDTO>> listarProdutosComEstoqueBaixo() {
-        return ResponseEntity.ok(produtoService.listarProdutosComEstoqueBaixo());
+    @Operation(summary = "Listar produtos com estoque baixo", description = "Retorna produtos com quantidade abaixo do estoque mínimo, em páginas ordenadas por ID")
+    public ResponseEntity<PaginaDTO<ProdutoDTO>> listarProdutosComEstoqueBaixo(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade máxima de itens por página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(produtoService.listarProdutosComEstoqueBaixo(cursor, limite));
     }
 
     @PostMapping
@@ -72,6 +118,18 @@ public class ProdutoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(produto);
     }
 
+    @PostMapping(value = "/importacao", consumes = "text/csv")
+    @Operation(summary = "Importar produtos (CSV)", description = "Cadastra os produtos de um CSV com cabeçalho, lido à medida que o corpo chega, e retorna as linhas rejeitadas")
+    public ResponseEntity<ResultadoImportacaoDTO> importarCsv(InputStream corpo) throws IOException {
+        return ResponseEntity.ok(importacaoService.importar(corpo, ImportacaoProdutoService.Formato.CSV));
+    }
+
+    @PostMapping(value = "/importacao", consumes = "application/x-ndjson")
+    @Operation(summary = "Importar produtos (NDJSON)", description = "Mesmo que a importação CSV, com um produto em JSON por linha")
+    public ResponseEntity<ResultadoImportacaoDTO> importarNdjson(InputStream corpo) throws IOException {
+        return ResponseEntity.ok(importacaoService.importar(corpo, ImportacaoProdutoService.Formato.NDJSON));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Atualizar produto", description = "Atualiza os dados de um produto existente")
     public ResponseEntity<ProdutoDTO> atualizar(@Parameter(description = "ID do produto") @PathVariable Long id, @Valid @RequestBody ProdutoDTO dto) {
@@ -0,0 +1,54 @@
+package com.estoque.controller;
+
+import com.estoque.dto.TotalMovimentacaoDTO;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.service.AvaliacaoEstoqueService;
+import com.estoque.service.RelatorioMovimentacaoService;
+import com.estoque.service.ResumosMovimentacao;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/relatorios")
+@RequiredArgsConstructor
+@Tag(name = "Relatórios", description = "Totais de movimentação por período e valor do estoque")
+public class RelatorioController {
+
+    private final RelatorioMovimentacaoService relatorioService;
+    private final ResumosMovimentacao resumos;
+    private final AvaliacaoEstoqueService avaliacaoService;
+
+    @GetMapping("/movimentacoes")
+    @Operation(summary = "Totais de movimentação por período", description = "Retorna quantidade, número de movimentações e saldo líquido por tipo em cada hora, dia, semana ou mês do intervalo [inicio, fim)")
+    public ResponseEntity<List<TotalMovimentacaoDTO>> movimentacoes(
+            @Parameter(description = "Data/hora inicial (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @Parameter(description = "Data/hora final, exclusiva (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @Parameter(description = "Tamanho de cada período (HORA, DIA, SEMANA ou MES)") @RequestParam(defaultValue = "DIA") RelatorioMovimentacaoService.Granularidade granularidade,
+            @Parameter(description = "ID do produto") @RequestParam(required = false) Long produtoId) {
+        return ResponseEntity.ok(relatorioService.totalizar(inicio, fim, granularidade, produtoId));
+    }
+
+    @PostMapping("/movimentacoes/resumos/reconstruir")
+    @Operation(summary = "Reconstruir resumos diários", description = "Regera a partir do razão os resumos dos dias informados (inclusive); apenas dias encerrados")
+    public ResponseEntity<Integer> reconstruirResumos(
+            @Parameter(description = "Primeiro dia (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @Parameter(description = "Último dia (ISO 8601)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        return ResponseEntity.ok(resumos.reconstruir(inicio, fim));
+    }
+
+    @GetMapping("/valor-estoque")
+    @Operation(summary = "Valor do estoque por categoria", description = "Retorna, por categoria, a quantidade em estoque e seu valor a preço de custo e a preço de venda, agregados no banco (SQL) ou nos valores mantidos em memória (MEMORIA)")
+    public ResponseEntity<List<ValorEstoqueCategoriaDTO>> valorEstoque(
+            @Parameter(description = "Modo de cálculo (SQL ou MEMORIA)") @RequestParam(defaultValue = "SQL") AvaliacaoEstoqueService.Modo modo) {
+        return ResponseEntity.ok(avaliacaoService.avaliar(modo));
+    }
+}
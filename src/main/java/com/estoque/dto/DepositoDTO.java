@@ -0,0 +1,20 @@
+package com.estoque.dto;
+
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepositoDTO {
+
+    private Long id;
+
+    @NotBlank(message = "Código é obrigatório")
+    private String codigo;
+
+    @NotBlank(message = "Nome é obrigatório")
+    private String nome;
+}
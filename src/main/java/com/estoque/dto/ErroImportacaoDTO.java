@@ -0,0 +1,18 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacaoDTO {
+
+    // Linha no arquivo enviado, contando o cabeçalho do CSV
+    private Long linha;
+
+    private String sku;
+
+    private String erro;
+}
@@ -0,0 +1,23 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticasCacheDTO {
+
+    private String nome;
+
+    private Long tamanho;
+
+    private Long acertos;
+
+    private Long faltas;
+
+    private Double taxaAcerto;
+
+    private Long remocoes;
+}
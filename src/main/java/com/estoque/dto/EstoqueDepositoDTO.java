@@ -0,0 +1,19 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueDepositoDTO {
+
+    private Long depositoId;
+
+    private String depositoCodigo;
+
+    private String depositoNome;
+
+    private Integer quantidade;
+}
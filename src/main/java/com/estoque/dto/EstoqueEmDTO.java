@@ -0,0 +1,22 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueEmDTO {
+
+    private Long produtoId;
+
+    private LocalDateTime data;
+
+    private Integer quantidadeEstoque;
+
+    // Snapshot usado como ponto de partida; nulo quando não havia nenhum até a data
+    private LocalDateTime dataSnapshot;
+}
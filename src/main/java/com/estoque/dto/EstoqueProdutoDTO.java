@@ -0,0 +1,17 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueProdutoDTO {
+
+    private Long produtoId;
+
+    private Integer quantidadeEstoque;
+
+    private Boolean estoqueBaixo;
+}
@@ -0,0 +1,24 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoEstoqueDTO {
+
+    private List<EstoqueProdutoDTO> produtos;
+
+    private List<MovimentacaoEstoqueDTO> movimentacoes;
+
+    // Tirada ao publicar, com as linhas dos produtos bloqueadas: cresce na ordem dos commits de cada produto
+    private Long versao;
+
+    public EventoEstoqueDTO(List<EstoqueProdutoDTO> produtos, List<MovimentacaoEstoqueDTO> movimentacoes) {
+        this(produtos, movimentacoes, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoProdutoDTO {
+
+    private Long produtoId;
+
+    // Nulo quando o produto foi excluído
+    private ProdutoDTO produto;
+
+    // Mesma sequência das versões de EventoEstoqueDTO
+    private Long versao;
+
+    public EventoProdutoDTO(Long produtoId, ProdutoDTO produto) {
+        this(produtoId, produto, null);
+    }
+}
@@ -0,0 +1,45 @@
+package com.estoque.dto;
+
+import com.estoque.model.TipoMovimentacao;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ItemMovimentacaoLoteDTO {
+
+    private Long produtoId;
+
+    private TipoMovimentacao tipo;
+
+    // Para AJUSTE é a nova quantidade absoluta do estoque
+    private Integer quantidade;
+
+    private String motivo;
+
+    // Opcional: sem ele, o depósito padrão
+    private Long depositoId;
+
+    // Linha do NDJSON que não pôde ser lida: o item ocupa a sua posição e falha com esta mensagem
+    @JsonIgnore
+    private String erroLeitura;
+
+    public ItemMovimentacaoLoteDTO(Long produtoId, TipoMovimentacao tipo, Integer quantidade, String motivo, Long depositoId) {
+        this.produtoId = produtoId;
+        this.tipo = tipo;
+        this.quantidade = quantidade;
+        this.motivo = motivo;
+        this.depositoId = depositoId;
+    }
+
+    public ItemMovimentacaoLoteDTO(Long produtoId, TipoMovimentacao tipo, Integer quantidade, String motivo) {
+        this(produtoId, tipo, quantidade, motivo, null);
+    }
+
+    public static ItemMovimentacaoLoteDTO ilegivel(String erro) {
+        ItemMovimentacaoLoteDTO item = new ItemMovimentacaoLoteDTO();
+        item.setErroLeitura(erro);
+        return item;
+    }
+}
@@ -35,4 +35,15 @@ public class MovimentacaoEstoqueDTO {
     private String motivo;
 
     private LocalDateTime dataMovimentacao;
+
+    private Long depositoId;
+
+    // Só nas transferências; depositoId é a origem
+    private Long depositoDestinoId;
+
+    // Movimentações arquivadas não guardam o depósito
+    public MovimentacaoEstoqueDTO(Long id, Long produtoId, String produtoNome, TipoMovimentacao tipo, Integer quantidade,
+                                  Integer quantidadeAnterior, Integer quantidadePosterior, String motivo, LocalDateTime dataMovimentacao) {
+        this(id, produtoId, produtoNome, tipo, quantidade, quantidadeAnterior, quantidadePosterior, motivo, dataMovimentacao, null, null);
+    }
 }
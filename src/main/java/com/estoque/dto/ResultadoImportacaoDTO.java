@@ -0,0 +1,22 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacaoDTO {
+
+    private Long total;
+
+    private Long importados;
+
+    private Long falhas;
+
+    // Limitada às primeiras falhas; o contador acima inclui todas
+    private List<ErroImportacaoDTO> erros;
+}
@@ -0,0 +1,29 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLinhaLoteDTO {
+
+    private Integer linha;
+
+    private Boolean sucesso;
+
+    private Long movimentacaoId;
+
+    private Integer quantidadePosterior;
+
+    private String erro;
+
+    public static ResultadoLinhaLoteDTO sucesso(int linha, Long movimentacaoId, Integer quantidadePosterior) {
+        return new ResultadoLinhaLoteDTO(linha, true, movimentacaoId, quantidadePosterior, null);
+    }
+
+    public static ResultadoLinhaLoteDTO falha(int linha, String erro) {
+        return new ResultadoLinhaLoteDTO(linha, false, null, null, erro);
+    }
+}
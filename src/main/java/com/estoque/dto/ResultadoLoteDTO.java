@@ -0,0 +1,21 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLoteDTO {
+
+    private Integer total;
+
+    private Integer sucessos;
+
+    private Integer falhas;
+
+    private List<ResultadoLinhaLoteDTO> linhas;
+}
@@ -0,0 +1,15 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoProdutoDTO {
+
+    private Long produtoId;
+
+    private Integer quantidade;
+}
@@ -0,0 +1,30 @@
+package com.estoque.dto;
+
+import com.estoque.model.TipoMovimentacao;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalMovimentacaoDTO {
+
+    private LocalDateTime inicio;
+
+    private TipoMovimentacao tipo;
+
+    private Long quantidade;
+
+    private Long movimentacoes;
+
+    private Long saldoLiquido;
+
+    // Projeção dos resumos diários, cuja chave é a data
+    public TotalMovimentacaoDTO(LocalDate data, TipoMovimentacao tipo, Long quantidade, Long movimentacoes, Long saldoLiquido) {
+        this(data.atStartOfDay(), tipo, quantidade, movimentacoes, saldoLiquido);
+    }
+}
@@ -0,0 +1,26 @@
+package com.estoque.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorEstoqueCategoriaDTO {
+
+    private Long categoriaId;
+
+    private String categoriaNome;
+
+    private Long produtos;
+
+    private Long quantidadeEstoque;
+
+    // Nulo quando nenhum produto da categoria tem preço de custo
+    private BigDecimal valorCusto;
+
+    private BigDecimal valorVenda;
+}
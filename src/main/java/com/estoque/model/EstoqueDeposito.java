@@ -0,0 +1,35 @@
+package com.estoque.model;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Quantidade de um produto num depósito. Produto.quantidadeEstoque é a soma destas linhas,
+// mantida junto com cada movimentação; sem chave estrangeira, como os resumos diários.
+@Entity
+@Table(name = "estoques_deposito", indexes = {
+        @Index(name = "idx_estoque_deposito_produto_deposito", columnList = "produto_id, deposito_id", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueDeposito {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(name = "deposito_id", nullable = false)
+    private Long depositoId;
+
+    @Column(nullable = false)
+    private Integer quantidade;
+
+    public EstoqueDeposito(Long produtoId, Long depositoId, Integer quantidade) {
+        this(null, produtoId, depositoId, quantidade);
+    }
+}
@@ -8,14 +8,19 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "movimentacoes_estoque")
+@Table(name = "movimentacoes_estoque", indexes = {
+        @Index(name = "idx_movimentacao_data_id", columnList = "data_movimentacao, id"),
+        @Index(name = "idx_movimentacao_tipo_data_id", columnList = "tipo, data_movimentacao, id"),
+        @Index(name = "idx_movimentacao_produto_data_id", columnList = "produto_id, data_movimentacao, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class MovimentacaoEstoque {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimentacao_seq")
+    @SequenceGenerator(name = "movimentacao_seq", sequenceName = "movimentacoes_estoque_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -37,6 +42,14 @@ public class MovimentacaoEstoque {
 
     private String motivo;
 
+    // Nulo nas movimentações anteriores aos depósitos
+    @Column(name = "deposito_id")
+    private Long depositoId;
+
+    // Só nas transferências; depositoId é a origem
+    @Column(name = "deposito_destino_id")
+    private Long depositoDestinoId;
+
     @Column(name = "data_movimentacao", nullable = false)
     private LocalDateTime dataMovimentacao;
 
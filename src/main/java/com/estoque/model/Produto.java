@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "produtos")
+@Table(name = "produtos", indexes = {
+        @Index(name = "idx_produto_categoria_id", columnList = "categoria_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,51 @@
+package com.estoque.model;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Totais de um produto num dia por tipo de movimentação, mantidos junto com cada movimentação.
+// Sem chave estrangeira, como os snapshots; a exclusão do produto remove os resumos dele.
+@Entity
+@Table(name = "resumos_movimentacao_diaria", indexes = {
+        @Index(name = "idx_resumo_data_produto_tipo", columnList = "data, produto_id, tipo", unique = true),
+        @Index(name = "idx_resumo_produto_data", columnList = "produto_id, data")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMovimentacaoDiaria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "resumo_movimentacao_seq")
+    @SequenceGenerator(name = "resumo_movimentacao_seq", sequenceName = "resumos_movimentacao_diaria_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(nullable = false)
+    private LocalDate data;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoMovimentacao tipo;
+
+    @Column(name = "quantidade_total", nullable = false)
+    private Long quantidadeTotal;
+
+    @Column(name = "total_movimentacoes", nullable = false)
+    private Long totalMovimentacoes;
+
+    // Soma de (quantidade posterior - anterior): o efeito líquido no estoque
+    @Column(name = "saldo_liquido", nullable = false)
+    private Long saldoLiquido;
+
+    // Usado pelas consultas de agregação do razão
+    public ResumoMovimentacaoDiaria(Long produtoId, TipoMovimentacao tipo, Long quantidadeTotal, Long totalMovimentacoes, Long saldoLiquido) {
+        this(null, produtoId, null, tipo, quantidadeTotal, totalMovimentacoes, saldoLiquido);
+    }
+}
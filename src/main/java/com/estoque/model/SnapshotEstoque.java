@@ -0,0 +1,35 @@
+package com.estoque.model;
+
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Saldo de um produto num instante de corte, derivado do razão de movimentações.
+// Sem chave estrangeira: excluir um produto não deve esbarrar no histórico dele.
+@Entity
+@Table(name = "snapshots_estoque", indexes = {
+        @Index(name = "idx_snapshot_data_produto", columnList = "data_referencia, produto_id", unique = true),
+        @Index(name = "idx_snapshot_produto_data", columnList = "produto_id, data_referencia")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotEstoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "snapshot_seq")
+    @SequenceGenerator(name = "snapshot_seq", sequenceName = "snapshots_estoque_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(name = "data_referencia", nullable = false)
+    private LocalDateTime dataReferencia;
+
+    @Column(nullable = false)
+    private Integer quantidade;
+}
@@ -3,5 +3,7 @@ package com.estoque.model;
 public enum TipoMovimentacao {
     ENTRADA,
     SAIDA,
-    AJUSTE
+    AJUSTE,
+    // Entre depósitos do mesmo produto: não altera o total do produto
+    TRANSFERENCIA
 }
@@ -0,0 +1,234 @@
+package com.estoque.repository;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Acesso à tabela de arquivo das movimentações, fora do mapeamento JPA porque no PostgreSQL ela
+ * é particionada por mês em data_movimentacao, o que o Hibernate não sabe criar. No H2 é uma
+ * tabela comum com os mesmos índices. As consultas sempre restringem data_movimentacao com
+ * predicados simples, para que o PostgreSQL descarte as partições fora do intervalo.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ArquivoMovimentacaoRepository {
+
+    public static final String TABELA = "movimentacoes_estoque_arquivo";
+
+    private static final String COLUNAS = "id, produto_id, tipo, quantidade, quantidade_anterior, quantidade_posterior, motivo, data_movimentacao";
+    private static final DateTimeFormatter SUFIXO_PARTICAO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final RowMapper<MovimentacaoEstoqueDTO> MAPEADOR = (rs, linha) -> new MovimentacaoEstoqueDTO(
+            rs.getLong("id"), rs.getLong("produto_id"), rs.getString("nome"), TipoMovimentacao.valueOf(rs.getString("tipo")),
+            rs.getInt("quantidade"), rs.getObject("quantidade_anterior", Integer.class),
+            rs.getObject("quantidade_posterior", Integer.class), rs.getString("motivo"),
+            rs.getTimestamp("data_movimentacao").toLocalDateTime());
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final DataSource dataSource;
+
+    private final Set<YearMonth> particoes = ConcurrentHashMap.newKeySet();
+    private volatile Boolean particionado;
+
+    public void criarEsquema() {
+        String colunas = "id BIGINT NOT NULL, produto_id BIGINT NOT NULL, tipo VARCHAR(255) NOT NULL, quantidade INTEGER NOT NULL, "
+                + "quantidade_anterior INTEGER, quantidade_posterior INTEGER, motivo VARCHAR(255), data_movimentacao TIMESTAMP NOT NULL";
+
+        if (particionado()) {
+            // A chave de partição precisa fazer parte da chave primária
+            executar("CREATE TABLE IF NOT EXISTS " + TABELA + " (" + colunas + ", PRIMARY KEY (data_movimentacao, id)) "
+                    + "PARTITION BY RANGE (data_movimentacao)");
+        } else {
+            executar("CREATE TABLE IF NOT EXISTS " + TABELA + " (" + colunas + ", PRIMARY KEY (id))");
+        }
+        executar("CREATE INDEX IF NOT EXISTS idx_arquivo_data_id ON " + TABELA + " (data_movimentacao, id)");
+        executar("CREATE INDEX IF NOT EXISTS idx_arquivo_produto_data_id ON " + TABELA + " (produto_id, data_movimentacao, id)");
+        executar("CREATE INDEX IF NOT EXISTS idx_arquivo_tipo_data_id ON " + TABELA + " (tipo, data_movimentacao, id)");
+    }
+
+    /**
+     * Cria, no PostgreSQL, as partições mensais que cobrem o intervalo. No H2 não há o que fazer.
+     */
+    public void garantirParticoes(LocalDateTime inicio, LocalDateTime fim) {
+        if (!particionado()) {
+            return;
+        }
+        for (YearMonth mes = YearMonth.from(inicio); !mes.isAfter(YearMonth.from(fim)); mes = mes.plusMonths(1)) {
+            if (particoes.contains(mes)) {
+                continue;
+            }
+            LocalDate primeiroDia = mes.atDay(1);
+            executar("CREATE TABLE IF NOT EXISTS " + TABELA + "_" + mes.format(SUFIXO_PARTICAO) + " PARTITION OF " + TABELA
+                    + " FOR VALUES FROM ('" + primeiroDia + "') TO ('" + primeiroDia.plusMonths(1) + "')");
+            particoes.add(mes);
+        }
+    }
+
+    /**
+     * As movimentações mais antigas que o corte, em ordem de data e id, até a quantidade informada.
+     */
+    public List<Long> findIdsAntesDe(LocalDateTime corte, int quantidade) {
+        return jdbc.queryForList("SELECT id FROM movimentacoes_estoque WHERE data_movimentacao < :corte "
+                        + "ORDER BY data_movimentacao, id LIMIT :quantidade",
+                new MapSqlParameterSource("corte", Timestamp.valueOf(corte)).addValue("quantidade", quantidade), Long.class);
+    }
+
+    // Copia e apaga na mesma transação de quem chama
+    public int mover(Collection<Long> ids) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource("ids", ids);
+        jdbc.update("INSERT INTO " + TABELA + " (" + COLUNAS + ") SELECT " + COLUNAS + " FROM movimentacoes_estoque WHERE id IN (:ids)", parametros);
+        return jdbc.update("DELETE FROM movimentacoes_estoque WHERE id IN (:ids)", parametros);
+    }
+
+    public Optional<LocalDateTime> findPrimeiraData() {
+        return Optional.ofNullable(jdbc.getJdbcTemplate().queryForObject("SELECT MIN(data_movimentacao) FROM " + TABELA, Timestamp.class))
+                .map(Timestamp::toLocalDateTime);
+    }
+
+    public Optional<LocalDateTime> findUltimaData() {
+        return Optional.ofNullable(jdbc.getJdbcTemplate().queryForObject("SELECT MAX(data_movimentacao) FROM " + TABELA, Timestamp.class))
+                .map(Timestamp::toLocalDateTime);
+    }
+
+    public long countMes(YearMonth mes) {
+        Long total = jdbc.queryForObject("SELECT COUNT(*) FROM " + TABELA + " WHERE data_movimentacao >= :inicio AND data_movimentacao < :fim",
+                intervalo(mes), Long.class);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Entrega as movimentações do mês ao consumidor em ordem de data e id, sem carregá-las todas
+     * em memória. O nome do produto fica nulo.
+     */
+    public void percorrerMes(YearMonth mes, Consumer<MovimentacaoEstoqueDTO> consumidor) {
+        jdbc.query("SELECT " + COLUNAS + ", NULL AS nome FROM " + TABELA + " WHERE data_movimentacao >= :inicio AND data_movimentacao < :fim "
+                        + "ORDER BY data_movimentacao, id", intervalo(mes),
+                (RowCallbackHandler) rs -> consumidor.accept(MAPEADOR.mapRow(rs, rs.getRow())));
+    }
+
+    /**
+     * Entrega ao consumidor as movimentações do mês que passam nos filtros, em ordem de data e id,
+     * com o nome do produto. Um mês por consulta, para que só a partição dele seja lida.
+     */
+    public void percorrerMes(YearMonth mes, Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim,
+                             Consumer<MovimentacaoEstoqueDTO> consumidor) {
+        StringBuilder sql = new StringBuilder("SELECT m.").append(COLUNAS.replace(", ", ", m."))
+                .append(", p.nome FROM ").append(TABELA).append(" m JOIN produtos p ON p.id = m.produto_id ")
+                .append("WHERE m.data_movimentacao >= :inicio AND m.data_movimentacao < :fim");
+        MapSqlParameterSource parametros = intervalo(mes);
+
+        if (produtoId != null) {
+            sql.append(" AND m.produto_id = :produtoId");
+            parametros.addValue("produtoId", produtoId);
+        }
+        if (tipo != null) {
+            sql.append(" AND m.tipo = :tipo");
+            parametros.addValue("tipo", tipo.name());
+        }
+        if (inicio != null) {
+            sql.append(" AND m.data_movimentacao >= :desde");
+            parametros.addValue("desde", Timestamp.valueOf(inicio));
+        }
+        if (fim != null) {
+            sql.append(" AND m.data_movimentacao <= :ate");
+            parametros.addValue("ate", Timestamp.valueOf(fim));
+        }
+        sql.append(" ORDER BY m.data_movimentacao, m.id");
+
+        jdbc.query(sql.toString(), parametros, (RowCallbackHandler) rs -> consumidor.accept(MAPEADOR.mapRow(rs, rs.getRow())));
+    }
+
+    /**
+     * Apaga o mês da tabela de arquivo. No PostgreSQL descarta a partição inteira, sem varrer as linhas.
+     */
+    public void removerMes(YearMonth mes) {
+        if (particionado()) {
+            executar("DROP TABLE IF EXISTS " + TABELA + "_" + mes.format(SUFIXO_PARTICAO));
+            particoes.remove(mes);
+        } else {
+            jdbc.update("DELETE FROM " + TABELA + " WHERE data_movimentacao >= :inicio AND data_movimentacao < :fim", intervalo(mes));
+        }
+    }
+
+    public int deleteByProdutoId(Long produtoId) {
+        return jdbc.update("DELETE FROM " + TABELA + " WHERE produto_id = :produtoId", new MapSqlParameterSource("produtoId", produtoId));
+    }
+
+    /**
+     * Página de movimentações arquivadas, das mais recentes para as mais antigas, com filtros
+     * opcionais e o mesmo cursor (data, id) das listagens da tabela principal.
+     */
+    public List<MovimentacaoEstoqueDTO> findPagina(Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim,
+                                                   LocalDateTime data, Long id, int quantidade) {
+        StringBuilder sql = new StringBuilder("SELECT m.").append(COLUNAS.replace(", ", ", m."))
+                .append(", p.nome FROM ").append(TABELA).append(" m JOIN produtos p ON p.id = m.produto_id WHERE 1 = 1");
+        MapSqlParameterSource parametros = new MapSqlParameterSource("quantidade", quantidade);
+
+        if (produtoId != null) {
+            sql.append(" AND m.produto_id = :produtoId");
+            parametros.addValue("produtoId", produtoId);
+        }
+        if (tipo != null) {
+            sql.append(" AND m.tipo = :tipo");
+            parametros.addValue("tipo", tipo.name());
+        }
+        if (inicio != null) {
+            sql.append(" AND m.data_movimentacao >= :inicio");
+            parametros.addValue("inicio", Timestamp.valueOf(inicio));
+        }
+        if (fim != null) {
+            sql.append(" AND m.data_movimentacao <= :fim");
+            parametros.addValue("fim", Timestamp.valueOf(fim));
+        }
+        if (data != null) {
+            // O primeiro termo é redundante, mas é o que permite descartar as partições mais novas que o cursor
+            sql.append(" AND m.data_movimentacao <= :data AND (m.data_movimentacao < :data OR m.id < :id)");
+            parametros.addValue("data", Timestamp.valueOf(data)).addValue("id", id);
+        }
+        sql.append(" ORDER BY m.data_movimentacao DESC, m.id DESC LIMIT :quantidade");
+
+        return jdbc.query(sql.toString(), parametros, MAPEADOR);
+    }
+
+    private static MapSqlParameterSource intervalo(YearMonth mes) {
+        return new MapSqlParameterSource("inicio", Timestamp.valueOf(mes.atDay(1).atStartOfDay()))
+                .addValue("fim", Timestamp.valueOf(mes.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    private boolean particionado() {
+        if (particionado == null) {
+            try {
+                String banco = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                particionado = "PostgreSQL".equalsIgnoreCase(banco);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Não foi possível identificar o banco de dados", ex);
+            }
+        }
+        return particionado;
+    }
+
+    private void executar(String ddl) {
+        jdbc.getJdbcTemplate().execute(ddl);
+    }
+}
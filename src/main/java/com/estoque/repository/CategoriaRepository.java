@@ -1,9 +1,13 @@
 package com.estoque.repository;
 
 import com.estoque.model.Categoria;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,7 @@ public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
     Optional<Categoria> findByNome(String nome);
 
     boolean existsByNome(String nome);
+
+    @Query("SELECT c FROM Categoria c WHERE c.id > :aposId ORDER BY c.id")
+    List<Categoria> findPagina(@Param("aposId") Long aposId, Pageable pageable);
 }
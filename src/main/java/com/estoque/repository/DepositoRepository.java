@@ -0,0 +1,18 @@
+package com.estoque.repository;
+
+import com.estoque.model.Deposito;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DepositoRepository extends JpaRepository<Deposito, Long> {
+
+    Optional<Deposito> findByCodigo(String codigo);
+
+    boolean existsByCodigo(String codigo);
+
+    List<Deposito> findAllByOrderByCodigo();
+}
@@ -0,0 +1,60 @@
+package com.estoque.repository;
+
+import com.estoque.dto.EstoqueDepositoDTO;
+import com.estoque.model.EstoqueDeposito;
+import javax.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstoqueDepositoRepository extends JpaRepository<EstoqueDeposito, Long> {
+
+    @Query("SELECT e.quantidade FROM EstoqueDeposito e WHERE e.produtoId = :produtoId AND e.depositoId = :depositoId")
+    Optional<Integer> findQuantidade(@Param("produtoId") Long produtoId, @Param("depositoId") Long depositoId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM EstoqueDeposito e WHERE e.produtoId = :produtoId AND e.depositoId = :depositoId")
+    Optional<EstoqueDeposito> findParaAtualizacao(@Param("produtoId") Long produtoId, @Param("depositoId") Long depositoId);
+
+    // Chamado com os produtos já bloqueados, na mesma ordem (produto antes do depósito)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM EstoqueDeposito e WHERE e.produtoId IN :produtoIds ORDER BY e.produtoId, e.depositoId")
+    List<EstoqueDeposito> findAllParaAtualizacao(@Param("produtoIds") Collection<Long> produtoIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EstoqueDeposito e SET e.quantidade = e.quantidade + :quantidade "
+            + "WHERE e.produtoId = :produtoId AND e.depositoId = :depositoId")
+    int creditar(@Param("produtoId") Long produtoId, @Param("depositoId") Long depositoId, @Param("quantidade") Integer quantidade);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EstoqueDeposito e SET e.quantidade = e.quantidade - :quantidade "
+            + "WHERE e.produtoId = :produtoId AND e.depositoId = :depositoId AND e.quantidade >= :quantidade")
+    int debitar(@Param("produtoId") Long produtoId, @Param("depositoId") Long depositoId, @Param("quantidade") Integer quantidade);
+
+    @Modifying
+    @Query("DELETE FROM EstoqueDeposito e WHERE e.produtoId = :produtoId")
+    int deleteByProdutoId(@Param("produtoId") Long produtoId);
+
+    @Query("SELECT new com.estoque.dto.EstoqueDepositoDTO(d.id, d.codigo, d.nome, e.quantidade) "
+            + "FROM EstoqueDeposito e, Deposito d WHERE d.id = e.depositoId AND e.produtoId = :produtoId ORDER BY d.codigo")
+    List<EstoqueDepositoDTO> findPorProduto(@Param("produtoId") Long produtoId);
+
+    // Produtos sem nenhuma linha (cadastrados antes dos depósitos): todo o estoque fica no padrão
+    @Modifying
+    @Query(value = "INSERT INTO estoques_deposito (produto_id, deposito_id, quantidade) "
+            + "SELECT p.id, :depositoId, p.quantidade_estoque FROM produtos p "
+            + "WHERE NOT EXISTS (SELECT 1 FROM estoques_deposito e WHERE e.produto_id = p.id)", nativeQuery = true)
+    int atribuirSemDeposito(@Param("depositoId") Long depositoId);
+
+    @Query(value = "SELECT COUNT(*) FROM produtos p WHERE p.quantidade_estoque <> "
+            + "COALESCE((SELECT SUM(e.quantidade) FROM estoques_deposito e WHERE e.produto_id = p.id), 0)", nativeQuery = true)
+    long contarDivergentes();
+}
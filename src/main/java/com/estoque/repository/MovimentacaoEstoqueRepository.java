@@ -1,27 +1,121 @@
 package com.estoque.repository;
 
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.SaldoProdutoDTO;
+import com.estoque.dto.TotalMovimentacaoDTO;
 import com.estoque.model.MovimentacaoEstoque;
+import com.estoque.model.ResumoMovimentacaoDiaria;
 import com.estoque.model.TipoMovimentacao;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MovimentacaoEstoqueRepository extends JpaRepository<MovimentacaoEstoque, Long> {
 
+    String SELECT_DTO = "SELECT new com.estoque.dto.MovimentacaoEstoqueDTO(m.id, p.id, p.nome, m.tipo, m.quantidade, "
+            + "m.quantidadeAnterior, m.quantidadePosterior, m.motivo, m.dataMovimentacao, m.depositoId, m.depositoDestinoId) "
+            + "FROM MovimentacaoEstoque m JOIN m.produto p ";
+
+    String ORDEM_DESC = " ORDER BY m.dataMovimentacao DESC, m.id DESC";
+
+    String APOS_CURSOR = "(m.dataMovimentacao < :data OR (m.dataMovimentacao = :data AND m.id < :id))";
+
     List<MovimentacaoEstoque> findByProdutoId(Long produtoId);
 
-    List<MovimentacaoEstoque> findByProdutoIdOrderByDataMovimentacaoDesc(Long produtoId);
+    @Query(SELECT_DTO + "WHERE p.id = :produtoId" + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorProduto(@Param("produtoId") Long produtoId, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE p.id = :produtoId AND " + APOS_CURSOR + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorProdutoApos(@Param("produtoId") Long produtoId, @Param("data") LocalDateTime data, @Param("id") Long id, Pageable pageable);
 
     List<MovimentacaoEstoque> findByTipo(TipoMovimentacao tipo);
 
+    @Query(SELECT_DTO + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPagina(Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE " + APOS_CURSOR + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaApos(@Param("data") LocalDateTime data, @Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE m.tipo = :tipo" + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorTipo(@Param("tipo") TipoMovimentacao tipo, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE m.tipo = :tipo AND " + APOS_CURSOR + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorTipoApos(@Param("tipo") TipoMovimentacao tipo, @Param("data") LocalDateTime data, @Param("id") Long id, Pageable pageable);
+
     @Query("SELECT m FROM MovimentacaoEstoque m WHERE m.dataMovimentacao BETWEEN :inicio AND :fim ORDER BY m.dataMovimentacao DESC")
     List<MovimentacaoEstoque> findByPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
 
+    @Query(SELECT_DTO + "WHERE m.dataMovimentacao BETWEEN :inicio AND :fim" + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE m.dataMovimentacao >= :inicio AND " + APOS_CURSOR + ORDEM_DESC)
+    List<MovimentacaoEstoqueDTO> findPaginaPorPeriodoApos(@Param("inicio") LocalDateTime inicio, @Param("data") LocalDateTime data, @Param("id") Long id, Pageable pageable);
+
     @Query("SELECT m FROM MovimentacaoEstoque m WHERE m.produto.id = :produtoId AND m.dataMovimentacao BETWEEN :inicio AND :fim ORDER BY m.dataMovimentacao DESC")
     List<MovimentacaoEstoque> findByProdutoIdAndPeriodo(@Param("produtoId") Long produtoId, @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    // Reaplicação a partir de um snapshot: na ordem do razão, o último saldo de cada produto vale
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(m.produto.id, m.quantidadePosterior) FROM MovimentacaoEstoque m "
+            + "WHERE m.produto.id IN :produtoIds AND m.dataMovimentacao > :inicio AND m.dataMovimentacao <= :fim ORDER BY m.dataMovimentacao, m.id")
+    List<SaldoProdutoDTO> findSaldosPosterioresEntre(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+                                                     @Param("produtoIds") Collection<Long> produtoIds);
+
+    // Retrocesso a partir do saldo atual: em ordem decrescente, o último visto é o primeiro após a data
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(m.produto.id, m.quantidadeAnterior) FROM MovimentacaoEstoque m "
+            + "WHERE m.dataMovimentacao > :data" + ORDEM_DESC)
+    List<SaldoProdutoDTO> findSaldosAnterioresApos(@Param("data") LocalDateTime data);
+
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(m.produto.id, m.quantidadeAnterior) FROM MovimentacaoEstoque m "
+            + "WHERE m.produto.id IN :produtoIds AND m.dataMovimentacao > :data" + ORDEM_DESC)
+    List<SaldoProdutoDTO> findSaldosAnterioresApos(@Param("data") LocalDateTime data, @Param("produtoIds") Collection<Long> produtoIds);
+
+    @Query("SELECT m.quantidadePosterior FROM MovimentacaoEstoque m "
+            + "WHERE m.produto.id = :produtoId AND m.dataMovimentacao > :inicio AND m.dataMovimentacao <= :fim" + ORDEM_DESC)
+    List<Integer> findQuantidadesPosteriores(@Param("produtoId") Long produtoId, @Param("inicio") LocalDateTime inicio,
+                                             @Param("fim") LocalDateTime fim, Pageable pageable);
+
+    @Query("SELECT m.quantidadeAnterior FROM MovimentacaoEstoque m "
+            + "WHERE m.produto.id = :produtoId AND m.dataMovimentacao > :data ORDER BY m.dataMovimentacao, m.id")
+    List<Integer> findQuantidadesAnterioresApos(@Param("produtoId") Long produtoId, @Param("data") LocalDateTime data, Pageable pageable);
+
+    // Agregados do razão num intervalo: alimentam os resumos diários e as pontas parciais dos relatórios
+    @Query("SELECT new com.estoque.model.ResumoMovimentacaoDiaria(m.produto.id, m.tipo, SUM(m.quantidade), COUNT(m), "
+            + "SUM(m.quantidadePosterior - m.quantidadeAnterior)) FROM MovimentacaoEstoque m "
+            + "WHERE m.dataMovimentacao >= :inicio AND m.dataMovimentacao < :fim GROUP BY m.produto.id, m.tipo")
+    List<ResumoMovimentacaoDiaria> findTotaisPorProdutoEntre(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT new com.estoque.dto.TotalMovimentacaoDTO(MIN(m.dataMovimentacao), m.tipo, SUM(m.quantidade), COUNT(m), "
+            + "SUM(m.quantidadePosterior - m.quantidadeAnterior)) FROM MovimentacaoEstoque m "
+            + "WHERE (:produtoId IS NULL OR m.produto.id = :produtoId) AND m.dataMovimentacao >= :inicio AND m.dataMovimentacao < :fim "
+            + "GROUP BY m.tipo")
+    List<TotalMovimentacaoDTO> findTotaisEntre(@Param("produtoId") Long produtoId, @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT new com.estoque.dto.TotalMovimentacaoDTO(CAST(FUNCTION('date_trunc', 'hour', m.dataMovimentacao) AS LocalDateTime), m.tipo, SUM(m.quantidade), COUNT(m), "
+            + "SUM(m.quantidadePosterior - m.quantidadeAnterior)) FROM MovimentacaoEstoque m "
+            + "WHERE (:produtoId IS NULL OR m.produto.id = :produtoId) AND m.dataMovimentacao >= :inicio AND m.dataMovimentacao < :fim "
+            + "GROUP BY CAST(FUNCTION('date_trunc', 'hour', m.dataMovimentacao) AS LocalDateTime), m.tipo")
+    List<TotalMovimentacaoDTO> findTotaisPorHora(@Param("produtoId") Long produtoId, @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT MIN(m.dataMovimentacao) FROM MovimentacaoEstoque m")
+    Optional<LocalDateTime> findPrimeiraData();
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query(SELECT_DTO + "WHERE (:produtoId IS NULL OR p.id = :produtoId) AND (:tipo IS NULL OR m.tipo = :tipo) "
+            + "AND m.dataMovimentacao BETWEEN :inicio AND :fim ORDER BY m.dataMovimentacao, m.id")
+    Stream<MovimentacaoEstoqueDTO> streamParaExportacao(@Param("produtoId") Long produtoId, @Param("tipo") TipoMovimentacao tipo,
+                                                        @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
 }
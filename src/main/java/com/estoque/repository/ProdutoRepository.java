@@ -1,28 +1,99 @@
 package com.estoque.repository;
 
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.SaldoProdutoDTO;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
 import com.estoque.model.Produto;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Long> {
 
+    String SELECT_DTO = "SELECT new com.estoque.dto.ProdutoDTO(p.id, p.nome, p.descricao, p.sku, p.preco, p.precoCusto, "
+            + "p.quantidadeEstoque, p.quantidadeMinima, p.ativo, c.id, c.nome, "
+            + "CASE WHEN p.quantidadeEstoque <= p.quantidadeMinima THEN true ELSE false END) "
+            + "FROM Produto p LEFT JOIN p.categoria c ";
+
     Optional<Produto> findBySku(String sku);
 
     boolean existsBySku(String sku);
 
-    List<Produto> findByAtivoTrue();
+    @Query("SELECT p.quantidadeEstoque FROM Produto p WHERE p.id = :id")
+    Optional<Integer> findQuantidadeEstoqueById(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produto p WHERE p.id = :id")
+    Optional<Produto> findByIdParaAtualizacao(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produto p WHERE p.id IN :ids ORDER BY p.id")
+    List<Produto> findAllByIdParaAtualizacao(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Produto p SET p.quantidadeEstoque = p.quantidadeEstoque + :quantidade, p.atualizadoEm = CURRENT_TIMESTAMP WHERE p.id = :id")
+    int creditarEstoque(@Param("id") Long id, @Param("quantidade") Integer quantidade);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Produto p SET p.quantidadeEstoque = p.quantidadeEstoque - :quantidade, p.atualizadoEm = CURRENT_TIMESTAMP "
+            + "WHERE p.id = :id AND p.quantidadeEstoque >= :quantidade")
+    int debitarEstoque(@Param("id") Long id, @Param("quantidade") Integer quantidade);
+
+    @Query(SELECT_DTO + "WHERE p.id > :aposId ORDER BY p.id")
+    List<ProdutoDTO> findPagina(@Param("aposId") Long aposId, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE p.id IN :ids")
+    List<ProdutoDTO> findByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "10000"))
+    @Query("SELECT p.sku FROM Produto p WHERE p.sku IS NOT NULL")
+    List<String> findTodosSkus();
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query(SELECT_DTO + "ORDER BY p.id")
+    Stream<ProdutoDTO> streamParaIndexacao();
+
+    @Query(SELECT_DTO + "WHERE p.ativo = true AND p.id > :aposId ORDER BY p.id")
+    List<ProdutoDTO> findAtivos(@Param("aposId") Long aposId, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE c.id = :categoriaId AND p.id > :aposId ORDER BY p.id")
+    List<ProdutoDTO> findByCategoriaId(@Param("categoriaId") Long categoriaId, @Param("aposId") Long aposId, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE p.quantidadeEstoque <= p.quantidadeMinima AND p.ativo = true")
+    List<ProdutoDTO> findProdutosComEstoqueBaixo();
+
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(p.id, p.quantidadeEstoque) FROM Produto p WHERE p.criadoEm <= :data")
+    List<SaldoProdutoDTO> findSaldosCriadosAte(@Param("data") LocalDateTime data);
+
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(p.id, p.quantidadeEstoque) FROM Produto p "
+            + "WHERE p.criadoEm <= :data AND p.id > :aposId ORDER BY p.id")
+    List<SaldoProdutoDTO> findSaldosCriadosAte(@Param("data") LocalDateTime data, @Param("aposId") Long aposId, Pageable pageable);
 
-    List<Produto> findByCategoriaId(Long categoriaId);
+    @Query("SELECT new com.estoque.dto.ValorEstoqueCategoriaDTO(c.id, c.nome, COUNT(p), SUM(p.quantidadeEstoque), "
+            + "SUM(p.quantidadeEstoque * p.precoCusto), SUM(p.quantidadeEstoque * p.preco)) "
+            + "FROM Produto p LEFT JOIN p.categoria c GROUP BY c.id, c.nome")
+    List<ValorEstoqueCategoriaDTO> findValorEstoquePorCategoria();
 
-    @Query("SELECT p FROM Produto p WHERE p.quantidadeEstoque <= p.quantidadeMinima AND p.ativo = true")
-    List<Produto> findProdutosComEstoqueBaixo();
+    @Query("SELECT p.id FROM Produto p WHERE p.quantidadeEstoque <= p.quantidadeMinima AND p.ativo = true")
+    List<Long> findIdsComEstoqueBaixo();
 
-    @Query("SELECT p FROM Produto p WHERE LOWER(p.nome) LIKE LOWER(CONCAT('%', :termo, '%')) OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :termo, '%'))")
-    List<Produto> buscarPorTermo(@Param("termo") String termo);
+    @Query(SELECT_DTO + "WHERE LOWER(p.nome) LIKE LOWER(CONCAT('%', :termo, '%')) OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :termo, '%'))")
+    List<ProdutoDTO> buscarPorTermo(@Param("termo") String termo);
 }
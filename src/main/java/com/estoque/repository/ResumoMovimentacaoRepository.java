@@ -0,0 +1,37 @@
+package com.estoque.repository;
+
+import com.estoque.dto.TotalMovimentacaoDTO;
+import com.estoque.model.ResumoMovimentacaoDiaria;
+import com.estoque.model.TipoMovimentacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumoMovimentacaoRepository extends JpaRepository<ResumoMovimentacaoDiaria, Long> {
+
+    @Modifying
+    @Query("UPDATE ResumoMovimentacaoDiaria r SET r.quantidadeTotal = r.quantidadeTotal + :quantidade, "
+            + "r.totalMovimentacoes = r.totalMovimentacoes + :movimentacoes, r.saldoLiquido = r.saldoLiquido + :saldo "
+            + "WHERE r.data = :data AND r.produtoId = :produtoId AND r.tipo = :tipo")
+    int incrementar(@Param("produtoId") Long produtoId, @Param("data") LocalDate data, @Param("tipo") TipoMovimentacao tipo,
+                    @Param("quantidade") long quantidade, @Param("movimentacoes") long movimentacoes, @Param("saldo") long saldo);
+
+    @Modifying
+    @Query("DELETE FROM ResumoMovimentacaoDiaria r WHERE r.produtoId = :produtoId")
+    int deleteByProdutoId(@Param("produtoId") Long produtoId);
+
+    @Modifying
+    @Query("DELETE FROM ResumoMovimentacaoDiaria r WHERE r.data = :data")
+    int deleteByData(@Param("data") LocalDate data);
+
+    @Query("SELECT new com.estoque.dto.TotalMovimentacaoDTO(r.data, r.tipo, SUM(r.quantidadeTotal), SUM(r.totalMovimentacoes), SUM(r.saldoLiquido)) "
+            + "FROM ResumoMovimentacaoDiaria r WHERE (:produtoId IS NULL OR r.produtoId = :produtoId) "
+            + "AND r.data >= :inicio AND r.data < :fim GROUP BY r.data, r.tipo")
+    List<TotalMovimentacaoDTO> findTotaisPorDia(@Param("produtoId") Long produtoId, @Param("inicio") LocalDate inicio, @Param("fim") LocalDate fim);
+}
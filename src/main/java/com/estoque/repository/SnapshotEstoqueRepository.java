@@ -0,0 +1,28 @@
+package com.estoque.repository;
+
+import com.estoque.dto.SaldoProdutoDTO;
+import com.estoque.model.SnapshotEstoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SnapshotEstoqueRepository extends JpaRepository<SnapshotEstoque, Long> {
+
+    boolean existsByDataReferencia(LocalDateTime dataReferencia);
+
+    Optional<SnapshotEstoque> findFirstByProdutoIdAndDataReferenciaLessThanEqualOrderByDataReferenciaDesc(Long produtoId, LocalDateTime data);
+
+    @Query("SELECT MAX(s.dataReferencia) FROM SnapshotEstoque s WHERE s.dataReferencia <= :data")
+    Optional<LocalDateTime> findUltimaDataAte(@Param("data") LocalDateTime data);
+
+    @Query("SELECT new com.estoque.dto.SaldoProdutoDTO(s.produtoId, s.quantidade) FROM SnapshotEstoque s "
+            + "WHERE s.dataReferencia = :data AND s.produtoId IN :produtoIds")
+    List<SaldoProdutoDTO> findSaldosEm(@Param("data") LocalDateTime data, @Param("produtoIds") Collection<Long> produtoIds);
+}
@@ -0,0 +1,449 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário colunar dos meses de movimentações retirados do banco. Cada arquivo é escrito
+ * uma única vez, em ordem de (data, id), e nunca alterado:
+ *
+ * <pre>
+ * cabeçalho  mágico "MOVC" (int), versão (byte)
+ * blocos     até 4096 linhas, uma coluna após a outra: ids e datas (micros) em deltas, produtos,
+ *            tipo (1 byte, índice do dicionário), quantidade, anterior, posterior e motivo
+ *            (índice do dicionário); inteiros em varint zigzag
+ * rodapé     dicionários de tipo e motivo, índice dos blocos (posição, linhas, data e produto
+ *            mínimos e máximos), total de linhas
+ * final      posição do rodapé (long), mágico (int)
+ * </pre>
+ *
+ * A leitura mapeia o arquivo em memória e usa o mínimo e o máximo de cada bloco para pular os
+ * que não podem ter linhas do período ou do produto pedidos.
+ */
+final class ArquivoColunar {
+
+    static final int LINHAS_POR_BLOCO = 4096;
+
+    private static final int MAGICO = 0x4D4F5643;
+    private static final byte VERSAO = 1;
+    private static final int TAMANHO_FINAL = Long.BYTES + Integer.BYTES;
+
+    private ArquivoColunar() {
+    }
+
+    static final class Escritor implements Closeable {
+
+        private final FileChannel canal;
+        private final Map<String, Integer> indiceTipos = new HashMap<>();
+        private final List<String> tipos = new ArrayList<>();
+        private final Map<String, Integer> indiceMotivos = new HashMap<>();
+        private final List<String> motivos = new ArrayList<>();
+        private final List<Bloco> blocos = new ArrayList<>();
+
+        private final long[] ids = new long[LINHAS_POR_BLOCO];
+        private final long[] datas = new long[LINHAS_POR_BLOCO];
+        private final long[] produtos = new long[LINHAS_POR_BLOCO];
+        private final byte[] tiposLinha = new byte[LINHAS_POR_BLOCO];
+        private final long[] quantidades = new long[LINHAS_POR_BLOCO];
+        private final long[] anteriores = new long[LINHAS_POR_BLOCO];
+        private final long[] posteriores = new long[LINHAS_POR_BLOCO];
+        private final long[] motivosLinha = new long[LINHAS_POR_BLOCO];
+        private int linhas;
+        private long total;
+        private long ultimaData = Long.MIN_VALUE;
+        private long ultimoId = Long.MIN_VALUE;
+
+        Escritor(Path destino) throws IOException {
+            canal = FileChannel.open(destino, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            ByteBuffer cabecalho = ByteBuffer.allocate(Integer.BYTES + 1).putInt(MAGICO).put(VERSAO);
+            escrever(cabecalho.flip());
+        }
+
+        void adicionar(MovimentacaoEstoqueDTO movimentacao) throws IOException {
+            long data = micros(movimentacao.getDataMovimentacao());
+            if (data < ultimaData || (data == ultimaData && movimentacao.getId() <= ultimoId)) {
+                throw new IllegalArgumentException("Movimentações devem chegar em ordem de data e id");
+            }
+            ultimaData = data;
+            ultimoId = movimentacao.getId();
+
+            ids[linhas] = movimentacao.getId();
+            datas[linhas] = data;
+            produtos[linhas] = movimentacao.getProdutoId();
+            tiposLinha[linhas] = (byte) indice(indiceTipos, tipos, movimentacao.getTipo().name());
+            quantidades[linhas] = movimentacao.getQuantidade();
+            anteriores[linhas] = anulavel(movimentacao.getQuantidadeAnterior());
+            posteriores[linhas] = anulavel(movimentacao.getQuantidadePosterior());
+            motivosLinha[linhas] = movimentacao.getMotivo() == null ? 0 : indice(indiceMotivos, motivos, movimentacao.getMotivo()) + 1;
+
+            if (++linhas == LINHAS_POR_BLOCO) {
+                fecharBloco();
+            }
+        }
+
+        long total() {
+            return total + linhas;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (linhas > 0) {
+                    fecharBloco();
+                }
+
+                Saida rodape = new Saida();
+                rodape.textos(tipos);
+                rodape.textos(motivos);
+                rodape.varint(blocos.size());
+                for (Bloco bloco : blocos) {
+                    rodape.varint(bloco.posicao);
+                    rodape.varint(bloco.linhas);
+                    rodape.zigzag(bloco.minData);
+                    rodape.zigzag(bloco.maxData);
+                    rodape.zigzag(bloco.minProduto);
+                    rodape.zigzag(bloco.maxProduto);
+                }
+                rodape.varint(total);
+
+                long posicaoRodape = canal.position();
+                escrever(ByteBuffer.wrap(rodape.bytes()));
+                escrever(ByteBuffer.allocate(TAMANHO_FINAL).putLong(posicaoRodape).putInt(MAGICO).flip());
+                canal.force(true);
+            } finally {
+                canal.close();
+            }
+        }
+
+        private void fecharBloco() throws IOException {
+            Saida corpo = new Saida();
+            long minProduto = Long.MAX_VALUE;
+            long maxProduto = Long.MIN_VALUE;
+
+            corpo.deltas(ids, linhas);
+            corpo.deltas(datas, linhas);
+            for (int i = 0; i < linhas; i++) {
+                corpo.zigzag(produtos[i]);
+                minProduto = Math.min(minProduto, produtos[i]);
+                maxProduto = Math.max(maxProduto, produtos[i]);
+            }
+            corpo.bytes(tiposLinha, linhas);
+            corpo.valores(quantidades, linhas);
+            corpo.valores(anteriores, linhas);
+            corpo.valores(posteriores, linhas);
+            corpo.valores(motivosLinha, linhas);
+
+            blocos.add(new Bloco(canal.position(), linhas, datas[0], datas[linhas - 1], minProduto, maxProduto));
+            escrever(ByteBuffer.wrap(corpo.bytes()));
+            total += linhas;
+            linhas = 0;
+        }
+
+        private void escrever(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        }
+
+        private static int indice(Map<String, Integer> indices, List<String> valores, String valor) {
+            return indices.computeIfAbsent(valor, v -> {
+                valores.add(v);
+                return valores.size() - 1;
+            });
+        }
+    }
+
+    static final class Leitor {
+
+        private final MappedByteBuffer dados;
+        private final TipoMovimentacao[] tipos;
+        private final String[] motivos;
+        private final Bloco[] blocos;
+        private final long total;
+
+        private Leitor(MappedByteBuffer dados, TipoMovimentacao[] tipos, String[] motivos, Bloco[] blocos, long total) {
+            this.dados = dados;
+            this.tipos = tipos;
+            this.motivos = motivos;
+            this.blocos = blocos;
+            this.total = total;
+        }
+
+        static Leitor abrir(Path arquivo) throws IOException {
+            MappedByteBuffer dados;
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            }
+
+            if (dados.capacity() < Integer.BYTES + 1 + TAMANHO_FINAL || dados.getInt(0) != MAGICO
+                    || dados.getInt(dados.capacity() - Integer.BYTES) != MAGICO) {
+                throw new IOException("Arquivo de movimentações inválido ou incompleto: " + arquivo);
+            }
+            if (dados.get(Integer.BYTES) != VERSAO) {
+                throw new IOException("Versão de arquivo de movimentações não suportada: " + arquivo);
+            }
+
+            Entrada rodape = new Entrada(dados.duplicate().position((int) dados.getLong(dados.capacity() - TAMANHO_FINAL)));
+            TipoMovimentacao[] tipos = rodape.textos().stream().map(TipoMovimentacao::valueOf).toArray(TipoMovimentacao[]::new);
+            String[] motivos = rodape.textos().toArray(String[]::new);
+            Bloco[] blocos = new Bloco[(int) rodape.varint()];
+            for (int i = 0; i < blocos.length; i++) {
+                blocos[i] = new Bloco(rodape.varint(), (int) rodape.varint(), rodape.zigzag(), rodape.zigzag(), rodape.zigzag(), rodape.zigzag());
+            }
+            return new Leitor(dados, tipos, motivos, blocos, rodape.varint());
+        }
+
+        long total() {
+            return total;
+        }
+
+        LocalDateTime ultimaData() {
+            return blocos.length == 0 ? null : data(blocos[blocos.length - 1].maxData);
+        }
+
+        /**
+         * Acrescenta ao destino, das mais recentes para as mais antigas, as movimentações que passam
+         * pelo filtro, até o destino ter a quantidade pedida. O nome do produto fica nulo.
+         */
+        void anteriores(Filtro filtro, List<MovimentacaoEstoqueDTO> destino, int quantidade) {
+            for (int b = blocos.length - 1; b >= 0 && destino.size() < quantidade; b--) {
+                Bloco bloco = blocos[b];
+                if (bloco.maxData < filtro.dataMinima) {
+                    return;
+                }
+                if (bloco.minData > filtro.dataMaxima || !filtro.produtoEntre(bloco.minProduto, bloco.maxProduto)) {
+                    continue;
+                }
+                lerBloco(bloco, filtro, destino, quantidade);
+            }
+        }
+
+        private void lerBloco(Bloco bloco, Filtro filtro, List<MovimentacaoEstoqueDTO> destino, int quantidade) {
+            int linhas = bloco.linhas;
+            Entrada entrada = new Entrada(dados.duplicate().position((int) bloco.posicao));
+
+            // Colunas usadas no filtro primeiro; as demais só se alguma linha passar
+            long[] ids = entrada.deltas(linhas);
+            long[] datas = entrada.deltas(linhas);
+            long[] produtos = entrada.valores(linhas);
+            byte[] tiposLinha = entrada.bytes(linhas);
+
+            boolean[] aceitas = new boolean[linhas];
+            boolean alguma = false;
+            for (int i = 0; i < linhas; i++) {
+                aceitas[i] = filtro.aceita(ids[i], datas[i], produtos[i], tipos[tiposLinha[i]]);
+                alguma |= aceitas[i];
+            }
+            if (!alguma) {
+                return;
+            }
+
+            long[] quantidades = entrada.valores(linhas);
+            long[] anteriores = entrada.valores(linhas);
+            long[] posteriores = entrada.valores(linhas);
+            long[] motivosLinha = entrada.valores(linhas);
+
+            for (int i = linhas - 1; i >= 0 && destino.size() < quantidade; i--) {
+                if (aceitas[i]) {
+                    destino.add(new MovimentacaoEstoqueDTO(ids[i], produtos[i], null, tipos[tiposLinha[i]], (int) quantidades[i],
+                            valorAnulavel(anteriores[i]), valorAnulavel(posteriores[i]),
+                            motivosLinha[i] == 0 ? null : motivos[(int) motivosLinha[i] - 1], data(datas[i])));
+                }
+            }
+        }
+    }
+
+    /**
+     * Período, produto, tipo e cursor (data, id) de uma consulta; nulos não filtram.
+     */
+    static final class Filtro {
+
+        private final long dataMinima;
+        private final long dataMaxima;
+        private final long cursorData;
+        private final long cursorId;
+        private final Long produtoId;
+        private final TipoMovimentacao tipo;
+
+        Filtro(LocalDateTime cursorData, Long cursorId, Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim) {
+            this.cursorData = cursorData == null ? Long.MAX_VALUE : micros(cursorData);
+            this.cursorId = cursorId == null ? Long.MAX_VALUE : cursorId;
+            this.dataMinima = inicio == null ? Long.MIN_VALUE : micros(inicio);
+            this.dataMaxima = Math.min(fim == null ? Long.MAX_VALUE : micros(fim), this.cursorData);
+            this.produtoId = produtoId;
+            this.tipo = tipo;
+        }
+
+        boolean produtoEntre(long minimo, long maximo) {
+            return produtoId == null || (produtoId >= minimo && produtoId <= maximo);
+        }
+
+        boolean aceita(long id, long data, long produto, TipoMovimentacao tipoLinha) {
+            return data >= dataMinima && data <= dataMaxima
+                    && (data < cursorData || id < cursorId)
+                    && (produtoId == null || produtoId == produto)
+                    && (tipo == null || tipo == tipoLinha);
+        }
+    }
+
+    private static final class Bloco {
+
+        final long posicao;
+        final int linhas;
+        final long minData;
+        final long maxData;
+        final long minProduto;
+        final long maxProduto;
+
+        Bloco(long posicao, int linhas, long minData, long maxData, long minProduto, long maxProduto) {
+            this.posicao = posicao;
+            this.linhas = linhas;
+            this.minData = minData;
+            this.maxData = maxData;
+            this.minProduto = minProduto;
+            this.maxProduto = maxProduto;
+        }
+    }
+
+    private static final class Saida {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void varint(long valor) {
+            while ((valor & ~0x7FL) != 0) {
+                bytes.write((int) ((valor & 0x7F) | 0x80));
+                valor >>>= 7;
+            }
+            bytes.write((int) valor);
+        }
+
+        void zigzag(long valor) {
+            varint((valor << 1) ^ (valor >> 63));
+        }
+
+        void deltas(long[] valores, int linhas) {
+            long anterior = 0;
+            for (int i = 0; i < linhas; i++) {
+                zigzag(valores[i] - anterior);
+                anterior = valores[i];
+            }
+        }
+
+        void valores(long[] valores, int linhas) {
+            for (int i = 0; i < linhas; i++) {
+                zigzag(valores[i]);
+            }
+        }
+
+        void bytes(byte[] valores, int linhas) {
+            bytes.write(valores, 0, linhas);
+        }
+
+        void textos(List<String> textos) {
+            varint(textos.size());
+            for (String texto : textos) {
+                byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+                varint(utf8.length);
+                bytes.write(utf8, 0, utf8.length);
+            }
+        }
+
+        byte[] bytes() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class Entrada {
+
+        private final ByteBuffer buffer;
+
+        Entrada(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long varint() {
+            long valor = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                deslocamento += 7;
+            } while ((b & 0x80) != 0);
+            return valor;
+        }
+
+        long zigzag() {
+            long valor = varint();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        long[] deltas(int linhas) {
+            long[] valores = new long[linhas];
+            long anterior = 0;
+            for (int i = 0; i < linhas; i++) {
+                anterior += zigzag();
+                valores[i] = anterior;
+            }
+            return valores;
+        }
+
+        long[] valores(int linhas) {
+            long[] valores = new long[linhas];
+            for (int i = 0; i < linhas; i++) {
+                valores[i] = zigzag();
+            }
+            return valores;
+        }
+
+        byte[] bytes(int linhas) {
+            byte[] valores = new byte[linhas];
+            buffer.get(valores);
+            return valores;
+        }
+
+        List<String> textos() {
+            int quantidade = (int) varint();
+            List<String> textos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                byte[] utf8 = new byte[(int) varint()];
+                buffer.get(utf8);
+                textos.add(new String(utf8, StandardCharsets.UTF_8));
+            }
+            return textos;
+        }
+    }
+
+    // Nulo vira 0; os demais valores são deslocados de 1
+    private static long anulavel(Integer valor) {
+        return valor == null ? 0 : (long) valor + 1;
+    }
+
+    private static Integer valorAnulavel(long valor) {
+        return valor == 0 ? null : (int) (valor - 1);
+    }
+
+    private static long micros(LocalDateTime data) {
+        return data.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + data.getNano() / 1_000;
+    }
+
+    private static LocalDateTime data(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
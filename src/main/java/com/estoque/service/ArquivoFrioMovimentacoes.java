@@ -0,0 +1,173 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Meses de movimentações fora do banco, um arquivo {@link ArquivoColunar} por mês no diretório
+ * configurado. Os arquivos são abertos (mapeados em memória) na inicialização e a cada mês gravado.
+ */
+@Slf4j
+@Component
+public class ArquivoFrioMovimentacoes {
+
+    private static final String PREFIXO = "movimentacoes-";
+    private static final String EXTENSAO = ".mov";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final Path diretorio;
+    private final NavigableMap<YearMonth, ArquivoColunar.Leitor> meses = new ConcurrentSkipListMap<>();
+
+    public ArquivoFrioMovimentacoes(@Value("${estoque.arquivo-frio.diretorio:arquivo-frio}") String diretorio) {
+        this.diretorio = Paths.get(diretorio);
+        abrirExistentes();
+    }
+
+    public boolean contem(YearMonth mes) {
+        return meses.containsKey(mes);
+    }
+
+    public long linhas(YearMonth mes) {
+        ArquivoColunar.Leitor leitor = meses.get(mes);
+        return leitor == null ? 0 : leitor.total();
+    }
+
+    public Optional<LocalDateTime> ultimaData() {
+        Map.Entry<YearMonth, ArquivoColunar.Leitor> ultimo = meses.lastEntry();
+        return ultimo == null ? Optional.empty() : Optional.ofNullable(ultimo.getValue().ultimaData());
+    }
+
+    /**
+     * Grava o mês com as movimentações entregues pela fonte, em ordem de data e id, e retorna
+     * quantas foram gravadas. O arquivo só aparece com o nome final depois de completo e em disco.
+     */
+    public long gravar(YearMonth mes, Consumer<Consumer<MovimentacaoEstoqueDTO>> fonte) {
+        Path destino = diretorio.resolve(PREFIXO + mes.format(FORMATO_MES) + EXTENSAO);
+        Path temporario = diretorio.resolve(destino.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(diretorio);
+            Files.deleteIfExists(temporario);
+
+            long total;
+            try (ArquivoColunar.Escritor escritor = new ArquivoColunar.Escritor(temporario)) {
+                fonte.accept(movimentacao -> {
+                    try {
+                        escritor.adicionar(movimentacao);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                total = escritor.total();
+            }
+
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+            meses.put(mes, ArquivoColunar.Leitor.abrir(destino));
+            return total;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao gravar o arquivo de movimentações de " + mes, ex);
+        }
+    }
+
+    /**
+     * Movimentações anteriores ao cursor (data, id), das mais recentes para as mais antigas, sem o
+     * nome do produto. Só abre os meses que cruzam o período e o cursor.
+     */
+    public List<MovimentacaoEstoqueDTO> anteriores(LocalDateTime cursorData, Long cursorId, Long produtoId, TipoMovimentacao tipo,
+                                                   LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        List<MovimentacaoEstoqueDTO> resultado = new ArrayList<>();
+        if (meses.isEmpty()) {
+            return resultado;
+        }
+
+        LocalDateTime teto = cursorData == null ? fim : (fim == null || cursorData.isBefore(fim) ? cursorData : fim);
+        NavigableMap<YearMonth, ArquivoColunar.Leitor> faixa = meses;
+        if (teto != null) {
+            faixa = faixa.headMap(YearMonth.from(teto), true);
+        }
+        if (inicio != null) {
+            faixa = faixa.tailMap(YearMonth.from(inicio), true);
+        }
+
+        ArquivoColunar.Filtro filtro = new ArquivoColunar.Filtro(cursorData, cursorId, produtoId, tipo, inicio, fim);
+        for (ArquivoColunar.Leitor leitor : faixa.descendingMap().values()) {
+            leitor.anteriores(filtro, resultado, quantidade);
+            if (resultado.size() >= quantidade) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Entrega as movimentações do período, sem o nome do produto, um mês por vez e em ordem de data
+     * e id. Os blocos são lidos de trás para a frente, então cada mês é invertido em memória antes
+     * de sair: o consumo acompanha o tamanho de um mês filtrado, não o do período.
+     */
+    public void percorrer(Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim,
+                          Consumer<List<MovimentacaoEstoqueDTO>> porMes) {
+        NavigableMap<YearMonth, ArquivoColunar.Leitor> faixa = meses;
+        if (fim != null) {
+            faixa = faixa.headMap(YearMonth.from(fim), true);
+        }
+        if (inicio != null) {
+            faixa = faixa.tailMap(YearMonth.from(inicio), true);
+        }
+
+        ArquivoColunar.Filtro filtro = new ArquivoColunar.Filtro(null, null, produtoId, tipo, inicio, fim);
+        for (ArquivoColunar.Leitor leitor : faixa.values()) {
+            List<MovimentacaoEstoqueDTO> mes = new ArrayList<>();
+            leitor.anteriores(filtro, mes, Integer.MAX_VALUE);
+            if (!mes.isEmpty()) {
+                Collections.reverse(mes);
+                porMes.accept(mes);
+            }
+        }
+    }
+
+    private void abrirExistentes() {
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO + "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                YearMonth mes;
+                try {
+                    mes = YearMonth.parse(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO.length()), FORMATO_MES);
+                } catch (DateTimeParseException ex) {
+                    log.warn("Ignorando arquivo com nome fora do padrão: {}", arquivo);
+                    continue;
+                }
+                meses.put(mes, ArquivoColunar.Leitor.abrir(arquivo));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao abrir os arquivos de movimentações em " + diretorio, ex);
+        }
+        if (!meses.isEmpty()) {
+            log.info("{} mês(es) de movimentações em arquivo: {} a {}", meses.size(), meses.firstKey(), meses.lastKey());
+        }
+    }
+}
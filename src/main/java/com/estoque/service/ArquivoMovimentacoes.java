@@ -0,0 +1,341 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.ArquivoMovimentacaoRepository;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ProdutoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Move as movimentações mais antigas que a retenção da tabela principal para a tabela de arquivo,
+ * em lotes, cada lote numa transação. A tabela principal fica do tamanho da janela de retenção,
+ * então inserções e leituras recentes não pioram com o histórico acumulado.
+ *
+ * <p>O arquivamento segue a ordem (data, id): toda movimentação arquivada é mais antiga que qualquer
+ * uma da tabela principal, e as listagens por cursor podem continuar no arquivo onde a tabela principal acaba.
+ *
+ * <p>Meses antigos da tabela de arquivo vão, do mais antigo para o mais novo, para arquivos colunares
+ * em disco ({@link ArquivoFrioMovimentacoes}), que continuam as listagens onde a tabela de arquivo acaba.
+ */
+@Slf4j
+@Component
+public class ArquivoMovimentacoes implements SmartInitializingSingleton {
+
+    private final ArquivoMovimentacaoRepository arquivoRepository;
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final ProdutoRepository produtoRepository;
+    private final ArquivoFrioMovimentacoes frio;
+    private final TransactionTemplate transactionTemplate;
+    private final int retencaoDias;
+    private final int tamanhoLote;
+    private final int mesesNoBanco;
+
+    // Data da movimentação arquivada (na tabela ou em disco) mais recente; nula enquanto não houver nenhuma
+    private final AtomicReference<LocalDateTime> ultimaArquivada = new AtomicReference<>();
+    // Data da mais recente em disco: abaixo dela, as listagens seguem nos arquivos colunares
+    private final AtomicReference<LocalDateTime> ultimaEmDisco = new AtomicReference<>();
+
+    public ArquivoMovimentacoes(ArquivoMovimentacaoRepository arquivoRepository,
+                                MovimentacaoEstoqueRepository movimentacaoRepository,
+                                ProdutoRepository produtoRepository,
+                                ArquivoFrioMovimentacoes frio,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${estoque.arquivo.retencao-dias:365}") int retencaoDias,
+                                @Value("${estoque.arquivo.tamanho-lote:5000}") int tamanhoLote,
+                                @Value("${estoque.arquivo-frio.meses-no-banco:12}") int mesesNoBanco) {
+        this.arquivoRepository = arquivoRepository;
+        this.movimentacaoRepository = movimentacaoRepository;
+        this.produtoRepository = produtoRepository;
+        this.frio = frio;
+        this.transactionTemplate = transactionTemplate;
+        this.retencaoDias = retencaoDias;
+        this.tamanhoLote = tamanhoLote;
+        this.mesesNoBanco = mesesNoBanco;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        arquivoRepository.criarEsquema();
+        atualizarLimites();
+    }
+
+    @Scheduled(cron = "${estoque.arquivo.cron:0 30 1 * * *}")
+    public void arquivarDiario() {
+        int movidas = arquivarAntesDe(LocalDate.now().minusDays(retencaoDias).atStartOfDay());
+        if (movidas > 0) {
+            log.info("{} movimentação(ões) anteriores a {} dias movidas para o arquivo", movidas, retencaoDias);
+        }
+    }
+
+    /**
+     * Arquiva as movimentações anteriores ao corte e retorna quantas foram movidas.
+     */
+    public int arquivarAntesDe(LocalDateTime corte) {
+        Optional<LocalDateTime> primeira = movimentacaoRepository.findPrimeiraData();
+        if (primeira.isEmpty() || !primeira.get().isBefore(corte)) {
+            return 0;
+        }
+        arquivoRepository.garantirParticoes(primeira.get(), corte);
+
+        int movidas = 0;
+        int lote;
+        do {
+            lote = transactionTemplate.execute(status -> {
+                List<Long> ids = arquivoRepository.findIdsAntesDe(corte, tamanhoLote);
+                return ids.isEmpty() ? 0 : arquivoRepository.mover(ids);
+            });
+            movidas += lote;
+        } while (lote == tamanhoLote);
+
+        atualizarLimites();
+        return movidas;
+    }
+
+    @Scheduled(cron = "${estoque.arquivo-frio.cron:0 0 3 * * *}")
+    public void exportarMensal() {
+        int meses = exportarAntesDe(YearMonth.from(LocalDate.now().minusDays(retencaoDias)).minusMonths(mesesNoBanco));
+        if (meses > 0) {
+            log.info("{} mês(es) da tabela de arquivo exportados para disco", meses);
+        }
+    }
+
+    /**
+     * Exporta para disco, do mais antigo em diante, os meses da tabela de arquivo anteriores ao
+     * limite, e os apaga da tabela. Retorna quantos meses foram exportados. O limite não pode
+     * alcançar o mês do corte de retenção, que ainda recebe movimentações no arquivamento diário.
+     */
+    public int exportarAntesDe(YearMonth limite) {
+        YearMonth mesDoCorte = YearMonth.from(LocalDate.now().minusDays(retencaoDias));
+        if (limite.isAfter(mesDoCorte)) {
+            throw new IllegalArgumentException("Só meses anteriores a " + mesDoCorte + " podem ser exportados");
+        }
+
+        int meses = 0;
+        YearMonth anterior = null;
+        Optional<LocalDateTime> primeira = arquivoRepository.findPrimeiraData();
+        while (primeira.isPresent() && YearMonth.from(primeira.get()).isBefore(limite)) {
+            YearMonth mes = YearMonth.from(primeira.get());
+            if (mes.equals(anterior)) {
+                throw new IllegalStateException("O mês " + mes + " continua na tabela de arquivo após a exportação");
+            }
+            exportarMes(mes);
+            meses++;
+            anterior = mes;
+            primeira = arquivoRepository.findPrimeiraData();
+        }
+
+        if (meses > 0) {
+            atualizarLimites();
+        }
+        return meses;
+    }
+
+    // O arquivo é conferido com a tabela antes de o mês sair dela; um arquivo que já existe
+    // (exportação interrompida depois de gravá-lo) não é regravado, só conferido
+    private void exportarMes(YearMonth mes) {
+        long esperadas = arquivoRepository.countMes(mes);
+        long gravadas = frio.contem(mes)
+                ? frio.linhas(mes)
+                : transactionTemplate.execute(status -> frio.gravar(mes, consumidor -> arquivoRepository.percorrerMes(mes, consumidor)));
+        if (gravadas != esperadas) {
+            throw new IllegalStateException("O arquivo de " + mes + " tem " + gravadas + " movimentação(ões), a tabela tem " + esperadas);
+        }
+        transactionTemplate.executeWithoutResult(status -> arquivoRepository.removerMes(mes));
+    }
+
+    public Optional<LocalDateTime> ultimaArquivada() {
+        return Optional.ofNullable(ultimaArquivada.get());
+    }
+
+    /**
+     * Rejeita consultas que precisariam das movimentações brutas já arquivadas.
+     */
+    public void exigirRazaoCompleto(LocalDateTime data, String consulta) {
+        LocalDateTime limite = ultimaArquivada.get();
+        if (limite != null && data.isBefore(limite)) {
+            throw new IllegalArgumentException(consulta + " não está disponível antes de " + limite
+                    + ": as movimentações desse período foram arquivadas");
+        }
+    }
+
+    /**
+     * Movimentações arquivadas anteriores ao cursor (data, id), das mais recentes para as mais
+     * antigas: primeiro da tabela de arquivo, depois dos arquivos em disco. Sem nada arquivado, ou
+     * com o período todo depois do arquivo, nem consulta o banco.
+     */
+    public List<MovimentacaoEstoqueDTO> anteriores(LocalDateTime cursorData, Long cursorId, Long produtoId, TipoMovimentacao tipo,
+                                                   LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        LocalDateTime limite = ultimaArquivada.get();
+        if (limite == null || (inicio != null && inicio.isAfter(limite))) {
+            return List.of();
+        }
+        List<MovimentacaoEstoqueDTO> resultado = arquivoRepository.findPagina(produtoId, tipo, inicio, fim, cursorData, cursorId, quantidade);
+
+        LocalDateTime limiteDisco = ultimaEmDisco.get();
+        if (resultado.size() >= quantidade || limiteDisco == null || (inicio != null && inicio.isAfter(limiteDisco))) {
+            return resultado;
+        }
+        resultado = new ArrayList<>(resultado);
+        if (!resultado.isEmpty()) {
+            MovimentacaoEstoqueDTO ultima = resultado.get(resultado.size() - 1);
+            cursorData = ultima.getDataMovimentacao();
+            cursorId = ultima.getId();
+        }
+        continuarEmDisco(resultado, cursorData, cursorId, produtoId, tipo, inicio, fim, quantidade);
+        return resultado;
+    }
+
+    /**
+     * Entrega ao consumidor as movimentações arquivadas do período em ordem de data e id: primeiro
+     * as dos arquivos em disco, depois as da tabela de arquivo, um mês por vez. Tudo o que está
+     * arquivado é mais antigo que a tabela principal, que continua a sequência.
+     */
+    public void percorrer(Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim,
+                          Consumer<MovimentacaoEstoqueDTO> consumidor) {
+        LocalDateTime limite = ultimaArquivada.get();
+        if (limite == null || (inicio != null && inicio.isAfter(limite))) {
+            return;
+        }
+        if (ultimaEmDisco.get() != null) {
+            frio.percorrer(produtoId, tipo, inicio, fim, mes -> comNomes(mes).forEach(consumidor));
+        }
+
+        Optional<LocalDateTime> primeira = arquivoRepository.findPrimeiraData();
+        if (primeira.isEmpty()) {
+            return;
+        }
+        YearMonth mes = YearMonth.from(inicio != null && inicio.isAfter(primeira.get()) ? inicio : primeira.get());
+        YearMonth ultimo = YearMonth.from(fim != null && fim.isBefore(limite) ? fim : limite);
+        for (; !mes.isAfter(ultimo); mes = mes.plusMonths(1)) {
+            // Um mês já em disco e ainda na tabela é uma exportação interrompida: vale o arquivo
+            if (!frio.contem(mes)) {
+                arquivoRepository.percorrerMes(mes, produtoId, tipo, inicio, fim, consumidor);
+            }
+        }
+    }
+
+    /**
+     * Saldo deixado pela movimentação arquivada mais recente do produto no intervalo (depois, ate].
+     */
+    public Optional<Integer> saldoPosteriorEntre(Long produtoId, LocalDateTime depois, LocalDateTime ate) {
+        LocalDateTime limite = ultimaArquivada.get();
+        if (limite == null || !depois.isBefore(limite)) {
+            return Optional.empty();
+        }
+        return anteriores(null, null, produtoId, null, depois, ate, 1).stream()
+                .filter(m -> m.getDataMovimentacao().isAfter(depois))
+                .findFirst()
+                .map(MovimentacaoEstoqueDTO::getQuantidadePosterior);
+    }
+
+    /**
+     * Saldo de cada produto deixado pela sua movimentação arquivada mais recente no intervalo (depois, ate].
+     */
+    public Map<Long, Integer> saldosPosterioresEntre(LocalDateTime depois, LocalDateTime ate) {
+        Map<Long, Integer> saldos = new HashMap<>();
+        percorrerDecrescente(null, depois, ate, m -> saldos.putIfAbsent(m.getProdutoId(), m.getQuantidadePosterior()));
+        return saldos;
+    }
+
+    /**
+     * Saldo de cada produto (ou só do informado) antes da sua primeira movimentação arquivada
+     * posterior à data. Lê tudo o que foi arquivado depois dela.
+     */
+    public Map<Long, Integer> saldosAnterioresApos(Long produtoId, LocalDateTime data) {
+        Map<Long, Integer> saldos = new HashMap<>();
+        // Em ordem decrescente, o último visto de cada produto é o primeiro após a data
+        percorrerDecrescente(produtoId, data, null, m -> saldos.put(m.getProdutoId(), m.getQuantidadeAnterior()));
+        return saldos;
+    }
+
+    // As movimentações da tabela principal saem em cascata com o produto; as arquivadas, aqui.
+    // As que estão em disco ficam nos arquivos e são descartadas na leitura
+    public void produtoRemovido(Long produtoId) {
+        arquivoRepository.deleteByProdutoId(produtoId);
+    }
+
+    // Os arquivos não guardam o nome do produto: ele vem do cadastro atual, e as movimentações
+    // de produtos removidos são puladas, o que pode exigir ler mais do que a quantidade pedida
+    private void continuarEmDisco(List<MovimentacaoEstoqueDTO> resultado, LocalDateTime cursorData, Long cursorId, Long produtoId,
+                                  TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        while (resultado.size() < quantidade) {
+            List<MovimentacaoEstoqueDTO> lidas = frio.anteriores(cursorData, cursorId, produtoId, tipo, inicio, fim, quantidade - resultado.size());
+            if (lidas.isEmpty()) {
+                return;
+            }
+
+            resultado.addAll(comNomes(lidas));
+
+            MovimentacaoEstoqueDTO ultima = lidas.get(lidas.size() - 1);
+            cursorData = ultima.getDataMovimentacao();
+            cursorId = ultima.getId();
+        }
+    }
+
+    private List<MovimentacaoEstoqueDTO> comNomes(List<MovimentacaoEstoqueDTO> lidas) {
+        Set<Long> ids = lidas.stream().map(MovimentacaoEstoqueDTO::getProdutoId).collect(Collectors.toSet());
+        Map<Long, String> nomes = produtoRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProdutoDTO::getId, ProdutoDTO::getNome));
+        List<MovimentacaoEstoqueDTO> comNome = new ArrayList<>(lidas.size());
+        for (MovimentacaoEstoqueDTO movimentacao : lidas) {
+            String nome = nomes.get(movimentacao.getProdutoId());
+            if (nome != null) {
+                movimentacao.setProdutoNome(nome);
+                comNome.add(movimentacao);
+            }
+        }
+        return comNome;
+    }
+
+    // Das mais recentes para as mais antigas, em páginas de anteriores(); sem nada arquivado
+    // depois do início exclusivo, nem consulta o banco
+    private void percorrerDecrescente(Long produtoId, LocalDateTime depois, LocalDateTime ate, Consumer<MovimentacaoEstoqueDTO> consumidor) {
+        LocalDateTime limite = ultimaArquivada.get();
+        if (limite == null || !depois.isBefore(limite)) {
+            return;
+        }
+        LocalDateTime cursorData = null;
+        Long cursorId = null;
+        List<MovimentacaoEstoqueDTO> pagina;
+        do {
+            pagina = anteriores(cursorData, cursorId, produtoId, null, depois, ate, tamanhoLote);
+            for (MovimentacaoEstoqueDTO movimentacao : pagina) {
+                if (!movimentacao.getDataMovimentacao().isAfter(depois)) {
+                    return;
+                }
+                consumidor.accept(movimentacao);
+            }
+            if (!pagina.isEmpty()) {
+                cursorData = pagina.get(pagina.size() - 1).getDataMovimentacao();
+                cursorId = pagina.get(pagina.size() - 1).getId();
+            }
+        } while (pagina.size() == tamanhoLote);
+    }
+
+    private void atualizarLimites() {
+        LocalDateTime emDisco = frio.ultimaData().orElse(null);
+        LocalDateTime naTabela = arquivoRepository.findUltimaData().orElse(null);
+        ultimaEmDisco.set(emDisco);
+        ultimaArquivada.set(naTabela != null ? naTabela : emDisco);
+    }
+}
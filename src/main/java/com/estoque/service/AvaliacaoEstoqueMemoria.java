@@ -0,0 +1,290 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.model.Produto;
+import com.estoque.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Quantidade, custo e preço de venda de cada produto em arrays primitivos, com os valores em
+ * centavos, para avaliar o estoque por categoria sem ir ao banco. A soma é dividida em faixas
+ * de posições e feita em paralelo no pool fork-join comum; cada faixa acumula seus totais por
+ * categoria e as faixas são combinadas no retorno.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvaliacaoEstoqueMemoria implements SmartInitializingSingleton {
+
+    static final int TAMANHO_FAIXA = 16_384;
+
+    private static final int CAPACIDADE_INICIAL = 64;
+    private static final int SEM_CATEGORIA = 0;
+    private static final long SEM_CUSTO = Long.MIN_VALUE;
+
+    // Acumuladores por categoria: produtos, quantidade, produtos com custo, custo e venda (centavos)
+    private static final int CAMPOS = 5;
+
+    private final ProdutoRepository produtoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    private final Map<Long, Integer> posicoes = new HashMap<>();
+    private final Map<Long, Long> versoes = new HashMap<>();
+    private final Map<Long, Integer> indicesCategoria = new HashMap<>();
+    // Posição 0 é a dos produtos sem categoria
+    private final List<Long> categoriaIds = new ArrayList<>(Collections.singletonList(null));
+
+    private long[] ids = new long[CAPACIDADE_INICIAL];
+    private int[] quantidades = new int[CAPACIDADE_INICIAL];
+    private long[] custos = new long[CAPACIDADE_INICIAL];
+    private long[] precos = new long[CAPACIDADE_INICIAL];
+    private int[] categorias = new int[CAPACIDADE_INICIAL];
+    private int total;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconstruir();
+    }
+
+    public void reconstruir() {
+        List<ProdutoDTO> produtos = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> produtoRepository.streamParaIndexacao().forEach(produtos::add));
+
+        lock.writeLock().lock();
+        try {
+            int capacidade = Math.max(CAPACIDADE_INICIAL, produtos.size());
+            ids = new long[capacidade];
+            quantidades = new int[capacidade];
+            custos = new long[capacidade];
+            precos = new long[capacidade];
+            categorias = new int[capacidade];
+            total = 0;
+            posicoes.clear();
+            versoes.clear();
+            indicesCategoria.clear();
+            categoriaIds.clear();
+            categoriaIds.add(null);
+
+            for (ProdutoDTO produto : produtos) {
+                gravar(produto.getId(), produto.getQuantidadeEstoque(), produto.getPrecoCusto(), produto.getPreco(), produto.getCategoriaId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registra o produto como está na transação corrente, aplicado após o commit. Como em
+     * {@link ConjuntoEstoqueBaixo}, a versão é tirada enquanto a linha está bloqueada, e um
+     * commit aplicado fora de ordem não sobrescreve um estado mais novo.
+     */
+    public void atualizar(Produto produto) {
+        Long id = produto.getId();
+        int quantidade = produto.getQuantidadeEstoque();
+        BigDecimal custo = produto.getPrecoCusto();
+        BigDecimal preco = produto.getPreco();
+        Long categoriaId = produto.getCategoria() != null ? produto.getCategoria().getId() : null;
+        long versao = sequencia.incrementAndGet();
+
+        Transacoes.aposCommit(() -> aplicar(id, versao, () -> gravar(id, quantidade, custo, preco, categoriaId)));
+    }
+
+    // Produtos gravados em lote fora do JPA (importação): um registro após o commit e uma tomada do lock
+    public void atualizarTodos(List<ProdutoDTO> produtos) {
+        long[] versoesLote = new long[produtos.size()];
+        for (int i = 0; i < versoesLote.length; i++) {
+            versoesLote[i] = sequencia.incrementAndGet();
+        }
+
+        Transacoes.aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < versoesLote.length; i++) {
+                    ProdutoDTO produto = produtos.get(i);
+                    Long atual = versoes.get(produto.getId());
+                    if (atual == null || atual < versoesLote[i]) {
+                        versoes.put(produto.getId(), versoesLote[i]);
+                        gravar(produto.getId(), produto.getQuantidadeEstoque(), produto.getPrecoCusto(), produto.getPreco(), produto.getCategoriaId());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remover(Long id) {
+        long versao = sequencia.incrementAndGet();
+        Transacoes.aposCommit(() -> aplicar(id, versao, () -> apagar(id)));
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Totais por categoria, sem o nome da categoria. Lança {@link ArithmeticException} se algum
+     * valor não couber em centavos num long.
+     */
+    public List<ValorEstoqueCategoriaDTO> avaliar() {
+        long[] acumulado;
+        List<Long> categoriasAtuais;
+
+        lock.readLock().lock();
+        try {
+            categoriasAtuais = new ArrayList<>(categoriaIds);
+            acumulado = ForkJoinPool.commonPool().invoke(new Soma(0, total, categoriasAtuais.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ValorEstoqueCategoriaDTO> resultado = new ArrayList<>();
+        for (int c = 0; c < categoriasAtuais.size(); c++) {
+            int base = c * CAMPOS;
+            if (acumulado[base] == 0) {
+                continue;
+            }
+            BigDecimal custo = acumulado[base + 2] == 0 ? null : BigDecimal.valueOf(acumulado[base + 3], 2);
+            resultado.add(new ValorEstoqueCategoriaDTO(categoriasAtuais.get(c), null, acumulado[base], acumulado[base + 1],
+                    custo, BigDecimal.valueOf(acumulado[base + 4], 2)));
+        }
+        return resultado;
+    }
+
+    private void aplicar(Long id, long versao, Runnable alteracao) {
+        lock.writeLock().lock();
+        try {
+            Long atual = versoes.get(id);
+            if (atual != null && atual > versao) {
+                return;
+            }
+            versoes.put(id, versao);
+            alteracao.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void gravar(Long id, Integer quantidade, BigDecimal custo, BigDecimal preco, Long categoriaId) {
+        Integer posicao = posicoes.get(id);
+        if (posicao == null) {
+            garantirCapacidade(total + 1);
+            posicao = total++;
+            posicoes.put(id, posicao);
+        }
+
+        ids[posicao] = id;
+        quantidades[posicao] = quantidade;
+        custos[posicao] = custo == null ? SEM_CUSTO : centavos(custo);
+        precos[posicao] = centavos(preco);
+        categorias[posicao] = categoriaId == null ? SEM_CATEGORIA : indicesCategoria.computeIfAbsent(categoriaId, c -> {
+            categoriaIds.add(c);
+            return categoriaIds.size() - 1;
+        });
+    }
+
+    // A última posição ocupa a vaga, mantendo os arrays contíguos
+    private void apagar(Long id) {
+        Integer posicao = posicoes.remove(id);
+        if (posicao == null) {
+            return;
+        }
+
+        int ultima = --total;
+        if (posicao != ultima) {
+            ids[posicao] = ids[ultima];
+            quantidades[posicao] = quantidades[ultima];
+            custos[posicao] = custos[ultima];
+            precos[posicao] = precos[ultima];
+            categorias[posicao] = categorias[ultima];
+            posicoes.put(ids[posicao], posicao);
+        }
+    }
+
+    private void garantirCapacidade(int minima) {
+        if (minima <= ids.length) {
+            return;
+        }
+        int capacidade = Math.max(minima, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacidade);
+        quantidades = Arrays.copyOf(quantidades, capacidade);
+        custos = Arrays.copyOf(custos, capacidade);
+        precos = Arrays.copyOf(precos, capacidade);
+        categorias = Arrays.copyOf(categorias, capacidade);
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    private final class Soma extends RecursiveTask<long[]> {
+
+        private final int inicio;
+        private final int fim;
+        private final int totalCategorias;
+
+        Soma(int inicio, int fim, int totalCategorias) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.totalCategorias = totalCategorias;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (fim - inicio <= TAMANHO_FAIXA) {
+                return somarFaixa();
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            Soma esquerda = new Soma(inicio, meio, totalCategorias);
+            esquerda.fork();
+            long[] direita = new Soma(meio, fim, totalCategorias).compute();
+            long[] resultado = esquerda.join();
+            for (int i = 0; i < resultado.length; i++) {
+                resultado[i] = Math.addExact(resultado[i], direita[i]);
+            }
+            return resultado;
+        }
+
+        private long[] somarFaixa() {
+            long[] acumulado = new long[totalCategorias * CAMPOS];
+            for (int i = inicio; i < fim; i++) {
+                int base = categorias[i] * CAMPOS;
+                long quantidade = quantidades[i];
+                acumulado[base]++;
+                acumulado[base + 1] += quantidade;
+                if (custos[i] != SEM_CUSTO) {
+                    acumulado[base + 2]++;
+                    acumulado[base + 3] = Math.addExact(acumulado[base + 3], Math.multiplyExact(quantidade, custos[i]));
+                }
+                acumulado[base + 4] = Math.addExact(acumulado[base + 4], Math.multiplyExact(quantidade, precos[i]));
+            }
+            return acumulado;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.estoque.service;
+
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.model.Categoria;
+import com.estoque.repository.CategoriaRepository;
+import com.estoque.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Valor do estoque por categoria (quantidade × preço de custo e × preço de venda). O modo SQL
+ * agrega no banco; o modo em memória soma os arrays de {@link AvaliacaoEstoqueMemoria}, mantidos
+ * a cada movimentação e edição de produto, e só consulta o banco pelos nomes das categorias.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvaliacaoEstoqueService {
+
+    public enum Modo {
+        SQL, MEMORIA
+    }
+
+    private final ProdutoRepository produtoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final AvaliacaoEstoqueMemoria memoria;
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.RELATORIO)
+    public List<ValorEstoqueCategoriaDTO> avaliar(Modo modo) {
+        List<ValorEstoqueCategoriaDTO> valores;
+        if (modo == Modo.MEMORIA) {
+            try {
+                valores = memoria.avaliar();
+                Map<Long, String> nomes = categoriaRepository.findAll().stream()
+                        .collect(Collectors.toMap(Categoria::getId, Categoria::getNome));
+                valores.forEach(v -> v.setCategoriaNome(v.getCategoriaId() == null ? null : nomes.get(v.getCategoriaId())));
+            } catch (ArithmeticException e) {
+                log.warn("Valor do estoque excede o intervalo em centavos; usando a agregação SQL");
+                valores = produtoRepository.findValorEstoquePorCategoria();
+            }
+        } else {
+            valores = produtoRepository.findValorEstoquePorCategoria();
+        }
+
+        valores.sort(Comparator.comparing(ValorEstoqueCategoriaDTO::getCategoriaId, Comparator.nullsLast(Comparator.naturalOrder())));
+        return valores;
+    }
+}
@@ -0,0 +1,86 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstatisticasCacheDTO;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Nomes dos caches de leitura e a invalidação deles. As remoções acontecem após o commit: antes
+ * dele, uma leitura concorrente ainda veria e guardaria o valor antigo. Só a remoção não basta,
+ * porque uma leitura que carregou a linha antiga antes do commit pode guardá-la depois da remoção;
+ * as cargas ({@code @Cacheable(sync = true)}) que cruzam uma remoção são descartadas pelos caches
+ * ({@code CacheComGeracoes}), que comparam a geração da chave.
+ */
+@Component
+@RequiredArgsConstructor
+public class CachesLeitura {
+
+    public static final String CATEGORIAS = "categorias";
+    public static final String CATEGORIA = "categoria";
+    public static final String PRODUTO = "produto";
+    public static final String PRODUTO_SKU = "produto-sku";
+
+    private final CacheManager cacheManager;
+
+    public void produtoAlterado(Long id, String... skus) {
+        Transacoes.aposCommit(() -> {
+            remover(PRODUTO, id);
+            for (String sku : skus) {
+                if (sku != null) {
+                    remover(PRODUTO_SKU, sku);
+                }
+            }
+        });
+    }
+
+    public void categoriaCriada() {
+        Transacoes.aposCommit(() -> limpar(CATEGORIAS));
+    }
+
+    // O nome da categoria aparece nos produtos em cache, que também precisam sair
+    public void categoriaAlterada(Long id) {
+        Transacoes.aposCommit(() -> {
+            limpar(CATEGORIAS);
+            remover(CATEGORIA, id);
+            limpar(PRODUTO);
+            limpar(PRODUTO_SKU);
+        });
+    }
+
+    public List<EstatisticasCacheDTO> estatisticas() {
+        return cacheManager.getCacheNames().stream()
+                .sorted()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .map(cache -> {
+                    @SuppressWarnings("unchecked")
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine =
+                            (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+                    CacheStats stats = caffeine.stats();
+                    return new EstatisticasCacheDTO(cache.getName(), caffeine.estimatedSize(), stats.hitCount(),
+                            stats.missCount(), stats.hitRate(), stats.evictionCount());
+                })
+                .collect(Collectors.toList());
+    }
+
+    private void remover(String nome, Object chave) {
+        Cache cache = cacheManager.getCache(nome);
+        if (cache != null) {
+            cache.evict(chave);
+        }
+    }
+
+    private void limpar(String nome) {
+        Cache cache = cacheManager.getCache(nome);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
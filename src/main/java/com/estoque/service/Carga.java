@@ -0,0 +1,18 @@
+package com.estoque.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Classe de carga de um método de serviço. Com {@code estoque.cargas.habilitadas}, a chamada só
+ * começa quando há vaga na classe (ou é recusada com {@link CargaSaturadaException}) e suas
+ * conexões vêm do pool da classe. Chamadas aninhadas seguem na classe da mais externa.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Carga {
+
+    TipoCarga value();
+}
@@ -0,0 +1,19 @@
+package com.estoque.service;
+
+/**
+ * Recusa por excesso de carga, respondida com 503 e {@code Retry-After}: melhor devolver logo
+ * ao cliente do que enfileirar além do que o banco atende no prazo.
+ */
+public class CargaSaturadaException extends RuntimeException {
+
+    private final long retryAfterSegundos;
+
+    public CargaSaturadaException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
@@ -1,31 +1,38 @@
 package com.estoque.service;
 
 import com.estoque.dto.CategoriaDTO;
+import com.estoque.dto.PaginaDTO;
 import com.estoque.model.Categoria;
 import com.estoque.repository.CategoriaRepository;
 import javax.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final CachesLeitura caches;
 
+    @Cacheable(cacheNames = CachesLeitura.CATEGORIAS, sync = true)
     @Transactional(readOnly = true)
-    public List<CategoriaDTO> listarTodas() {
-        return categoriaRepository.findAll()
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<CategoriaDTO> listarTodas(String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        List<Categoria> resultado = categoriaRepository.findPagina(aposId, Paginacao.consulta(limite));
+        return Paginacao.montar(resultado, limite, this::toDTO, categoria -> Paginacao.codificar(categoria.getId()));
     }
 
+    @Cacheable(cacheNames = CachesLeitura.CATEGORIA, key = "#id", sync = true)
     @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
     public CategoriaDTO buscarPorId(Long id) {
         Categoria categoria = categoriaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Categoria não encontrada com id: " + id));
@@ -43,6 +50,7 @@ public class CategoriaService {
         categoria.setDescricao(dto.getDescricao());
 
         categoria = categoriaRepository.save(categoria);
+        caches.categoriaCriada();
         return toDTO(categoria);
     }
 
@@ -59,6 +67,7 @@ public class CategoriaService {
         categoria.setDescricao(dto.getDescricao());
 
         categoria = categoriaRepository.save(categoria);
+        caches.categoriaAlterada(id);
         return toDTO(categoria);
     }
 
@@ -72,6 +81,7 @@ public class CategoriaService {
         }
 
         categoriaRepository.delete(categoria);
+        caches.categoriaAlterada(id);
     }
 
     private CategoriaDTO toDTO(Categoria categoria) {
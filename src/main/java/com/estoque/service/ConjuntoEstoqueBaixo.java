@@ -0,0 +1,157 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.Produto;
+import com.estoque.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ids dos produtos ativos com estoque no mínimo ou abaixo dele, mantidos a cada alteração de
+ * estoque, mínimo ou status. A condição compara duas colunas, então nenhum índice atende a
+ * consulta equivalente; com o conjunto, a listagem de estoque baixo só lê as k linhas afetadas.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConjuntoEstoqueBaixo implements SmartInitializingSingleton {
+
+    private final ProdutoRepository produtoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Long, Long> versoes = new ConcurrentHashMap<>();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconstruir();
+    }
+
+    public void reconstruir() {
+        List<Long> atuais = transactionTemplate.execute(status -> produtoRepository.findIdsComEstoqueBaixo());
+        ids.clear();
+        versoes.clear();
+        ids.addAll(atuais);
+    }
+
+    /**
+     * Registra a situação do produto como está na transação corrente, aplicada após o commit.
+     * A versão é tirada agora, enquanto a linha do produto está bloqueada pela alteração de
+     * estoque; assim, commits concorrentes aplicados fora de ordem não sobrescrevem um estado
+     * mais novo com um mais antigo.
+     */
+    public void atualizar(Produto produto) {
+        Long id = produto.getId();
+        boolean baixo = Boolean.TRUE.equals(produto.getAtivo()) && produto.isEstoqueBaixo();
+        long versao = sequencia.incrementAndGet();
+
+        Transacoes.aposCommit(() -> aplicar(id, baixo, versao));
+    }
+
+    // Produtos gravados em lote fora do JPA (importação), com um único registro após o commit
+    public void atualizarTodos(List<ProdutoDTO> produtos) {
+        long[] versoesLote = new long[produtos.size()];
+        for (int i = 0; i < versoesLote.length; i++) {
+            versoesLote[i] = sequencia.incrementAndGet();
+        }
+
+        Transacoes.aposCommit(() -> {
+            for (int i = 0; i < versoesLote.length; i++) {
+                ProdutoDTO produto = produtos.get(i);
+                aplicar(produto.getId(), Boolean.TRUE.equals(produto.getAtivo()) && Boolean.TRUE.equals(produto.getEstoqueBaixo()), versoesLote[i]);
+            }
+        });
+    }
+
+    public void remover(Long id) {
+        long versao = sequencia.incrementAndGet();
+        Transacoes.aposCommit(() -> aplicar(id, false, versao));
+    }
+
+    public Set<Long> ids() {
+        return Collections.unmodifiableSet(ids);
+    }
+
+    // Os próximos ids em ordem crescente, para a listagem paginada por id
+    public List<Long> idsApos(Long aposId, int quantidade) {
+        return ids.tailSet(aposId, false).stream().limit(quantidade).collect(Collectors.toList());
+    }
+
+    public boolean contem(Long id) {
+        return ids.contains(id);
+    }
+
+    /**
+     * Compara o conjunto com a consulta SQL e corrige as divergências encontradas, retornando
+     * quantas eram. Produtos alterados durante a verificação ficam para a próxima rodada.
+     */
+    @Scheduled(initialDelayString = "${estoque.estoque-baixo.verificacao-ms:300000}",
+            fixedDelayString = "${estoque.estoque-baixo.verificacao-ms:300000}")
+    public int verificarConsistencia() {
+        long inicio = sequencia.get();
+        Set<Long> esperados = new HashSet<>(transactionTemplate.execute(status -> produtoRepository.findIdsComEstoqueBaixo()));
+
+        List<Long> faltando = new ArrayList<>();
+        List<Long> sobrando = new ArrayList<>();
+        esperados.stream().filter(id -> !ids.contains(id)).forEach(faltando::add);
+        ids.stream().filter(id -> !esperados.contains(id)).forEach(sobrando::add);
+
+        int corrigidas = 0;
+        for (Long id : faltando) {
+            corrigidas += corrigir(id, true, inicio);
+        }
+        for (Long id : sobrando) {
+            corrigidas += corrigir(id, false, inicio);
+        }
+
+        if (corrigidas > 0) {
+            log.warn("Conjunto de estoque baixo divergia da consulta em {} produto(s): faltando {}, sobrando {}",
+                    corrigidas, faltando, sobrando);
+        }
+        return corrigidas;
+    }
+
+    private void aplicar(Long id, boolean baixo, long versao) {
+        versoes.compute(id, (chave, atual) -> {
+            if (atual != null && atual > versao) {
+                return atual;
+            }
+            if (baixo) {
+                ids.add(id);
+            } else {
+                ids.remove(id);
+            }
+            return versao;
+        });
+    }
+
+    private int corrigir(Long id, boolean baixo, long inicio) {
+        int[] corrigido = {0};
+        versoes.compute(id, (chave, atual) -> {
+            if (atual != null && atual > inicio) {
+                return atual;
+            }
+            if (baixo ? ids.add(id) : ids.remove(id)) {
+                corrigido[0] = 1;
+            }
+            return atual;
+        });
+        return corrigido[0];
+    }
+}
@@ -0,0 +1,134 @@
+package com.estoque.service;
+
+import com.estoque.dto.DepositoDTO;
+import com.estoque.dto.EstoqueDepositoDTO;
+import com.estoque.model.Deposito;
+import com.estoque.repository.DepositoRepository;
+import com.estoque.repository.EstoqueDepositoRepository;
+import com.estoque.repository.ProdutoRepository;
+import javax.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Depósitos e o estoque de cada produto por depósito. As movimentações sem depósito informado
+ * vão para o depósito padrão ({@code estoque.deposito-padrao}), criado na subida se não existir;
+ * produtos ainda sem nenhum depósito (anteriores a eles) têm todo o estoque atribuído ao padrão.
+ */
+@Slf4j
+@Service
+public class DepositoService {
+
+    private final DepositoRepository depositoRepository;
+    private final EstoqueDepositoRepository estoqueRepository;
+    private final ProdutoRepository produtoRepository;
+    private final String codigoPadrao;
+
+    // Depósitos não são excluídos: um id visto uma vez continua válido
+    private final Set<Long> existentes = ConcurrentHashMap.newKeySet();
+    private volatile Long padrao;
+
+    public DepositoService(DepositoRepository depositoRepository,
+                           EstoqueDepositoRepository estoqueRepository,
+                           ProdutoRepository produtoRepository,
+                           @Value("${estoque.deposito-padrao:PRINCIPAL}") String codigoPadrao) {
+        this.depositoRepository = depositoRepository;
+        this.estoqueRepository = estoqueRepository;
+        this.produtoRepository = produtoRepository;
+        this.codigoPadrao = codigoPadrao;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializar() {
+        Long id = idPadrao();
+        int atribuidos = estoqueRepository.atribuirSemDeposito(id);
+        if (atribuidos > 0) {
+            log.info("Estoque de {} produtos atribuído ao depósito padrão {}", atribuidos, codigoPadrao);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
+    public List<DepositoDTO> listarTodos() {
+        return depositoRepository.findAllByOrderByCodigo().stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
+    public DepositoDTO buscarPorId(Long id) {
+        return toDTO(depositoRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Depósito não encontrado com id: " + id)));
+    }
+
+    @Transactional
+    public DepositoDTO criar(DepositoDTO dto) {
+        if (depositoRepository.existsByCodigo(dto.getCodigo())) {
+            throw new IllegalArgumentException("Já existe um depósito com este código");
+        }
+
+        Deposito deposito = new Deposito();
+        deposito.setCodigo(dto.getCodigo());
+        deposito.setNome(dto.getNome());
+        return toDTO(depositoRepository.save(deposito));
+    }
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
+    public List<EstoqueDepositoDTO> estoquesDoProduto(Long produtoId) {
+        if (!produtoRepository.existsById(produtoId)) {
+            throw new EntityNotFoundException("Produto não encontrado com id: " + produtoId);
+        }
+        return estoqueRepository.findPorProduto(produtoId);
+    }
+
+    /** Produtos cujo total difere da soma dos depósitos; zero quando o agregado está consistente. */
+    @Transactional(readOnly = true)
+    public long verificarConsistencia() {
+        return estoqueRepository.contarDivergentes();
+    }
+
+    /** O depósito informado, conferido, ou o padrão quando nulo. */
+    public Long resolver(Long depositoId) {
+        if (depositoId == null) {
+            return idPadrao();
+        }
+        if (!existentes.contains(depositoId)) {
+            if (!depositoRepository.existsById(depositoId)) {
+                throw new EntityNotFoundException("Depósito não encontrado com id: " + depositoId);
+            }
+            existentes.add(depositoId);
+        }
+        return depositoId;
+    }
+
+    private Long idPadrao() {
+        Long id = padrao;
+        if (id == null) {
+            synchronized (this) {
+                if (padrao == null) {
+                    padrao = depositoRepository.findByCodigo(codigoPadrao)
+                            .orElseGet(() -> depositoRepository.save(new Deposito(null, codigoPadrao, "Depósito padrão", null)))
+                            .getId();
+                }
+                id = padrao;
+            }
+        }
+        return id;
+    }
+
+    private DepositoDTO toDTO(Deposito deposito) {
+        return new DepositoDTO(deposito.getId(), deposito.getCodigo(), deposito.getNome());
+    }
+}
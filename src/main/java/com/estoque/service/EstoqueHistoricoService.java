@@ -0,0 +1,177 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstoqueEmDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.SaldoProdutoDTO;
+import com.estoque.model.Produto;
+import com.estoque.model.SnapshotEstoque;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ProdutoRepository;
+import com.estoque.repository.SnapshotEstoqueRepository;
+import javax.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Saldo de estoque em uma data passada. Um job grava diariamente o saldo de cada produto no corte
+ * da meia-noite; a consulta parte do snapshot mais próximo anterior à data e reaplica só as
+ * movimentações entre os dois instantes, em vez de varrer o razão desde o início.
+ *
+ * <p>Antes do corte do arquivamento, as movimentações vêm da tabela de arquivo e dos arquivos em
+ * disco ({@link ArquivoMovimentacoes}). Todas são mais antigas que as da tabela principal, então
+ * entram antes delas na ordem do razão. Com um snapshot por perto, isso é só a janela até a data.
+ */
+@Service
+@RequiredArgsConstructor
+public class EstoqueHistoricoService {
+
+    private static final LocalDateTime INICIO_RAZAO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int LIMITE_FILTRO_PRODUTOS = 500;
+
+    private final SnapshotEstoqueRepository snapshotRepository;
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final ProdutoRepository produtoRepository;
+    private final ArquivoMovimentacoes arquivo;
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
+    public EstoqueEmDTO estoqueEm(Long produtoId, LocalDateTime data) {
+        Produto produto = produtoRepository.findById(produtoId)
+                .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
+
+        if (produto.getCriadoEm() != null && produto.getCriadoEm().isAfter(data)) {
+            throw new IllegalArgumentException("O produto ainda não existia em " + data);
+        }
+        Optional<SnapshotEstoque> snapshot = snapshotRepository
+                .findFirstByProdutoIdAndDataReferenciaLessThanEqualOrderByDataReferenciaDesc(produtoId, data);
+        LocalDateTime inicio = snapshot.map(SnapshotEstoque::getDataReferencia).orElse(INICIO_RAZAO);
+
+        // Última movimentação entre o snapshot e a data; sem ela, vale o snapshot ou, sem snapshot,
+        // o saldo anterior à primeira movimentação depois da data. Em cada caso o arquivo, mais
+        // antigo, vem depois da tabela principal na busca da mais recente e antes na da primeira
+        Integer quantidade = movimentacaoRepository.findQuantidadesPosteriores(produtoId, inicio, data, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .or(() -> arquivo.saldoPosteriorEntre(produtoId, inicio, data))
+                .or(() -> snapshot.map(SnapshotEstoque::getQuantidade))
+                .or(() -> Optional.ofNullable(arquivo.saldosAnterioresApos(produtoId, data).get(produtoId)))
+                .or(() -> movimentacaoRepository.findQuantidadesAnterioresApos(produtoId, data, PageRequest.of(0, 1)).stream().findFirst())
+                .orElse(produto.getQuantidadeEstoque());
+
+        return new EstoqueEmDTO(produtoId, data, quantidade, snapshot.map(SnapshotEstoque::getDataReferencia).orElse(null));
+    }
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.RELATORIO)
+    public PaginaDTO<EstoqueEmDTO> estoqueEmTodos(LocalDateTime data, String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        // A página é de produtos, em ordem de id; snapshot e movimentações são lidos só para eles
+        PaginaDTO<SaldoProdutoDTO> pagina = Paginacao.montar(produtoRepository.findSaldosCriadosAte(data, aposId, Paginacao.consulta(limite)),
+                limite, produto -> Paginacao.codificar(produto.getProdutoId()));
+        List<SaldoProdutoDTO> produtos = pagina.getItens();
+        if (produtos.isEmpty()) {
+            return new PaginaDTO<>(List.of(), null);
+        }
+        Optional<LocalDateTime> snapshot = snapshotRepository.findUltimaDataAte(data);
+
+        Map<Long, Integer> saldos = snapshot.isPresent()
+                ? avancar(snapshot.get(), data, produtos.stream().map(SaldoProdutoDTO::getProdutoId).collect(Collectors.toSet()))
+                : retroceder(data, produtos);
+
+        // Produtos criados depois do snapshot e sem movimentação até a data
+        List<SaldoProdutoDTO> semSaldo = produtos.stream()
+                .filter(p -> !saldos.containsKey(p.getProdutoId()))
+                .collect(Collectors.toList());
+        saldos.putAll(retroceder(data, semSaldo));
+
+        LocalDateTime dataSnapshot = snapshot.orElse(null);
+        List<EstoqueEmDTO> itens = produtos.stream()
+                .map(p -> new EstoqueEmDTO(p.getProdutoId(), data, saldos.get(p.getProdutoId()), dataSnapshot))
+                .collect(Collectors.toList());
+        return new PaginaDTO<>(itens, pagina.getProximoCursor());
+    }
+
+    @Scheduled(cron = "${estoque.snapshot.cron:0 5 0 * * *}")
+    @Transactional
+    public void gerarSnapshotDiario() {
+        gerarSnapshot(LocalDate.now().atStartOfDay());
+    }
+
+    /**
+     * Grava o saldo de cada produto no corte informado, partindo do saldo atual e desfazendo as
+     * movimentações posteriores ao corte. Rodando logo após o corte, essa janela é pequena.
+     * Retorna quantos snapshots foram gravados; um corte já registrado não é refeito.
+     */
+    @Transactional
+    public int gerarSnapshot(LocalDateTime instante) {
+        // Timestamps no banco guardam microssegundos; sem truncar, a verificação abaixo não reconheceria o próprio corte
+        LocalDateTime corte = instante.truncatedTo(ChronoUnit.MICROS);
+        if (corte.isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("O corte do snapshot não pode estar no futuro");
+        }
+        if (snapshotRepository.existsByDataReferencia(corte)) {
+            return 0;
+        }
+
+        List<SnapshotEstoque> snapshots = retroceder(corte, produtoRepository.findSaldosCriadosAte(corte))
+                .entrySet()
+                .stream()
+                .map(saldo -> new SnapshotEstoque(null, saldo.getKey(), corte, saldo.getValue()))
+                .collect(Collectors.toList());
+
+        snapshotRepository.saveAll(snapshots);
+        return snapshots.size();
+    }
+
+    private Map<Long, Integer> avancar(LocalDateTime snapshot, LocalDateTime data, Set<Long> produtoIds) {
+        Map<Long, Integer> saldos = new HashMap<>();
+        snapshotRepository.findSaldosEm(snapshot, produtoIds).forEach(s -> saldos.put(s.getProdutoId(), s.getQuantidade()));
+        arquivo.saldosPosterioresEntre(snapshot, data).forEach((produtoId, quantidade) -> {
+            if (produtoIds.contains(produtoId)) {
+                saldos.put(produtoId, quantidade);
+            }
+        });
+        movimentacaoRepository.findSaldosPosterioresEntre(snapshot, data, produtoIds).forEach(s -> saldos.put(s.getProdutoId(), s.getQuantidade()));
+        return saldos;
+    }
+
+    private Map<Long, Integer> retroceder(LocalDateTime data, List<SaldoProdutoDTO> atuais) {
+        Map<Long, Integer> saldos = new HashMap<>();
+        atuais.forEach(s -> saldos.put(s.getProdutoId(), s.getQuantidade()));
+        if (saldos.isEmpty()) {
+            return saldos;
+        }
+
+        // Poucos produtos: filtra no banco; muitos: a lista IN custaria mais que ler a janela inteira
+        List<SaldoProdutoDTO> anteriores = saldos.size() <= LIMITE_FILTRO_PRODUTOS
+                ? movimentacaoRepository.findSaldosAnterioresApos(data, saldos.keySet())
+                : movimentacaoRepository.findSaldosAnterioresApos(data);
+
+        anteriores.stream()
+                .filter(s -> saldos.containsKey(s.getProdutoId()))
+                .forEach(s -> saldos.put(s.getProdutoId(), s.getQuantidade()));
+        // Data anterior ao corte do arquivamento: a primeira movimentação após ela está no arquivo
+        Long unico = saldos.size() == 1 ? saldos.keySet().iterator().next() : null;
+        arquivo.saldosAnterioresApos(unico, data).forEach((produtoId, quantidade) -> {
+            if (saldos.containsKey(produtoId)) {
+                saldos.put(produtoId, quantidade);
+            }
+        });
+        return saldos;
+    }
+}
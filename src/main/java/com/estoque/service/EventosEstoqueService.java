@@ -0,0 +1,208 @@
+package com.estoque.service;
+
+import com.estoque.dto.EventoEstoqueDTO;
+import com.estoque.dto.EventoProdutoDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distribui por Server-Sent Events as alterações de estoque e de produtos já confirmadas no banco.
+ * Cada assinante tem uma fila limitada, esvaziada por um pool pequeno de threads; quem deixa a
+ * fila encher é desconectado e, ao reconectar, a interface recarrega o estado completo.
+ *
+ * <p>Os commits de um mesmo produto podem chegar aqui fora de ordem, então cada evento leva uma
+ * versão tirada ainda dentro da transação, com a linha do produto bloqueada (como em
+ * {@link ConjuntoEstoqueBaixo}); a interface descarta o que for mais antigo que o já aplicado.
+ */
+@Slf4j
+@Service
+public class EventosEstoqueService {
+
+    private final ObjectMapper objectMapper;
+    private final int capacidadeFila;
+    private final long timeoutMs;
+    private final Executor executor;
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequencia = new AtomicLong();
+    private final AtomicLong versoes = new AtomicLong();
+
+    @Autowired
+    public EventosEstoqueService(ObjectMapper objectMapper,
+                                 @Value("${estoque.eventos.capacidade-fila:256}") int capacidadeFila,
+                                 @Value("${estoque.eventos.timeout-ms:1800000}") long timeoutMs,
+                                 @Value("${estoque.eventos.threads:4}") int threads) {
+        this(objectMapper, capacidadeFila, timeoutMs, Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "eventos-estoque");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    EventosEstoqueService(ObjectMapper objectMapper, int capacidadeFila, long timeoutMs, Executor executor) {
+        this.objectMapper = objectMapper;
+        this.capacidadeFila = capacidadeFila;
+        this.timeoutMs = timeoutMs;
+        this.executor = executor;
+    }
+
+    public SseEmitter assinar() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Assinante assinante = new Assinante(emitter, new ArrayBlockingQueue<>(capacidadeFila));
+
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(erro -> assinantes.remove(assinante));
+        assinantes.add(assinante);
+
+        return emitter;
+    }
+
+    public int quantidadeAssinantes() {
+        return assinantes.size();
+    }
+
+    // Ouvintes síncronos: rodam na publicação, antes do commit, enquanto a alteração mantém as linhas bloqueadas
+    @EventListener
+    public void versionarEstoque(EventoEstoqueDTO evento) {
+        evento.setVersao(versoes.incrementAndGet());
+    }
+
+    @EventListener
+    public void versionarProduto(EventoProdutoDTO evento) {
+        evento.setVersao(versoes.incrementAndGet());
+    }
+
+    @TransactionalEventListener
+    public void aoAlterarEstoque(EventoEstoqueDTO evento) {
+        publicar("estoque", evento);
+    }
+
+    @TransactionalEventListener
+    public void aoAlterarProduto(EventoProdutoDTO evento) {
+        publicar("produto", evento);
+    }
+
+    // Mantém proxies e balanceadores com a conexão aberta e revela clientes que já saíram
+    @Scheduled(fixedRateString = "${estoque.eventos.heartbeat-ms:15000}")
+    public void enviarHeartbeat() {
+        distribuir(new Mensagem(null, null, null));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        assinantes.forEach(assinante -> assinante.emitter.complete());
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    void publicar(String nome, Object evento) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(evento);
+        } catch (JsonProcessingException ex) {
+            log.error("Falha ao serializar evento {}", nome, ex);
+            return;
+        }
+
+        distribuir(new Mensagem(String.valueOf(sequencia.incrementAndGet()), nome, json));
+    }
+
+    private void distribuir(Mensagem mensagem) {
+        for (Assinante assinante : assinantes) {
+            if (!assinante.fila.offer(mensagem)) {
+                // O envio pode estar bloqueado no socket; quem encerra a conexão é a thread de envio
+                log.warn("Assinante de eventos de estoque desconectado: fila com {} mensagens pendentes", capacidadeFila);
+                assinantes.remove(assinante);
+                assinante.descartado = true;
+                assinante.fila.clear();
+            }
+            agendar(assinante);
+        }
+    }
+
+    private void agendar(Assinante assinante) {
+        if (assinante.agendado.compareAndSet(false, true)) {
+            executor.execute(() -> esvaziar(assinante));
+        }
+    }
+
+    private void esvaziar(Assinante assinante) {
+        try {
+            Mensagem mensagem;
+            while (!assinante.descartado && (mensagem = assinante.fila.poll()) != null) {
+                assinante.emitter.send(mensagem.paraEvento());
+            }
+            if (assinante.descartado) {
+                assinante.emitter.complete();
+                return;
+            }
+        } catch (IOException | IllegalStateException ex) {
+            assinantes.remove(assinante);
+            assinante.fila.clear();
+            return;
+        } finally {
+            assinante.agendado.set(false);
+        }
+
+        // Uma mensagem pode ter chegado entre o último poll e a liberação do agendamento
+        if (!assinante.fila.isEmpty() && assinantes.contains(assinante)) {
+            agendar(assinante);
+        }
+    }
+
+    private static final class Assinante {
+
+        private final SseEmitter emitter;
+        private final Queue<Mensagem> fila;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        private volatile boolean descartado;
+
+        private Assinante(SseEmitter emitter, Queue<Mensagem> fila) {
+            this.emitter = emitter;
+            this.fila = fila;
+        }
+    }
+
+    private static final class Mensagem {
+
+        private final String id;
+        private final String nome;
+        private final String json;
+
+        private Mensagem(String id, String nome, String json) {
+            this.id = id;
+            this.nome = nome;
+            this.json = json;
+        }
+
+        private SseEmitter.SseEventBuilder paraEvento() {
+            if (nome == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(id).name(nome).data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Exporta o histórico de movimentações lendo o banco por cursor e escrevendo cada linha
+ * assim que chega, sem materializar a lista: o uso de memória não depende do volume.
+ * As movimentações arquivadas, mais antigas, saem antes das da tabela principal; as que estão
+ * em disco são lidas um mês por vez ({@link ArquivoMovimentacoes#percorrer}).
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportacaoMovimentacaoService {
+
+    public enum Formato {
+        NDJSON,
+        CSV
+    }
+
+    static final String CABECALHO_CSV = "id,produtoId,produtoNome,tipo,quantidade,quantidadeAnterior,quantidadePosterior,motivo,dataMovimentacao";
+
+    private static final LocalDateTime INICIO_PADRAO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_PADRAO = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final ArquivoMovimentacoes arquivo;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.RELATORIO)
+    public void exportar(Formato formato, Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim,
+                         OutputStream saida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (formato == Formato.CSV) {
+            writer.write(CABECALHO_CSV);
+            writer.write('\n');
+        }
+
+        Consumer<MovimentacaoEstoqueDTO> escrever = movimentacao -> {
+            try {
+                if (formato == Formato.CSV) {
+                    escreverCsv(writer, movimentacao);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(movimentacao));
+                }
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+
+        try {
+            arquivo.percorrer(produtoId, tipo, inicio, fim, escrever);
+            try (Stream<MovimentacaoEstoqueDTO> movimentacoes = movimentacaoRepository.streamParaExportacao(
+                    produtoId, tipo, inicio != null ? inicio : INICIO_PADRAO, fim != null ? fim : FIM_PADRAO)) {
+                movimentacoes.forEach(escrever);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private void escreverCsv(Writer writer, MovimentacaoEstoqueDTO m) throws IOException {
+        writer.write(String.valueOf(m.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(m.getProdutoId()));
+        writer.write(',');
+        writer.write(csv(m.getProdutoNome()));
+        writer.write(',');
+        writer.write(m.getTipo().name());
+        writer.write(',');
+        writer.write(String.valueOf(m.getQuantidade()));
+        writer.write(',');
+        writer.write(m.getQuantidadeAnterior() != null ? String.valueOf(m.getQuantidadeAnterior()) : "");
+        writer.write(',');
+        writer.write(m.getQuantidadePosterior() != null ? String.valueOf(m.getQuantidadePosterior()) : "");
+        writer.write(',');
+        writer.write(csv(m.getMotivo()));
+        writer.write(',');
+        writer.write(String.valueOf(m.getDataMovimentacao()));
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
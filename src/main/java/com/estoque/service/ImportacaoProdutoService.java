@@ -0,0 +1,548 @@
+package com.estoque.service;
+
+import com.estoque.dto.ErroImportacaoDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ResultadoImportacaoDTO;
+import com.estoque.model.Categoria;
+import com.estoque.repository.CategoriaRepository;
+import com.estoque.repository.ProdutoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importa catálogos de produtos em CSV ou NDJSON, lidos linha a linha à medida que o corpo chega.
+ * Os blocos de linhas são interpretados e validados em paralelo e gravados na ordem do arquivo,
+ * cada bloco numa transação, com os INSERTs num único lote JDBC. Os SKUs já cadastrados vêm de
+ * uma consulta no início, e as categorias de um mapa nome → id montado na mesma hora, então
+ * nenhuma linha faz consultas próprias; os ids gerados voltam do próprio lote de INSERTs.
+ */
+@Slf4j
+@Service
+public class ImportacaoProdutoService {
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    static final int LIMITE_ERROS = 10_000;
+
+    // Nomes das colunas do CSV: os mesmos campos do ProdutoDTO aceitos no NDJSON
+    static final Set<String> COLUNAS_CSV = Set.of("nome", "descricao", "sku", "preco", "precoCusto", "quantidadeEstoque",
+            "quantidadeMinima", "ativo", "categoriaId", "categoriaNome");
+
+    private static final String INSERT = "INSERT INTO produtos (nome, descricao, sku, preco, preco_custo, quantidade_estoque, "
+            + "quantidade_minima, ativo, categoria_id, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ESTOQUE = "INSERT INTO estoques_deposito (produto_id, deposito_id, quantidade) VALUES (?, ?, ?)";
+
+    private final ProdutoRepository produtoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final IndiceBuscaProdutos indiceBusca;
+    private final IndiceSkus indiceSkus;
+    private final ConjuntoEstoqueBaixo estoqueBaixo;
+    private final AvaliacaoEstoqueMemoria avaliacao;
+    private final DepositoService depositos;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader leitorJson;
+    private final Validator validator;
+    private final ExecutorService executor;
+    private final int threads;
+    private final int tamanhoBloco;
+
+    public ImportacaoProdutoService(ProdutoRepository produtoRepository,
+                                    CategoriaRepository categoriaRepository,
+                                    IndiceBuscaProdutos indiceBusca,
+                                    IndiceSkus indiceSkus,
+                                    ConjuntoEstoqueBaixo estoqueBaixo,
+                                    AvaliacaoEstoqueMemoria avaliacao,
+                                    DepositoService depositos,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    ObjectMapper objectMapper,
+                                    Validator validator,
+                                    @Value("${estoque.importacao.threads:4}") int threads,
+                                    @Value("${estoque.importacao.tamanho-bloco:5000}") int tamanhoBloco) {
+        this.produtoRepository = produtoRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.indiceBusca = indiceBusca;
+        this.indiceSkus = indiceSkus;
+        this.estoqueBaixo = estoqueBaixo;
+        this.avaliacao = avaliacao;
+        this.depositos = depositos;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.leitorJson = objectMapper.readerFor(ProdutoDTO.class);
+        this.validator = validator;
+        this.threads = threads;
+        this.tamanhoBloco = tamanhoBloco;
+        this.executor = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "importacao-produtos");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Importa o arquivo e retorna os totais e as linhas rejeitadas. Um cabeçalho CSV inválido
+     * rejeita o arquivo inteiro antes de qualquer gravação; as demais falhas são por linha.
+     */
+    public ResultadoImportacaoDTO importar(InputStream corpo, Formato formato) throws IOException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8), 64 * 1024);
+        long numero = 1;
+        Function<String, ProdutoDTO> interpretador;
+        if (formato == Formato.CSV) {
+            interpretador = interpretadorCsv(cabecalho(leitor.readLine()));
+            numero++;
+        } else {
+            interpretador = this::interpretarJson;
+        }
+
+        Importacao importacao = new Importacao();
+        // Limitados para que um corpo que chega mais rápido do que é gravado não fique todo em memória
+        Deque<Future<List<Linha>>> pendentes = new ArrayDeque<>();
+        try {
+            List<String> bloco = new ArrayList<>(tamanhoBloco);
+            String texto;
+            while ((texto = leitor.readLine()) != null) {
+                bloco.add(texto);
+                if (bloco.size() == tamanhoBloco) {
+                    pendentes.add(interpretarEmParalelo(bloco, numero, interpretador));
+                    numero += bloco.size();
+                    bloco = new ArrayList<>(tamanhoBloco);
+                    if (pendentes.size() > 2 * threads) {
+                        importacao.gravar(aguardar(pendentes.poll()));
+                    }
+                }
+            }
+            if (!bloco.isEmpty()) {
+                pendentes.add(interpretarEmParalelo(bloco, numero, interpretador));
+            }
+            while (!pendentes.isEmpty()) {
+                importacao.gravar(aguardar(pendentes.poll()));
+            }
+        } finally {
+            pendentes.forEach(pendente -> pendente.cancel(true));
+        }
+
+        ResultadoImportacaoDTO resultado = importacao.resultado();
+        log.info("Importação de produtos ({}): {} linha(s), {} importada(s), {} falha(s)",
+                formato, resultado.getTotal(), resultado.getImportados(), resultado.getFalhas());
+        return resultado;
+    }
+
+    private Future<List<Linha>> interpretarEmParalelo(List<String> bloco, long primeiraLinha, Function<String, ProdutoDTO> interpretador) {
+        return executor.submit(() -> {
+            List<Linha> linhas = new ArrayList<>(bloco.size());
+            for (int i = 0; i < bloco.size(); i++) {
+                String texto = bloco.get(i);
+                if (texto.isBlank()) {
+                    continue;
+                }
+                long numero = primeiraLinha + i;
+                try {
+                    ProdutoDTO produto = interpretador.apply(texto);
+                    linhas.add(new Linha(numero, produto, validar(produto)));
+                } catch (IllegalArgumentException ex) {
+                    linhas.add(new Linha(numero, null, ex.getMessage()));
+                }
+            }
+            return linhas;
+        });
+    }
+
+    private List<Linha> aguardar(Future<List<Linha>> pendente) {
+        try {
+            return pendente.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException("Falha ao interpretar o arquivo", ex.getCause());
+        }
+    }
+
+    // As mesmas regras do cadastro individual, mais o SKU, que identifica a linha na importação
+    private String validar(ProdutoDTO produto) {
+        produto.setId(null);
+        if (produto.getSku() != null) {
+            produto.setSku(produto.getSku().trim());
+        }
+        if (produto.getSku() == null || produto.getSku().isEmpty()) {
+            return "SKU é obrigatório na importação";
+        }
+
+        Set<ConstraintViolation<ProdutoDTO>> violacoes = validator.validate(produto);
+        if (violacoes.isEmpty()) {
+            return null;
+        }
+        return violacoes.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+
+    private ProdutoDTO interpretarJson(String texto) {
+        try {
+            return leitorJson.readValue(texto);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("JSON inválido: " + ex.getOriginalMessage());
+        }
+    }
+
+    private static String[] cabecalho(String texto) {
+        if (texto == null) {
+            throw new IllegalArgumentException("Arquivo vazio: o CSV precisa de um cabeçalho");
+        }
+        if (texto.startsWith("\uFEFF")) {
+            texto = texto.substring(1);
+        }
+
+        String[] colunas = dividirCsv(texto).stream().map(String::trim).toArray(String[]::new);
+        for (String coluna : colunas) {
+            if (!COLUNAS_CSV.contains(coluna)) {
+                throw new IllegalArgumentException("Coluna desconhecida no CSV: " + coluna + ". Aceitas: " + String.join(", ", COLUNAS_CSV));
+            }
+        }
+        List<String> presentes = Arrays.asList(colunas);
+        if (!presentes.containsAll(List.of("nome", "sku", "preco"))) {
+            throw new IllegalArgumentException("O CSV precisa das colunas nome, sku e preco");
+        }
+        if (new HashSet<>(presentes).size() != colunas.length) {
+            throw new IllegalArgumentException("Coluna repetida no cabeçalho do CSV");
+        }
+        return colunas;
+    }
+
+    private static Function<String, ProdutoDTO> interpretadorCsv(String[] colunas) {
+        return texto -> {
+            List<String> campos = dividirCsv(texto);
+            if (campos.size() != colunas.length) {
+                throw new IllegalArgumentException("A linha tem " + campos.size() + " campo(s); o cabeçalho tem " + colunas.length);
+            }
+
+            ProdutoDTO produto = new ProdutoDTO();
+            for (int i = 0; i < colunas.length; i++) {
+                String valor = campos.get(i).isEmpty() ? null : campos.get(i);
+                if (valor == null) {
+                    continue;
+                }
+                switch (colunas[i]) {
+                    case "nome":
+                        produto.setNome(valor);
+                        break;
+                    case "descricao":
+                        produto.setDescricao(valor);
+                        break;
+                    case "sku":
+                        produto.setSku(valor);
+                        break;
+                    case "preco":
+                        produto.setPreco(decimal(colunas[i], valor));
+                        break;
+                    case "precoCusto":
+                        produto.setPrecoCusto(decimal(colunas[i], valor));
+                        break;
+                    case "quantidadeEstoque":
+                        produto.setQuantidadeEstoque(inteiro(colunas[i], valor));
+                        break;
+                    case "quantidadeMinima":
+                        produto.setQuantidadeMinima(inteiro(colunas[i], valor));
+                        break;
+                    case "ativo":
+                        produto.setAtivo(booleano(colunas[i], valor));
+                        break;
+                    case "categoriaId":
+                        produto.setCategoriaId(longo(colunas[i], valor));
+                        break;
+                    default:
+                        produto.setCategoriaNome(valor);
+                }
+            }
+            return produto;
+        };
+    }
+
+    // Campos entre aspas podem conter vírgulas e aspas duplicadas (""), mas não quebras de linha
+    static List<String> dividirCsv(String texto) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    atual.append(c);
+                } else if (i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"' && atual.length() == 0) {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        if (entreAspas) {
+            throw new IllegalArgumentException("Aspas não fechadas na linha (quebras de linha dentro de campos não são aceitas)");
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    private static BigDecimal decimal(String coluna, String valor) {
+        try {
+            return new BigDecimal(valor.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para " + coluna + ": " + valor);
+        }
+    }
+
+    private static int inteiro(String coluna, String valor) {
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para " + coluna + ": " + valor);
+        }
+    }
+
+    private static long longo(String coluna, String valor) {
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para " + coluna + ": " + valor);
+        }
+    }
+
+    private static boolean booleano(String coluna, String valor) {
+        String normalizado = valor.trim().toLowerCase(Locale.ROOT);
+        if (!normalizado.equals("true") && !normalizado.equals("false")) {
+            throw new IllegalArgumentException("Valor inválido para " + coluna + ": " + valor);
+        }
+        return Boolean.parseBoolean(normalizado);
+    }
+
+    private static final class Linha {
+
+        final long numero;
+        final ProdutoDTO produto;
+        final String erro;
+
+        Linha(long numero, ProdutoDTO produto, String erro) {
+            this.numero = numero;
+            this.produto = produto;
+            this.erro = erro;
+        }
+    }
+
+    /**
+     * Estado de uma importação, usado só pela thread da requisição, que grava os blocos em ordem.
+     */
+    private final class Importacao {
+
+        private final Set<String> existentes = new HashSet<>(produtoRepository.findTodosSkus());
+        private final Set<String> noArquivo = new HashSet<>();
+        private final Set<Long> categoriaIds = new HashSet<>();
+        private final Map<String, Long> categoriasPorNome = new HashMap<>();
+        private final List<ErroImportacaoDTO> erros = new ArrayList<>();
+        private long total;
+        private long importados;
+        private long falhas;
+
+        Importacao() {
+            for (Categoria categoria : categoriaRepository.findAll()) {
+                categoriaIds.add(categoria.getId());
+                categoriasPorNome.put(chaveCategoria(categoria.getNome()), categoria.getId());
+            }
+        }
+
+        void gravar(List<Linha> linhas) {
+            List<Linha> validas = new ArrayList<>(linhas.size());
+            for (Linha linha : linhas) {
+                total++;
+                String erro = linha.erro != null ? linha.erro : conferir(linha.produto);
+                if (erro != null) {
+                    falhar(linha, erro);
+                } else {
+                    validas.add(linha);
+                }
+            }
+            if (validas.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> inserir(validas));
+                importados += validas.size();
+            } catch (DataAccessException ex) {
+                // Um SKU cadastrado por outra requisição depois da carga inicial, ou um valor que não
+                // cabe na coluna: o bloco volta atrás e as linhas são regravadas uma a uma
+                for (Linha linha : validas) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> inserir(List.of(linha)));
+                        importados++;
+                    } catch (DuplicateKeyException duplicado) {
+                        falhar(linha, "Já existe um produto com este SKU");
+                    } catch (DataAccessException erro) {
+                        falhar(linha, "Não foi possível gravar o produto: " + erro.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        private String conferir(ProdutoDTO produto) {
+            if (existentes.contains(produto.getSku())) {
+                return "Já existe um produto com este SKU";
+            }
+            if (!noArquivo.add(produto.getSku())) {
+                return "SKU repetido no arquivo";
+            }
+            if (produto.getCategoriaId() != null) {
+                return categoriaIds.contains(produto.getCategoriaId()) ? null : "Categoria não encontrada com id: " + produto.getCategoriaId();
+            }
+            if (produto.getCategoriaNome() != null && !produto.getCategoriaNome().isBlank()) {
+                Long categoriaId = categoriasPorNome.get(chaveCategoria(produto.getCategoriaNome()));
+                if (categoriaId == null) {
+                    return "Categoria não encontrada: " + produto.getCategoriaNome();
+                }
+                produto.setCategoriaId(categoriaId);
+            }
+            return null;
+        }
+
+        private void inserir(List<Linha> linhas) {
+            Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+            List<ProdutoDTO> produtos = linhas.stream().map(linha -> linha.produto).collect(Collectors.toList());
+
+            // Os ids gerados voltam do próprio lote, sem consultar os produtos de novo
+            List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) conexao -> {
+                try (PreparedStatement ps = conexao.prepareStatement(INSERT, new String[]{"id"})) {
+                    for (ProdutoDTO produto : produtos) {
+                        preencher(ps, produto, agora);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    List<Long> gerados = new ArrayList<>(produtos.size());
+                    try (ResultSet chaves = ps.getGeneratedKeys()) {
+                        while (chaves.next()) {
+                            gerados.add(chaves.getLong(1));
+                        }
+                    }
+                    return gerados;
+                }
+            });
+            if (ids == null || ids.size() != produtos.size()) {
+                throw new IllegalStateException("O banco não retornou os ids gerados na importação");
+            }
+
+            for (int i = 0; i < produtos.size(); i++) {
+                produtos.get(i).setId(ids.get(i));
+            }
+            // O estoque importado fica no depósito padrão, no mesmo lote e na mesma transação
+            Long padrao = depositos.resolver(null);
+            jdbcTemplate.batchUpdate(INSERT_ESTOQUE, produtos, produtos.size(), (ps, produto) -> {
+                ps.setLong(1, produto.getId());
+                ps.setLong(2, padrao);
+                ps.setInt(3, produto.getQuantidadeEstoque());
+            });
+            // Um registro após o commit por estrutura em memória, não um por produto
+            indiceBusca.indexarTodos(produtos);
+            indiceSkus.adicionarTodos(produtos);
+            estoqueBaixo.atualizarTodos(produtos);
+            avaliacao.atualizarTodos(produtos);
+        }
+
+        private void falhar(Linha linha, String erro) {
+            falhas++;
+            if (erros.size() < LIMITE_ERROS) {
+                erros.add(new ErroImportacaoDTO(linha.numero, linha.produto != null ? linha.produto.getSku() : null, erro));
+            }
+        }
+
+        ResultadoImportacaoDTO resultado() {
+            return new ResultadoImportacaoDTO(total, importados, falhas, erros);
+        }
+    }
+
+    // Completa os padrões da entidade no próprio DTO, que segue para os índices em memória
+    private static void preencher(PreparedStatement ps, ProdutoDTO produto, Timestamp agora) throws SQLException {
+        if (produto.getQuantidadeEstoque() == null) {
+            produto.setQuantidadeEstoque(0);
+        }
+        if (produto.getQuantidadeMinima() == null) {
+            produto.setQuantidadeMinima(0);
+        }
+        if (produto.getAtivo() == null) {
+            produto.setAtivo(true);
+        }
+        produto.setEstoqueBaixo(produto.getQuantidadeEstoque() <= produto.getQuantidadeMinima());
+
+        ps.setString(1, produto.getNome());
+        ps.setObject(2, produto.getDescricao(), Types.VARCHAR);
+        ps.setString(3, produto.getSku());
+        ps.setBigDecimal(4, produto.getPreco());
+        ps.setObject(5, produto.getPrecoCusto(), Types.NUMERIC);
+        ps.setInt(6, produto.getQuantidadeEstoque());
+        ps.setInt(7, produto.getQuantidadeMinima());
+        ps.setBoolean(8, produto.getAtivo());
+        ps.setObject(9, produto.getCategoriaId(), Types.BIGINT);
+        ps.setTimestamp(10, agora);
+        ps.setTimestamp(11, agora);
+    }
+
+    private static String chaveCategoria(String nome) {
+        return nome.trim().toLowerCase(Locale.ROOT);
+    }
+}
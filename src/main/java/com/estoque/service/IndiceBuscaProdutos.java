@@ -0,0 +1,332 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Índice invertido de trigramas sobre nome, SKU e descrição dos produtos, mantido em memória.
+ * Uma busca por substring intersecta as listas de ids dos trigramas do termo, confirma o
+ * casamento nos textos normalizados e ordena por relevância; só os ids vencedores vão ao banco.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceBuscaProdutos implements SmartInitializingSingleton {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private final ProdutoRepository produtoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Documento> documentos = new HashMap<>();
+    private final Map<Long, ListaIds> trigramas = new HashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconstruir();
+    }
+
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            documentos.clear();
+            trigramas.clear();
+            transactionTemplate.executeWithoutResult(status -> produtoRepository.streamParaIndexacao()
+                    .forEach(p -> aplicar(p.getId(), p.getNome(), p.getSku(), p.getDescricao())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa (ou reindexa) um produto. Dentro de uma transação a alteração só é aplicada
+     * após o commit, para que um rollback não deixe o índice à frente do banco.
+     */
+    public void indexar(Long id, String nome, String sku, String descricao) {
+        Transacoes.aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                aplicar(id, nome, sku, descricao);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexa um lote de produtos novos (importação) com um único registro após o commit. Os
+     * textos são normalizados e os trigramas extraídos antes de tomar o lock de escrita.
+     */
+    public void indexarTodos(List<ProdutoDTO> produtos) {
+        Transacoes.aposCommit(() -> {
+            Documento[] novos = new Documento[produtos.size()];
+            long[][] chaves = new long[novos.length][];
+            for (int i = 0; i < novos.length; i++) {
+                ProdutoDTO produto = produtos.get(i);
+                novos[i] = new Documento(normalizar(produto.getNome()), normalizar(produto.getSku()), normalizar(produto.getDescricao()));
+                chaves[i] = novos[i].trigramas();
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < novos.length; i++) {
+                    int id = Math.toIntExact(produtos.get(i).getId());
+                    desindexar(id);
+                    adicionar(id, novos[i], chaves[i]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remover(Long id) {
+        Transacoes.aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                desindexar(Math.toIntExact(id));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public List<Long> buscar(String termo, int limite) {
+        String normalizado = normalizar(termo);
+        if (normalizado.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Resultado> resultados = new ArrayList<>();
+
+            if (normalizado.length() < 3) {
+                documentos.forEach((id, documento) -> pontuar(id, documento, normalizado, resultados));
+            } else {
+                for (int id : candidatos(normalizado)) {
+                    pontuar(id, documentos.get(id), normalizado, resultados);
+                }
+            }
+
+            return resultados.stream()
+                    .sorted(Comparator.comparingInt((Resultado r) -> -r.pontuacao)
+                            .thenComparingInt(r -> r.tamanhoNome)
+                            .thenComparingInt(r -> r.id))
+                    .limit(limite)
+                    .map(r -> (long) r.id)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidatos(String termo) {
+        long[] chaves = trigramasDe(termo);
+        ListaIds[] listas = new ListaIds[chaves.length];
+
+        for (int i = 0; i < chaves.length; i++) {
+            listas[i] = trigramas.get(chaves[i]);
+            if (listas[i] == null) {
+                return new int[0];
+            }
+        }
+
+        Arrays.sort(listas, Comparator.comparingInt(l -> l.tamanho));
+
+        ListaIds menor = listas[0];
+        int[] resultado = new int[menor.tamanho];
+        int total = 0;
+
+        candidato:
+        for (int i = 0; i < menor.tamanho; i++) {
+            int id = menor.ids[i];
+            for (int j = 1; j < listas.length; j++) {
+                if (!listas[j].contem(id)) {
+                    continue candidato;
+                }
+            }
+            resultado[total++] = id;
+        }
+
+        return Arrays.copyOf(resultado, total);
+    }
+
+    private void pontuar(int id, Documento documento, String termo, List<Resultado> resultados) {
+        int pontuacao = 0;
+
+        if (documento.sku.equals(termo)) {
+            pontuacao = 100;
+        } else if (documento.sku.startsWith(termo)) {
+            pontuacao = 80;
+        } else if (documento.nome.startsWith(termo)) {
+            pontuacao = 60;
+        } else if (documento.nome.contains(" " + termo)) {
+            pontuacao = 50;
+        } else if (documento.nome.contains(termo)) {
+            pontuacao = 40;
+        } else if (documento.sku.contains(termo)) {
+            pontuacao = 30;
+        } else if (documento.descricao.contains(termo)) {
+            pontuacao = 10;
+        }
+
+        if (pontuacao > 0) {
+            resultados.add(new Resultado(id, pontuacao, documento.nome.length()));
+        }
+    }
+
+    private void aplicar(Long idProduto, String nome, String sku, String descricao) {
+        int id = Math.toIntExact(idProduto);
+        desindexar(id);
+
+        Documento documento = new Documento(normalizar(nome), normalizar(sku), normalizar(descricao));
+        adicionar(id, documento, documento.trigramas());
+    }
+
+    private void adicionar(int id, Documento documento, long[] chaves) {
+        documentos.put(id, documento);
+        for (long chave : chaves) {
+            trigramas.computeIfAbsent(chave, k -> new ListaIds()).adicionar(id);
+        }
+    }
+
+    private void desindexar(int id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+
+        for (long chave : anterior.trigramas()) {
+            ListaIds lista = trigramas.get(chave);
+            if (lista != null && lista.remover(id) && lista.tamanho == 0) {
+                trigramas.remove(chave);
+            }
+        }
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT).trim();
+    }
+
+    static long[] trigramasDe(String texto) {
+        if (texto.length() < 3) {
+            return new long[0];
+        }
+
+        long[] chaves = new long[texto.length() - 2];
+        for (int i = 0; i < chaves.length; i++) {
+            chaves[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+        }
+        return Arrays.stream(chaves).distinct().toArray();
+    }
+
+    private static final class Documento {
+
+        private final String nome;
+        private final String sku;
+        private final String descricao;
+
+        private Documento(String nome, String sku, String descricao) {
+            this.nome = nome;
+            this.sku = sku;
+            this.descricao = descricao;
+        }
+
+        private long[] trigramas() {
+            return Arrays.stream(new long[][]{trigramasDe(nome), trigramasDe(sku), trigramasDe(descricao)})
+                    .flatMapToLong(Arrays::stream)
+                    .distinct()
+                    .toArray();
+        }
+    }
+
+    /**
+     * Lista ordenada de ids de produto. Ids novos são sempre os maiores, então a inserção
+     * costuma ser um append; remoções e reindexações usam busca binária.
+     */
+    private static final class ListaIds {
+
+        private int[] ids = new int[4];
+        private int tamanho;
+
+        private void adicionar(int id) {
+            if (tamanho == 0 || id > ids[tamanho - 1]) {
+                if (tamanho == ids.length) {
+                    ids = Arrays.copyOf(ids, tamanho * 2);
+                }
+                ids[tamanho++] = id;
+                return;
+            }
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao >= 0) {
+                return;
+            }
+            posicao = -posicao - 1;
+
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+            ids[posicao] = id;
+            tamanho++;
+        }
+
+        private boolean remover(int id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao < 0) {
+                return false;
+            }
+            System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+            tamanho--;
+            return true;
+        }
+
+        private boolean contem(int id) {
+            return Arrays.binarySearch(ids, 0, tamanho, id) >= 0;
+        }
+    }
+
+    private static final class Resultado {
+
+        private final int id;
+        private final int pontuacao;
+        private final int tamanhoNome;
+
+        private Resultado(int id, int pontuacao, int tamanhoNome) {
+            this.id = id;
+            this.pontuacao = pontuacao;
+            this.tamanhoNome = tamanhoNome;
+        }
+    }
+}
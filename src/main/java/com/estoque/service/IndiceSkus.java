@@ -0,0 +1,329 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.SugestaoSkuDTO;
+import com.estoque.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SKUs ordenados (sem diferenciar maiúsculas) em arrays primitivos para autocompletar por prefixo.
+ * Os caracteres de todos os SKUs ficam num único char[]; cada posição da ordenação guarda só
+ * início, tamanho e id do produto, então a sugestão é uma busca binária seguida de uma varredura
+ * curta, sem objetos por SKU.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceSkus implements SmartInitializingSingleton {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private final ProdutoRepository produtoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private char[] caracteres = new char[CAPACIDADE_INICIAL * 16];
+    private int caracteresUsados;
+    private int caracteresLivres;
+
+    private int[] inicios = new int[CAPACIDADE_INICIAL];
+    private short[] tamanhos = new short[CAPACIDADE_INICIAL];
+    private long[] ids = new long[CAPACIDADE_INICIAL];
+    private int total;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconstruir();
+    }
+
+    public void reconstruir() {
+        List<ProdutoDTO> produtos = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> produtoRepository.streamParaIndexacao()
+                .filter(p -> p.getSku() != null && !p.getSku().isEmpty())
+                .forEach(produtos::add));
+
+        produtos.sort(Comparator.comparing(ProdutoDTO::getSku, String.CASE_INSENSITIVE_ORDER).thenComparing(ProdutoDTO::getId));
+
+        lock.writeLock().lock();
+        try {
+            int capacidade = Math.max(CAPACIDADE_INICIAL, produtos.size());
+            int totalCaracteres = produtos.stream().mapToInt(p -> p.getSku().length()).sum();
+
+            caracteres = new char[Math.max(CAPACIDADE_INICIAL * 16, totalCaracteres)];
+            caracteresUsados = 0;
+            caracteresLivres = 0;
+            inicios = new int[capacidade];
+            tamanhos = new short[capacidade];
+            ids = new long[capacidade];
+            total = 0;
+
+            for (ProdutoDTO produto : produtos) {
+                inserirEm(total, produto.getId(), produto.getSku());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void adicionar(Long id, String sku) {
+        if (sku == null || sku.isEmpty()) {
+            return;
+        }
+
+        Transacoes.aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                inserirEm(posicao(sku, id), id, sku);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Produtos gravados em lote (importação): um registro após o commit e uma tomada do lock.
+    // Inseridos um a um, cada SKU deslocaria os arrays inteiros; ordenados, entram numa única
+    // intercalação com o índice
+    public void adicionarTodos(List<ProdutoDTO> produtos) {
+        Transacoes.aposCommit(() -> {
+            List<ProdutoDTO> novos = new ArrayList<>(produtos.size());
+            for (ProdutoDTO produto : produtos) {
+                if (produto.getSku() != null && !produto.getSku().isEmpty()) {
+                    novos.add(produto);
+                }
+            }
+            novos.sort(Comparator.comparing(ProdutoDTO::getSku, IndiceSkus::compararSkus).thenComparing(ProdutoDTO::getId));
+
+            lock.writeLock().lock();
+            try {
+                intercalar(novos);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remover(Long id, String sku) {
+        if (sku == null || sku.isEmpty()) {
+            return;
+        }
+
+        Transacoes.aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                int posicao = posicao(sku, id);
+                if (posicao < total && ids[posicao] == id && comparar(posicao, sku) == 0) {
+                    removerEm(posicao);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public List<SugestaoSkuDTO> sugerir(String prefixo, int limite) {
+        lock.readLock().lock();
+        try {
+            List<SugestaoSkuDTO> sugestoes = new ArrayList<>(Math.min(limite, 16));
+
+            for (int i = posicao(prefixo, Long.MIN_VALUE); i < total && sugestoes.size() < limite && comecaCom(i, prefixo); i++) {
+                sugestoes.add(new SugestaoSkuDTO(ids[i], new String(caracteres, inicios[i], tamanhos[i])));
+            }
+
+            return sugestoes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memória ocupada pelos arrays do índice, em bytes (sem cabeçalhos de objeto).
+     */
+    public long bytesOcupados() {
+        lock.readLock().lock();
+        try {
+            return (long) caracteres.length * Character.BYTES
+                    + (long) inicios.length * Integer.BYTES
+                    + (long) tamanhos.length * Short.BYTES
+                    + (long) ids.length * Long.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Primeira posição cujo (SKU, id) é maior ou igual ao informado
+    private int posicao(String sku, long id) {
+        int baixo = 0;
+        int alto = total;
+
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            int comparacao = comparar(meio, sku);
+            if (comparacao < 0 || (comparacao == 0 && ids[meio] < id)) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+
+        return baixo;
+    }
+
+    private int comparar(int posicao, String sku) {
+        int inicio = inicios[posicao];
+        int tamanho = tamanhos[posicao];
+        int limite = Math.min(tamanho, sku.length());
+
+        for (int i = 0; i < limite; i++) {
+            int diferenca = Character.toUpperCase(caracteres[inicio + i]) - Character.toUpperCase(sku.charAt(i));
+            if (diferenca != 0) {
+                return diferenca;
+            }
+        }
+
+        return tamanho - sku.length();
+    }
+
+    private boolean comecaCom(int posicao, String prefixo) {
+        if (tamanhos[posicao] < prefixo.length()) {
+            return false;
+        }
+
+        int inicio = inicios[posicao];
+        for (int i = 0; i < prefixo.length(); i++) {
+            if (Character.toUpperCase(caracteres[inicio + i]) != Character.toUpperCase(prefixo.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void inserirEm(int posicao, long id, String sku) {
+        if (total == ids.length) {
+            int capacidade = total * 2;
+            inicios = Arrays.copyOf(inicios, capacidade);
+            tamanhos = Arrays.copyOf(tamanhos, capacidade);
+            ids = Arrays.copyOf(ids, capacidade);
+        }
+
+        if (caracteresUsados + sku.length() > caracteres.length) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, caracteresUsados + sku.length()));
+        }
+
+        System.arraycopy(inicios, posicao, inicios, posicao + 1, total - posicao);
+        System.arraycopy(tamanhos, posicao, tamanhos, posicao + 1, total - posicao);
+        System.arraycopy(ids, posicao, ids, posicao + 1, total - posicao);
+
+        sku.getChars(0, sku.length(), caracteres, caracteresUsados);
+        inicios[posicao] = caracteresUsados;
+        tamanhos[posicao] = (short) sku.length();
+        ids[posicao] = id;
+
+        caracteresUsados += sku.length();
+        total++;
+    }
+
+    // Os novos, já na ordem do índice, caem em posições crescentes: os trechos entre elas são copiados inteiros
+    private void intercalar(List<ProdutoDTO> novos) {
+        if (novos.isEmpty()) {
+            return;
+        }
+
+        int capacidade = Math.max(ids.length, total + novos.size());
+        int[] novosInicios = new int[capacidade];
+        short[] novosTamanhos = new short[capacidade];
+        long[] novosIds = new long[capacidade];
+
+        int caracteresNovos = novos.stream().mapToInt(p -> p.getSku().length()).sum();
+        if (caracteresUsados + caracteresNovos > caracteres.length) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, caracteresUsados + caracteresNovos));
+        }
+
+        int lidos = 0;
+        int escritos = 0;
+        for (ProdutoDTO produto : novos) {
+            String sku = produto.getSku();
+            int ate = posicao(sku, produto.getId());
+            System.arraycopy(inicios, lidos, novosInicios, escritos, ate - lidos);
+            System.arraycopy(tamanhos, lidos, novosTamanhos, escritos, ate - lidos);
+            System.arraycopy(ids, lidos, novosIds, escritos, ate - lidos);
+            escritos += ate - lidos;
+            lidos = ate;
+
+            sku.getChars(0, sku.length(), caracteres, caracteresUsados);
+            novosInicios[escritos] = caracteresUsados;
+            novosTamanhos[escritos] = (short) sku.length();
+            novosIds[escritos] = produto.getId();
+            caracteresUsados += sku.length();
+            escritos++;
+        }
+        System.arraycopy(inicios, lidos, novosInicios, escritos, total - lidos);
+        System.arraycopy(tamanhos, lidos, novosTamanhos, escritos, total - lidos);
+        System.arraycopy(ids, lidos, novosIds, escritos, total - lidos);
+
+        inicios = novosInicios;
+        tamanhos = novosTamanhos;
+        ids = novosIds;
+        total = escritos + total - lidos;
+    }
+
+    // A mesma ordem de comparar: caractere a caractere em maiúsculas, depois o tamanho
+    private static int compararSkus(String a, String b) {
+        int limite = Math.min(a.length(), b.length());
+        for (int i = 0; i < limite; i++) {
+            int diferenca = Character.toUpperCase(a.charAt(i)) - Character.toUpperCase(b.charAt(i));
+            if (diferenca != 0) {
+                return diferenca;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private void removerEm(int posicao) {
+        caracteresLivres += tamanhos[posicao];
+
+        System.arraycopy(inicios, posicao + 1, inicios, posicao, total - posicao - 1);
+        System.arraycopy(tamanhos, posicao + 1, tamanhos, posicao, total - posicao - 1);
+        System.arraycopy(ids, posicao + 1, ids, posicao, total - posicao - 1);
+        total--;
+
+        if (caracteresLivres > caracteresUsados / 2) {
+            compactar();
+        }
+    }
+
+    // Reescreve os caracteres na ordem do índice, descartando os de SKUs removidos
+    private void compactar() {
+        char[] novos = new char[Math.max(CAPACIDADE_INICIAL * 16, caracteresUsados - caracteresLivres)];
+        int usados = 0;
+
+        for (int i = 0; i < total; i++) {
+            System.arraycopy(caracteres, inicios[i], novos, usados, tamanhos[i]);
+            inicios[i] = usados;
+            usados += tamanhos[i];
+        }
+
+        caracteres = novos;
+        caracteresUsados = usados;
+        caracteresLivres = 0;
+    }
+
+}
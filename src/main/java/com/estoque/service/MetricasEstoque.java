@@ -0,0 +1,70 @@
+package com.estoque.service;
+
+import com.estoque.model.MovimentacaoEstoque;
+import com.estoque.model.TipoMovimentacao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Métricas de domínio do estoque (expostas em /actuator/prometheus). As unidades movimentadas só
+ * são contadas após o commit, para que um rollback não as infle; as saídas recusadas por falta
+ * de estoque, que desfazem a transação, são contadas na hora.
+ */
+@Component
+public class MetricasEstoque {
+
+    public static final String ORIGEM_UNITARIA = "unitaria";
+    public static final String ORIGEM_LOTE = "lote";
+
+    private final MeterRegistry registry;
+    private final Map<TipoMovimentacao, Counter> unidades = new EnumMap<>(TipoMovimentacao.class);
+
+    public MetricasEstoque(MeterRegistry registry) {
+        this.registry = registry;
+        for (TipoMovimentacao tipo : TipoMovimentacao.values()) {
+            unidades.put(tipo, Counter.builder("estoque.movimentacoes.unidades")
+                    .description("Unidades movimentadas por tipo de movimentação")
+                    .tag("tipo", tipo.name())
+                    .register(registry));
+        }
+    }
+
+    // Somadas por tipo antes, para registrar uma única ação após o commit por bloco
+    public void movimentacoes(List<MovimentacaoEstoque> movimentacoes) {
+        Map<TipoMovimentacao, Long> totais = new EnumMap<>(TipoMovimentacao.class);
+        for (MovimentacaoEstoque movimentacao : movimentacoes) {
+            totais.merge(movimentacao.getTipo(), (long) movimentacao.getQuantidade(), Long::sum);
+        }
+        if (!totais.isEmpty()) {
+            Transacoes.aposCommit(() -> totais.forEach((tipo, total) -> unidades.get(tipo).increment(total)));
+        }
+    }
+
+    public void saidaRecusada(String origem) {
+        Counter.builder("estoque.saidas.recusadas")
+                .description("Saídas recusadas por estoque insuficiente")
+                .tag("origem", origem)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Registra quantas linhas uma listagem devolveu. As faixas fixas permitem agregar entre
+     * instâncias no Prometheus sem depender de percentis calculados em cada uma.
+     */
+    public void linhasListagem(String endpoint, int linhas) {
+        DistributionSummary.builder("estoque.listagem.linhas")
+                .description("Linhas devolvidas por chamada de listagem")
+                .baseUnit("linhas")
+                .tag("endpoint", endpoint)
+                .serviceLevelObjectives(1, 10, 50, 100, 500, 1_000, 10_000)
+                .register(registry)
+                .record(linhas);
+    }
+}
@@ -1,36 +1,62 @@
 package com.estoque.service;
 
+import com.estoque.dto.EstoqueProdutoDTO;
+import com.estoque.dto.EventoEstoqueDTO;
 import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.model.EstoqueDeposito;
 import com.estoque.model.MovimentacaoEstoque;
 import com.estoque.model.Produto;
 import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.EstoqueDepositoRepository;
 import com.estoque.repository.MovimentacaoEstoqueRepository;
 import com.estoque.repository.ProdutoRepository;
 import javax.persistence.EntityNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "estoque.servico", histogram = true)
 public class MovimentacaoEstoqueService {
 
     private final MovimentacaoEstoqueRepository movimentacaoRepository;
     private final ProdutoRepository produtoRepository;
+    private final ConjuntoEstoqueBaixo estoqueBaixo;
+    private final ApplicationEventPublisher eventos;
+    private final CachesLeitura caches;
+    private final ResumosMovimentacao resumos;
+    private final AvaliacaoEstoqueMemoria avaliacao;
+    private final ArquivoMovimentacoes arquivo;
+    private final MetricasEstoque metricas;
+    private final DepositoService depositos;
+    private final EstoqueDepositoRepository estoqueDepositoRepository;
 
     @Transactional(readOnly = true)
-    public List<MovimentacaoEstoqueDTO> listarTodas() {
-        return movimentacaoRepository.findAll()
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<MovimentacaoEstoqueDTO> listarTodas(String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+
+        LocalDateTime data = cursor == null ? null : Paginacao.decodificarData(cursor);
+        Long id = cursor == null ? null : Paginacao.decodificarIdComData(cursor);
+
+        List<MovimentacaoEstoqueDTO> resultado = cursor == null
+                ? movimentacaoRepository.findPagina(Paginacao.consulta(limite))
+                : movimentacaoRepository.findPaginaApos(data, id, Paginacao.consulta(limite));
+        resultado = continuarNoArquivo(resultado, limite + 1, data, id, null, null, null, null);
+
+        return Paginacao.montar(resultado, limite, this::cursorDe);
     }
 
     @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
     public MovimentacaoEstoqueDTO buscarPorId(Long id) {
         MovimentacaoEstoque movimentacao = movimentacaoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Movimentação não encontrada com id: " + id));
@@ -38,80 +64,209 @@ public class MovimentacaoEstoqueService {
     }
 
     @Transactional(readOnly = true)
-    public List<MovimentacaoEstoqueDTO> listarPorProduto(Long produtoId) {
-        return movimentacaoRepository.findByProdutoIdOrderByDataMovimentacaoDesc(produtoId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<MovimentacaoEstoqueDTO> listarPorProduto(Long produtoId, String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+
+        LocalDateTime data = cursor == null ? null : Paginacao.decodificarData(cursor);
+        Long id = cursor == null ? null : Paginacao.decodificarIdComData(cursor);
+
+        List<MovimentacaoEstoqueDTO> resultado = cursor == null
+                ? movimentacaoRepository.findPaginaPorProduto(produtoId, Paginacao.consulta(limite))
+                : movimentacaoRepository.findPaginaPorProdutoApos(produtoId, data, id, Paginacao.consulta(limite));
+        resultado = continuarNoArquivo(resultado, limite + 1, data, id, produtoId, null, null, null);
+
+        return Paginacao.montar(resultado, limite, this::cursorDe);
     }
 
     @Transactional(readOnly = true)
-    public List<MovimentacaoEstoqueDTO> listarPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
-        return movimentacaoRepository.findByPeriodo(inicio, fim)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<MovimentacaoEstoqueDTO> listarPorPeriodo(LocalDateTime inicio, LocalDateTime fim, String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+
+        LocalDateTime data = cursor == null ? null : Paginacao.decodificarData(cursor);
+        Long id = cursor == null ? null : Paginacao.decodificarIdComData(cursor);
+
+        List<MovimentacaoEstoqueDTO> resultado = cursor == null
+                ? movimentacaoRepository.findPaginaPorPeriodo(inicio, fim, Paginacao.consulta(limite))
+                : movimentacaoRepository.findPaginaPorPeriodoApos(inicio, data, id, Paginacao.consulta(limite));
+        resultado = continuarNoArquivo(resultado, limite + 1, data, id, null, null, inicio, fim);
+
+        return Paginacao.montar(resultado, limite, this::cursorDe);
     }
 
     @Transactional(readOnly = true)
-    public List<MovimentacaoEstoqueDTO> listarPorTipo(TipoMovimentacao tipo) {
-        return movimentacaoRepository.findByTipo(tipo)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<MovimentacaoEstoqueDTO> listarPorTipo(TipoMovimentacao tipo, String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+
+        LocalDateTime data = cursor == null ? null : Paginacao.decodificarData(cursor);
+        Long id = cursor == null ? null : Paginacao.decodificarIdComData(cursor);
+
+        List<MovimentacaoEstoqueDTO> resultado = cursor == null
+                ? movimentacaoRepository.findPaginaPorTipo(tipo, Paginacao.consulta(limite))
+                : movimentacaoRepository.findPaginaPorTipoApos(tipo, data, id, Paginacao.consulta(limite));
+        resultado = continuarNoArquivo(resultado, limite + 1, data, id, null, tipo, null, null);
+
+        return Paginacao.montar(resultado, limite, this::cursorDe);
     }
 
     @Transactional
+    @Carga(TipoCarga.ESCRITA)
     public MovimentacaoEstoqueDTO registrarEntrada(Long produtoId, Integer quantidade, String motivo) {
-        return registrarMovimentacao(produtoId, TipoMovimentacao.ENTRADA, quantidade, motivo);
+        return registrarEntrada(produtoId, null, quantidade, motivo);
     }
 
+    // O UPDATE do produto vem antes do depósito: bloquear sempre nessa ordem evita deadlocks entre
+    // caminhos, e com o produto bloqueado a linha do depósito pode ser criada sem disputa
     @Transactional
+    @Carga(TipoCarga.ESCRITA)
+    public MovimentacaoEstoqueDTO registrarEntrada(Long produtoId, Long depositoId, Integer quantidade, String motivo) {
+        Long deposito = depositos.resolver(depositoId);
+        if (produtoRepository.creditarEstoque(produtoId, quantidade) == 0) {
+            throw new EntityNotFoundException("Produto não encontrado com id: " + produtoId);
+        }
+        if (estoqueDepositoRepository.creditar(produtoId, deposito, quantidade) == 0) {
+            estoqueDepositoRepository.save(new EstoqueDeposito(produtoId, deposito, quantidade));
+        }
+
+        return registrarMovimentacao(produtoId, deposito, TipoMovimentacao.ENTRADA, quantidade, motivo);
+    }
+
+    @Transactional
+    @Carga(TipoCarga.ESCRITA)
     public MovimentacaoEstoqueDTO registrarSaida(Long produtoId, Integer quantidade, String motivo) {
-        Produto produto = produtoRepository.findById(produtoId)
-                .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
+        return registrarSaida(produtoId, null, quantidade, motivo);
+    }
 
-        if (produto.getQuantidadeEstoque() < quantidade) {
-            throw new IllegalStateException("Quantidade em estoque insuficiente. Disponível: " + produto.getQuantidadeEstoque());
+    @Transactional
+    @Carga(TipoCarga.ESCRITA)
+    public MovimentacaoEstoqueDTO registrarSaida(Long produtoId, Long depositoId, Integer quantidade, String motivo) {
+        Long deposito = depositos.resolver(depositoId);
+        if (produtoRepository.debitarEstoque(produtoId, quantidade) == 0) {
+            Integer disponivel = produtoRepository.findQuantidadeEstoqueById(produtoId)
+                    .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
+            metricas.saidaRecusada(MetricasEstoque.ORIGEM_UNITARIA);
+            throw new IllegalStateException("Quantidade em estoque insuficiente. Disponível: " + disponivel);
+        }
+        // O total bastava, mas não o depósito: a exceção desfaz também o débito do produto
+        if (estoqueDepositoRepository.debitar(produtoId, deposito, quantidade) == 0) {
+            Integer disponivel = estoqueDepositoRepository.findQuantidade(produtoId, deposito).orElse(0);
+            metricas.saidaRecusada(MetricasEstoque.ORIGEM_UNITARIA);
+            throw new IllegalStateException("Quantidade em estoque insuficiente. Disponível: " + disponivel);
         }
 
-        return registrarMovimentacao(produtoId, TipoMovimentacao.SAIDA, quantidade, motivo);
+        return registrarMovimentacao(produtoId, deposito, TipoMovimentacao.SAIDA, quantidade, motivo);
     }
 
     @Transactional
+    @Carga(TipoCarga.ESCRITA)
     public MovimentacaoEstoqueDTO registrarAjuste(Long produtoId, Integer novaQuantidade, String motivo) {
-        Produto produto = produtoRepository.findById(produtoId)
+        return registrarAjuste(produtoId, null, novaQuantidade, motivo);
+    }
+
+    /**
+     * Ajusta a quantidade do produto no depósito para {@code novaQuantidade}; o total do produto
+     * varia pela mesma diferença. Quantidade anterior e posterior da movimentação são do total.
+     */
+    @Transactional
+    @Carga(TipoCarga.ESCRITA)
+    public MovimentacaoEstoqueDTO registrarAjuste(Long produtoId, Long depositoId, Integer novaQuantidade, String motivo) {
+        Long deposito = depositos.resolver(depositoId);
+        Produto produto = produtoRepository.findByIdParaAtualizacao(produtoId)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
+        EstoqueDeposito estoque = estoqueDepositoRepository.findParaAtualizacao(produtoId, deposito)
+                .orElseGet(() -> new EstoqueDeposito(produtoId, deposito, 0));
 
         Integer quantidadeAnterior = produto.getQuantidadeEstoque();
-        Integer diferenca = Math.abs(novaQuantidade - quantidadeAnterior);
+        Integer quantidadePosterior = quantidadeAnterior + novaQuantidade - estoque.getQuantidade();
+        Integer diferenca = Math.abs(quantidadePosterior - quantidadeAnterior);
 
         MovimentacaoEstoque movimentacao = new MovimentacaoEstoque();
         movimentacao.setProduto(produto);
         movimentacao.setTipo(TipoMovimentacao.AJUSTE);
         movimentacao.setQuantidade(diferenca);
         movimentacao.setQuantidadeAnterior(quantidadeAnterior);
-        movimentacao.setQuantidadePosterior(novaQuantidade);
+        movimentacao.setQuantidadePosterior(quantidadePosterior);
         movimentacao.setMotivo(motivo);
+        movimentacao.setDepositoId(deposito);
 
-        produto.setQuantidadeEstoque(novaQuantidade);
+        estoque.setQuantidade(novaQuantidade);
+        estoqueDepositoRepository.save(estoque);
+        produto.setQuantidadeEstoque(quantidadePosterior);
         produtoRepository.save(produto);
+        estoqueBaixo.atualizar(produto);
+        avaliacao.atualizar(produto);
+        caches.produtoAlterado(produto.getId(), produto.getSku());
 
         movimentacao = movimentacaoRepository.save(movimentacao);
-        return toDTO(movimentacao);
+        resumos.registrar(List.of(movimentacao));
+        metricas.movimentacoes(List.of(movimentacao));
+        return publicar(produto, toDTO(movimentacao));
+    }
+
+    /**
+     * Move estoque de um depósito para outro numa única transação: o débito na origem e o crédito
+     * no destino são gravados juntos ou nenhum deles. O total do produto não muda.
+     */
+    @Transactional
+    @Carga(TipoCarga.ESCRITA)
+    public MovimentacaoEstoqueDTO transferir(Long produtoId, Long origemId, Long destinoId, Integer quantidade, String motivo) {
+        if (origemId == null || destinoId == null) {
+            throw new IllegalArgumentException("Depósitos de origem e destino são obrigatórios");
+        }
+        if (origemId.equals(destinoId)) {
+            throw new IllegalArgumentException("Depósitos de origem e destino devem ser diferentes");
+        }
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade deve ser positiva");
+        }
+        depositos.resolver(origemId);
+        depositos.resolver(destinoId);
+
+        Produto produto = produtoRepository.findByIdParaAtualizacao(produtoId)
+                .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
+        EstoqueDeposito origem = estoqueDepositoRepository.findParaAtualizacao(produtoId, origemId)
+                .orElseGet(() -> new EstoqueDeposito(produtoId, origemId, 0));
+        if (origem.getQuantidade() < quantidade) {
+            throw new IllegalStateException("Quantidade insuficiente no depósito de origem. Disponível: " + origem.getQuantidade());
+        }
+        EstoqueDeposito destino = estoqueDepositoRepository.findParaAtualizacao(produtoId, destinoId)
+                .orElseGet(() -> new EstoqueDeposito(produtoId, destinoId, 0));
+
+        origem.setQuantidade(origem.getQuantidade() - quantidade);
+        destino.setQuantidade(destino.getQuantidade() + quantidade);
+        estoqueDepositoRepository.saveAll(List.of(origem, destino));
+
+        MovimentacaoEstoque movimentacao = new MovimentacaoEstoque();
+        movimentacao.setProduto(produto);
+        movimentacao.setTipo(TipoMovimentacao.TRANSFERENCIA);
+        movimentacao.setQuantidade(quantidade);
+        movimentacao.setQuantidadeAnterior(produto.getQuantidadeEstoque());
+        movimentacao.setQuantidadePosterior(produto.getQuantidadeEstoque());
+        movimentacao.setMotivo(motivo);
+        movimentacao.setDepositoId(origemId);
+        movimentacao.setDepositoDestinoId(destinoId);
+
+        movimentacao = movimentacaoRepository.save(movimentacao);
+        resumos.registrar(List.of(movimentacao));
+        metricas.movimentacoes(List.of(movimentacao));
+        return publicar(produto, toDTO(movimentacao));
     }
 
-    private MovimentacaoEstoqueDTO registrarMovimentacao(Long produtoId, TipoMovimentacao tipo, Integer quantidade, String motivo) {
+    // O estoque já foi alterado por um UPDATE atômico, que mantém a linha bloqueada até o commit;
+    // a leitura seguinte enxerga o valor resultante e dele deriva a quantidade anterior.
+    private MovimentacaoEstoqueDTO registrarMovimentacao(Long produtoId, Long depositoId, TipoMovimentacao tipo, Integer quantidade, String motivo) {
         Produto produto = produtoRepository.findById(produtoId)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + produtoId));
 
-        Integer quantidadeAnterior = produto.getQuantidadeEstoque();
-        Integer quantidadePosterior;
+        Integer quantidadePosterior = produto.getQuantidadeEstoque();
+        Integer quantidadeAnterior;
 
         if (tipo == TipoMovimentacao.ENTRADA) {
-            quantidadePosterior = quantidadeAnterior + quantidade;
+            quantidadeAnterior = quantidadePosterior - quantidade;
         } else {
-            quantidadePosterior = quantidadeAnterior - quantidade;
+            quantidadeAnterior = quantidadePosterior + quantidade;
         }
 
         MovimentacaoEstoque movimentacao = new MovimentacaoEstoque();
@@ -121,12 +276,48 @@ public class MovimentacaoEstoqueService {
         movimentacao.setQuantidadeAnterior(quantidadeAnterior);
         movimentacao.setQuantidadePosterior(quantidadePosterior);
         movimentacao.setMotivo(motivo);
-
-        produto.setQuantidadeEstoque(quantidadePosterior);
-        produtoRepository.save(produto);
+        movimentacao.setDepositoId(depositoId);
 
         movimentacao = movimentacaoRepository.save(movimentacao);
-        return toDTO(movimentacao);
+        resumos.registrar(List.of(movimentacao));
+        metricas.movimentacoes(List.of(movimentacao));
+        estoqueBaixo.atualizar(produto);
+        avaliacao.atualizar(produto);
+        caches.produtoAlterado(produto.getId(), produto.getSku());
+        return publicar(produto, toDTO(movimentacao));
+    }
+
+    // Entregue aos assinantes de /api/eventos/estoque somente após o commit
+    private MovimentacaoEstoqueDTO publicar(Produto produto, MovimentacaoEstoqueDTO movimentacao) {
+        EstoqueProdutoDTO estoque = new EstoqueProdutoDTO(produto.getId(), produto.getQuantidadeEstoque(), produto.isEstoqueBaixo());
+        eventos.publishEvent(new EventoEstoqueDTO(List.of(estoque), List.of(movimentacao)));
+        return movimentacao;
+    }
+
+    // Tudo o que foi arquivado é mais antigo que a tabela principal: a página que não se completa
+    // nela continua no arquivo a partir do último item lido (ou do cursor recebido)
+    private List<MovimentacaoEstoqueDTO> continuarNoArquivo(List<MovimentacaoEstoqueDTO> resultado, int quantidade, LocalDateTime data, Long id,
+                                                            Long produtoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim) {
+        if (resultado.size() >= quantidade) {
+            return resultado;
+        }
+        if (!resultado.isEmpty()) {
+            MovimentacaoEstoqueDTO ultima = resultado.get(resultado.size() - 1);
+            data = ultima.getDataMovimentacao();
+            id = ultima.getId();
+        }
+
+        List<MovimentacaoEstoqueDTO> arquivadas = arquivo.anteriores(data, id, produtoId, tipo, inicio, fim, quantidade - resultado.size());
+        if (arquivadas.isEmpty()) {
+            return resultado;
+        }
+        List<MovimentacaoEstoqueDTO> combinado = new ArrayList<>(resultado);
+        combinado.addAll(arquivadas);
+        return combinado;
+    }
+
+    private String cursorDe(MovimentacaoEstoqueDTO movimentacao) {
+        return Paginacao.codificar(movimentacao.getDataMovimentacao(), movimentacao.getId());
     }
 
     private MovimentacaoEstoqueDTO toDTO(MovimentacaoEstoque movimentacao) {
@@ -140,6 +331,8 @@ public class MovimentacaoEstoqueService {
         dto.setQuantidadePosterior(movimentacao.getQuantidadePosterior());
         dto.setMotivo(movimentacao.getMotivo());
         dto.setDataMovimentacao(movimentacao.getDataMovimentacao());
+        dto.setDepositoId(movimentacao.getDepositoId());
+        dto.setDepositoDestinoId(movimentacao.getDepositoDestinoId());
         return dto;
     }
 }
@@ -0,0 +1,277 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstoqueProdutoDTO;
+import com.estoque.dto.EventoEstoqueDTO;
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.ResultadoLinhaLoteDTO;
+import com.estoque.dto.ResultadoLoteDTO;
+import com.estoque.model.EstoqueDeposito;
+import com.estoque.model.MovimentacaoEstoque;
+import com.estoque.model.Produto;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.EstoqueDepositoRepository;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ProdutoRepository;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Aplica lotes de movimentações (entregas de fornecedor, fechamento de caixa) em blocos,
+ * cada bloco em uma transação própria. Os produtos do bloco são lidos e bloqueados em uma
+ * única consulta, e os INSERTs/UPDATEs resultantes saem em lotes JDBC no commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class MovimentacaoLoteService {
+
+    static final int TAMANHO_BLOCO = 500;
+
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final ProdutoRepository produtoRepository;
+    private final ConjuntoEstoqueBaixo estoqueBaixo;
+    private final ApplicationEventPublisher eventos;
+    private final CachesLeitura caches;
+    private final ResumosMovimentacao resumos;
+    private final AvaliacaoEstoqueMemoria avaliacao;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final MetricasEstoque metricas;
+    private final DepositoService depositos;
+    private final EstoqueDepositoRepository estoqueDepositoRepository;
+
+    @Carga(TipoCarga.ESCRITA)
+    public ResultadoLoteDTO registrarLote(Iterator<ItemMovimentacaoLoteDTO> itens) {
+        List<ResultadoLinhaLoteDTO> linhas = new ArrayList<>();
+        List<ItemMovimentacaoLoteDTO> bloco = new ArrayList<>(TAMANHO_BLOCO);
+
+        while (itens.hasNext()) {
+            bloco.add(itens.next());
+            if (bloco.size() == TAMANHO_BLOCO) {
+                linhas.addAll(executarBloco(bloco, linhas.size() + 1));
+                bloco.clear();
+            }
+        }
+
+        if (!bloco.isEmpty()) {
+            linhas.addAll(executarBloco(bloco, linhas.size() + 1));
+        }
+
+        int sucessos = (int) linhas.stream().filter(ResultadoLinhaLoteDTO::getSucesso).count();
+        return new ResultadoLoteDTO(linhas.size(), sucessos, linhas.size() - sucessos, linhas);
+    }
+
+    private List<ResultadoLinhaLoteDTO> executarBloco(List<ItemMovimentacaoLoteDTO> bloco, int primeiraLinha) {
+        return transactionTemplate.execute(status -> processarBloco(bloco, primeiraLinha));
+    }
+
+    private List<ResultadoLinhaLoteDTO> processarBloco(List<ItemMovimentacaoLoteDTO> bloco, int primeiraLinha) {
+        List<Aplicacao> aplicacoes = aplicar(bloco, MetricasEstoque.ORIGEM_LOTE);
+        List<ResultadoLinhaLoteDTO> resultados = new ArrayList<>(aplicacoes.size());
+        for (int i = 0; i < aplicacoes.size(); i++) {
+            Aplicacao aplicacao = aplicacoes.get(i);
+            MovimentacaoEstoque movimentacao = aplicacao.movimentacao;
+            resultados.add(movimentacao == null
+                    ? ResultadoLinhaLoteDTO.falha(primeiraLinha + i, aplicacao.erro)
+                    : ResultadoLinhaLoteDTO.sucesso(primeiraLinha + i, movimentacao.getId(), movimentacao.getQuantidadePosterior()));
+        }
+        return resultados;
+    }
+
+    /**
+     * Aplica os itens em ordem dentro da transação corrente, com os produtos bloqueados: cada
+     * item parte do estoque deixado pelo anterior do mesmo produto, e o produto recebe um único
+     * UPDATE com o valor final no flush. Também usado pelo {@link PipelineMovimentacoes}.
+     */
+    List<Aplicacao> aplicar(List<ItemMovimentacaoLoteDTO> bloco, String origem) {
+        // Ordenar os ids mantém a ordem de bloqueio estável entre lotes concorrentes
+        TreeSet<Long> ids = bloco.stream()
+                .map(ItemMovimentacaoLoteDTO::getProdutoId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        Map<Long, Produto> produtos = ids.isEmpty() ? Map.of() : produtoRepository.findAllByIdParaAtualizacao(ids)
+                .stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+
+        // Depois dos produtos, como nos demais caminhos: produto -> depósito -> linha
+        Map<Long, Map<Long, EstoqueDeposito>> estoques = new HashMap<>();
+        if (!produtos.isEmpty()) {
+            for (EstoqueDeposito estoque : estoqueDepositoRepository.findAllParaAtualizacao(produtos.keySet())) {
+                estoques.computeIfAbsent(estoque.getProdutoId(), id -> new HashMap<>()).put(estoque.getDepositoId(), estoque);
+            }
+        }
+
+        List<Aplicacao> aplicacoes = new ArrayList<>(bloco.size());
+        List<MovimentacaoEstoque> movimentacoes = new ArrayList<>(bloco.size());
+        List<EstoqueDeposito> novosEstoques = new ArrayList<>();
+
+        for (ItemMovimentacaoLoteDTO item : bloco) {
+            String erro = validar(item);
+            if (erro != null) {
+                aplicacoes.add(Aplicacao.falha(Falha.INVALIDO, erro));
+                continue;
+            }
+
+            Produto produto = produtos.get(item.getProdutoId());
+            if (produto == null) {
+                aplicacoes.add(Aplicacao.falha(Falha.NAO_ENCONTRADO, "Produto não encontrado com id: " + item.getProdutoId()));
+                continue;
+            }
+
+            Long depositoId;
+            try {
+                depositoId = depositos.resolver(item.getDepositoId());
+            } catch (EntityNotFoundException ex) {
+                aplicacoes.add(Aplicacao.falha(Falha.NAO_ENCONTRADO, ex.getMessage()));
+                continue;
+            }
+            EstoqueDeposito estoque = estoques.computeIfAbsent(produto.getId(), id -> new HashMap<>()).get(depositoId);
+            Integer noDeposito = estoque == null ? 0 : estoque.getQuantidade();
+
+            Integer quantidadeAnterior = produto.getQuantidadeEstoque();
+            Integer quantidadePosterior;
+            Integer quantidade = item.getQuantidade();
+            Integer novoNoDeposito;
+
+            if (item.getTipo() == TipoMovimentacao.ENTRADA) {
+                quantidadePosterior = quantidadeAnterior + quantidade;
+                novoNoDeposito = noDeposito + quantidade;
+            } else if (item.getTipo() == TipoMovimentacao.SAIDA) {
+                if (quantidadeAnterior < quantidade || noDeposito < quantidade) {
+                    aplicacoes.add(Aplicacao.falha(Falha.INSUFICIENTE,
+                            "Quantidade em estoque insuficiente. Disponível: " + Math.min(quantidadeAnterior, noDeposito)));
+                    metricas.saidaRecusada(origem);
+                    continue;
+                }
+                quantidadePosterior = quantidadeAnterior - quantidade;
+                novoNoDeposito = noDeposito - quantidade;
+            } else {
+                novoNoDeposito = quantidade;
+                quantidadePosterior = quantidadeAnterior + novoNoDeposito - noDeposito;
+                quantidade = Math.abs(quantidadePosterior - quantidadeAnterior);
+            }
+
+            if (estoque == null) {
+                estoque = new EstoqueDeposito(produto.getId(), depositoId, novoNoDeposito);
+                estoques.get(produto.getId()).put(depositoId, estoque);
+                novosEstoques.add(estoque);
+            } else {
+                estoque.setQuantidade(novoNoDeposito);
+            }
+
+            MovimentacaoEstoque movimentacao = new MovimentacaoEstoque();
+            movimentacao.setProduto(produto);
+            movimentacao.setTipo(item.getTipo());
+            movimentacao.setQuantidade(quantidade);
+            movimentacao.setQuantidadeAnterior(quantidadeAnterior);
+            movimentacao.setQuantidadePosterior(quantidadePosterior);
+            movimentacao.setMotivo(item.getMotivo());
+            movimentacao.setDepositoId(depositoId);
+
+            produto.setQuantidadeEstoque(quantidadePosterior);
+            movimentacoes.add(movimentacao);
+            aplicacoes.add(new Aplicacao(movimentacao, null, null));
+        }
+
+        estoqueDepositoRepository.saveAll(novosEstoques);
+        movimentacaoRepository.saveAll(movimentacoes);
+        resumos.registrar(movimentacoes);
+        metricas.movimentacoes(movimentacoes);
+        produtos.values().forEach(estoqueBaixo::atualizar);
+        produtos.values().forEach(avaliacao::atualizar);
+        produtos.values().forEach(p -> caches.produtoAlterado(p.getId(), p.getSku()));
+
+        // Com open-in-view o contexto de persistência vive a requisição inteira; sem limpar,
+        // cada bloco faria dirty checking de todas as entidades dos blocos anteriores
+        entityManager.flush();
+        entityManager.clear();
+
+        if (!movimentacoes.isEmpty()) {
+            publicar(movimentacoes);
+        }
+
+        return aplicacoes;
+    }
+
+    // Um evento por bloco, entregue aos assinantes de /api/eventos/estoque após o commit
+    private void publicar(List<MovimentacaoEstoque> movimentacoes) {
+        // Por id: equals/hashCode de Produto percorrem as associações lazy
+        Map<Long, EstoqueProdutoDTO> estoques = new LinkedHashMap<>();
+        for (MovimentacaoEstoque movimentacao : movimentacoes) {
+            Produto p = movimentacao.getProduto();
+            estoques.put(p.getId(), new EstoqueProdutoDTO(p.getId(), p.getQuantidadeEstoque(), p.isEstoqueBaixo()));
+        }
+
+        List<MovimentacaoEstoqueDTO> dtos = movimentacoes.stream()
+                .map(MovimentacaoLoteService::toDTO)
+                .collect(Collectors.toList());
+
+        eventos.publishEvent(new EventoEstoqueDTO(new ArrayList<>(estoques.values()), dtos));
+    }
+
+    private String validar(ItemMovimentacaoLoteDTO item) {
+        if (item.getErroLeitura() != null) {
+            return item.getErroLeitura();
+        }
+        if (item.getProdutoId() == null) {
+            return "Produto é obrigatório";
+        }
+        if (item.getTipo() == null) {
+            return "Tipo de movimentação é obrigatório";
+        }
+        if (item.getTipo() == TipoMovimentacao.TRANSFERENCIA) {
+            return "Transferências entre depósitos não são aceitas em lote";
+        }
+        if (item.getQuantidade() == null) {
+            return "Quantidade é obrigatória";
+        }
+        if (item.getTipo() == TipoMovimentacao.AJUSTE ? item.getQuantidade() < 0 : item.getQuantidade() <= 0) {
+            return item.getTipo() == TipoMovimentacao.AJUSTE
+                    ? "Nova quantidade deve ser zero ou positiva"
+                    : "Quantidade deve ser positiva";
+        }
+        return null;
+    }
+
+    static MovimentacaoEstoqueDTO toDTO(MovimentacaoEstoque m) {
+        return new MovimentacaoEstoqueDTO(m.getId(), m.getProduto().getId(), m.getProduto().getNome(), m.getTipo(),
+                m.getQuantidade(), m.getQuantidadeAnterior(), m.getQuantidadePosterior(), m.getMotivo(), m.getDataMovimentacao(),
+                m.getDepositoId(), m.getDepositoDestinoId());
+    }
+
+    enum Falha { INVALIDO, NAO_ENCONTRADO, INSUFICIENTE }
+
+    /** Desfecho de um item de {@link #aplicar}: a movimentação gravada ou a falha e sua mensagem. */
+    static final class Aplicacao {
+
+        final MovimentacaoEstoque movimentacao;
+        final Falha falha;
+        final String erro;
+
+        Aplicacao(MovimentacaoEstoque movimentacao, Falha falha, String erro) {
+            this.movimentacao = movimentacao;
+            this.falha = falha;
+            this.erro = erro;
+        }
+
+        static Aplicacao falha(Falha falha, String erro) {
+            return new Aplicacao(null, falha, erro);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.estoque.service;
+
+import com.estoque.dto.PaginaDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Paginação por cursor (keyset). O cursor é opaco para o cliente: codifica em Base64
+ * a chave de ordenação do último item entregue, e a próxima página é lida a partir dela
+ * com um predicado indexável, sem OFFSET.
+ */
+final class Paginacao {
+
+    static final int LIMITE_PADRAO = 50;
+    static final int LIMITE_MAXIMO = 500;
+
+    private static final String SEPARADOR = "|";
+
+    private Paginacao() {
+    }
+
+    static int validarLimite(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite deve ser positivo");
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    /**
+     * Busca um item a mais que o limite para saber se existe próxima página.
+     */
+    static Pageable consulta(int limite) {
+        return PageRequest.of(0, limite + 1);
+    }
+
+    static <E, D> PaginaDTO<D> montar(List<E> resultado, int limite, Function<E, D> mapper, Function<E, String> cursor) {
+        boolean temProxima = resultado.size() > limite;
+        List<E> itens = temProxima ? resultado.subList(0, limite) : resultado;
+
+        String proximoCursor = temProxima ? cursor.apply(itens.get(itens.size() - 1)) : null;
+        return new PaginaDTO<>(itens.stream().map(mapper).collect(Collectors.toList()), proximoCursor);
+    }
+
+    static <D> PaginaDTO<D> montar(List<D> resultado, int limite, Function<D, String> cursor) {
+        return montar(resultado, limite, Function.identity(), cursor);
+    }
+
+    static String codificar(Long id) {
+        return base64(String.valueOf(id));
+    }
+
+    static String codificar(LocalDateTime data, Long id) {
+        return base64(data + SEPARADOR + id);
+    }
+
+    static Long decodificarId(String cursor) {
+        try {
+            return Long.valueOf(texto(cursor));
+        } catch (NumberFormatException ex) {
+            throw cursorInvalido();
+        }
+    }
+
+    static LocalDateTime decodificarData(String cursor) {
+        String valor = texto(cursor);
+        int separador = valor.indexOf(SEPARADOR);
+        if (separador < 0) {
+            throw cursorInvalido();
+        }
+
+        try {
+            return LocalDateTime.parse(valor.substring(0, separador));
+        } catch (DateTimeParseException ex) {
+            throw cursorInvalido();
+        }
+    }
+
+    static Long decodificarIdComData(String cursor) {
+        String valor = texto(cursor);
+        int separador = valor.indexOf(SEPARADOR);
+        if (separador < 0) {
+            throw cursorInvalido();
+        }
+
+        try {
+            return Long.valueOf(valor.substring(separador + 1));
+        } catch (NumberFormatException ex) {
+            throw cursorInvalido();
+        }
+    }
+
+    private static String base64(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String texto(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw cursorInvalido();
+        }
+    }
+
+    private static IllegalArgumentException cursorInvalido() {
+        return new IllegalArgumentException("Cursor de paginação inválido");
+    }
+}
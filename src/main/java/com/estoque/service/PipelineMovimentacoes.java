@@ -0,0 +1,265 @@
+package com.estoque.service;
+
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Gravação agrupada de movimentações unitárias (opcional, {@code estoque.pipeline.habilitado}).
+ * Em vez de cada requisição abrir sua transação e disputar o bloqueio da linha do produto, os
+ * pedidos entram em filas limitadas e poucas threads escritoras as esvaziam: cada lote drenado
+ * é aplicado em ordem de chegada em uma única transação ({@link MovimentacaoLoteService#aplicar}),
+ * com um UPDATE por produto e os INSERTs em lote JDBC. Cada produto pertence sempre à mesma
+ * escritora, o que preserva a ordem entre seus pedidos e mantém a verificação de saldo exata.
+ * Quem chama espera até o commit do lote que contém o seu pedido; se desistir antes que uma
+ * escritora pegue o pedido, ele é descartado, e se desistir depois, o desfecho é incerto
+ * ({@link ResultadoIncertoException}).
+ */
+@Slf4j
+@Component
+public class PipelineMovimentacoes {
+
+    private final MovimentacaoLoteService loteService;
+    private final MovimentacaoEstoqueService movimentacaoService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int tamanhoLote;
+    private final long esperaMs;
+    private final List<BlockingQueue<Pedido>> filas = new ArrayList<>();
+    private final List<Thread> escritoras = new ArrayList<>();
+    private final DistributionSummary tamanhos;
+
+    public PipelineMovimentacoes(MovimentacaoLoteService loteService,
+                                 MovimentacaoEstoqueService movimentacaoService,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry registry,
+                                 @Value("${estoque.pipeline.habilitado:false}") boolean habilitado,
+                                 @Value("${estoque.pipeline.escritoras:2}") int escritoras,
+                                 @Value("${estoque.pipeline.capacidade-fila:4096}") int capacidadeFila,
+                                 @Value("${estoque.pipeline.tamanho-lote:256}") int tamanhoLote,
+                                 @Value("${estoque.pipeline.espera-ms:30000}") long esperaMs) {
+        if (escritoras < 1 || capacidadeFila < 1 || tamanhoLote < 1 || esperaMs < 1) {
+            throw new IllegalArgumentException("Escritoras, capacidade da fila, tamanho do lote e espera do pipeline devem ser positivos");
+        }
+        this.loteService = loteService;
+        this.movimentacaoService = movimentacaoService;
+        this.transactionTemplate = transactionTemplate;
+        this.habilitado = habilitado;
+        this.tamanhoLote = tamanhoLote;
+        this.esperaMs = esperaMs;
+
+        for (int i = 0; i < escritoras; i++) {
+            filas.add(new ArrayBlockingQueue<>(capacidadeFila));
+        }
+        Gauge.builder("estoque.pipeline.fila", filas, f -> f.stream().mapToInt(BlockingQueue::size).sum())
+                .description("Movimentações aguardando gravação no pipeline")
+                .register(registry);
+        tamanhos = DistributionSummary.builder("estoque.pipeline.lote")
+                .description("Movimentações gravadas por transação do pipeline")
+                .baseUnit("movimentacoes")
+                .serviceLevelObjectives(1, 2, 8, 32, 128, 512)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        for (int i = 0; i < filas.size(); i++) {
+            BlockingQueue<Pedido> fila = filas.get(i);
+            Thread escritora = new Thread(() -> escrever(fila), "pipeline-movimentacoes-" + i);
+            escritora.setDaemon(true);
+            escritora.start();
+            escritoras.add(escritora);
+        }
+        log.info("Pipeline de movimentações habilitado: {} escritoras, lotes de até {}", filas.size(), tamanhoLote);
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        escritoras.forEach(Thread::interrupt);
+        for (Thread escritora : escritoras) {
+            escritora.join(esperaMs);
+        }
+        // Nenhuma escritora pegou estes pedidos: nada foi gravado, e o cliente pode repetir em outra instância
+        List<Pedido> pendentes = new ArrayList<>();
+        filas.forEach(f -> f.drainTo(pendentes));
+        pendentes.forEach(p -> p.resultado.completeExceptionally(
+                new CargaSaturadaException("Aplicação em encerramento; a movimentação não foi registrada", 1)));
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public MovimentacaoEstoqueDTO registrar(Long produtoId, Long depositoId, TipoMovimentacao tipo, Integer quantidade, String motivo) {
+        if (!habilitado) {
+            throw new IllegalStateException("Pipeline de movimentações desabilitado");
+        }
+        if (produtoId == null) {
+            throw new IllegalArgumentException("Produto é obrigatório");
+        }
+
+        Pedido pedido = new Pedido(new ItemMovimentacaoLoteDTO(produtoId, tipo, quantidade, motivo, depositoId));
+        BlockingQueue<Pedido> fila = filas.get(Math.floorMod(Long.hashCode(produtoId), filas.size()));
+        // Um único prazo para entrar na fila e ver o commit: a espera pela gravação leva só o que sobrou
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        try {
+            if (!fila.offer(pedido, esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new CargaSaturadaException("Fila de movimentações cheia", 1);
+            }
+            return pedido.resultado.get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            if (pedido.abandonar()) {
+                throw new IllegalStateException("Interrompido aguardando a gravação da movimentação", ex);
+            }
+            throw new ResultadoIncertoException("Interrompido com a movimentação já em gravação; confira o histórico do produto antes de repetir", ex);
+        } catch (TimeoutException ex) {
+            if (pedido.abandonar()) {
+                // Nenhuma escritora pegou o pedido, e agora nenhuma vai pegar: é seguro repetir
+                throw new CargaSaturadaException("Tempo esgotado aguardando a gravação; a movimentação não foi registrada", 1);
+            }
+            throw new ResultadoIncertoException("Tempo esgotado com a movimentação já em gravação; confira o histórico do produto antes de repetir", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void escrever(BlockingQueue<Pedido> fila) {
+        List<Pedido> lote = new ArrayList<>(tamanhoLote);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                lote.add(fila.take());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            fila.drainTo(lote, tamanhoLote - 1);
+            // Quem já desistiu recebeu uma resposta dizendo que nada foi gravado
+            lote.removeIf(pedido -> !pedido.reservar());
+            if (!lote.isEmpty()) {
+                gravar(lote);
+            }
+            lote.clear();
+        }
+    }
+
+    private void gravar(List<Pedido> lote) {
+        List<ItemMovimentacaoLoteDTO> itens = lote.stream().map(p -> p.item).collect(Collectors.toList());
+        List<MovimentacaoLoteService.Aplicacao> aplicacoes;
+        AtomicBoolean aplicado = new AtomicBoolean();
+        try {
+            aplicacoes = transactionTemplate.execute(status -> {
+                List<MovimentacaoLoteService.Aplicacao> resultado = loteService.aplicar(itens, MetricasEstoque.ORIGEM_UNITARIA);
+                aplicado.set(true);
+                return resultado;
+            });
+        } catch (RuntimeException ex) {
+            if (aplicado.get()) {
+                // aplicar termina com flush, então a falha veio do commit: o lote pode ter sido
+                // gravado, e refazê-lo duplicaria as movimentações
+                log.error("Falha no commit de um lote de {} movimentações; desfecho desconhecido", lote.size(), ex);
+                ResultadoIncertoException incerto = new ResultadoIncertoException(
+                        "Falha ao confirmar a gravação; confira o histórico do produto antes de repetir", ex);
+                lote.forEach(p -> p.resultado.completeExceptionally(incerto));
+                return;
+            }
+            // Um erro do banco antes do commit derruba o lote inteiro (a transação volta atrás);
+            // cada pedido é refeito sozinho pelo caminho comum, para que só o problemático falhe
+            log.warn("Falha ao gravar lote de {} movimentações; refazendo uma a uma", lote.size(), ex);
+            lote.forEach(this::gravarSozinho);
+            return;
+        }
+
+        tamanhos.record(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            MovimentacaoLoteService.Aplicacao aplicacao = aplicacoes.get(i);
+            CompletableFuture<MovimentacaoEstoqueDTO> resultado = lote.get(i).resultado;
+            if (aplicacao.movimentacao != null) {
+                resultado.complete(MovimentacaoLoteService.toDTO(aplicacao.movimentacao));
+            } else {
+                resultado.completeExceptionally(excecao(aplicacao));
+            }
+        }
+    }
+
+    private void gravarSozinho(Pedido pedido) {
+        ItemMovimentacaoLoteDTO item = pedido.item;
+        try {
+            MovimentacaoEstoqueDTO movimentacao;
+            if (item.getTipo() == TipoMovimentacao.ENTRADA) {
+                movimentacao = movimentacaoService.registrarEntrada(item.getProdutoId(), item.getDepositoId(), item.getQuantidade(), item.getMotivo());
+            } else if (item.getTipo() == TipoMovimentacao.SAIDA) {
+                movimentacao = movimentacaoService.registrarSaida(item.getProdutoId(), item.getDepositoId(), item.getQuantidade(), item.getMotivo());
+            } else {
+                movimentacao = movimentacaoService.registrarAjuste(item.getProdutoId(), item.getDepositoId(), item.getQuantidade(), item.getMotivo());
+            }
+            pedido.resultado.complete(movimentacao);
+        } catch (RuntimeException ex) {
+            pedido.resultado.completeExceptionally(ex);
+        }
+    }
+
+    // As mesmas exceções (e respostas HTTP) do caminho sem pipeline
+    private static RuntimeException excecao(MovimentacaoLoteService.Aplicacao aplicacao) {
+        switch (aplicacao.falha) {
+            case NAO_ENCONTRADO:
+                return new EntityNotFoundException(aplicacao.erro);
+            case INSUFICIENTE:
+                return new IllegalStateException(aplicacao.erro);
+            default:
+                return new IllegalArgumentException(aplicacao.erro);
+        }
+    }
+
+    private static final class Pedido {
+
+        private final ItemMovimentacaoLoteDTO item;
+        private final CompletableFuture<MovimentacaoEstoqueDTO> resultado = new CompletableFuture<>();
+        private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.PENDENTE);
+
+        private Pedido(ItemMovimentacaoLoteDTO item) {
+            this.item = item;
+        }
+
+        // A escritora e quem espera disputam o pedido: só um dos dois decide o seu destino
+        private boolean reservar() {
+            return estado.compareAndSet(Estado.PENDENTE, Estado.EM_GRAVACAO);
+        }
+
+        private boolean abandonar() {
+            return estado.compareAndSet(Estado.PENDENTE, Estado.ABANDONADO);
+        }
+    }
+
+    private enum Estado {
+        PENDENTE, EM_GRAVACAO, ABANDONADO
+    }
+}
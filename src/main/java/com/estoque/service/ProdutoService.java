@@ -1,49 +1,86 @@
 package com.estoque.service;
 
+import com.estoque.dto.EventoProdutoDTO;
+import com.estoque.dto.PaginaDTO;
 import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.SugestaoSkuDTO;
 import com.estoque.model.Categoria;
+import com.estoque.model.EstoqueDeposito;
 import com.estoque.model.Produto;
 import com.estoque.repository.CategoriaRepository;
+import com.estoque.repository.EstoqueDepositoRepository;
 import com.estoque.repository.ProdutoRepository;
 import javax.persistence.EntityNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "estoque.servico", histogram = true)
 public class ProdutoService {
 
+    static final int LIMITE_BUSCA = 100;
+    static final int LIMITE_SUGESTOES = 50;
+    static final String MOTIVO_AJUSTE_CADASTRO = "Quantidade alterada no cadastro do produto";
+
     private final ProdutoRepository produtoRepository;
     private final CategoriaRepository categoriaRepository;
+    private final IndiceBuscaProdutos indiceBusca;
+    private final IndiceSkus indiceSkus;
+    private final ConjuntoEstoqueBaixo estoqueBaixo;
+    private final ApplicationEventPublisher eventos;
+    private final CachesLeitura caches;
+    private final ResumosMovimentacao resumos;
+    private final AvaliacaoEstoqueMemoria avaliacao;
+    private final ArquivoMovimentacoes arquivo;
+    private final DepositoService depositos;
+    private final EstoqueDepositoRepository estoqueDepositoRepository;
+    private final MovimentacaoEstoqueService movimentacoes;
 
     @Transactional(readOnly = true)
-    public List<ProdutoDTO> listarTodos() {
-        return produtoRepository.findAll()
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<ProdutoDTO> listarTodos(String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        List<ProdutoDTO> resultado = produtoRepository.findPagina(aposId, Paginacao.consulta(limite));
+        return Paginacao.montar(resultado, limite, produto -> Paginacao.codificar(produto.getId()));
     }
 
     @Transactional(readOnly = true)
-    public List<ProdutoDTO> listarAtivos() {
-        return produtoRepository.findByAtivoTrue()
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<ProdutoDTO> listarAtivos(String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        List<ProdutoDTO> resultado = produtoRepository.findAtivos(aposId, Paginacao.consulta(limite));
+        return Paginacao.montar(resultado, limite, produto -> Paginacao.codificar(produto.getId()));
     }
 
+    @Cacheable(cacheNames = CachesLeitura.PRODUTO, key = "#id", sync = true)
     @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
     public ProdutoDTO buscarPorId(Long id) {
         Produto produto = produtoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + id));
         return toDTO(produto);
     }
 
+    @Cacheable(cacheNames = CachesLeitura.PRODUTO_SKU, key = "#sku", sync = true)
     @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
     public ProdutoDTO buscarPorSku(String sku) {
         Produto produto = produtoRepository.findBySku(sku)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com SKU: " + sku));
@@ -51,27 +88,67 @@ public class ProdutoService {
     }
 
     @Transactional(readOnly = true)
-    public List<ProdutoDTO> buscarPorCategoria(Long categoriaId) {
-        return produtoRepository.findByCategoriaId(categoriaId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<ProdutoDTO> buscarPorCategoria(Long categoriaId, String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        List<ProdutoDTO> resultado = produtoRepository.findByCategoriaId(categoriaId, aposId, Paginacao.consulta(limite));
+        return Paginacao.montar(resultado, limite, produto -> Paginacao.codificar(produto.getId()));
     }
 
     @Transactional(readOnly = true)
+    @Carga(TipoCarga.LEITURA)
     public List<ProdutoDTO> buscarPorTermo(String termo) {
-        return produtoRepository.buscarPorTermo(termo)
+        List<Long> ids = indiceBusca.buscar(termo, LIMITE_BUSCA);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ProdutoDTO> produtos = produtoRepository.findByIdIn(ids)
                 .stream()
-                .map(this::toDTO)
+                .collect(Collectors.toMap(ProdutoDTO::getId, Function.identity()));
+
+        return ids.stream()
+                .map(produtos::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    public List<SugestaoSkuDTO> sugerirSkus(String prefixo, int limite) {
+        if (prefixo == null || prefixo.isBlank()) {
+            throw new IllegalArgumentException("Informe o prefixo do SKU");
+        }
+        if (limite < 1 || limite > LIMITE_SUGESTOES) {
+            throw new IllegalArgumentException("O limite de sugestões deve estar entre 1 e " + LIMITE_SUGESTOES);
+        }
+
+        return indiceSkus.sugerir(prefixo.trim(), limite);
+    }
+
     @Transactional(readOnly = true)
-    public List<ProdutoDTO> listarProdutosComEstoqueBaixo() {
-        return produtoRepository.findProdutosComEstoqueBaixo()
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Carga(TipoCarga.LEITURA)
+    public PaginaDTO<ProdutoDTO> listarProdutosComEstoqueBaixo(String cursor, int limite) {
+        limite = Paginacao.validarLimite(limite);
+        Long aposId = cursor == null ? 0L : Paginacao.decodificarId(cursor);
+
+        // O conjunto pode estar um commit atrás; a linha lida do banco tem a palavra final, e as
+        // descartadas são repostas com os ids seguintes do conjunto até completar a página
+        List<ProdutoDTO> resultado = new ArrayList<>();
+        while (resultado.size() <= limite) {
+            List<Long> ids = estoqueBaixo.idsApos(aposId, limite + 1 - resultado.size());
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            produtoRepository.findByIdIn(ids)
+                    .stream()
+                    .filter(p -> Boolean.TRUE.equals(p.getAtivo()) && Boolean.TRUE.equals(p.getEstoqueBaixo()))
+                    .sorted(Comparator.comparing(ProdutoDTO::getId))
+                    .forEach(resultado::add);
+            aposId = ids.get(ids.size() - 1);
+        }
+        return Paginacao.montar(resultado, limite, produto -> Paginacao.codificar(produto.getId()));
     }
 
     @Transactional
@@ -84,50 +161,102 @@ public class ProdutoService {
         atualizarProduto(produto, dto);
 
         produto = produtoRepository.save(produto);
-        return toDTO(produto);
+        // O estoque inicial fica no depósito padrão; a linha existe mesmo zerada
+        estoqueDepositoRepository.save(new EstoqueDeposito(produto.getId(), depositos.resolver(null), produto.getQuantidadeEstoque()));
+        indiceBusca.indexar(produto.getId(), produto.getNome(), produto.getSku(), produto.getDescricao());
+        indiceSkus.adicionar(produto.getId(), produto.getSku());
+        estoqueBaixo.atualizar(produto);
+        avaliacao.atualizar(produto);
+        return publicar(toDTO(produto));
     }
 
+    // Com a linha bloqueada, como nas movimentações: o save grava todas as colunas, e uma leitura
+    // sem bloqueio devolveria ao banco uma quantidade_estoque anterior a um débito concorrente
     @Transactional
+    @Carga(TipoCarga.ESCRITA)
     public ProdutoDTO atualizar(Long id, ProdutoDTO dto) {
-        Produto produto = produtoRepository.findById(id)
+        Produto produto = produtoRepository.findByIdParaAtualizacao(id)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + id));
 
         if (dto.getSku() != null && !dto.getSku().equals(produto.getSku()) && produtoRepository.existsBySku(dto.getSku())) {
             throw new IllegalArgumentException("Já existe um produto com este SKU");
         }
 
+        String skuAnterior = produto.getSku();
+        if (dto.getQuantidadeEstoque() != null && !dto.getQuantidadeEstoque().equals(produto.getQuantidadeEstoque())) {
+            ajustarDepositoPadrao(produto.getId(), produto.getQuantidadeEstoque(), dto.getQuantidadeEstoque());
+        }
         atualizarProduto(produto, dto);
 
         produto = produtoRepository.save(produto);
-        return toDTO(produto);
+        indiceBusca.indexar(produto.getId(), produto.getNome(), produto.getSku(), produto.getDescricao());
+        if (!Objects.equals(skuAnterior, produto.getSku())) {
+            indiceSkus.remover(produto.getId(), skuAnterior);
+            indiceSkus.adicionar(produto.getId(), produto.getSku());
+        }
+        estoqueBaixo.atualizar(produto);
+        avaliacao.atualizar(produto);
+        caches.produtoAlterado(produto.getId(), skuAnterior, produto.getSku());
+        return publicar(toDTO(produto));
     }
 
     @Transactional
     public void deletar(Long id) {
-        Produto produto = produtoRepository.findById(id)
+        // Bloqueada desde já, como em atualizar: a versão do evento de exclusão sai depois da de
+        // qualquer movimentação que tenha sido confirmada antes
+        Produto produto = produtoRepository.findByIdParaAtualizacao(id)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + id));
 
         produtoRepository.delete(produto);
+        estoqueDepositoRepository.deleteByProdutoId(id);
+        indiceBusca.remover(id);
+        indiceSkus.remover(id, produto.getSku());
+        estoqueBaixo.remover(id);
+        avaliacao.remover(id);
+        resumos.produtoRemovido(id);
+        arquivo.produtoRemovido(id);
+        caches.produtoAlterado(id, produto.getSku());
+        eventos.publishEvent(new EventoProdutoDTO(id, null));
     }
 
     @Transactional
     public ProdutoDTO ativar(Long id) {
-        Produto produto = produtoRepository.findById(id)
+        Produto produto = produtoRepository.findByIdParaAtualizacao(id)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + id));
 
         produto.setAtivo(true);
         produto = produtoRepository.save(produto);
-        return toDTO(produto);
+        estoqueBaixo.atualizar(produto);
+        caches.produtoAlterado(produto.getId(), produto.getSku());
+        return publicar(toDTO(produto));
     }
 
     @Transactional
     public ProdutoDTO desativar(Long id) {
-        Produto produto = produtoRepository.findById(id)
+        Produto produto = produtoRepository.findByIdParaAtualizacao(id)
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado com id: " + id));
 
         produto.setAtivo(false);
         produto = produtoRepository.save(produto);
-        return toDTO(produto);
+        estoqueBaixo.atualizar(produto);
+        caches.produtoAlterado(produto.getId(), produto.getSku());
+        return publicar(toDTO(produto));
+    }
+
+    // Editar a quantidade pelo cadastro é um ajuste no depósito padrão, registrado como movimentação
+    // para que o histórico e os resumos reconstruam o saldo; os demais depósitos não mudam. Quem chama
+    // já bloqueou o produto, então a ordem é a das movimentações (produto, depois depósito) e
+    // quantidadeAnterior é o total vigente, que as saídas concorrentes não alteram até o commit
+    private void ajustarDepositoPadrao(Long produtoId, int quantidadeAnterior, int novaQuantidade) {
+        Long padrao = depositos.resolver(null);
+        int noPadrao = estoqueDepositoRepository.findParaAtualizacao(produtoId, padrao)
+                .map(EstoqueDeposito::getQuantidade)
+                .orElse(0);
+        int outrosDepositos = quantidadeAnterior - noPadrao;
+        if (novaQuantidade < outrosDepositos) {
+            throw new IllegalArgumentException("A quantidade não cobre o estoque dos outros depósitos. Mínimo: " + outrosDepositos);
+        }
+        movimentacoes.registrarAjuste(produtoId, padrao, novaQuantidade - outrosDepositos, MOTIVO_AJUSTE_CADASTRO);
     }
 
     private void atualizarProduto(Produto produto, ProdutoDTO dto) {
@@ -158,7 +287,14 @@ public class ProdutoService {
         }
     }
 
-    private ProdutoDTO toDTO(Produto produto) {
+    // Entregue aos assinantes de /api/eventos/estoque somente após o commit
+    private ProdutoDTO publicar(ProdutoDTO dto) {
+        eventos.publishEvent(new EventoProdutoDTO(dto.getId(), dto));
+        return dto;
+    }
+
+    // Estático e visível no pacote para o benchmark de mapeamento (src/jmh)
+    static ProdutoDTO toDTO(Produto produto) {
         ProdutoDTO dto = new ProdutoDTO();
         dto.setId(produto.getId());
         dto.setNome(produto.getNome());
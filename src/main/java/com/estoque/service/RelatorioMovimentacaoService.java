@@ -0,0 +1,116 @@
+package com.estoque.service;
+
+import com.estoque.dto.TotalMovimentacaoDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ResumoMovimentacaoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totais de movimentação por período. Os dias inteiros do intervalo vêm dos resumos diários;
+ * só as pontas que começam ou terminam no meio de um dia são somadas a partir do razão, então
+ * o custo acompanha o número de dias do intervalo e não o de movimentações.
+ */
+@Service
+@RequiredArgsConstructor
+public class RelatorioMovimentacaoService {
+
+    static final int LIMITE_DIAS_POR_HORA = 31;
+
+    public enum Granularidade {
+        HORA, DIA, SEMANA, MES
+    }
+
+    private final ResumoMovimentacaoRepository resumoRepository;
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final ArquivoMovimentacoes arquivo;
+
+    @Transactional(readOnly = true)
+    @Carga(TipoCarga.RELATORIO)
+    public List<TotalMovimentacaoDTO> totalizar(LocalDateTime inicio, LocalDateTime fim, Granularidade granularidade, Long produtoId) {
+        if (!fim.isAfter(inicio)) {
+            throw new IllegalArgumentException("A data final deve ser posterior à inicial");
+        }
+
+        if (granularidade == Granularidade.HORA) {
+            // Os resumos são diários: por hora, a soma é feita no banco sobre o razão, em intervalo limitado
+            if (Duration.between(inicio, fim).compareTo(Duration.ofDays(LIMITE_DIAS_POR_HORA)) > 0) {
+                throw new IllegalArgumentException("Relatórios por hora aceitam no máximo " + LIMITE_DIAS_POR_HORA + " dias");
+            }
+            arquivo.exigirRazaoCompleto(inicio, "Relatório por hora");
+            return agrupar(movimentacaoRepository.findTotaisPorHora(produtoId, inicio, fim), granularidade);
+        }
+
+        LocalDate primeiroDia = inicio.toLocalTime().equals(LocalTime.MIDNIGHT) ? inicio.toLocalDate() : inicio.toLocalDate().plusDays(1);
+        LocalDate ultimoDia = fim.toLocalDate();
+        List<TotalMovimentacaoDTO> totais = new ArrayList<>();
+
+        LocalDateTime fimCabeca = min(primeiroDia.atStartOfDay(), fim);
+        if (inicio.isBefore(fimCabeca)) {
+            arquivo.exigirRazaoCompleto(inicio, "Relatório a partir do meio de um dia");
+            totais.addAll(movimentacaoRepository.findTotaisEntre(produtoId, inicio, fimCabeca));
+        }
+        if (primeiroDia.isBefore(ultimoDia)) {
+            totais.addAll(resumoRepository.findTotaisPorDia(produtoId, primeiroDia, ultimoDia));
+        }
+        LocalDateTime inicioCauda = max(ultimoDia.atStartOfDay(), fimCabeca);
+        if (inicioCauda.isBefore(fim)) {
+            arquivo.exigirRazaoCompleto(inicioCauda, "Relatório até o meio de um dia");
+            totais.addAll(movimentacaoRepository.findTotaisEntre(produtoId, inicioCauda, fim));
+        }
+
+        return agrupar(totais, granularidade);
+    }
+
+    private List<TotalMovimentacaoDTO> agrupar(List<TotalMovimentacaoDTO> totais, Granularidade granularidade) {
+        Map<LocalDateTime, Map<TipoMovimentacao, TotalMovimentacaoDTO>> periodos = new TreeMap<>();
+        for (TotalMovimentacaoDTO total : totais) {
+            LocalDateTime periodo = inicioDoPeriodo(total.getInicio(), granularidade);
+            periodos.computeIfAbsent(periodo, p -> new EnumMap<>(TipoMovimentacao.class))
+                    .merge(total.getTipo(), new TotalMovimentacaoDTO(periodo, total.getTipo(), total.getQuantidade(), total.getMovimentacoes(), total.getSaldoLiquido()),
+                            (a, b) -> new TotalMovimentacaoDTO(periodo, a.getTipo(), a.getQuantidade() + b.getQuantidade(),
+                                    a.getMovimentacoes() + b.getMovimentacoes(), a.getSaldoLiquido() + b.getSaldoLiquido()));
+        }
+
+        List<TotalMovimentacaoDTO> resultado = new ArrayList<>();
+        periodos.values().forEach(porTipo -> resultado.addAll(porTipo.values()));
+        resultado.sort(Comparator.comparing(TotalMovimentacaoDTO::getInicio).thenComparing(TotalMovimentacaoDTO::getTipo));
+        return resultado;
+    }
+
+    private LocalDateTime inicioDoPeriodo(LocalDateTime data, Granularidade granularidade) {
+        switch (granularidade) {
+            case HORA:
+                return data.withMinute(0).withSecond(0).withNano(0);
+            case SEMANA:
+                return data.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case MES:
+                return data.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            default:
+                return data.toLocalDate().atStartOfDay();
+        }
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,17 @@
+package com.estoque.service;
+
+/**
+ * A operação pode ou não ter sido gravada (por exemplo, a conexão caiu durante o commit, ou a
+ * espera acabou com o pedido já em gravação). Respondida com 504: repetir às cegas pode aplicar
+ * a movimentação duas vezes, então o cliente deve conferir o histórico do produto antes.
+ */
+public class ResultadoIncertoException extends RuntimeException {
+
+    public ResultadoIncertoException(String message) {
+        super(message);
+    }
+
+    public ResultadoIncertoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,111 @@
+package com.estoque.service;
+
+import com.estoque.model.MovimentacaoEstoque;
+import com.estoque.model.ResumoMovimentacaoDiaria;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ResumoMovimentacaoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumos diários de movimentação (produto × dia × tipo) mantidos na mesma transação que grava
+ * as movimentações, para que relatórios de períodos longos leiam um total por dia em vez de
+ * cada linha do razão. Na subida, se a tabela estiver vazia, os resumos são gerados do razão.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResumosMovimentacao implements SmartInitializingSingleton {
+
+    private final ResumoMovimentacaoRepository resumoRepository;
+    private final MovimentacaoEstoqueRepository movimentacaoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ArquivoMovimentacoes arquivo;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (resumoRepository.count() > 0) {
+            return;
+        }
+        movimentacaoRepository.findPrimeiraData().ifPresent(primeira -> {
+            int resumos = reconstruirDias(primeira.toLocalDate(), LocalDate.now());
+            log.info("Resumos diários de movimentação gerados a partir de {}: {} linhas", primeira.toLocalDate(), resumos);
+        });
+    }
+
+    /**
+     * Soma as movimentações já persistidas (a data vem do @PrePersist) aos resumos do dia.
+     * Quem chama mantém a linha de cada produto bloqueada até o commit, então duas transações
+     * nunca disputam o mesmo resumo e o "UPDATE, senão INSERT" não corre risco de duplicar a chave.
+     */
+    public void registrar(List<MovimentacaoEstoque> movimentacoes) {
+        Map<Chave, long[]> totais = new LinkedHashMap<>();
+        for (MovimentacaoEstoque movimentacao : movimentacoes) {
+            Chave chave = new Chave(movimentacao.getProduto().getId(), movimentacao.getDataMovimentacao().toLocalDate(), movimentacao.getTipo());
+            long[] total = totais.computeIfAbsent(chave, c -> new long[3]);
+            total[0] += movimentacao.getQuantidade();
+            total[1]++;
+            total[2] += movimentacao.getQuantidadePosterior() - movimentacao.getQuantidadeAnterior();
+        }
+
+        totais.forEach((chave, total) -> {
+            if (resumoRepository.incrementar(chave.getProdutoId(), chave.getData(), chave.getTipo(), total[0], total[1], total[2]) == 0) {
+                resumoRepository.save(new ResumoMovimentacaoDiaria(null, chave.getProdutoId(), chave.getData(), chave.getTipo(), total[0], total[1], total[2]));
+            }
+        });
+    }
+
+    // As movimentações do produto saem em cascata; os resumos acompanham para os relatórios baterem com o razão
+    public void produtoRemovido(Long produtoId) {
+        resumoRepository.deleteByProdutoId(produtoId);
+    }
+
+    /**
+     * Regera os resumos dos dias informados (inclusive) a partir do razão, um dia por transação.
+     * O dia corrente continua recebendo movimentações e fica de fora.
+     */
+    public int reconstruir(LocalDate inicio, LocalDate fim) {
+        if (fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("A data final deve ser igual ou posterior à inicial");
+        }
+        if (!fim.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Apenas dias encerrados podem ser reconstruídos");
+        }
+        arquivo.exigirRazaoCompleto(inicio.atStartOfDay(), "Reconstrução de resumos");
+        return reconstruirDias(inicio, fim);
+    }
+
+    private int reconstruirDias(LocalDate inicio, LocalDate fim) {
+        int resumos = 0;
+        for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+            LocalDate data = dia;
+            resumos += transactionTemplate.execute(status -> reconstruirDia(data));
+        }
+        return resumos;
+    }
+
+    private int reconstruirDia(LocalDate dia) {
+        resumoRepository.deleteByData(dia);
+        List<ResumoMovimentacaoDiaria> resumos = movimentacaoRepository.findTotaisPorProdutoEntre(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+        resumos.forEach(resumo -> resumo.setData(dia));
+        resumoRepository.saveAll(resumos);
+        return resumos.size();
+    }
+
+    @Value
+    private static class Chave {
+        Long produtoId;
+        LocalDate data;
+        TipoMovimentacao tipo;
+    }
+}
@@ -0,0 +1,57 @@
+package com.estoque.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Mantém a sequência dos ids das movimentações à frente das linhas existentes. Os ids vinham de
+ * uma coluna IDENTITY; num banco que já tinha movimentações, o ddl-auto=update cria a sequência
+ * começando em 1 e os primeiros INSERTs colidiriam com ids em uso. Roda na partida, antes de o
+ * servidor aceitar requisições, e só mexe na sequência quando ela está atrás do maior id.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SequenciaMovimentacoes implements SmartInitializingSingleton {
+
+    static final String SEQUENCIA = "movimentacoes_estoque_seq";
+
+    // O mesmo allocationSize do mapeamento de MovimentacaoEstoque
+    static final int ALOCACAO = 50;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alinhar();
+    }
+
+    /**
+     * Avança a sequência para depois do maior id gravado, se for preciso, e diz se avançou.
+     */
+    boolean alinhar() {
+        JdbcTemplate template = jdbc.getJdbcTemplate();
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        long maior = template.queryForObject("SELECT COALESCE(MAX(id), 0) FROM movimentacoes_estoque", Long.class);
+        // Com o otimizador pooled, cada valor da sequência reserva os ALOCACAO ids que terminam nele;
+        // consumir um valor aqui só descarta um bloco
+        long atual = template.queryForObject(dialect.getSequenceNextValString(SEQUENCIA), Long.class);
+        if (atual >= maior) {
+            return false;
+        }
+        long reinicio = maior + ALOCACAO;
+        template.execute("ALTER SEQUENCE " + SEQUENCIA + " RESTART WITH " + reinicio);
+        log.warn("Sequência {} estava em {}, atrás do maior id das movimentações ({}); reiniciada em {}",
+                SEQUENCIA, atual, maior, reinicio);
+        return true;
+    }
+}
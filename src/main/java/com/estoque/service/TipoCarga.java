@@ -0,0 +1,17 @@
+package com.estoque.service;
+
+/**
+ * Classes de carga do banco, cada uma com pool de conexões e limite de concorrência próprios
+ * (ver {@link Carga}): uma consulta de relatório longa não tira conexões das saídas de estoque.
+ */
+public enum TipoCarga {
+
+    /** Movimentações e demais escritas; também tudo o que não é anotado. */
+    ESCRITA,
+
+    /** Leituras curtas: por id, SKU, produto e as listagens paginadas da interface. */
+    LEITURA,
+
+    /** Exportação, histórico e relatórios, que seguram a conexão por mais tempo. */
+    RELATORIO
+}
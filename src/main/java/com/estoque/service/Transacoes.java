@@ -0,0 +1,27 @@
+package com.estoque.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+final class Transacoes {
+
+    private Transacoes() {
+    }
+
+    /**
+     * Executa a ação após o commit da transação corrente, ou imediatamente se não houver
+     * transação. Usado para manter estruturas em memória sem adiantá-las ao banco.
+     */
+    static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+}
@@ -16,3 +16,8 @@ INSERT INTO produtos (nome, descricao, sku, preco, preco_custo, quantidade_estoq
 ('Cadeira Gamer', 'Cadeira ergonômica para escritório', 'CAD-GAM-001', 1200.00, 850.00, 5, 2, true, 3, NOW(), NOW()),
 ('Papel A4 500 folhas', 'Resma de papel A4', 'PAP-A4-001', 25.00, 18.00, 100, 20, true, 4, NOW(), NOW()),
 ('Caneta Esferográfica (cx 50)', 'Caixa com 50 canetas', 'CAN-ESF-001', 45.00, 30.00, 50, 15, true, 4, NOW(), NOW());
+
+-- Depósitos (o estoque acima fica no padrão, PRINCIPAL, atribuído na subida)
+INSERT INTO depositos (codigo, nome, criado_em) VALUES
+('PRINCIPAL', 'Depósito principal', NOW()),
+('LOJA', 'Estoque da loja', NOW());
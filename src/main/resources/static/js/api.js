@@ -1,9 +1,15 @@
 const API_BASE_URL = '/api';
 
+// Busca uma única página; o cursor da próxima vem em proximoCursor
+function listarPagina(url, cursor) {
+    const separador = url.includes('?') ? '&' : '?';
+    return fetch(cursor ? `${url}${separador}cursor=${encodeURIComponent(cursor)}` : url).then(res => res.json());
+}
+
 const api = {
     // Categorias
     categorias: {
-        listar: () => fetch(`${API_BASE_URL}/categorias`).then(res => res.json()),
+        listar: (cursor) => listarPagina(`${API_BASE_URL}/categorias?limite=100`, cursor),
         buscarPorId: (id) => fetch(`${API_BASE_URL}/categorias/${id}`).then(res => res.json()),
         criar: (data) => fetch(`${API_BASE_URL}/categorias`, {
             method: 'POST',
@@ -31,13 +37,13 @@ const api = {
 
     // Produtos
     produtos: {
-        listar: () => fetch(`${API_BASE_URL}/produtos`).then(res => res.json()),
-        listarAtivos: () => fetch(`${API_BASE_URL}/produtos/ativos`).then(res => res.json()),
+        listar: (cursor) => listarPagina(`${API_BASE_URL}/produtos?limite=100`, cursor),
+        listarAtivos: (cursor) => listarPagina(`${API_BASE_URL}/produtos/ativos?limite=100`, cursor),
         buscarPorId: (id) => fetch(`${API_BASE_URL}/produtos/${id}`).then(res => res.json()),
         buscarPorSku: (sku) => fetch(`${API_BASE_URL}/produtos/sku/${sku}`).then(res => res.json()),
-        buscarPorCategoria: (categoriaId) => fetch(`${API_BASE_URL}/produtos/categoria/${categoriaId}`).then(res => res.json()),
+        buscarPorCategoria: (categoriaId, cursor) => listarPagina(`${API_BASE_URL}/produtos/categoria/${categoriaId}?limite=100`, cursor),
         buscarPorTermo: (termo) => fetch(`${API_BASE_URL}/produtos/buscar?termo=${encodeURIComponent(termo)}`).then(res => res.json()),
-        listarEstoqueBaixo: () => fetch(`${API_BASE_URL}/produtos/estoque-baixo`).then(res => res.json()),
+        listarEstoqueBaixo: (cursor) => listarPagina(`${API_BASE_URL}/produtos/estoque-baixo?limite=100`, cursor),
         criar: (data) => fetch(`${API_BASE_URL}/produtos`, {
             method: 'POST',
             headers: { 'Content-Type': 'application/json' },
@@ -70,10 +76,10 @@ const api = {
 
     // Movimentações
     movimentacoes: {
-        listar: () => fetch(`${API_BASE_URL}/movimentacoes`).then(res => res.json()),
+        listar: (cursor) => listarPagina(`${API_BASE_URL}/movimentacoes?limite=100`, cursor),
         buscarPorId: (id) => fetch(`${API_BASE_URL}/movimentacoes/${id}`).then(res => res.json()),
-        listarPorProduto: (produtoId) => fetch(`${API_BASE_URL}/movimentacoes/produto/${produtoId}`).then(res => res.json()),
-        listarPorTipo: (tipo) => fetch(`${API_BASE_URL}/movimentacoes/tipo/${tipo}`).then(res => res.json()),
+        listarPorProduto: (produtoId, cursor) => listarPagina(`${API_BASE_URL}/movimentacoes/produto/${produtoId}?limite=100`, cursor),
+        listarPorTipo: (tipo, cursor) => listarPagina(`${API_BASE_URL}/movimentacoes/tipo/${tipo}?limite=100`, cursor),
         registrarEntrada: (produtoId, quantidade, motivo) => fetch(
             `${API_BASE_URL}/movimentacoes/entrada?produtoId=${produtoId}&quantidade=${quantidade}&motivo=${encodeURIComponent(motivo || '')}`,
             { method: 'POST' }
@@ -1,12 +1,22 @@
 // Estado da aplicação
 let produtos = [];
+let proximoCursorProdutos = null;
 let categorias = [];
+let proximoCursorCategorias = null;
 let movimentacoes = [];
+let proximoCursorMovimentacoes = null;
+let movimentacoesCarregadas = false;
+
+// Listagem filtrada de produtos (categoria ou estoque baixo), também lida uma página por vez
+let produtosFiltrados = null;
+let proximoCursorFiltro = null;
+let paginaFiltro = null;
 
 // Inicialização
 document.addEventListener('DOMContentLoaded', () => {
     configurarNavegacao();
     carregarDados();
+    assinarEventosEstoque();
 });
 
 // Navegação entre páginas
@@ -22,7 +32,7 @@ function configurarNavegacao() {
             document.querySelectorAll('.page').forEach(p => p.classList.remove('active'));
             document.getElementById(`${page}-page`).classList.add('active');
 
-            if (page === 'movimentacoes') {
+            if (page === 'movimentacoes' && !movimentacoesCarregadas) {
                 carregarMovimentacoes();
             }
         });
@@ -46,7 +56,23 @@ async function carregarDados() {
 
 async function carregarCategorias() {
     try {
-        categorias = await api.categorias.listar();
+        const pagina = await api.categorias.listar();
+        categorias = pagina.itens;
+        proximoCursorCategorias = pagina.proximoCursor;
+        renderizarCategorias();
+        atualizarSelectCategorias();
+    } catch (error) {
+        showToast('Erro ao carregar categorias', 'error');
+    }
+}
+
+async function carregarMaisCategorias() {
+    if (!proximoCursorCategorias) return;
+
+    try {
+        const pagina = await api.categorias.listar(proximoCursorCategorias);
+        categorias = categorias.concat(pagina.itens.filter(cat => !categorias.some(c => c.id === cat.id)));
+        proximoCursorCategorias = pagina.proximoCursor;
         renderizarCategorias();
         atualizarSelectCategorias();
     } catch (error) {
@@ -56,6 +82,8 @@ async function carregarCategorias() {
 
 function renderizarCategorias() {
     const tbody = document.querySelector('#tabela-categorias tbody');
+    document.getElementById('carregar-mais-categorias').style.display = proximoCursorCategorias ? '' : 'none';
+
     tbody.innerHTML = categorias.map(cat => `
         <tr>
             <td>${cat.nome}</td>
@@ -156,7 +184,9 @@ async function deletarCategoria(id) {
 
 async function carregarProdutos() {
     try {
-        produtos = await api.produtos.listar();
+        const pagina = await api.produtos.listar();
+        produtos = pagina.itens;
+        proximoCursorProdutos = pagina.proximoCursor;
         renderizarProdutos();
         atualizarSelectProdutos();
     } catch (error) {
@@ -164,8 +194,48 @@ async function carregarProdutos() {
     }
 }
 
+// Próxima página da listagem exibida: a geral ou a do filtro de categoria/estoque baixo
+async function carregarMaisProdutos() {
+    try {
+        if (produtosFiltrados) {
+            if (!proximoCursorFiltro) return;
+            const pagina = await paginaFiltro(proximoCursorFiltro);
+            produtosFiltrados = produtosFiltrados.concat(pagina.itens);
+            proximoCursorFiltro = pagina.proximoCursor;
+            renderizarProdutos(produtosFiltrados);
+        } else {
+            if (!proximoCursorProdutos) return;
+            const pagina = await api.produtos.listar(proximoCursorProdutos);
+            // Produtos criados depois da primeira página já podem ter chegado pelo stream de eventos
+            produtos = produtos.concat(pagina.itens.filter(prod => !produtos.some(p => p.id === prod.id)));
+            proximoCursorProdutos = pagina.proximoCursor;
+            renderizarProdutos();
+            atualizarSelectProdutos();
+        }
+    } catch (error) {
+        showToast('Erro ao carregar produtos', 'error');
+    }
+}
+
+async function filtrarProdutosPaginados(carregarPagina) {
+    const pagina = await carregarPagina();
+    paginaFiltro = carregarPagina;
+    produtosFiltrados = pagina.itens;
+    proximoCursorFiltro = pagina.proximoCursor;
+    renderizarProdutos(produtosFiltrados);
+}
+
+function limparFiltroPaginado() {
+    produtosFiltrados = null;
+    proximoCursorFiltro = null;
+    paginaFiltro = null;
+}
+
 function renderizarProdutos(lista = produtos) {
     const tbody = document.querySelector('#tabela-produtos tbody');
+    const temMais = lista === produtos ? proximoCursorProdutos : lista === produtosFiltrados && proximoCursorFiltro;
+    document.getElementById('carregar-mais-produtos').style.display = temMais ? '' : 'none';
+
     tbody.innerHTML = lista.map(prod => `
         <tr>
             <td>${prod.nome}</td>
@@ -263,15 +333,14 @@ async function salvarProduto(event) {
 
     try {
         if (id) {
-            await api.produtos.atualizar(id, data);
+            aplicarProduto(await api.produtos.atualizar(id, data));
             showToast('Produto atualizado com sucesso', 'success');
         } else {
-            await api.produtos.criar(data);
+            aplicarProduto(await api.produtos.criar(data));
             showToast('Produto criado com sucesso', 'success');
         }
 
         fecharModal('modal-produto');
-        await carregarProdutos();
     } catch (error) {
         showToast(error.message || 'Erro ao salvar produto', 'error');
     }
@@ -283,7 +352,7 @@ async function deletarProduto(id) {
     try {
         await api.produtos.deletar(id);
         showToast('Produto excluído com sucesso', 'success');
-        await carregarProdutos();
+        removerProduto(id);
     } catch (error) {
         showToast(error.message || 'Erro ao excluir produto', 'error');
     }
@@ -292,13 +361,12 @@ async function deletarProduto(id) {
 async function toggleAtivoProduto(id, ativo) {
     try {
         if (ativo) {
-            await api.produtos.desativar(id);
+            aplicarProduto(await api.produtos.desativar(id));
             showToast('Produto desativado', 'success');
         } else {
-            await api.produtos.ativar(id);
+            aplicarProduto(await api.produtos.ativar(id));
             showToast('Produto ativado', 'success');
         }
-        await carregarProdutos();
     } catch (error) {
         showToast(error.message || 'Erro ao alterar status', 'error');
     }
@@ -311,11 +379,13 @@ async function buscarProdutos() {
     if (termo.length >= 2) {
         try {
             const resultado = await api.produtos.buscarPorTermo(termo);
+            limparFiltroPaginado();
             renderizarProdutos(resultado);
         } catch (error) {
             console.error(error);
         }
     } else if (termo.length === 0) {
+        limparFiltroPaginado();
         renderizarProdutos();
     }
 }
@@ -325,12 +395,12 @@ async function filtrarPorCategoria() {
 
     if (categoriaId) {
         try {
-            const resultado = await api.produtos.buscarPorCategoria(categoriaId);
-            renderizarProdutos(resultado);
+            await filtrarProdutosPaginados(cursor => api.produtos.buscarPorCategoria(categoriaId, cursor));
         } catch (error) {
             console.error(error);
         }
     } else {
+        limparFiltroPaginado();
         renderizarProdutos();
     }
 }
@@ -340,12 +410,12 @@ async function filtrarEstoqueBaixo() {
 
     if (checked) {
         try {
-            const resultado = await api.produtos.listarEstoqueBaixo();
-            renderizarProdutos(resultado);
+            await filtrarProdutosPaginados(cursor => api.produtos.listarEstoqueBaixo(cursor));
         } catch (error) {
             console.error(error);
         }
     } else {
+        limparFiltroPaginado();
         renderizarProdutos();
     }
 }
@@ -354,7 +424,23 @@ async function filtrarEstoqueBaixo() {
 
 async function carregarMovimentacoes() {
     try {
-        movimentacoes = await api.movimentacoes.listar();
+        const pagina = await api.movimentacoes.listar();
+        movimentacoes = pagina.itens;
+        proximoCursorMovimentacoes = pagina.proximoCursor;
+        movimentacoesCarregadas = true;
+        renderizarMovimentacoes();
+    } catch (error) {
+        showToast('Erro ao carregar movimentações', 'error');
+    }
+}
+
+async function carregarMaisMovimentacoes() {
+    if (!proximoCursorMovimentacoes) return;
+
+    try {
+        const pagina = await api.movimentacoes.listar(proximoCursorMovimentacoes);
+        movimentacoes = movimentacoes.concat(pagina.itens);
+        proximoCursorMovimentacoes = pagina.proximoCursor;
         renderizarMovimentacoes();
     } catch (error) {
         showToast('Erro ao carregar movimentações', 'error');
@@ -363,6 +449,9 @@ async function carregarMovimentacoes() {
 
 function renderizarMovimentacoes(lista = movimentacoes) {
     const tbody = document.querySelector('#tabela-movimentacoes tbody');
+    document.getElementById('carregar-mais-movimentacoes').style.display =
+        lista === movimentacoes && proximoCursorMovimentacoes ? '' : 'none';
+
     tbody.innerHTML = lista.map(mov => {
         const tipoClass = {
             'ENTRADA': 'badge-success',
@@ -434,9 +523,8 @@ async function salvarMovimentacao(event) {
             showToast('Ajuste registrado com sucesso', 'success');
         }
 
+        // Saldos e a nova movimentação chegam pelo stream de eventos
         fecharModal('modal-movimentacao');
-        await carregarMovimentacoes();
-        await carregarProdutos();
     } catch (error) {
         showToast(error.message || 'Erro ao registrar movimentação', 'error');
     }
@@ -450,7 +538,7 @@ async function filtrarMovimentacoes() {
 
     if (produtoId) {
         try {
-            resultado = await api.movimentacoes.listarPorProduto(produtoId);
+            resultado = (await api.movimentacoes.listarPorProduto(produtoId)).itens;
         } catch (error) {
             console.error(error);
             return;
@@ -460,7 +548,7 @@ async function filtrarMovimentacoes() {
     if (tipo) {
         if (!produtoId) {
             try {
-                resultado = await api.movimentacoes.listarPorTipo(tipo);
+                resultado = (await api.movimentacoes.listarPorTipo(tipo)).itens;
             } catch (error) {
                 console.error(error);
                 return;
@@ -473,6 +561,106 @@ async function filtrarMovimentacoes() {
     renderizarMovimentacoes(resultado);
 }
 
+// === EVENTOS EM TEMPO REAL ===
+
+// Aplica os deltas publicados pelo servidor após cada commit, em vez de recarregar as listas
+function assinarEventosEstoque() {
+    const fonte = new EventSource(`${API_BASE_URL}/eventos/estoque`);
+    let desconectado = false;
+
+    // Commits de um mesmo produto podem ser entregues fora de ordem: vale o de maior versão
+    const versoes = new Map();
+    const maisNovo = (produtoId, versao) => {
+        if (versao == null) return true;
+        if (versoes.has(produtoId) && versoes.get(produtoId) >= versao) return false;
+        versoes.set(produtoId, versao);
+        return true;
+    };
+
+    fonte.addEventListener('estoque', (e) => {
+        const evento = JSON.parse(e.data);
+
+        evento.produtos.forEach(delta => {
+            if (!maisNovo(delta.produtoId, evento.versao)) return;
+            const produto = produtos.find(p => p.id === delta.produtoId);
+            if (produto) {
+                produto.quantidadeEstoque = delta.quantidadeEstoque;
+                produto.estoqueBaixo = delta.estoqueBaixo;
+            }
+        });
+        atualizarVisaoProdutos();
+
+        if (movimentacoesCarregadas && evento.movimentacoes.length > 0) {
+            const novas = evento.movimentacoes
+                .filter(mov => !movimentacoes.some(m => m.id === mov.id))
+                .reverse();
+            movimentacoes = novas.concat(movimentacoes);
+            if (!filtrosMovimentacoesAtivos()) {
+                renderizarMovimentacoes();
+            }
+        }
+    });
+
+    fonte.addEventListener('produto', (e) => {
+        const evento = JSON.parse(e.data);
+        if (!maisNovo(evento.produtoId, evento.versao)) return;
+        if (evento.produto) {
+            aplicarProduto(evento.produto);
+        } else {
+            removerProduto(evento.produtoId);
+        }
+    });
+
+    // O navegador reconecta sozinho; eventos perdidos no intervalo exigem recarregar o estado
+    fonte.addEventListener('error', () => {
+        desconectado = true;
+    });
+
+    fonte.addEventListener('open', () => {
+        if (!desconectado) return;
+        desconectado = false;
+        versoes.clear();
+        carregarProdutos();
+        if (movimentacoesCarregadas) {
+            carregarMovimentacoes();
+        }
+    });
+}
+
+function aplicarProduto(produto) {
+    const indice = produtos.findIndex(p => p.id === produto.id);
+    if (indice >= 0) {
+        produtos[indice] = produto;
+    } else {
+        produtos.push(produto);
+        produtos.sort((a, b) => a.id - b.id);
+    }
+    atualizarVisaoProdutos();
+}
+
+function removerProduto(id) {
+    produtos = produtos.filter(p => p.id !== id);
+    atualizarVisaoProdutos();
+}
+
+function atualizarVisaoProdutos() {
+    if (!filtrosProdutosAtivos()) {
+        renderizarProdutos();
+    }
+    atualizarSelectProdutos();
+}
+
+function filtrosProdutosAtivos() {
+    return document.getElementById('busca-produto').value.length > 0
+        || document.getElementById('filtro-categoria').value !== ''
+        || document.getElementById('filtro-estoque-baixo').checked;
+}
+
+function filtrosMovimentacoesAtivos() {
+    return document.getElementById('filtro-produto-mov').value !== ''
+        || document.getElementById('filtro-tipo-mov').value !== '';
+}
+
 // === UTILITÁRIOS ===
 
 function fecharModal(modalId) {
@@ -0,0 +1,58 @@
+package com.estoque.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdmissaoConexoesTest {
+
+    @Test
+    @DisplayName("Deve limitar as conexões em uso e devolver a permissão uma única vez ao fechar")
+    void deveLimitarConexoesEmUso() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        Connection conexao = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(conexao);
+        DataSource dataSource = new AdmissaoConexoes(2, 50).envolver(pool);
+
+        Connection primeira = dataSource.getConnection();
+        Connection segunda = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        primeira.close();
+        primeira.close();
+        Connection terceira = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        verify(conexao, times(2)).close();
+        segunda.close();
+        terceira.close();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a permissão quando o pool falha ao abrir a conexão")
+    void deveDevolverPermissaoQuandoPoolFalha() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLException("Banco fora do ar")).thenReturn(mock(Connection.class));
+        DataSource dataSource = new AdmissaoConexoes(1, 50).envolver(pool);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    @DisplayName("Deve exigir Java 21 para o modo de threads virtuais")
+    void deveExigirJava21ParaThreadsVirtuais() {
+        if (Runtime.version().feature() >= 21) {
+            ThreadsVirtuaisConfig.threadsVirtuais().shutdown();
+        } else {
+            assertThrows(IllegalStateException.class, ThreadsVirtuaisConfig::threadsVirtuais);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.estoque.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheComGeracoesTest {
+
+    // Sem bloqueio por chave: a remoção feita durante a carga não espera, como a limpeza no Caffeine
+    private final Cache cache = new CacheComGeracoes(new ConcurrentMapCache("teste", false) {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper valor = get(key);
+            if (valor != null) {
+                return (T) valor.get();
+            }
+            try {
+                T carregado = valueLoader.call();
+                put(key, carregado);
+                return carregado;
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+        }
+    });
+
+    @Test
+    @DisplayName("Deve guardar o valor carregado")
+    void deveGuardarValorCarregado() {
+        assertEquals("atual", cache.get(1L, () -> "atual"));
+
+        assertEquals("atual", cache.get(1L).get());
+    }
+
+    @Test
+    @DisplayName("Não deve manter o valor carregado antes de uma remoção da mesma chave")
+    void naoDeveManterValorAnteriorARemocao() {
+        // A carga lê a linha antiga, a alteração confirma e remove, a carga termina e guarda
+        assertEquals("antigo", cache.get(1L, () -> {
+            cache.evict(1L);
+            return "antigo";
+        }));
+
+        assertNull(cache.get(1L));
+        assertEquals("atual", cache.get(1L, () -> "atual"));
+        assertEquals("atual", cache.get(1L).get());
+    }
+
+    @Test
+    @DisplayName("Não deve manter o valor carregado antes de uma limpeza")
+    void naoDeveManterValorAnteriorALimpeza() {
+        cache.get("sku", () -> {
+            cache.clear();
+            return "antigo";
+        });
+
+        assertNull(cache.get("sku"));
+    }
+
+    @Test
+    @DisplayName("Remoção de outra chave não deve descartar a carga")
+    void remocaoDeOutraChaveNaoDeveDescartarCarga() {
+        cache.get(1L, () -> {
+            cache.evict(2L);
+            return "atual";
+        });
+
+        assertEquals("atual", cache.get(1L).get());
+    }
+
+    @Test
+    @DisplayName("Carga que falha não deve deixar estado para a próxima")
+    void cargaQueFalhaNaoDeveDeixarEstado() {
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get(1L, () -> {
+            throw new IllegalStateException("não encontrado");
+        }));
+
+        assertNull(cache.get(1L));
+        assertEquals("atual", cache.get(1L, () -> "atual"));
+        assertEquals("atual", cache.get(1L).get());
+    }
+}
@@ -0,0 +1,135 @@
+package com.estoque.config;
+
+import com.estoque.service.CargaSaturadaException;
+import com.estoque.service.TipoCarga;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PoolsPorCargaTest {
+
+    @Test
+    @DisplayName("Deve entregar as conexões do pool da classe corrente e do principal fora de chamadas anotadas")
+    void deveRotearConexoesPorClasse() throws Throwable {
+        DataSource principal = mock(DataSource.class);
+        DataSource relatorio = mock(DataSource.class);
+        Connection conexaoPrincipal = mock(Connection.class);
+        Connection conexaoRelatorio = mock(Connection.class);
+        when(principal.getConnection()).thenReturn(conexaoPrincipal);
+        when(relatorio.getConnection()).thenReturn(conexaoRelatorio);
+        PoolsPorCarga pools = new PoolsPorCarga(limites(1, 0, 0), Map.of(TipoCarga.RELATORIO, relatorio));
+        DataSource dataSource = pools.rotear(principal);
+
+        assertSame(conexaoPrincipal, dataSource.getConnection());
+        assertSame(conexaoRelatorio, pools.executar(TipoCarga.RELATORIO, dataSource::getConnection));
+        assertSame(conexaoPrincipal, pools.executar(TipoCarga.LEITURA, dataSource::getConnection));
+        // Aninhada: segue na classe de fora, sem disputar outra vaga
+        assertSame(conexaoRelatorio, pools.executar(TipoCarga.RELATORIO,
+                () -> pools.executar(TipoCarga.LEITURA, dataSource::getConnection)));
+    }
+
+    @Test
+    @DisplayName("Deve recusar na hora quando a classe está saturada e a fila cheia")
+    void deveRecusarQuandoSaturada() throws Throwable {
+        PoolsPorCarga pools = new PoolsPorCarga(limites(1, 0, 0), Map.of());
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> ocupante = CompletableFuture.supplyAsync(() -> executar(pools, () -> {
+            emExecucao.countDown();
+            return liberar.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(emExecucao.await(5, TimeUnit.SECONDS));
+
+        CargaSaturadaException recusa = assertThrows(CargaSaturadaException.class, () -> pools.executar(TipoCarga.RELATORIO, () -> "relatório"));
+        assertEquals(7, recusa.getRetryAfterSegundos());
+        assertEquals("escrita", pools.executar(TipoCarga.ESCRITA, () -> "escrita"));
+
+        liberar.countDown();
+        assertEquals(true, ocupante.get(5, TimeUnit.SECONDS));
+        assertEquals("relatório", pools.executar(TipoCarga.RELATORIO, () -> "relatório"));
+    }
+
+    @Test
+    @DisplayName("Deve esperar vaga na fila até o limite de tempo")
+    void deveEsperarVagaNaFila() throws Throwable {
+        PoolsPorCarga pools = new PoolsPorCarga(limites(1, 1, 50), Map.of());
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> ocupante = CompletableFuture.supplyAsync(() -> executar(pools, () -> {
+            emExecucao.countDown();
+            return liberar.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(emExecucao.await(5, TimeUnit.SECONDS));
+
+        long inicio = System.nanoTime();
+        assertThrows(CargaSaturadaException.class, () -> pools.executar(TipoCarga.RELATORIO, () -> "relatório"));
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        liberar.countDown();
+        ocupante.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Os pools das classes devem herdar a configuração do pool principal")
+    void deveHerdarConfiguracaoDoPrincipal() {
+        MockEnvironment ambiente = new MockEnvironment()
+                .withProperty("spring.datasource.url", "jdbc:h2:mem:herdado")
+                .withProperty("spring.datasource.username", "sa")
+                .withProperty("spring.datasource.hikari.connection-timeout", "1500")
+                .withProperty("spring.datasource.hikari.data-source-properties.reWriteBatchedInserts", "true");
+
+        HikariConfig principal = CargasConfig.configuracaoPrincipal(ambiente);
+        HikariConfig relatorio = new HikariConfig();
+        principal.copyStateTo(relatorio);
+
+        assertEquals("jdbc:h2:mem:herdado", relatorio.getJdbcUrl());
+        assertEquals("sa", relatorio.getUsername());
+        assertEquals(1500, relatorio.getConnectionTimeout());
+        assertEquals("true", relatorio.getDataSourceProperties().getProperty("reWriteBatchedInserts"));
+    }
+
+    @Test
+    @DisplayName("A admissão de conexões à frente do roteador deve contar as conexões dos pools das classes")
+    void admissaoDeveContarConexoesDasClasses() throws Throwable {
+        DataSource principal = mock(DataSource.class);
+        DataSource relatorio = mock(DataSource.class);
+        when(principal.getConnection()).thenReturn(mock(Connection.class));
+        when(relatorio.getConnection()).thenReturn(mock(Connection.class));
+        PoolsPorCarga pools = new PoolsPorCarga(limites(1, 0, 0), Map.of(TipoCarga.RELATORIO, relatorio));
+        DataSource dataSource = new AdmissaoConexoes(1, 0).envolver(pools.rotear(principal));
+
+        Connection conexao = (Connection) pools.executar(TipoCarga.RELATORIO, dataSource::getConnection);
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        conexao.close();
+        assertNotNull(dataSource.getConnection());
+    }
+
+    private static Object executar(PoolsPorCarga pools, PoolsPorCarga.Chamada chamada) {
+        try {
+            return pools.executar(TipoCarga.RELATORIO, chamada);
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Map<TipoCarga, PoolsPorCarga.Limites> limites(int concorrenciaRelatorio, int filaRelatorio, long esperaRelatorioMs) {
+        Map<TipoCarga, PoolsPorCarga.Limites> limites = new EnumMap<>(TipoCarga.class);
+        limites.put(TipoCarga.ESCRITA, new PoolsPorCarga.Limites(10, 100, 1_000, 1));
+        limites.put(TipoCarga.LEITURA, new PoolsPorCarga.Limites(10, 100, 1_000, 1));
+        limites.put(TipoCarga.RELATORIO, new PoolsPorCarga.Limites(concorrenciaRelatorio, filaRelatorio, esperaRelatorioMs, 7));
+        return limites;
+    }
+}
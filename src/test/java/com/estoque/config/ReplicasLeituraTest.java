@@ -0,0 +1,109 @@
+package com.estoque.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicasLeituraTest {
+
+    private ReplicasLeitura replicas;
+
+    @AfterEach
+    void encerrar() throws IOException {
+        replicas.close();
+    }
+
+    @Test
+    @DisplayName("Deve levar transações readOnly às réplicas em rodízio e as demais à primária")
+    void deveRotearLeiturasEmRodizio() {
+        replicas = new ReplicasLeitura(replicas("replica-a", "replica-b"), "", 0, 0, ReplicasLeitura.Politica.LER_PROPRIAS_ESCRITAS, 5_000);
+        DataSource dataSource = replicas.rotear(banco("primaria"));
+
+        assertEquals("primaria", origem(dataSource, false));
+        assertEquals("replica-a", origem(dataSource, true));
+        assertEquals("replica-b", origem(dataSource, true));
+        assertEquals("replica-a", origem(dataSource, true));
+
+        replicas.fixarPrimaria();
+        assertEquals("primaria", origem(dataSource, true));
+        replicas.liberarPrimaria();
+        assertEquals("replica-b", origem(dataSource, true));
+    }
+
+    @Test
+    @DisplayName("Deve tirar do rodízio a réplica fora do ar ou atrasada e voltar à primária sem nenhuma")
+    void deveTirarReplicaForaDoRodizio() {
+        Map<String, DataSource> bancos = replicas("replica-a");
+        bancos.put("fora-do-ar", new JdbcDataSource());
+        replicas = new ReplicasLeitura(bancos, "", 0, 0, ReplicasLeitura.Politica.LER_PROPRIAS_ESCRITAS, 5_000);
+        DataSource dataSource = replicas.rotear(banco("primaria"));
+
+        assertEquals("replica-a", origem(dataSource, true));
+        assertEquals("replica-a", origem(dataSource, true));
+
+        // Atraso medido de 10 ms com máximo de 5 ms: ninguém sobra no rodízio
+        replicas = new ReplicasLeitura(replicas("replica-a"), "SELECT 10", 5, 0, ReplicasLeitura.Politica.LER_PROPRIAS_ESCRITAS, 5_000);
+        assertEquals("primaria", origem(replicas.rotear(banco("primaria")), true));
+    }
+
+    @Test
+    @DisplayName("Deve exigir a primária só dentro da janela após a escrita e conforme a política")
+    void deveAplicarPoliticaDeLeitura() {
+        replicas = new ReplicasLeitura(replicas("replica-a"), "", 0, 0, ReplicasLeitura.Politica.LER_PROPRIAS_ESCRITAS, 5_000);
+        assertTrue(replicas.exigePrimaria(System.currentTimeMillis() - 1_000));
+        assertFalse(replicas.exigePrimaria(System.currentTimeMillis() - 6_000));
+
+        replicas = new ReplicasLeitura(replicas("replica-a"), "", 0, 0, ReplicasLeitura.Politica.SEMPRE_REPLICA, 5_000);
+        assertFalse(replicas.exigePrimaria(System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("Deve rotear só o DataSource da aplicação")
+    void deveRotearSoDataSourceDaAplicacao() {
+        replicas = new ReplicasLeitura(replicas("replica-a"), "", 0, 0, ReplicasLeitura.Politica.LER_PROPRIAS_ESCRITAS, 5_000);
+        ReplicasLeituraConfig.RoteamentoPostProcessor roteamento = new ReplicasLeituraConfig.RoteamentoPostProcessor(replicas, "dataSource");
+        DataSource outroBanco = banco("outro");
+
+        assertSame(outroBanco, roteamento.postProcessAfterInitialization(outroBanco, "outroDataSource"));
+        DataSource dataSource = (DataSource) roteamento.postProcessAfterInitialization(banco("primaria"), "dataSource");
+        assertEquals("replica-a", origem(dataSource, true));
+    }
+
+    private static Map<String, DataSource> replicas(String... nomes) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String nome : nomes) {
+            replicas.put(nome, banco(nome));
+        }
+        return replicas;
+    }
+
+    // Cada banco em memória sabe o próprio nome
+    private static DataSource banco(String nome) {
+        JdbcDataSource banco = new JdbcDataSource();
+        banco.setURL("jdbc:h2:mem:replicas-" + nome + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(banco);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS origem (nome VARCHAR(20))");
+        jdbc.execute("DELETE FROM origem");
+        jdbc.update("INSERT INTO origem VALUES (?)", nome);
+        return banco;
+    }
+
+    private static String origem(DataSource dataSource, boolean somenteLeitura) {
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transacao.setReadOnly(somenteLeitura);
+        List<String> nomes = transacao.execute(status -> new JdbcTemplate(dataSource).queryForList("SELECT nome FROM origem", String.class));
+        return nomes.get(0);
+    }
+}
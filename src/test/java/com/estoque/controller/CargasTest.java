@@ -0,0 +1,136 @@
+package com.estoque.controller;
+
+import com.estoque.config.PoolsPorCarga;
+import com.estoque.service.TipoCarga;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:cargas-teste",
+        "estoque.cargas.relatorio.concorrencia=1",
+        "estoque.cargas.relatorio.espera-ms=200"
+})
+@AutoConfigureMockMvc
+class CargasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PoolsPorCarga pools;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    @DisplayName("Deve recusar relatórios com 503 e Retry-After quando saturados sem afetar saídas e listagens")
+    void deveRecusarRelatoriosSaturados() throws Exception {
+        mockMvc.perform(get("/api/relatorios/valor-estoque")).andExpect(status().isOk());
+
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Void> relatorioLongo = CompletableFuture.runAsync(() -> {
+            try {
+                pools.executar(TipoCarga.RELATORIO, () -> {
+                    emExecucao.countDown();
+                    return liberar.await(10, TimeUnit.SECONDS);
+                });
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertTrue(emExecucao.await(5, TimeUnit.SECONDS));
+
+        try {
+            // Espera a vaga na fila e desiste depois de espera-ms
+            mockMvc.perform(get("/api/relatorios/valor-estoque"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"));
+
+            // As listagens paginadas da interface são leituras e não disputam a vaga dos relatórios
+            mockMvc.perform(get("/api/movimentacoes")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/movimentacoes/periodo?inicio=2000-01-01T00:00:00&fim=2100-01-01T00:00:00"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/api/movimentacoes/saida?produtoId=1&quantidade=1")).andExpect(status().isCreated());
+            mockMvc.perform(get("/api/movimentacoes/produto/1")).andExpect(status().isOk());
+        } finally {
+            liberar.countDown();
+            relatorioLongo.get(5, TimeUnit.SECONDS);
+        }
+
+        mockMvc.perform(get("/api/relatorios/valor-estoque")).andExpect(status().isOk());
+        assertEquals(1, registry.get("estoque.carga.rejeitadas").tag("classe", "RELATORIO").functionCounter().count());
+        assertTrue(registry.get("estoque.carga.espera").tag("classe", "RELATORIO").timer().count() >= 2);
+        assertTrue(registry.get("estoque.carga.espera").tag("classe", "ESCRITA").timer().count() >= 1);
+    }
+
+    @Test
+    @DisplayName("Relatório na fila deve ser atendido quando a vaga abre dentro da espera")
+    void relatorioNaFilaDeveSerAtendido() throws Exception {
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> relatorioCurto = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pools.executar(TipoCarga.RELATORIO, () -> {
+                    emExecucao.countDown();
+                    return liberar.await(5, TimeUnit.SECONDS);
+                });
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertTrue(emExecucao.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> naFila = CompletableFuture.supplyAsync(() -> {
+            try {
+                return mockMvc.perform(get("/api/relatorios/valor-estoque")).andReturn().getResponse().getStatus();
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        // A vaga abre só depois que o relatório entrou na fila
+        while (registry.get("estoque.carga.aguardando").tag("classe", "RELATORIO").gauge().value() < 1) {
+            assertFalse(naFila.isDone(), "O relatório deveria aguardar vaga");
+            Thread.onSpinWait();
+        }
+        liberar.countDown();
+
+        assertEquals(200, naFila.get(5, TimeUnit.SECONDS));
+        assertEquals(true, relatorioCurto.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Exportação deve liberar a vaga de relatório e expor as métricas do pool da classe")
+    void exportacaoDeveLiberarVaga() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/movimentacoes/export?formato=CSV&produtoId=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("id,produtoId,")));
+
+        assertEquals(0, registry.get("estoque.carga.em-execucao").tag("classe", "RELATORIO").gauge().value());
+        assertNotNull(registry.find("hikaricp.connections.active").tag("pool", "carga-relatorio").gauge());
+    }
+}
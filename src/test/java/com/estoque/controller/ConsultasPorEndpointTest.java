@@ -0,0 +1,142 @@
+package com.estoque.controller;
+
+import com.estoque.repository.ArquivoMovimentacaoRepository;
+import com.estoque.service.ArquivoMovimentacoes;
+import com.estoque.service.MovimentacaoEstoqueService;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.listener.ChainListener;
+import net.ttddyy.dsproxy.listener.DataSourceQueryCountListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Banco próprio: o arquivamento alteraria o razão visto pelos demais testes do contexto compartilhado
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:consultas-por-endpoint",
+        "estoque.arquivo-frio.diretorio=target/arquivo-frio-teste/${random.uuid}"
+})
+@AutoConfigureMockMvc
+class ConsultasPorEndpointTest {
+
+    private static boolean carregado;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private ArquivoMovimentacoes arquivo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final DataSourceQueryCountListener contador = new DataSourceQueryCountListener();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(nome -> cacheManager.getCache(nome).clear());
+        if (!carregado) {
+            carregar();
+            carregado = true;
+        }
+        // No proxy do DataSource da aplicação: conta o que passa pelo Hibernate, pelo JdbcTemplate e pelos pools das classes
+        comandos().addListener(contador);
+    }
+
+    @AfterEach
+    void tearDown() {
+        comandos().getListeners().remove(contador);
+    }
+
+    // Um mês em disco (2020-01), movimentações na tabela de arquivo e outras tantas na principal
+    private void carregar() {
+        List<Object[]> linhas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            linhas.add(new Object[]{9_000_000L + i, 1L, i % 2 == 0 ? "ENTRADA" : "SAIDA", 1, i, i + 1, "Carga de teste",
+                    LocalDateTime.of(2020, 1, 10 + i, 12, 0)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + ArquivoMovimentacaoRepository.TABELA + " (id, produto_id, tipo, quantidade, "
+                + "quantidade_anterior, quantidade_posterior, motivo, data_movimentacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", linhas);
+
+        registrarMovimentacoes();
+        // Logo depois da última movimentação gravada do primeiro lote (o arquivamento leva as anteriores ao corte)
+        LocalDateTime corte = movimentacaoService.listarPorProduto(5L, null, 1).getItens().get(0).getDataMovimentacao()
+                .plus(1, ChronoUnit.MICROS);
+        registrarMovimentacoes();
+
+        arquivo.arquivarAntesDe(corte);
+        assertEquals(1, arquivo.exportarAntesDe(YearMonth.of(2020, 2)));
+    }
+
+    private void registrarMovimentacoes() {
+        for (long produtoId = 1; produtoId <= 7; produtoId++) {
+            movimentacaoService.registrarEntrada(produtoId, 5, "Carga de teste");
+            movimentacaoService.registrarSaida(produtoId, 1, "Carga de teste");
+        }
+        movimentacaoService.registrarAjuste(5L, 1, "Carga de teste");
+    }
+
+    private ChainListener comandos() {
+        return assertInstanceOf(ProxyDataSource.class, dataSource).getProxyConfig().getQueryListener();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+            "/api/produtos, 1",
+            "/api/produtos/ativos, 1",
+            "/api/produtos/categoria/2, 1",
+            "/api/produtos/buscar?termo=o, 1",
+            "/api/produtos/estoque-baixo, 1",
+            "/api/categorias, 1",
+            // Página coberta pela tabela principal
+            "/api/movimentacoes?limite=5, 1",
+            "/api/movimentacoes/tipo/SAIDA?limite=3, 1",
+            "/api/movimentacoes/produto/1?limite=1, 1",
+            "/api/movimentacoes/periodo?inicio=2000-01-01T00:00:00&fim=2100-01-01T00:00:00&limite=5, 1",
+            // Continua na tabela de arquivo: uma consulta a mais
+            "/api/movimentacoes/periodo?inicio=2021-01-01T00:00:00&fim=2100-01-01T00:00:00, 2",
+            // E no mês em disco: mais uma, para os nomes dos produtos
+            "/api/movimentacoes, 3",
+            "/api/movimentacoes/tipo/SAIDA, 3",
+            "/api/movimentacoes/periodo?inicio=2000-01-01T00:00:00&fim=2100-01-01T00:00:00, 3",
+            "/api/movimentacoes/produto/1, 3"
+    })
+    @DisplayName("Listagens devem executar um número fixo de comandos, sem carregamento lazy por linha")
+    void listagemDeveExecutarComandosFixos(String url, int esperados) throws Exception {
+        QueryCountHolder.clear();
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        assertEquals(esperados, QueryCountHolder.getGrandTotal().getTotal(), "Comandos executados por " + url);
+    }
+}
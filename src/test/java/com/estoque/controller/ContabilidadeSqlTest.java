@@ -0,0 +1,86 @@
+package com.estoque.controller;
+
+import com.estoque.config.ContabilidadeSql;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:contabilidade-sql-teste"
+})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class ContabilidadeSqlTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ContabilidadeSql contabilidade;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void restaurar() {
+        contabilidade.configurar(true, 200L, false);
+    }
+
+    @Test
+    @DisplayName("Deve devolver a quantidade e o tempo de SQL da requisição nos cabeçalhos e nas métricas")
+    void deveContarComandosDaRequisicao() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/produtos/ativos"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-SQL-Count", "1"))
+                .andReturn();
+        assertTrue(Double.parseDouble(resultado.getResponse().getHeader("X-SQL-Time")) > 0);
+
+        mockMvc.perform(get("/api/produtos/999999"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("X-SQL-Count", "1"));
+
+        assertTrue(registry.get("estoque.requisicao.sql.comandos").tag("rota", "/api/produtos/ativos").summary().count() >= 1);
+    }
+
+    @Test
+    @DisplayName("Deve registrar comandos lentos com o método do controller e os parâmetros")
+    void deveRegistrarComandosLentos(CapturedOutput saida) throws Exception {
+        mockMvc.perform(post("/actuator/sql").contentType(MediaType.APPLICATION_JSON).content("{\"limiteLentoMs\": 0}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/produtos/sku/NOT-DELL-001")).andExpect(status().isOk());
+
+        assertTrue(saida.getOut().contains("SQL lento"));
+        assertTrue(saida.getOut().contains("ProdutoController.buscarPorSku"));
+        assertTrue(saida.getOut().contains("NOT-DELL-001"));
+    }
+
+    @Test
+    @DisplayName("Deve desligar a contabilidade em execução")
+    void deveDesligarEmExecucao() throws Exception {
+        mockMvc.perform(post("/actuator/sql").contentType(MediaType.APPLICATION_JSON).content("{\"habilitada\": false}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/produtos/ativos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-SQL-Count"));
+        assertFalse(contabilidade.isHabilitada());
+    }
+}
@@ -0,0 +1,71 @@
+package com.estoque.controller;
+
+import com.estoque.service.MovimentacaoEstoqueService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Servidor de verdade: a leitura do stream bloqueia até o evento chegar, sem consultar a resposta em intervalos
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+class EventoEstoqueControllerTest {
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Deve enviar ao assinante apenas as movimentações confirmadas")
+    void deveEnviarApenasMovimentacoesConfirmadas() throws Exception {
+        // Os cabeçalhos só chegam depois que a assinatura foi registrada
+        HttpResponse<Stream<String>> resposta = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/api/eventos/estoque")).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, resposta.statusCode());
+
+        try (Stream<String> linhas = resposta.body()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                movimentacaoService.registrarEntrada(2L, 3, "Entrada desfeita");
+                status.setRollbackOnly();
+            });
+            movimentacaoService.registrarEntrada(2L, 4, "Entrada confirmada");
+
+            String conteudo = CompletableFuture.supplyAsync(() -> lerAte(linhas.iterator(), "Entrada confirmada"))
+                    .get(5, TimeUnit.SECONDS);
+            assertTrue(conteudo.contains("event:estoque"));
+            assertTrue(conteudo.contains("\"produtoId\":2"));
+            assertFalse(conteudo.contains("Entrada desfeita"));
+        }
+    }
+
+    // Os eventos de um assinante saem na ordem da publicação: o desfeito chegaria antes do confirmado
+    private static String lerAte(Iterator<String> linhas, String esperado) {
+        StringBuilder conteudo = new StringBuilder();
+        while (linhas.hasNext()) {
+            String linha = linhas.next();
+            conteudo.append(linha).append('\n');
+            if (linha.contains(esperado)) {
+                break;
+            }
+        }
+        return conteudo.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.estoque.controller;
+
+import com.estoque.config.LeituraAposEscritaFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A "réplica" é o mesmo banco em memória por outro pool: o que se verifica é o destino de cada conexão
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:replicas-teste;DB_CLOSE_DELAY=-1",
+        "estoque.replicas.habilitadas=true",
+        "estoque.replicas.urls=jdbc:h2:mem:replicas-teste;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class LeituraAposEscritaTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    @DisplayName("Deve ler das réplicas e manter na primária as leituras de quem acabou de escrever")
+    void deveLerDasReplicasSalvoAposEscrita() throws Exception {
+        double replica = conexoes("replica");
+        mockMvc.perform(get("/api/movimentacoes/produto/1")).andExpect(status().isOk());
+        assertTrue(conexoes("replica") > replica);
+
+        Cookie marca = mockMvc.perform(post("/api/movimentacoes/saida?produtoId=1&quantidade=1"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(LeituraAposEscritaFilter.COOKIE))
+                .andReturn().getResponse().getCookie(LeituraAposEscritaFilter.COOKIE);
+
+        replica = conexoes("replica");
+        double primaria = conexoes("primaria");
+        mockMvc.perform(get("/api/movimentacoes/produto/1").cookie(marca)).andExpect(status().isOk());
+        assertEquals(replica, conexoes("replica"));
+        assertTrue(conexoes("primaria") > primaria);
+
+        assertEquals(1, registry.get("estoque.replicas.saudaveis").gauge().value());
+    }
+
+    private double conexoes(String destino) {
+        return registry.get("estoque.replicas.conexoes").tag("destino", destino).functionCounter().count();
+    }
+}
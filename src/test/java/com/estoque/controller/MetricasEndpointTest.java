@@ -0,0 +1,58 @@
+package com.estoque.controller;
+
+import com.estoque.service.MovimentacaoEstoqueService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:metricas-teste"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricasEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    @DisplayName("Deve expor métricas de domínio, do pool e do Hibernate no formato Prometheus")
+    void deveExporMetricasPrometheus() throws Exception {
+        movimentacaoService.registrarEntrada(1L, 7, "Teste de métricas");
+        movimentacaoService.registrarSaida(1L, 3, "Teste de métricas");
+        assertThrows(IllegalStateException.class, () -> movimentacaoService.registrarSaida(1L, 1_000_000, "Teste de métricas"));
+        mockMvc.perform(get("/api/produtos?limite=5")).andExpect(status().isOk());
+
+        assertEquals(7, registry.get("estoque.movimentacoes.unidades").tag("tipo", "ENTRADA").counter().count());
+        assertEquals(3, registry.get("estoque.movimentacoes.unidades").tag("tipo", "SAIDA").counter().count());
+        assertEquals(1, registry.get("estoque.saidas.recusadas").tag("origem", "unitaria").counter().count());
+        assertEquals(1, registry.get("estoque.servico").tag("method", "registrarSaida").tag("exception", "none").timer().count());
+        assertEquals(1, registry.get("estoque.servico").tag("method", "registrarSaida").tag("exception", "IllegalStateException").timer().count());
+        assertEquals(5, registry.get("estoque.listagem.linhas").tag("endpoint", "/api/produtos").summary().max());
+
+        String prometheus = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (String metrica : new String[]{"estoque_servico_seconds_bucket", "estoque_movimentacoes_unidades_total",
+                "estoque_saidas_recusadas_total", "estoque_listagem_linhas_bucket", "hikaricp_connections_active",
+                "hibernate_query_executions_total", "hibernate_entities_loads_total", "cache_gets_total"}) {
+            assertTrue(prometheus.contains(metrica), "Métrica ausente: " + metrica);
+        }
+    }
+}
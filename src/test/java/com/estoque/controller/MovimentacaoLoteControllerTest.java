@@ -0,0 +1,65 @@
+package com.estoque.controller;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.service.ProdutoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:lote-ndjson-teste"
+})
+@AutoConfigureMockMvc
+class MovimentacaoLoteControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Test
+    @DisplayName("Linhas ilegíveis no meio do NDJSON devem falhar na sua posição sem interromper o lote")
+    void linhasIlegiveisDevemFalharNaPosicao() throws Exception {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto do lote");
+        dto.setSku("LOTE-NDJSON");
+        dto.setPreco(new BigDecimal("1.00"));
+        dto.setQuantidadeEstoque(0);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        // O primeiro bloco (500 linhas) já está confirmado quando as linhas ruins chegam
+        String entrada = "{\"produtoId\":" + produtoId + ",\"tipo\":\"ENTRADA\",\"quantidade\":1}\n";
+        StringBuilder corpo = new StringBuilder(entrada.repeat(501));
+        corpo.append("{\"produtoId\":").append(produtoId).append(",\"tipo\":\"ENTRADA\",\n");
+        corpo.append("{\"produtoId\":").append(produtoId).append(",\"tipo\":\"DEVOLUCAO\",\"quantidade\":1}\n");
+        corpo.append("\n");
+        corpo.append(entrada);
+
+        mockMvc.perform(post("/api/movimentacoes/lote").contentType("application/x-ndjson").content(corpo.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(504))
+                .andExpect(jsonPath("$.sucessos").value(502))
+                .andExpect(jsonPath("$.falhas").value(2))
+                .andExpect(jsonPath("$.linhas[501].linha").value(502))
+                .andExpect(jsonPath("$.linhas[501].sucesso").value(false))
+                .andExpect(jsonPath("$.linhas[501].erro").value(startsWith("Linha ilegível")))
+                .andExpect(jsonPath("$.linhas[502].erro").value(startsWith("Linha ilegível")))
+                .andExpect(jsonPath("$.linhas[503].sucesso").value(true))
+                .andExpect(jsonPath("$.linhas[503].quantidadePosterior").value(502));
+
+        assertEquals(502, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+    }
+}
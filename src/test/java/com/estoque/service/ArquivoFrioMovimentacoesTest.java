@@ -0,0 +1,120 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArquivoFrioMovimentacoesTest {
+
+    private static final YearMonth JANEIRO = YearMonth.of(2021, 1);
+    private static final YearMonth FEVEREIRO = YearMonth.of(2021, 2);
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve gravar e ler de volta as movimentações, das mais recentes para as mais antigas")
+    void deveGravarELerDeVolta() {
+        ArquivoFrioMovimentacoes frio = new ArquivoFrioMovimentacoes(diretorio.toString());
+        List<MovimentacaoEstoqueDTO> janeiro = movimentacoes(JANEIRO, 1, 10_000);
+
+        assertEquals(10_000, frio.gravar(JANEIRO, consumidor -> janeiro.forEach(consumidor)));
+        assertTrue(frio.contem(JANEIRO));
+        assertEquals(10_000, frio.linhas(JANEIRO));
+        assertEquals(janeiro.get(janeiro.size() - 1).getDataMovimentacao(), frio.ultimaData().orElseThrow());
+
+        List<MovimentacaoEstoqueDTO> esperado = new ArrayList<>(janeiro);
+        Collections.reverse(esperado);
+        assertEquals(esperado, frio.anteriores(null, null, null, null, null, null, Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar por produto, tipo, período e cursor entre meses")
+    void deveFiltrarEntreMeses() {
+        ArquivoFrioMovimentacoes frio = new ArquivoFrioMovimentacoes(diretorio.toString());
+        List<MovimentacaoEstoqueDTO> janeiro = movimentacoes(JANEIRO, 1, 6_000);
+        List<MovimentacaoEstoqueDTO> fevereiro = movimentacoes(FEVEREIRO, 6_001, 6_000);
+        frio.gravar(JANEIRO, consumidor -> janeiro.forEach(consumidor));
+        frio.gravar(FEVEREIRO, consumidor -> fevereiro.forEach(consumidor));
+
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>(janeiro);
+        todas.addAll(fevereiro);
+        Collections.reverse(todas);
+
+        assertEquals(filtrar(todas, m -> m.getProdutoId() == 7L, 50),
+                frio.anteriores(null, null, 7L, null, null, null, 50));
+        assertEquals(filtrar(todas, m -> m.getTipo() == TipoMovimentacao.AJUSTE, 100),
+                frio.anteriores(null, null, null, TipoMovimentacao.AJUSTE, null, null, 100));
+
+        LocalDateTime inicio = LocalDateTime.of(2021, 1, 20, 0, 0);
+        LocalDateTime fim = LocalDateTime.of(2021, 2, 10, 0, 0);
+        assertEquals(filtrar(todas, m -> !m.getDataMovimentacao().isBefore(inicio) && !m.getDataMovimentacao().isAfter(fim), Integer.MAX_VALUE),
+                frio.anteriores(null, null, null, null, inicio, fim, Integer.MAX_VALUE));
+
+        // Cursor no meio de fevereiro, com a página atravessando para janeiro
+        MovimentacaoEstoqueDTO cursor = todas.get(5_000);
+        assertEquals(todas.subList(5_001, 7_001), frio.anteriores(cursor.getDataMovimentacao(), cursor.getId(), null, null, null, null, 2_000));
+    }
+
+    @Test
+    @DisplayName("Deve reabrir os meses gravados e ignorar arquivos incompletos")
+    void deveReabrirMesesGravados() throws IOException {
+        List<MovimentacaoEstoqueDTO> janeiro = movimentacoes(JANEIRO, 1, 100);
+        new ArquivoFrioMovimentacoes(diretorio.toString()).gravar(JANEIRO, consumidor -> janeiro.forEach(consumidor));
+        Files.write(diretorio.resolve("movimentacoes-2021-02.mov.tmp"), new byte[]{1, 2, 3});
+
+        ArquivoFrioMovimentacoes reaberto = new ArquivoFrioMovimentacoes(diretorio.toString());
+        assertTrue(reaberto.contem(JANEIRO));
+        assertFalse(reaberto.contem(FEVEREIRO));
+        assertEquals(100, reaberto.anteriores(null, null, null, null, null, null, Integer.MAX_VALUE).size());
+
+        Files.write(diretorio.resolve("movimentacoes-2021-03.mov"), new byte[]{1, 2, 3});
+        assertThrows(UncheckedIOException.class, () -> new ArquivoFrioMovimentacoes(diretorio.toString()));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar movimentações fora de ordem")
+    void deveRejeitarForaDeOrdem() {
+        ArquivoFrioMovimentacoes frio = new ArquivoFrioMovimentacoes(diretorio.toString());
+        List<MovimentacaoEstoqueDTO> janeiro = movimentacoes(JANEIRO, 1, 10);
+        Collections.reverse(janeiro);
+
+        assertThrows(IllegalArgumentException.class, () -> frio.gravar(JANEIRO, consumidor -> janeiro.forEach(consumidor)));
+        assertFalse(frio.contem(JANEIRO));
+    }
+
+    // Várias por segundo, com datas repetidas, saldos nulos e motivos repetidos ou ausentes
+    private List<MovimentacaoEstoqueDTO> movimentacoes(YearMonth mes, long primeiroId, int quantidade) {
+        List<MovimentacaoEstoqueDTO> movimentacoes = new ArrayList<>(quantidade);
+        LocalDateTime data = mes.atDay(1).atStartOfDay();
+        for (int i = 0; i < quantidade; i++) {
+            if (i % 3 != 0) {
+                data = data.plusSeconds(i % 400).plusNanos(1_000L * (i % 7));
+            }
+            TipoMovimentacao tipo = TipoMovimentacao.values()[i % TipoMovimentacao.values().length];
+            movimentacoes.add(new MovimentacaoEstoqueDTO(primeiroId + i, (long) (i * 31 % 97), null, tipo, i % 50 - 10,
+                    i % 5 == 0 ? null : i, i % 5 == 0 ? null : i + 1, i % 4 == 0 ? null : "Motivo " + i % 13, data));
+        }
+        return movimentacoes;
+    }
+
+    private List<MovimentacaoEstoqueDTO> filtrar(List<MovimentacaoEstoqueDTO> movimentacoes, Predicate<MovimentacaoEstoqueDTO> filtro, int limite) {
+        return movimentacoes.stream().filter(filtro).limit(limite).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,202 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstoqueEmDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.ArquivoMovimentacaoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Banco próprio: o arquivamento alteraria o razão visto pelos demais testes do contexto compartilhado
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:arquivo-teste",
+        "estoque.arquivo.tamanho-lote=2",
+        "estoque.arquivo-frio.diretorio=target/arquivo-frio-teste/${random.uuid}"
+})
+class ArquivoMovimentacoesTest {
+
+    @Autowired
+    private ArquivoMovimentacoes arquivo;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private EstoqueHistoricoService historicoService;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private ExportacaoMovimentacaoService exportacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Listagens devem continuar no arquivo depois de mover as movimentações antigas")
+    void listagensDevemContinuarNoArquivo() throws Exception {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto arquivado");
+        dto.setSku("ARQ-001");
+        dto.setPreco(new BigDecimal("3.00"));
+        dto.setQuantidadeEstoque(10);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        // Instantes tirados das datas gravadas: o saldo inclui a movimentação da própria data
+        movimentacaoService.registrarEntrada(produtoId, 5, "Compra");
+        LocalDateTime antesDeMovimentar = antes(dataDaUltima(produtoId));
+        movimentacaoService.registrarSaida(produtoId, 2, "Venda");
+        LocalDateTime aposVenda = dataDaUltima(produtoId);
+        movimentacaoService.registrarEntrada(produtoId, 1, "Compra");
+        movimentacaoService.registrarAjuste(produtoId, 20, "Inventário");
+        LocalDateTime corte = antes(dataDaUltima(produtoId));
+
+        List<Long> antes = ids(todasAsPaginas());
+        assertEquals(3, arquivo.arquivarAntesDe(corte));
+        assertEquals(3, contarArquivadas(produtoId));
+        assertTrue(arquivo.ultimaArquivada().isPresent());
+
+        assertEquals(antes, ids(todasAsPaginas()));
+        assertEquals(4, movimentacoesDoProduto(produtoId).size());
+        assertEquals(1, movimentacaoService.listarPorTipo(TipoMovimentacao.SAIDA, null, 10).getItens().size());
+        assertEquals(4, movimentacaoService.listarPorPeriodo(corte.minusHours(1), corte.plusHours(1), null, 10).getItens().size());
+        assertEquals(0, arquivo.arquivarAntesDe(corte));
+
+        // Antes do corte, o saldo sai do arquivo: com e sem snapshot, e para todos os produtos
+        assertEquals(10, historicoService.estoqueEm(produtoId, antesDeMovimentar).getQuantidadeEstoque());
+        assertEquals(13, historicoService.estoqueEm(produtoId, aposVenda).getQuantidadeEstoque());
+        assertEquals(13, saldoEmTodos(produtoId, aposVenda));
+        assertTrue(historicoService.gerarSnapshot(aposVenda) > 0);
+        assertEquals(13, historicoService.estoqueEm(produtoId, aposVenda).getQuantidadeEstoque());
+        assertEquals(14, historicoService.estoqueEm(produtoId, corte).getQuantidadeEstoque());
+        assertEquals(14, saldoEmTodos(produtoId, corte));
+        assertEquals(20, historicoService.estoqueEm(produtoId, LocalDateTime.now()).getQuantidadeEstoque());
+
+        // A exportação inclui as arquivadas, antes das da tabela principal
+        assertEquals(4, exportarIds(produtoId).size());
+        List<Long> cronologica = ids(todasAsPaginas());
+        Collections.reverse(cronologica);
+        assertEquals(cronologica, exportarIds(null));
+
+        produtoService.deletar(produtoId);
+        assertEquals(0, contarArquivadas(produtoId));
+    }
+
+    @Test
+    @DisplayName("Meses exportados para disco devem continuar nas listagens e sair da tabela de arquivo")
+    void mesesExportadosDevemContinuarNasListagens() throws Exception {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto em disco");
+        dto.setSku("ARQ-002");
+        dto.setPreco(new BigDecimal("3.00"));
+        dto.setQuantidadeEstoque(0);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        // Três meses antigos direto na tabela de arquivo
+        List<Object[]> linhas = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            linhas.add(new Object[]{9_000_000L + i, produtoId, i % 2 == 0 ? "ENTRADA" : "SAIDA", 1, i, i + 1,
+                    i % 3 == 0 ? null : "Motivo " + i, LocalDateTime.of(2020, 1 + i / 3, 10 + i, 12, 0)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + ArquivoMovimentacaoRepository.TABELA + " (id, produto_id, tipo, quantidade, "
+                + "quantidade_anterior, quantidade_posterior, motivo, data_movimentacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", linhas);
+        List<MovimentacaoEstoqueDTO> antes = movimentacoesDoProduto(produtoId);
+
+        assertEquals(2, arquivo.exportarAntesDe(YearMonth.of(2020, 3)));
+        assertEquals(3, contarArquivadas(produtoId));
+        assertEquals(0, arquivo.exportarAntesDe(YearMonth.of(2020, 3)));
+        assertThrows(IllegalArgumentException.class, () -> arquivo.exportarAntesDe(YearMonth.now()));
+
+        assertEquals(antes, movimentacoesDoProduto(produtoId));
+        List<Long> exportadas = exportarIds(produtoId);
+        assertEquals(9, exportadas.size());
+        assertEquals(exportadas.stream().sorted().collect(Collectors.toList()), exportadas);
+        assertEquals("Produto em disco", antes.get(antes.size() - 1).getProdutoNome());
+        List<MovimentacaoEstoqueDTO> fevereiro = movimentacaoService.listarPorPeriodo(
+                LocalDateTime.of(2020, 2, 1, 0, 0), LocalDateTime.of(2020, 2, 29, 0, 0), null, 2).getItens();
+        assertEquals(List.of(9_000_005L, 9_000_004L), ids(fevereiro));
+
+        // As linhas em disco não são apagadas com o produto, mas deixam de aparecer
+        produtoService.deletar(produtoId);
+        assertTrue(movimentacaoService.listarPorPeriodo(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 3, 1, 0, 0), null, 10)
+                .getItens().isEmpty());
+    }
+
+    private LocalDateTime dataDaUltima(Long produtoId) {
+        return movimentacaoService.listarPorProduto(produtoId, null, 1).getItens().get(0).getDataMovimentacao();
+    }
+
+    // O arquivamento leva as anteriores ao corte, e o saldo no corte não inclui a movimentação seguinte
+    private static LocalDateTime antes(LocalDateTime data) {
+        return data.minus(1, ChronoUnit.MICROS);
+    }
+
+    // A página de um item que começa logo antes do produto
+    private int saldoEmTodos(Long produtoId, LocalDateTime data) {
+        EstoqueEmDTO saldo = historicoService.estoqueEmTodos(data, Paginacao.codificar(produtoId - 1), 1).getItens().get(0);
+        assertEquals(produtoId, saldo.getProdutoId());
+        return saldo.getQuantidadeEstoque();
+    }
+
+    private List<Long> exportarIds(Long produtoId) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        exportacaoService.exportar(ExportacaoMovimentacaoService.Formato.CSV, produtoId, null, null, null, saida);
+        return saida.toString(StandardCharsets.UTF_8).lines()
+                .skip(1)
+                .map(linha -> Long.valueOf(linha.substring(0, linha.indexOf(','))))
+                .collect(Collectors.toList());
+    }
+
+    private List<MovimentacaoEstoqueDTO> todasAsPaginas() {
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarTodas(cursor, 1);
+            todas.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todas;
+    }
+
+    // Páginas de duas: atravessam a tabela principal, a de arquivo e os meses em disco
+    private List<MovimentacaoEstoqueDTO> movimentacoesDoProduto(Long produtoId) {
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarPorProduto(produtoId, cursor, 2);
+            todas.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todas;
+    }
+
+    private List<Long> ids(List<MovimentacaoEstoqueDTO> movimentacoes) {
+        return movimentacoes.stream().map(MovimentacaoEstoqueDTO::getId).collect(Collectors.toList());
+    }
+
+    private int contarArquivadas(Long produtoId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + ArquivoMovimentacaoRepository.TABELA + " WHERE produto_id = ?",
+                Integer.class, produtoId);
+    }
+}
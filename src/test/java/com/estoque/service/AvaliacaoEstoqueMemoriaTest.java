@@ -0,0 +1,170 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.model.Categoria;
+import com.estoque.model.Produto;
+import com.estoque.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvaliacaoEstoqueMemoriaTest {
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private AvaliacaoEstoqueMemoria avaliacao;
+
+    @BeforeEach
+    void setUp() {
+        avaliacao = new AvaliacaoEstoqueMemoria(produtoRepository, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir a partir do banco e somar por categoria")
+    @SuppressWarnings("unchecked")
+    void deveReconstruirESomarPorCategoria() {
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(produtoRepository.streamParaIndexacao()).thenReturn(Stream.of(
+                dto(1L, 10, "2.50", "4.00", 7L),
+                dto(2L, 3, null, "10.00", 7L),
+                dto(3L, 1, "100.00", "150.00", null)));
+
+        avaliacao.reconstruir();
+        Map<Long, ValorEstoqueCategoriaDTO> valores = porCategoria(avaliacao.avaliar());
+
+        assertEquals(3, avaliacao.tamanho());
+        assertValor(valores.get(7L), 2, 13, "25.00", "70.00");
+        assertValor(valores.get(null), 1, 1, "100.00", "150.00");
+    }
+
+    @Test
+    @DisplayName("Deve acompanhar movimentações, edições de preço e exclusões")
+    void deveAcompanharAlteracoes() {
+        Produto produto = produto(1L, 10, "2.00", "3.00", 1L);
+        avaliacao.atualizar(produto);
+        avaliacao.atualizar(produto(2L, 5, "1.00", "2.00", 1L));
+
+        produto.setQuantidadeEstoque(4);
+        produto.setPrecoCusto(new BigDecimal("2.50"));
+        avaliacao.atualizar(produto);
+        assertValor(porCategoria(avaliacao.avaliar()).get(1L), 2, 9, "15.00", "22.00");
+
+        avaliacao.remover(1L);
+        assertValor(porCategoria(avaliacao.avaliar()).get(1L), 1, 5, "5.00", "10.00");
+
+        avaliacao.remover(2L);
+        assertTrue(avaliacao.avaliar().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Soma paralela deve coincidir com a soma em BigDecimal")
+    void somaParalelaDeveCoincidir() {
+        int total = AvaliacaoEstoqueMemoria.TAMANHO_FAIXA * 5 + 123;
+        BigDecimal[] esperado = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+
+        for (int i = 1; i <= total; i++) {
+            long categoria = i % 3;
+            BigDecimal custo = BigDecimal.valueOf(i % 997, 2);
+            Produto produto = produto((long) i, i % 50, custo.toPlainString(), "1.00", categoria == 0 ? null : categoria);
+            avaliacao.atualizar(produto);
+            esperado[(int) categoria] = esperado[(int) categoria].add(custo.multiply(BigDecimal.valueOf(i % 50)));
+        }
+        avaliacao.remover(10L);
+        esperado[1] = esperado[1].subtract(new BigDecimal("0.10").multiply(BigDecimal.valueOf(10)));
+
+        Map<Long, ValorEstoqueCategoriaDTO> valores = porCategoria(avaliacao.avaliar());
+        assertEquals(0, esperado[0].compareTo(valores.get(null).getValorCusto()));
+        assertEquals(0, esperado[1].compareTo(valores.get(1L).getValorCusto()));
+        assertEquals(0, esperado[2].compareTo(valores.get(2L).getValorCusto()));
+        assertEquals(total - 1, valores.values().stream().mapToLong(ValorEstoqueCategoriaDTO::getProdutos).sum());
+    }
+
+    @Test
+    @DisplayName("Não deve aplicar estado antigo quando os commits chegam fora de ordem")
+    void naoDeveAplicarEstadoAntigoForaDeOrdem() {
+        Produto produto = produto(1L, 5, "1.00", "1.00", null);
+
+        TransactionSynchronizationManager.initSynchronization();
+        avaliacao.atualizar(produto);
+        List<TransactionSynchronization> primeira = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        produto.setQuantidadeEstoque(50);
+        avaliacao.atualizar(produto);
+        List<TransactionSynchronization> segunda = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertTrue(avaliacao.avaliar().isEmpty());
+
+        segunda.forEach(TransactionSynchronization::afterCommit);
+        primeira.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(50L, avaliacao.avaliar().get(0).getQuantidadeEstoque());
+    }
+
+    private Map<Long, ValorEstoqueCategoriaDTO> porCategoria(List<ValorEstoqueCategoriaDTO> valores) {
+        Map<Long, ValorEstoqueCategoriaDTO> porCategoria = new HashMap<>();
+        valores.forEach(v -> porCategoria.put(v.getCategoriaId(), v));
+        return porCategoria;
+    }
+
+    private void assertValor(ValorEstoqueCategoriaDTO valor, long produtos, long quantidade, String custo, String venda) {
+        assertNotNull(valor);
+        assertEquals(produtos, valor.getProdutos());
+        assertEquals(quantidade, valor.getQuantidadeEstoque());
+        assertEquals(new BigDecimal(custo), valor.getValorCusto());
+        assertEquals(new BigDecimal(venda), valor.getValorVenda());
+    }
+
+    private ProdutoDTO dto(Long id, int estoque, String custo, String preco, Long categoriaId) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setId(id);
+        dto.setQuantidadeEstoque(estoque);
+        dto.setPrecoCusto(custo == null ? null : new BigDecimal(custo));
+        dto.setPreco(new BigDecimal(preco));
+        dto.setCategoriaId(categoriaId);
+        return dto;
+    }
+
+    private Produto produto(Long id, int estoque, String custo, String preco, Long categoriaId) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setQuantidadeEstoque(estoque);
+        produto.setPrecoCusto(new BigDecimal(custo));
+        produto.setPreco(new BigDecimal(preco));
+        if (categoriaId != null) {
+            Categoria categoria = new Categoria();
+            categoria.setId(categoriaId);
+            produto.setCategoria(categoria);
+        }
+        return produto;
+    }
+}
@@ -0,0 +1,77 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ValorEstoqueCategoriaDTO;
+import com.estoque.service.AvaliacaoEstoqueService.Modo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class AvaliacaoEstoqueServiceTest {
+
+    @Autowired
+    private AvaliacaoEstoqueService avaliacaoService;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Test
+    @DisplayName("Modo em memória deve coincidir com a agregação SQL após movimentações e edições")
+    void modosDevemCoincidir() {
+        assertMesmosValores();
+
+        movimentacaoService.registrarEntrada(1L, 7, "Compra");
+        movimentacaoService.registrarSaida(2L, 3, "Venda");
+        movimentacaoService.registrarAjuste(3L, 0, "Inventário");
+
+        ProdutoDTO produto = produtoService.buscarPorId(4L);
+        produto.setPrecoCusto(new BigDecimal("12.34"));
+        produto.setPreco(new BigDecimal("56.78"));
+        produto.setCategoriaId(1L);
+        produtoService.atualizar(4L, produto);
+
+        ProdutoDTO novo = new ProdutoDTO();
+        novo.setNome("Produto avaliação");
+        novo.setSku("AVA-001");
+        novo.setPreco(new BigDecimal("9.99"));
+        novo.setQuantidadeEstoque(11);
+        Long novoId = produtoService.criar(novo).getId();
+
+        assertMesmosValores();
+
+        produtoService.deletar(novoId);
+        assertMesmosValores();
+    }
+
+    private void assertMesmosValores() {
+        List<ValorEstoqueCategoriaDTO> sql = avaliacaoService.avaliar(Modo.SQL);
+        List<ValorEstoqueCategoriaDTO> memoria = avaliacaoService.avaliar(Modo.MEMORIA);
+
+        assertFalse(sql.isEmpty());
+        assertEquals(sql.size(), memoria.size());
+        for (int i = 0; i < sql.size(); i++) {
+            ValorEstoqueCategoriaDTO esperado = sql.get(i);
+            ValorEstoqueCategoriaDTO obtido = memoria.get(i);
+            assertEquals(esperado.getCategoriaId(), obtido.getCategoriaId());
+            assertEquals(esperado.getCategoriaNome(), obtido.getCategoriaNome());
+            assertEquals(esperado.getProdutos(), obtido.getProdutos());
+            assertEquals(esperado.getQuantidadeEstoque(), obtido.getQuantidadeEstoque());
+            assertEquals(0, esperado.getValorVenda().compareTo(obtido.getValorVenda()), "Categoria " + esperado.getCategoriaId());
+            if (esperado.getValorCusto() == null) {
+                assertNull(obtido.getValorCusto());
+            } else {
+                assertEquals(0, esperado.getValorCusto().compareTo(obtido.getValorCusto()), "Categoria " + esperado.getCategoriaId());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.estoque.service;
+
+import com.estoque.dto.CategoriaDTO;
+import com.estoque.dto.EstatisticasCacheDTO;
+import com.estoque.dto.ProdutoDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class CachesLeituraTest {
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private CachesLeitura cachesLeitura;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cacheManager.getCacheNames().forEach(nome -> cacheManager.getCache(nome).clear());
+    }
+
+    @Test
+    @DisplayName("Deve servir a busca por SKU do cache e removê-la quando o estoque muda")
+    void deveRemoverProdutoDoCacheAoMovimentarEstoque() {
+        ProdutoDTO antes = produtoService.buscarPorSku("PAP-A4-001");
+
+        statistics.clear();
+        assertEquals(antes.getQuantidadeEstoque(), produtoService.buscarPorSku("PAP-A4-001").getQuantidadeEstoque());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        movimentacaoService.registrarEntrada(antes.getId(), 7, "Reposição");
+
+        assertEquals(antes.getQuantidadeEstoque() + 7, produtoService.buscarPorSku("PAP-A4-001").getQuantidadeEstoque());
+    }
+
+    @Test
+    @DisplayName("Deve remover categoria e produtos em cache quando a categoria é renomeada")
+    void deveRemoverCategoriaEProdutosAoRenomearCategoria() {
+        CategoriaDTO categoria = categoriaService.buscarPorId(3L);
+        String nomeOriginal = categoria.getNome();
+        ProdutoDTO produto = produtoService.buscarPorSku("CAD-GAM-001");
+        assertEquals(categoria.getNome(), produto.getCategoriaNome());
+
+        categoria.setNome("Móveis e Decoração");
+        categoriaService.atualizar(3L, categoria);
+
+        assertEquals("Móveis e Decoração", categoriaService.buscarPorId(3L).getNome());
+        assertEquals("Móveis e Decoração", produtoService.buscarPorSku("CAD-GAM-001").getCategoriaNome());
+
+        categoriaService.atualizar(3L, new CategoriaDTO(3L, nomeOriginal, categoria.getDescricao()));
+    }
+
+    @Test
+    @DisplayName("Deve expor acertos e faltas por cache")
+    void deveExporEstatisticas() {
+        produtoService.buscarPorId(1L);
+        produtoService.buscarPorId(1L);
+
+        EstatisticasCacheDTO produto = cachesLeitura.estatisticas().stream()
+                .filter(e -> e.getNome().equals(CachesLeitura.PRODUTO))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(1, produto.getTamanho());
+        assertTrue(produto.getAcertos() >= 1);
+        assertTrue(produto.getFaltas() >= 1);
+    }
+}
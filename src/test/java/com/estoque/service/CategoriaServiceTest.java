@@ -1,6 +1,7 @@
 package com.estoque.service;
 
 import com.estoque.dto.CategoriaDTO;
+import com.estoque.dto.PaginaDTO;
 import com.estoque.model.Categoria;
 import com.estoque.model.Produto;
 import com.estoque.repository.CategoriaRepository;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.Arrays;
@@ -30,6 +32,9 @@ class CategoriaServiceTest {
     @Mock
     private CategoriaRepository categoriaRepository;
 
+    @Mock
+    private CachesLeitura caches;
+
     @InjectMocks
     private CategoriaService categoriaService;
 
@@ -55,25 +60,55 @@ class CategoriaServiceTest {
         categoria2.setId(2L);
         categoria2.setNome("Roupas");
 
-        when(categoriaRepository.findAll()).thenReturn(Arrays.asList(categoria, categoria2));
+        when(categoriaRepository.findPagina(eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(categoria, categoria2));
+
+        PaginaDTO<CategoriaDTO> resultado = categoriaService.listarTodas(null, 50);
+
+        assertEquals(2, resultado.getItens().size());
+        assertEquals("Eletrônicos", resultado.getItens().get(0).getNome());
+        assertEquals("Roupas", resultado.getItens().get(1).getNome());
+        assertNull(resultado.getProximoCursor());
+        verify(categoriaRepository, times(1)).findPagina(eq(0L), any(Pageable.class));
+    }
 
-        List<CategoriaDTO> resultado = categoriaService.listarTodas();
+    @Test
+    @DisplayName("Deve retornar cursor da próxima página quando houver mais categorias")
+    void deveRetornarCursorDaProximaPagina() {
+        Categoria categoria2 = new Categoria();
+        categoria2.setId(2L);
+        categoria2.setNome("Roupas");
 
-        assertEquals(2, resultado.size());
-        assertEquals("Eletrônicos", resultado.get(0).getNome());
-        assertEquals("Roupas", resultado.get(1).getNome());
-        verify(categoriaRepository, times(1)).findAll();
+        when(categoriaRepository.findPagina(eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(categoria, categoria2));
+
+        PaginaDTO<CategoriaDTO> pagina = categoriaService.listarTodas(null, 1);
+
+        assertEquals(1, pagina.getItens().size());
+        assertNotNull(pagina.getProximoCursor());
+
+        when(categoriaRepository.findPagina(eq(1L), any(Pageable.class))).thenReturn(Collections.singletonList(categoria2));
+
+        PaginaDTO<CategoriaDTO> proxima = categoriaService.listarTodas(pagina.getProximoCursor(), 1);
+
+        assertEquals("Roupas", proxima.getItens().get(0).getNome());
+        assertNull(proxima.getProximoCursor());
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção para cursor inválido")
+    void deveLancarExcecaoParaCursorInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> categoriaService.listarTodas("@@@", 10));
+        verify(categoriaRepository, never()).findPagina(anyLong(), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver categorias")
     void deveRetornarListaVaziaQuandoNaoHouverCategorias() {
-        when(categoriaRepository.findAll()).thenReturn(Collections.emptyList());
+        when(categoriaRepository.findPagina(eq(0L), any(Pageable.class))).thenReturn(Collections.emptyList());
 
-        List<CategoriaDTO> resultado = categoriaService.listarTodas();
+        PaginaDTO<CategoriaDTO> resultado = categoriaService.listarTodas(null, 50);
 
-        assertTrue(resultado.isEmpty());
-        verify(categoriaRepository, times(1)).findAll();
+        assertTrue(resultado.getItens().isEmpty());
+        verify(categoriaRepository, times(1)).findPagina(eq(0L), any(Pageable.class));
     }
 
     @Test
@@ -115,6 +150,7 @@ class CategoriaServiceTest {
         assertEquals("Eletrônicos", resultado.getNome());
         verify(categoriaRepository, times(1)).existsByNome("Eletrônicos");
         verify(categoriaRepository, times(1)).save(any(Categoria.class));
+        verify(caches, times(1)).categoriaCriada();
     }
 
     @Test
@@ -148,6 +184,7 @@ class CategoriaServiceTest {
         assertNotNull(resultado);
         verify(categoriaRepository, times(1)).findById(1L);
         verify(categoriaRepository, times(1)).save(any(Categoria.class));
+        verify(caches, times(1)).categoriaAlterada(1L);
     }
 
     @Test
@@ -206,6 +243,7 @@ class CategoriaServiceTest {
 
         verify(categoriaRepository, times(1)).findById(1L);
         verify(categoriaRepository, times(1)).delete(categoria);
+        verify(caches, times(1)).categoriaAlterada(1L);
     }
 
     @Test
@@ -0,0 +1,138 @@
+package com.estoque.service;
+
+import com.estoque.model.Produto;
+import com.estoque.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConjuntoEstoqueBaixoTest {
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ConjuntoEstoqueBaixo conjunto;
+
+    @BeforeEach
+    void setUp() {
+        conjunto = new ConjuntoEstoqueBaixo(produtoRepository, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o conjunto a partir do banco")
+    void deveReconstruirAPartirDoBanco() {
+        executarTransacoes();
+        when(produtoRepository.findIdsComEstoqueBaixo()).thenReturn(List.of(4L, 2L));
+
+        conjunto.reconstruir();
+
+        assertEquals(List.of(2L, 4L), List.copyOf(conjunto.ids()));
+    }
+
+    @Test
+    @DisplayName("Deve entregar os ids seguintes ao cursor em ordem crescente")
+    void deveEntregarIdsSeguintes() {
+        executarTransacoes();
+        when(produtoRepository.findIdsComEstoqueBaixo()).thenReturn(List.of(7L, 2L, 9L, 4L));
+
+        conjunto.reconstruir();
+
+        assertEquals(List.of(2L, 4L), conjunto.idsApos(0L, 2));
+        assertEquals(List.of(7L, 9L), conjunto.idsApos(4L, 5));
+        assertTrue(conjunto.idsApos(9L, 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve incluir e retirar produtos conforme estoque, mínimo e status")
+    void deveAcompanharAlteracoes() {
+        Produto produto = produto(1L, 5, 10, true);
+        conjunto.atualizar(produto);
+        assertTrue(conjunto.contem(1L));
+
+        produto.setQuantidadeEstoque(20);
+        conjunto.atualizar(produto);
+        assertFalse(conjunto.contem(1L));
+
+        produto.setQuantidadeMinima(20);
+        conjunto.atualizar(produto);
+        assertTrue(conjunto.contem(1L));
+
+        produto.setAtivo(false);
+        conjunto.atualizar(produto);
+        assertFalse(conjunto.contem(1L));
+
+        conjunto.atualizar(produto(2L, 0, 0, true));
+        conjunto.remover(2L);
+        assertTrue(conjunto.ids().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Não deve aplicar estado antigo quando os commits chegam fora de ordem")
+    void naoDeveAplicarEstadoAntigoForaDeOrdem() {
+        Produto produto = produto(1L, 5, 10, true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        conjunto.atualizar(produto);
+        List<TransactionSynchronization> primeira = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        produto.setQuantidadeEstoque(50);
+        conjunto.atualizar(produto);
+        List<TransactionSynchronization> segunda = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertFalse(conjunto.contem(1L));
+
+        segunda.forEach(TransactionSynchronization::afterCommit);
+        primeira.forEach(TransactionSynchronization::afterCommit);
+
+        assertFalse(conjunto.contem(1L));
+    }
+
+    @Test
+    @DisplayName("Deve corrigir divergências na verificação de consistência")
+    void deveCorrigirDivergencias() {
+        executarTransacoes();
+        conjunto.atualizar(produto(1L, 5, 10, true));
+        conjunto.atualizar(produto(2L, 5, 10, true));
+        when(produtoRepository.findIdsComEstoqueBaixo()).thenReturn(List.of(2L, 3L));
+
+        assertEquals(2, conjunto.verificarConsistencia());
+        assertEquals(Set.of(2L, 3L), conjunto.ids());
+        assertEquals(0, conjunto.verificarConsistencia());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executarTransacoes() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    private Produto produto(Long id, int estoque, int minimo, boolean ativo) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setQuantidadeEstoque(estoque);
+        produto.setQuantidadeMinima(minimo);
+        produto.setAtivo(ativo);
+        return produto;
+    }
+}
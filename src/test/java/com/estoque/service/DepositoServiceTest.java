@@ -0,0 +1,204 @@
+package com.estoque.service;
+
+import com.estoque.dto.DepositoDTO;
+import com.estoque.dto.EstoqueDepositoDTO;
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import javax.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:depositos-teste"
+})
+class DepositoServiceTest {
+
+    @Autowired
+    private DepositoService depositoService;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private MovimentacaoLoteService loteService;
+
+    @Test
+    @DisplayName("Deve atribuir ao depósito padrão o estoque dos produtos já cadastrados")
+    void deveAtribuirEstoqueExistenteAoPadrao() {
+        Long padrao = depositoService.resolver(null);
+
+        // Notebook do data.sql: 15 unidades
+        List<EstoqueDepositoDTO> estoques = depositoService.estoquesDoProduto(1L);
+        assertEquals(padrao, estoques.get(0).getDepositoId());
+        assertEquals(15, estoques.stream().mapToInt(EstoqueDepositoDTO::getQuantidade).sum());
+        assertEquals(0, depositoService.verificarConsistencia());
+        assertThrows(EntityNotFoundException.class, () -> depositoService.resolver(999L));
+    }
+
+    @Test
+    @DisplayName("Deve movimentar por depósito mantendo o total do produto como a soma deles")
+    void deveMovimentarPorDeposito() {
+        Long padrao = depositoService.resolver(null);
+        Long filial = depositoService.criar(new DepositoDTO(null, "FILIAL-MOV", "Filial")).getId();
+        Long produtoId = criarProduto("DEP-001", 10);
+
+        movimentacaoService.registrarEntrada(produtoId, filial, 5, "Compra da filial");
+        MovimentacaoEstoqueDTO saida = movimentacaoService.registrarSaida(produtoId, filial, 5, "Venda na filial");
+        assertEquals(filial, saida.getDepositoId());
+        assertEquals(10, saida.getQuantidadePosterior());
+
+        // O total ainda cobre, mas a filial está vazia: a saída não pode sair de lá
+        IllegalStateException recusa = assertThrows(IllegalStateException.class,
+                () -> movimentacaoService.registrarSaida(produtoId, filial, 1, "Venda na filial"));
+        assertTrue(recusa.getMessage().contains("Disponível: 0"));
+        assertEquals(10, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+
+        movimentacaoService.registrarAjuste(produtoId, filial, 3, "Inventário da filial");
+        loteService.registrarLote(List.of(
+                new ItemMovimentacaoLoteDTO(produtoId, TipoMovimentacao.SAIDA, 2, "Venda", filial),
+                new ItemMovimentacaoLoteDTO(produtoId, TipoMovimentacao.ENTRADA, 4, "Compra", null)
+        ).iterator());
+
+        Map<Long, Integer> porDeposito = quantidades(produtoId);
+        assertEquals(14, porDeposito.get(padrao));
+        assertEquals(1, porDeposito.get(filial));
+        assertEquals(15, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+        assertEquals(0, depositoService.verificarConsistencia());
+    }
+
+    @Test
+    @DisplayName("Transferências concorrentes devem ser atômicas e preservar o total")
+    void transferenciasConcorrentesDevemSerAtomicas() throws Exception {
+        Long padrao = depositoService.resolver(null);
+        Long filial = depositoService.criar(new DepositoDTO(null, "FILIAL-TRF", "Filial")).getId();
+        Long produtoId = criarProduto("DEP-002", 100);
+
+        AtomicInteger transferidas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            boolean ida = t % 2 == 0;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        if (ida) {
+                            movimentacaoService.transferir(produtoId, padrao, filial, 3, "Reposição");
+                        } else {
+                            movimentacaoService.transferir(produtoId, filial, padrao, 2, "Devolução");
+                        }
+                        transferidas.incrementAndGet();
+                    } catch (IllegalStateException ex) {
+                        recusadas.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(160, transferidas.get() + recusadas.get());
+        Map<Long, Integer> porDeposito = quantidades(produtoId);
+        assertEquals(100, porDeposito.get(padrao) + porDeposito.get(filial));
+        assertTrue(porDeposito.get(padrao) >= 0 && porDeposito.get(filial) >= 0);
+        assertEquals(100, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+        assertEquals(transferidas.get(), movimentacoesDoProduto(produtoId).stream()
+                .filter(m -> m.getTipo() == TipoMovimentacao.TRANSFERENCIA)
+                .count());
+        assertEquals(0, depositoService.verificarConsistencia());
+    }
+
+    @Test
+    @DisplayName("Editar a quantidade durante saídas concorrentes não deve travar nem desalinhar os depósitos")
+    void edicaoConcorrenteComSaidasDeveManterDepositosConsistentes() throws Exception {
+        Long filial = depositoService.criar(new DepositoDTO(null, "FILIAL-EDT", "Filial")).getId();
+        Long produtoId = criarProduto("DEP-003", 200);
+        movimentacaoService.transferir(produtoId, depositoService.resolver(null), filial, 50, "Reposição");
+
+        AtomicInteger falhas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int papel = t % 4;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        if (papel == 0) {
+                            ProdutoDTO dto = produtoService.buscarPorId(produtoId);
+                            dto.setQuantidadeEstoque(i % 2 == 0 ? 300 : 120);
+                            produtoService.atualizar(produtoId, dto);
+                        } else {
+                            movimentacaoService.registrarSaida(produtoId, papel == 1 ? filial : null, 1, "Venda concorrente");
+                        }
+                    } catch (IllegalStateException | IllegalArgumentException ex) {
+                        // Estoque insuficiente ou edição abaixo do que está nos outros depósitos
+                    } catch (RuntimeException ex) {
+                        falhas.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, falhas.get());
+        Map<Long, Integer> porDeposito = quantidades(produtoId);
+        assertEquals(produtoService.buscarPorId(produtoId).getQuantidadeEstoque(),
+                porDeposito.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, depositoService.verificarConsistencia());
+    }
+
+    private Long criarProduto(String sku, int quantidade) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto " + sku);
+        dto.setSku(sku);
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(quantidade);
+        dto.setQuantidadeMinima(0);
+        return produtoService.criar(dto).getId();
+    }
+
+    private Map<Long, Integer> quantidades(Long produtoId) {
+        return depositoService.estoquesDoProduto(produtoId).stream()
+                .collect(Collectors.toMap(EstoqueDepositoDTO::getDepositoId, EstoqueDepositoDTO::getQuantidade));
+    }
+
+    private List<MovimentacaoEstoqueDTO> movimentacoesDoProduto(Long produtoId) {
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarPorProduto(produtoId, cursor, 100);
+            todas.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todas;
+    }
+}
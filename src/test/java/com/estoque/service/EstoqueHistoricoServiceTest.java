@@ -0,0 +1,147 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstoqueEmDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class EstoqueHistoricoServiceTest {
+
+    @Autowired
+    private EstoqueHistoricoService historicoService;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Test
+    @DisplayName("Deve reconstruir o saldo em qualquer instante, com e sem snapshot")
+    void deveReconstruirSaldoEmQualquerInstante() {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto histórico");
+        dto.setSku("HIST-001");
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(20);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        movimentacaoService.registrarEntrada(produtoId, 10, "Compra");
+        LocalDateTime entrada = dataDaUltima(produtoId);
+        movimentacaoService.registrarSaida(produtoId, 3, "Venda");
+        LocalDateTime corte = dataDaUltima(produtoId);
+
+        assertTrue(historicoService.gerarSnapshot(corte) > 0);
+        assertEquals(0, historicoService.gerarSnapshot(corte));
+
+        movimentacaoService.registrarAjuste(produtoId, 40, "Inventário");
+        LocalDateTime ajuste = dataDaUltima(produtoId);
+        movimentacaoService.registrarSaida(produtoId, 1, "Venda");
+
+        assertSaldo(produtoId, antes(entrada), 20, null);
+        assertSaldo(produtoId, entrada, 30, null);
+        assertSaldo(produtoId, antes(corte), 30, null);
+        assertSaldo(produtoId, corte, 27, corte);
+        assertSaldo(produtoId, ajuste, 40, corte);
+        assertSaldo(produtoId, dataDaUltima(produtoId), 39, corte);
+    }
+
+    @Test
+    @DisplayName("Consulta de todos os produtos deve coincidir com a consulta individual")
+    void consultaEmLoteDeveCoincidirComIndividual() {
+        movimentacaoService.registrarEntrada(6L, 4, "Compra");
+        LocalDateTime antesDoCorte = dataDaUltima(6L);
+        movimentacaoService.registrarSaida(6L, 2, "Venda");
+        LocalDateTime corte = dataDaUltima(6L);
+        historicoService.gerarSnapshot(corte);
+        movimentacaoService.registrarSaida(7L, 5, "Venda");
+        LocalDateTime depoisDoCorte = dataDaUltima(7L);
+
+        for (LocalDateTime data : List.of(antesDoCorte, corte, depoisDoCorte)) {
+            List<EstoqueEmDTO> todos = todasAsPaginas(data);
+            assertFalse(todos.isEmpty());
+            for (EstoqueEmDTO saldo : todos) {
+                assertEquals(historicoService.estoqueEm(saldo.getProdutoId(), data).getQuantidadeEstoque(), saldo.getQuantidadeEstoque(),
+                        "Produto " + saldo.getProdutoId() + " em " + data);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Quantidade editada no cadastro deve entrar no histórico como ajuste")
+    void quantidadeEditadaNoCadastroDeveEntrarNoHistorico() {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto editado");
+        dto.setSku("HIST-002");
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(20);
+        ProdutoDTO criado = produtoService.criar(dto);
+
+        criado.setQuantidadeEstoque(35);
+        produtoService.atualizar(criado.getId(), criado);
+
+        MovimentacaoEstoqueDTO ajuste = ultima(criado.getId());
+        assertSaldo(criado.getId(), antes(ajuste.getDataMovimentacao()), 20, null);
+        assertSaldo(criado.getId(), ajuste.getDataMovimentacao(), 35, null);
+        assertEquals(TipoMovimentacao.AJUSTE, ajuste.getTipo());
+        assertEquals(20, ajuste.getQuantidadeAnterior());
+        assertEquals(35, ajuste.getQuantidadePosterior());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar data anterior à criação do produto")
+    void deveRejeitarDataAnteriorACriacao() {
+        assertThrows(IllegalArgumentException.class, () -> historicoService.estoqueEm(1L, LocalDateTime.of(2000, 1, 1, 0, 0)));
+    }
+
+    private void assertSaldo(Long produtoId, LocalDateTime data, int esperado, LocalDateTime snapshotEsperado) {
+        EstoqueEmDTO saldo = historicoService.estoqueEm(produtoId, data);
+        assertEquals(esperado, saldo.getQuantidadeEstoque(), "Saldo em " + data);
+        assertEquals(snapshotEsperado, saldo.getDataSnapshot());
+
+        EstoqueEmDTO emLote = historicoService.estoqueEmTodos(data, Paginacao.codificar(produtoId - 1), 1).getItens().get(0);
+        assertEquals(produtoId, emLote.getProdutoId());
+        assertEquals(esperado, emLote.getQuantidadeEstoque(), "Saldo em lote em " + data);
+    }
+
+    // Páginas pequenas, para que snapshot e movimentações sejam lidos por partes
+    private List<EstoqueEmDTO> todasAsPaginas(LocalDateTime data) {
+        List<EstoqueEmDTO> todos = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<EstoqueEmDTO> pagina = historicoService.estoqueEmTodos(data, cursor, 2);
+            assertTrue(pagina.getItens().size() <= 2);
+            todos.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todos;
+    }
+
+    // Os instantes consultados são as próprias datas gravadas das movimentações, lidas de volta do
+    // banco; o saldo em uma delas já a inclui, e um microssegundo antes (a precisão gravada) ainda não
+    private MovimentacaoEstoqueDTO ultima(Long produtoId) {
+        return movimentacaoService.listarPorProduto(produtoId, null, 1).getItens().get(0);
+    }
+
+    private LocalDateTime dataDaUltima(Long produtoId) {
+        return ultima(produtoId).getDataMovimentacao();
+    }
+
+    private LocalDateTime antes(LocalDateTime data) {
+        return data.minus(1, ChronoUnit.MICROS);
+    }
+}
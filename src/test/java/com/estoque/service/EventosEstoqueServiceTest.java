@@ -0,0 +1,73 @@
+package com.estoque.service;
+
+import com.estoque.dto.EstoqueProdutoDTO;
+import com.estoque.dto.EventoEstoqueDTO;
+import com.estoque.dto.EventoProdutoDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventosEstoqueServiceTest {
+
+    private static final int CAPACIDADE = 4;
+
+    private final List<Runnable> tarefas = new ArrayList<>();
+
+    // O executor só guarda as tarefas: nada é enviado, simulando um cliente que não lê
+    private final EventosEstoqueService eventosService = new EventosEstoqueService(new ObjectMapper(), CAPACIDADE, 60_000, tarefas::add);
+
+    @Test
+    @DisplayName("Deve agendar um único envio por assinante enquanto houver mensagens pendentes")
+    void deveAgendarUmEnvioPorAssinante() {
+        eventosService.assinar();
+        eventosService.assinar();
+
+        eventosService.aoAlterarEstoque(evento(10));
+        eventosService.aoAlterarEstoque(evento(9));
+
+        assertEquals(2, eventosService.quantidadeAssinantes());
+        assertEquals(2, tarefas.size());
+    }
+
+    @Test
+    @DisplayName("Deve desconectar o assinante cuja fila enche")
+    void deveDesconectarAssinanteLento() {
+        eventosService.assinar();
+
+        for (int i = 0; i < CAPACIDADE; i++) {
+            eventosService.aoAlterarEstoque(evento(i));
+        }
+        assertEquals(1, eventosService.quantidadeAssinantes());
+
+        eventosService.aoAlterarEstoque(evento(CAPACIDADE));
+        assertEquals(0, eventosService.quantidadeAssinantes());
+
+        // A tarefa pendente encontra o assinante descartado e só encerra a conexão
+        tarefas.forEach(Runnable::run);
+        assertEquals(0, eventosService.quantidadeAssinantes());
+    }
+
+    @Test
+    @DisplayName("Deve versionar os eventos na publicação, numa sequência comum a estoque e produto")
+    void deveVersionarEventosNaPublicacao() {
+        EventoEstoqueDTO estoque = evento(5);
+        EventoProdutoDTO produto = new EventoProdutoDTO(1L, null);
+        EventoEstoqueDTO depois = evento(4);
+
+        eventosService.versionarEstoque(estoque);
+        eventosService.versionarProduto(produto);
+        eventosService.versionarEstoque(depois);
+
+        assertTrue(estoque.getVersao() < produto.getVersao());
+        assertTrue(produto.getVersao() < depois.getVersao());
+    }
+
+    private EventoEstoqueDTO evento(int quantidade) {
+        return new EventoEstoqueDTO(List.of(new EstoqueProdutoDTO(1L, quantidade, false)), List.of());
+    }
+}
@@ -0,0 +1,96 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportacaoMovimentacaoServiceTest {
+
+    @Mock
+    private MovimentacaoEstoqueRepository movimentacaoRepository;
+
+    @Mock
+    private ArquivoMovimentacoes arquivo;
+
+    private ExportacaoMovimentacaoService exportacaoService;
+
+    private MovimentacaoEstoqueDTO entrada;
+    private MovimentacaoEstoqueDTO saida;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportacaoService = new ExportacaoMovimentacaoService(movimentacaoRepository, arquivo, objectMapper);
+
+        LocalDateTime data = LocalDateTime.of(2024, 3, 1, 10, 30);
+        entrada = new MovimentacaoEstoqueDTO(1L, 7L, "Monitor 24\", full HD", TipoMovimentacao.ENTRADA, 10, 0, 10, "Compra", data);
+        saida = new MovimentacaoEstoqueDTO(2L, 7L, "Monitor 24\", full HD", TipoMovimentacao.SAIDA, 3, 10, 7, null, data.plusHours(1));
+    }
+
+    @Test
+    @DisplayName("Deve exportar uma movimentação por linha em NDJSON")
+    void deveExportarNdjson() throws Exception {
+        when(movimentacaoRepository.streamParaExportacao(isNull(), isNull(), any(), any())).thenReturn(Stream.of(entrada, saida));
+
+        ByteArrayOutputStream saidaBytes = new ByteArrayOutputStream();
+        exportacaoService.exportar(ExportacaoMovimentacaoService.Formato.NDJSON, null, null, null, null, saidaBytes);
+
+        String[] linhas = saidaBytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, linhas.length);
+        assertTrue(linhas[0].contains("\"id\":1"));
+        assertTrue(linhas[1].contains("\"tipo\":\"SAIDA\""));
+    }
+
+    @Test
+    @DisplayName("Deve exportar CSV com cabeçalho e campos escapados")
+    void deveExportarCsv() throws Exception {
+        when(movimentacaoRepository.streamParaExportacao(eq(7L), eq(TipoMovimentacao.ENTRADA), any(), any())).thenReturn(Stream.of(entrada));
+
+        ByteArrayOutputStream saidaBytes = new ByteArrayOutputStream();
+        exportacaoService.exportar(ExportacaoMovimentacaoService.Formato.CSV, 7L, TipoMovimentacao.ENTRADA, null, null, saidaBytes);
+
+        String[] linhas = saidaBytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(ExportacaoMovimentacaoService.CABECALHO_CSV, linhas[0]);
+        assertEquals("1,7,\"Monitor 24\"\", full HD\",ENTRADA,10,0,10,Compra,2024-03-01T10:30", linhas[1]);
+    }
+
+    @Test
+    @DisplayName("Deve exportar as movimentações arquivadas antes das da tabela principal")
+    void deveExportarArquivadasPrimeiro() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<MovimentacaoEstoqueDTO> consumidor = invocation.getArgument(4);
+            consumidor.accept(entrada);
+            return null;
+        }).when(arquivo).percorrer(isNull(), isNull(), isNull(), isNull(), any());
+        when(movimentacaoRepository.streamParaExportacao(isNull(), isNull(), any(), any())).thenReturn(Stream.of(saida));
+
+        ByteArrayOutputStream saidaBytes = new ByteArrayOutputStream();
+        exportacaoService.exportar(ExportacaoMovimentacaoService.Formato.NDJSON, null, null, null, null, saidaBytes);
+
+        String[] linhas = saidaBytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, linhas.length);
+        assertTrue(linhas[0].contains("\"id\":1"));
+        assertTrue(linhas[1].contains("\"id\":2"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.estoque.service;
+
+import com.estoque.dto.ErroImportacaoDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.ResultadoImportacaoDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Banco próprio e blocos pequenos, para que alguns arquivos ocupem vários blocos paralelos
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:importacao-teste",
+        "estoque.importacao.tamanho-bloco=3"
+})
+class ImportacaoProdutoServiceTest {
+
+    @Autowired
+    private ImportacaoProdutoService importacaoService;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private ConjuntoEstoqueBaixo estoqueBaixo;
+
+    @Test
+    @DisplayName("Deve importar o CSV e relatar as linhas rejeitadas")
+    void deveImportarCsvERelatarRejeitadas() throws IOException {
+        String csv = "sku,nome,descricao,preco,precoCusto,quantidadeEstoque,quantidadeMinima,categoriaNome\n"
+                + "IMP-001,Cabo HDMI,\"Cabo 2m, com \"\"ferrite\"\"\",39.90,20.00,10,2, PAPELARIA \n"
+                + "IMP-002,Grampeador,,25.00,,1,5,Papelaria\n"
+                + "\n"
+                + "NOT-DELL-001,Notebook repetido,,10.00,,1,0,\n"
+                + "IMP-001,Cabo repetido,,10.00,,1,0,\n"
+                + "IMP-003,Preço ruim,,abc,,1,0,\n"
+                + "IMP-004,Sem categoria,,10.00,,1,0,Inexistente\n"
+                + ",Sem SKU,,10.00,,1,0,\n"
+                + "IMP-005,Preço negativo,,-1.00,,1,0,\n"
+                + "IMP-006,Campos a menos\n"
+                + "IMP-007,Mesa,,300.00,,3,1,\n";
+
+        ResultadoImportacaoDTO resultado = importar(csv, ImportacaoProdutoService.Formato.CSV);
+
+        assertEquals(10, resultado.getTotal());
+        assertEquals(3, resultado.getImportados());
+        assertEquals(7, resultado.getFalhas());
+        Map<Long, String> erros = resultado.getErros().stream()
+                .collect(Collectors.toMap(ErroImportacaoDTO::getLinha, ErroImportacaoDTO::getErro));
+        assertEquals("Já existe um produto com este SKU", erros.get(5L));
+        assertEquals("SKU repetido no arquivo", erros.get(6L));
+        assertEquals("Valor inválido para preco: abc", erros.get(7L));
+        assertEquals("Categoria não encontrada: Inexistente", erros.get(8L));
+        assertEquals("SKU é obrigatório na importação", erros.get(9L));
+        assertEquals("Preço deve ser positivo", erros.get(10L));
+        assertTrue(erros.get(11L).startsWith("A linha tem 2 campo(s)"));
+
+        ProdutoDTO cabo = produtoService.buscarPorSku("IMP-001");
+        assertEquals("Cabo 2m, com \"ferrite\"", cabo.getDescricao());
+        assertEquals(new BigDecimal("39.90"), cabo.getPreco());
+        assertEquals("Papelaria", cabo.getCategoriaNome());
+        assertTrue(cabo.getAtivo());
+
+        // Os índices em memória recebem os produtos importados
+        assertEquals(List.of(cabo.getId()), ids(produtoService.buscarPorTermo("Cabo HDMI")));
+        assertEquals("IMP-002", produtoService.sugerirSkus("imp-00", 10).get(1).getSku());
+        assertTrue(estoqueBaixo.contem(produtoService.buscarPorSku("IMP-002").getId()));
+    }
+
+    @Test
+    @DisplayName("Deve importar NDJSON com categoria por id")
+    void deveImportarNdjson() throws IOException {
+        String ndjson = "{\"sku\":\"JSN-001\",\"nome\":\"Caderno\",\"preco\":12.5,\"categoriaId\":4}\n"
+                + "{\"sku\":\"JSN-002\",\"nome\":\"Lápis\",\"preco\":1.2,\"ativo\":false}\n"
+                + "{\"sku\":\"JSN-003\",\"nome\":\"Quebrado\"\n"
+                + "{\"sku\":\"JSN-004\",\"nome\":\"Sem categoria\",\"preco\":1,\"categoriaId\":999}\n";
+
+        ResultadoImportacaoDTO resultado = importar(ndjson, ImportacaoProdutoService.Formato.NDJSON);
+
+        assertEquals(4, resultado.getTotal());
+        assertEquals(2, resultado.getImportados());
+        assertEquals(List.of(3L, 4L), resultado.getErros().stream().map(ErroImportacaoDTO::getLinha).collect(Collectors.toList()));
+        assertTrue(resultado.getErros().get(0).getErro().startsWith("JSON inválido"));
+        assertEquals("Papelaria", produtoService.buscarPorSku("JSN-001").getCategoriaNome());
+        assertFalse(produtoService.buscarPorSku("JSN-002").getAtivo());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar cabeçalho com coluna desconhecida antes de gravar")
+    void deveRejeitarCabecalhoInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importar("sku,nome,preco,cor\nCAB-001,Produto,1.00,azul\n", ImportacaoProdutoService.Formato.CSV));
+        assertThrows(IllegalArgumentException.class,
+                () -> importar("sku,nome\nCAB-001,Produto\n", ImportacaoProdutoService.Formato.CSV));
+        assertThrows(IllegalArgumentException.class, () -> importar("", ImportacaoProdutoService.Formato.CSV));
+    }
+
+    private ResultadoImportacaoDTO importar(String conteudo, ImportacaoProdutoService.Formato formato) throws IOException {
+        return importacaoService.importar(new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8)), formato);
+    }
+
+    private List<Long> ids(List<ProdutoDTO> produtos) {
+        return produtos.stream().map(ProdutoDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceBuscaProdutosTest {
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private IndiceBuscaProdutos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceBuscaProdutos(produtoRepository, transactionTemplate);
+
+        indice.indexar(1L, "Notebook Dell Inspiron", "NOT-DELL-001", "Notebook Dell Inspiron 15 polegadas");
+        indice.indexar(2L, "Mouse Logitech MX Master", "MOU-LOG-001", "Mouse sem fio Logitech");
+        indice.indexar(3L, "Monitor Samsung 24\"", "MON-SAM-001", "Monitor Full HD 24 polegadas");
+        indice.indexar(4L, "Teclado Mecânico Redragon", "TEC-RED-001", "Teclado mecânico RGB");
+    }
+
+    @Test
+    @DisplayName("Deve encontrar produtos por substring do nome, SKU ou descrição")
+    void deveEncontrarPorSubstring() {
+        assertEquals(List.of(2L), indice.buscar("logi", 10));
+        assertEquals(List.of(1L), indice.buscar("dell-0", 10));
+        assertEquals(List.of(2L), indice.buscar("sem fio", 10));
+        assertTrue(indice.buscar("inexistente", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar caixa e acentos")
+    void deveIgnorarCaixaEAcentos() {
+        assertEquals(List.of(4L), indice.buscar("MECANICO", 10));
+        assertEquals(List.of(4L), indice.buscar("mecânico", 10));
+    }
+
+    @Test
+    @DisplayName("Deve exigir os trigramas contíguos no mesmo campo")
+    void deveExigirCasamentoContiguo() {
+        // "ook" e "kde" existem em campos diferentes, mas "ookdel" não aparece em nenhum
+        assertTrue(indice.buscar("ookdel", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve ordenar por relevância: SKU antes de nome e nome antes de descrição")
+    void deveOrdenarPorRelevancia() {
+        indice.indexar(5L, "Suporte para monitor", "SUP-001", "Braço articulado");
+        indice.indexar(6L, "Cabo HDMI", "CAB-001", "Ideal para monitor");
+
+        assertEquals(Arrays.asList(3L, 5L, 6L), indice.buscar("monitor", 10));
+        assertEquals(List.of(3L), indice.buscar("mon-sam-001", 10));
+        assertEquals(2, indice.buscar("monitor", 2).size());
+    }
+
+    @Test
+    @DisplayName("Deve responder termos curtos varrendo os documentos")
+    void deveResponderTermosCurtos() {
+        assertEquals(List.of(2L), indice.buscar("mx", 10));
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizações e remoções")
+    void deveRefletirAtualizacoesERemocoes() {
+        indice.indexar(2L, "Mouse Razer", "MOU-RAZ-001", null);
+
+        assertTrue(indice.buscar("logitech", 10).isEmpty());
+        assertEquals(List.of(2L), indice.buscar("razer", 10));
+
+        indice.remover(2L);
+
+        assertTrue(indice.buscar("razer", 10).isEmpty());
+        assertEquals(3, indice.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o índice a partir do banco")
+    @SuppressWarnings("unchecked")
+    void deveReconstruirAPartirDoBanco() {
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        ProdutoDTO papel = new ProdutoDTO();
+        papel.setId(10L);
+        papel.setNome("Papel A4 500 folhas");
+        papel.setSku("PAP-A4-001");
+        when(produtoRepository.streamParaIndexacao()).thenReturn(Stream.of(papel));
+
+        indice.reconstruir();
+
+        assertEquals(1, indice.tamanho());
+        assertEquals(List.of(10L), indice.buscar("a4", 10));
+        assertTrue(indice.buscar("notebook", 10).isEmpty());
+    }
+}
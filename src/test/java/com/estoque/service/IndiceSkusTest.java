@@ -0,0 +1,135 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.SugestaoSkuDTO;
+import com.estoque.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceSkusTest {
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private IndiceSkus indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceSkus(produtoRepository, transactionTemplate);
+
+        indice.adicionar(1L, "NOT-DELL-001");
+        indice.adicionar(2L, "MOU-LOG-001");
+        indice.adicionar(3L, "MON-SAM-001");
+        indice.adicionar(4L, "NOT-LEN-002");
+        indice.adicionar(5L, "MON-LG-002");
+    }
+
+    @Test
+    @DisplayName("Deve sugerir SKUs que começam com o prefixo, em ordem alfabética")
+    void deveSugerirPorPrefixo() {
+        assertEquals(List.of("MON-LG-002", "MON-SAM-001"), skus(indice.sugerir("MON", 10)));
+        assertEquals(List.of("NOT-DELL-001", "NOT-LEN-002"), skus(indice.sugerir("NOT-", 10)));
+        assertEquals(List.of(1L), indice.sugerir("NOT-D", 10).stream().map(SugestaoSkuDTO::getId).collect(Collectors.toList()));
+        assertTrue(indice.sugerir("TEC", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar caixa e respeitar o limite")
+    void deveIgnorarCaixaERespeitarLimite() {
+        assertEquals(List.of("MON-LG-002", "MON-SAM-001", "MOU-LOG-001"), skus(indice.sugerir("mo", 10)));
+        assertEquals(List.of("MON-LG-002"), skus(indice.sugerir("mo", 1)));
+    }
+
+    @Test
+    @DisplayName("Deve refletir remoção e troca de SKU")
+    void deveRefletirRemocaoETroca() {
+        indice.remover(3L, "MON-SAM-001");
+        indice.adicionar(3L, "MON-SAM-999");
+        indice.remover(5L, "MON-LG-002");
+
+        assertEquals(List.of("MON-SAM-999"), skus(indice.sugerir("MON", 10)));
+        assertEquals(4, indice.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve manter a ordem após muitas remoções e compactação")
+    void deveManterOrdemAposCompactacao() {
+        for (long id = 100; id < 1100; id++) {
+            indice.adicionar(id, String.format("TMP-%04d", id));
+        }
+        for (long id = 100; id < 1100; id++) {
+            indice.remover(id, String.format("TMP-%04d", id));
+        }
+        indice.adicionar(6L, "TEC-RED-001");
+
+        assertEquals(6, indice.tamanho());
+        assertEquals(List.of("MON-LG-002", "MON-SAM-001", "MOU-LOG-001", "NOT-DELL-001", "NOT-LEN-002", "TEC-RED-001"),
+                skus(indice.sugerir("", 10)));
+    }
+
+    @Test
+    @DisplayName("Deve intercalar um lote importado com os SKUs já indexados")
+    void deveIntercalarLote() {
+        indice.adicionarTodos(Arrays.asList(produto(7L, "MON-AOC-003"), produto(8L, "aaa-001"), produto(9L, "NOT-DELL-001"),
+                produto(10L, "ZZZ-1"), produto(11L, null)));
+
+        assertEquals(9, indice.tamanho());
+        assertEquals(List.of("aaa-001", "MON-AOC-003", "MON-LG-002", "MON-SAM-001", "MOU-LOG-001", "NOT-DELL-001", "NOT-DELL-001",
+                "NOT-LEN-002", "ZZZ-1"), skus(indice.sugerir("", 20)));
+        assertEquals(List.of(1L, 9L), indice.sugerir("not-dell", 10).stream().map(SugestaoSkuDTO::getId).collect(Collectors.toList()));
+
+        indice.remover(3L, "MON-SAM-001");
+        indice.adicionar(12L, "MON-BEN-004");
+        assertEquals(List.of("MON-AOC-003", "MON-BEN-004", "MON-LG-002"), skus(indice.sugerir("MON", 10)));
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir a partir do banco, ignorando produtos sem SKU")
+    @SuppressWarnings("unchecked")
+    void deveReconstruirAPartirDoBanco() {
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(produtoRepository.streamParaIndexacao()).thenReturn(Stream.of(produto(20L, "tec-mec-001"), produto(21L, "CAB-HDMI-2"),
+                produto(22L, null), produto(23L, "TEC-ABN-002"), produto(24L, "")));
+
+        indice.reconstruir();
+
+        assertEquals(3, indice.tamanho());
+        assertEquals(List.of("TEC-ABN-002", "tec-mec-001"), skus(indice.sugerir("TEC", 10)));
+        assertEquals(List.of("CAB-HDMI-2"), skus(indice.sugerir("cab-h", 10)));
+        // O que estava no índice antes sai: a reconstrução espelha o banco
+        assertTrue(indice.sugerir("NOT", 10).isEmpty());
+    }
+
+    private static ProdutoDTO produto(Long id, String sku) {
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setId(id);
+        produto.setSku(sku);
+        return produto;
+    }
+
+    private static List<String> skus(List<SugestaoSkuDTO> sugestoes) {
+        return sugestoes.stream().map(SugestaoSkuDTO::getSku).collect(Collectors.toList());
+    }
+}
@@ -1,9 +1,13 @@
 package com.estoque.service;
 
+import com.estoque.dto.EventoEstoqueDTO;
 import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.model.EstoqueDeposito;
 import com.estoque.model.MovimentacaoEstoque;
 import com.estoque.model.Produto;
 import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.EstoqueDepositoRepository;
 import com.estoque.repository.MovimentacaoEstoqueRepository;
 import com.estoque.repository.ProdutoRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +17,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 
 import javax.persistence.EntityNotFoundException;
 import java.math.BigDecimal;
@@ -24,6 +30,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -36,9 +43,39 @@ class MovimentacaoEstoqueServiceTest {
     @Mock
     private ProdutoRepository produtoRepository;
 
+    @Mock
+    private ConjuntoEstoqueBaixo estoqueBaixo;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @Mock
+    private CachesLeitura caches;
+
+    @Mock
+    private ResumosMovimentacao resumos;
+
+    @Mock
+    private AvaliacaoEstoqueMemoria avaliacao;
+
+    @Mock
+    private ArquivoMovimentacoes arquivo;
+
+    @Mock
+    private MetricasEstoque metricas;
+
+    @Mock
+    private DepositoService depositos;
+
+    @Mock
+    private EstoqueDepositoRepository estoqueDepositoRepository;
+
     @InjectMocks
     private MovimentacaoEstoqueService movimentacaoService;
 
+    private static final Long PADRAO = 1L;
+    private static final Long LOJA = 2L;
+
     private Produto produto;
     private MovimentacaoEstoque movimentacao;
 
@@ -61,6 +98,14 @@ class MovimentacaoEstoqueServiceTest {
         movimentacao.setQuantidadePosterior(60);
         movimentacao.setMotivo("Compra de fornecedor");
         movimentacao.setDataMovimentacao(LocalDateTime.now());
+
+        // Todo o estoque do produto no depósito padrão
+        lenient().when(depositos.resolver(null)).thenReturn(PADRAO);
+        lenient().when(depositos.resolver(PADRAO)).thenReturn(PADRAO);
+        lenient().when(depositos.resolver(LOJA)).thenReturn(LOJA);
+        lenient().when(estoqueDepositoRepository.debitar(eq(1L), eq(PADRAO), anyInt())).thenReturn(1);
+        lenient().when(estoqueDepositoRepository.findParaAtualizacao(1L, PADRAO))
+                .thenReturn(Optional.of(new EstoqueDeposito(1L, PADRAO, 50)));
     }
 
     @Test
@@ -75,12 +120,47 @@ class MovimentacaoEstoqueServiceTest {
         movimentacao2.setQuantidadePosterior(55);
         movimentacao2.setDataMovimentacao(LocalDateTime.now());
 
-        when(movimentacaoRepository.findAll()).thenReturn(Arrays.asList(movimentacao, movimentacao2));
+        when(movimentacaoRepository.findPagina(any(Pageable.class)))
+                .thenReturn(Arrays.asList(projecao(movimentacao), projecao(movimentacao2)));
+
+        PaginaDTO<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarTodas(null, 50);
+
+        assertEquals(2, resultado.getItens().size());
+        assertNull(resultado.getProximoCursor());
+        verify(movimentacaoRepository, times(1)).findPagina(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve continuar a listagem a partir do cursor")
+    void deveContinuarListagemAPartirDoCursor() {
+        MovimentacaoEstoque movimentacao2 = new MovimentacaoEstoque();
+        movimentacao2.setId(2L);
+        movimentacao2.setProduto(produto);
+        movimentacao2.setTipo(TipoMovimentacao.SAIDA);
+        movimentacao2.setQuantidade(5);
+        movimentacao2.setDataMovimentacao(movimentacao.getDataMovimentacao().minusMinutes(1));
 
-        List<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarTodas();
+        when(movimentacaoRepository.findPagina(any(Pageable.class)))
+                .thenReturn(Arrays.asList(projecao(movimentacao), projecao(movimentacao2)));
+
+        PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarTodas(null, 1);
+
+        assertEquals(1, pagina.getItens().size());
+        assertNotNull(pagina.getProximoCursor());
+
+        when(movimentacaoRepository.findPaginaApos(eq(movimentacao.getDataMovimentacao()), eq(1L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(projecao(movimentacao2)));
+
+        PaginaDTO<MovimentacaoEstoqueDTO> proxima = movimentacaoService.listarTodas(pagina.getProximoCursor(), 1);
+
+        assertEquals(2L, proxima.getItens().get(0).getId());
+        assertNull(proxima.getProximoCursor());
+    }
 
-        assertEquals(2, resultado.size());
-        verify(movimentacaoRepository, times(1)).findAll();
+    @Test
+    @DisplayName("Deve lançar exceção para limite inválido")
+    void deveLancarExcecaoParaLimiteInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> movimentacaoService.listarTodas(null, 0));
     }
 
     @Test
@@ -112,14 +192,14 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve listar movimentações por produto")
     void deveListarMovimentacoesPorProduto() {
-        when(movimentacaoRepository.findByProdutoIdOrderByDataMovimentacaoDesc(1L))
-                .thenReturn(Collections.singletonList(movimentacao));
+        when(movimentacaoRepository.findPaginaPorProduto(eq(1L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(projecao(movimentacao)));
 
-        List<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorProduto(1L);
+        PaginaDTO<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorProduto(1L, null, 50);
 
-        assertEquals(1, resultado.size());
-        assertEquals(1L, resultado.get(0).getProdutoId());
-        verify(movimentacaoRepository, times(1)).findByProdutoIdOrderByDataMovimentacaoDesc(1L);
+        assertEquals(1, resultado.getItens().size());
+        assertEquals(1L, resultado.getItens().get(0).getProdutoId());
+        verify(movimentacaoRepository, times(1)).findPaginaPorProduto(eq(1L), any(Pageable.class));
     }
 
     @Test
@@ -128,33 +208,34 @@ class MovimentacaoEstoqueServiceTest {
         LocalDateTime inicio = LocalDateTime.now().minusDays(7);
         LocalDateTime fim = LocalDateTime.now();
 
-        when(movimentacaoRepository.findByPeriodo(inicio, fim))
-                .thenReturn(Collections.singletonList(movimentacao));
+        when(movimentacaoRepository.findPaginaPorPeriodo(eq(inicio), eq(fim), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(projecao(movimentacao)));
 
-        List<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorPeriodo(inicio, fim);
+        PaginaDTO<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorPeriodo(inicio, fim, null, 50);
 
-        assertEquals(1, resultado.size());
-        verify(movimentacaoRepository, times(1)).findByPeriodo(inicio, fim);
+        assertEquals(1, resultado.getItens().size());
+        verify(movimentacaoRepository, times(1)).findPaginaPorPeriodo(eq(inicio), eq(fim), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve listar movimentações por tipo")
     void deveListarMovimentacoesPorTipo() {
-        when(movimentacaoRepository.findByTipo(TipoMovimentacao.ENTRADA))
-                .thenReturn(Collections.singletonList(movimentacao));
+        when(movimentacaoRepository.findPaginaPorTipo(eq(TipoMovimentacao.ENTRADA), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(projecao(movimentacao)));
 
-        List<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorTipo(TipoMovimentacao.ENTRADA);
+        PaginaDTO<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarPorTipo(TipoMovimentacao.ENTRADA, null, 50);
 
-        assertEquals(1, resultado.size());
-        assertEquals(TipoMovimentacao.ENTRADA, resultado.get(0).getTipo());
-        verify(movimentacaoRepository, times(1)).findByTipo(TipoMovimentacao.ENTRADA);
+        assertEquals(1, resultado.getItens().size());
+        assertEquals(TipoMovimentacao.ENTRADA, resultado.getItens().get(0).getTipo());
+        verify(movimentacaoRepository, times(1)).findPaginaPorTipo(eq(TipoMovimentacao.ENTRADA), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve registrar entrada com sucesso")
     void deveRegistrarEntradaComSucesso() {
+        when(produtoRepository.creditarEstoque(1L, 20)).thenReturn(1);
+        produto.setQuantidadeEstoque(70);
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
-        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
             m.setId(1L);
@@ -169,30 +250,28 @@ class MovimentacaoEstoqueServiceTest {
         assertEquals(50, resultado.getQuantidadeAnterior());
         assertEquals(70, resultado.getQuantidadePosterior());
 
-        verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(produtoRepository, never()).save(any(Produto.class));
         verify(movimentacaoRepository, times(1)).save(any(MovimentacaoEstoque.class));
+        verify(resumos, times(1)).registrar(anyList());
     }
 
     @Test
-    @DisplayName("Deve atualizar estoque do produto após entrada")
+    @DisplayName("Deve atualizar estoque do produto com incremento atômico na entrada")
     void deveAtualizarEstoqueAposEntrada() {
+        when(produtoRepository.creditarEstoque(1L, 20)).thenReturn(1);
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
-        when(produtoRepository.save(any(Produto.class))).thenAnswer(invocation -> {
-            Produto p = invocation.getArgument(0);
-            assertEquals(70, p.getQuantidadeEstoque());
-            return p;
-        });
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenReturn(movimentacao);
 
         movimentacaoService.registrarEntrada(1L, 20, "Compra");
 
-        verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(produtoRepository, times(1)).creditarEstoque(1L, 20);
+        verify(produtoRepository, never()).save(any(Produto.class));
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao registrar entrada para produto inexistente")
     void deveLancarExcecaoAoRegistrarEntradaParaProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.creditarEstoque(anyLong(), anyInt())).thenReturn(0);
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -201,13 +280,15 @@ class MovimentacaoEstoqueServiceTest {
 
         assertTrue(exception.getMessage().contains("999"));
         verify(movimentacaoRepository, never()).save(any(MovimentacaoEstoque.class));
+        verifyNoInteractions(resumos);
     }
 
     @Test
     @DisplayName("Deve registrar saída com sucesso")
     void deveRegistrarSaidaComSucesso() {
+        when(produtoRepository.debitarEstoque(1L, 10)).thenReturn(1);
+        produto.setQuantidadeEstoque(40);
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
-        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
             m.setId(1L);
@@ -224,27 +305,26 @@ class MovimentacaoEstoqueServiceTest {
     }
 
     @Test
-    @DisplayName("Deve atualizar estoque do produto após saída")
+    @DisplayName("Deve atualizar estoque do produto com decremento condicional na saída")
     void deveAtualizarEstoqueAposSaida() {
+        when(produtoRepository.debitarEstoque(1L, 10)).thenReturn(1);
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
-        when(produtoRepository.save(any(Produto.class))).thenAnswer(invocation -> {
-            Produto p = invocation.getArgument(0);
-            assertEquals(40, p.getQuantidadeEstoque());
-            return p;
-        });
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenReturn(movimentacao);
 
         movimentacaoService.registrarSaida(1L, 10, "Venda");
 
-        verify(produtoRepository, times(2)).findById(1L);
-        verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(produtoRepository, times(1)).debitarEstoque(1L, 10);
+        verify(produtoRepository, times(1)).findById(1L);
+        verify(produtoRepository, never()).save(any(Produto.class));
+        verify(estoqueBaixo, times(1)).atualizar(produto);
+        verify(eventos, times(1)).publishEvent(any(EventoEstoqueDTO.class));
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao registrar saída com estoque insuficiente")
     void deveLancarExcecaoAoRegistrarSaidaComEstoqueInsuficiente() {
-        produto.setQuantidadeEstoque(5);
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.debitarEstoque(1L, 10)).thenReturn(0);
+        when(produtoRepository.findQuantidadeEstoqueById(1L)).thenReturn(Optional.of(5));
 
         IllegalStateException exception = assertThrows(
                 IllegalStateException.class,
@@ -254,12 +334,15 @@ class MovimentacaoEstoqueServiceTest {
         assertTrue(exception.getMessage().contains("insuficiente"));
         assertTrue(exception.getMessage().contains("5"));
         verify(movimentacaoRepository, never()).save(any(MovimentacaoEstoque.class));
+        verify(metricas).saidaRecusada(MetricasEstoque.ORIGEM_UNITARIA);
+        verifyNoInteractions(estoqueBaixo, eventos);
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao registrar saída para produto inexistente")
     void deveLancarExcecaoAoRegistrarSaidaParaProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.debitarEstoque(anyLong(), anyInt())).thenReturn(0);
+        when(produtoRepository.findQuantidadeEstoqueById(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -272,9 +355,9 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve registrar saída com quantidade exata do estoque")
     void deveRegistrarSaidaComQuantidadeExata() {
-        produto.setQuantidadeEstoque(10);
+        when(produtoRepository.debitarEstoque(1L, 10)).thenReturn(1);
+        produto.setQuantidadeEstoque(0);
         when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
-        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
             m.setId(1L);
@@ -291,7 +374,7 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve registrar ajuste aumentando estoque")
     void deveRegistrarAjusteAumentandoEstoque() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
@@ -311,7 +394,7 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve registrar ajuste diminuindo estoque")
     void deveRegistrarAjusteDiminuindoEstoque() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
@@ -331,7 +414,7 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve registrar ajuste para zero")
     void deveRegistrarAjusteParaZero() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenAnswer(invocation -> {
             Produto p = invocation.getArgument(0);
             assertEquals(0, p.getQuantidadeEstoque());
@@ -348,12 +431,13 @@ class MovimentacaoEstoqueServiceTest {
         assertNotNull(resultado);
         assertEquals(50, resultado.getQuantidade());
         assertEquals(0, resultado.getQuantidadePosterior());
+        verify(estoqueBaixo, times(1)).atualizar(produto);
     }
 
     @Test
     @DisplayName("Deve registrar ajuste com mesma quantidade")
     void deveRegistrarAjusteComMesmaQuantidade() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
         when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> {
             MovimentacaoEstoque m = invocation.getArgument(0);
@@ -372,7 +456,7 @@ class MovimentacaoEstoqueServiceTest {
     @Test
     @DisplayName("Deve lançar exceção ao registrar ajuste para produto inexistente")
     void deveLancarExcecaoAoRegistrarAjusteParaProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.findByIdParaAtualizacao(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -383,14 +467,103 @@ class MovimentacaoEstoqueServiceTest {
         verify(movimentacaoRepository, never()).save(any(MovimentacaoEstoque.class));
     }
 
+    @Test
+    @DisplayName("Deve criar a linha do depósito na primeira entrada nele")
+    void deveCriarLinhaDoDepositoNaPrimeiraEntrada() {
+        when(produtoRepository.creditarEstoque(1L, 5)).thenReturn(1);
+        when(estoqueDepositoRepository.creditar(1L, LOJA, 5)).thenReturn(0);
+        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MovimentacaoEstoqueDTO resultado = movimentacaoService.registrarEntrada(1L, LOJA, 5, "Compra");
+
+        assertEquals(LOJA, resultado.getDepositoId());
+        verify(estoqueDepositoRepository).save(new EstoqueDeposito(1L, LOJA, 5));
+    }
+
+    @Test
+    @DisplayName("Deve recusar saída acima do estoque do depósito mesmo com total suficiente")
+    void deveRecusarSaidaAcimaDoEstoqueDoDeposito() {
+        when(produtoRepository.debitarEstoque(1L, 10)).thenReturn(1);
+        when(estoqueDepositoRepository.debitar(1L, LOJA, 10)).thenReturn(0);
+        when(estoqueDepositoRepository.findQuantidade(1L, LOJA)).thenReturn(Optional.of(3));
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> movimentacaoService.registrarSaida(1L, LOJA, 10, "Venda")
+        );
+
+        assertTrue(exception.getMessage().contains("Disponível: 3"));
+        verify(movimentacaoRepository, never()).save(any(MovimentacaoEstoque.class));
+        verify(metricas).saidaRecusada(MetricasEstoque.ORIGEM_UNITARIA);
+    }
+
+    @Test
+    @DisplayName("Deve ajustar a quantidade do depósito e variar o total pela diferença")
+    void deveAjustarQuantidadeDoDeposito() {
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+        when(estoqueDepositoRepository.findParaAtualizacao(1L, LOJA)).thenReturn(Optional.of(new EstoqueDeposito(1L, LOJA, 10)));
+        when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MovimentacaoEstoqueDTO resultado = movimentacaoService.registrarAjuste(1L, LOJA, 4, "Inventário da loja");
+
+        assertEquals(6, resultado.getQuantidade());
+        assertEquals(50, resultado.getQuantidadeAnterior());
+        assertEquals(44, resultado.getQuantidadePosterior());
+        assertEquals(44, produto.getQuantidadeEstoque());
+        verify(estoqueDepositoRepository).save(new EstoqueDeposito(1L, LOJA, 4));
+    }
+
+    @Test
+    @DisplayName("Deve transferir entre depósitos sem alterar o total do produto")
+    void deveTransferirEntreDepositos() {
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+        when(movimentacaoRepository.save(any(MovimentacaoEstoque.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MovimentacaoEstoqueDTO resultado = movimentacaoService.transferir(1L, PADRAO, LOJA, 20, "Reposição da loja");
+
+        assertEquals(TipoMovimentacao.TRANSFERENCIA, resultado.getTipo());
+        assertEquals(20, resultado.getQuantidade());
+        assertEquals(50, resultado.getQuantidadeAnterior());
+        assertEquals(50, resultado.getQuantidadePosterior());
+        assertEquals(PADRAO, resultado.getDepositoId());
+        assertEquals(LOJA, resultado.getDepositoDestinoId());
+        verify(estoqueDepositoRepository).saveAll(List.of(new EstoqueDeposito(1L, PADRAO, 30), new EstoqueDeposito(1L, LOJA, 20)));
+        verify(produtoRepository, never()).save(any(Produto.class));
+    }
+
+    @Test
+    @DisplayName("Deve recusar transferência acima do estoque da origem")
+    void deveRecusarTransferenciaAcimaDoEstoqueDaOrigem() {
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> movimentacaoService.transferir(1L, PADRAO, LOJA, 51, "Reposição da loja")
+        );
+
+        assertTrue(exception.getMessage().contains("Disponível: 50"));
+        verify(estoqueDepositoRepository, never()).saveAll(anyList());
+        verify(movimentacaoRepository, never()).save(any(MovimentacaoEstoque.class));
+    }
+
+    @Test
+    @DisplayName("Deve recusar transferência para o próprio depósito")
+    void deveRecusarTransferenciaParaOProprioDeposito() {
+        assertThrows(IllegalArgumentException.class, () -> movimentacaoService.transferir(1L, LOJA, LOJA, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> movimentacaoService.transferir(1L, PADRAO, LOJA, 0, null));
+        verifyNoInteractions(produtoRepository, estoqueDepositoRepository);
+    }
+
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver movimentações")
     void deveRetornarListaVaziaQuandoNaoHouverMovimentacoes() {
-        when(movimentacaoRepository.findAll()).thenReturn(Collections.emptyList());
+        when(movimentacaoRepository.findPagina(any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
 
-        List<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarTodas();
+        PaginaDTO<MovimentacaoEstoqueDTO> resultado = movimentacaoService.listarTodas(null, 50);
 
-        assertTrue(resultado.isEmpty());
+        assertTrue(resultado.getItens().isEmpty());
     }
 
     @Test
@@ -403,4 +576,9 @@ class MovimentacaoEstoqueServiceTest {
         assertEquals(1L, resultado.getProdutoId());
         assertEquals("Smartphone", resultado.getProdutoNome());
     }
+
+    private MovimentacaoEstoqueDTO projecao(MovimentacaoEstoque m) {
+        return new MovimentacaoEstoqueDTO(m.getId(), m.getProduto().getId(), m.getProduto().getNome(), m.getTipo(), m.getQuantidade(),
+                m.getQuantidadeAnterior(), m.getQuantidadePosterior(), m.getMotivo(), m.getDataMovimentacao());
+    }
 }
@@ -0,0 +1,212 @@
+package com.estoque.service;
+
+import com.estoque.dto.EventoEstoqueDTO;
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
+import com.estoque.dto.ResultadoLoteDTO;
+import com.estoque.model.EstoqueDeposito;
+import com.estoque.model.MovimentacaoEstoque;
+import com.estoque.model.Produto;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.repository.EstoqueDepositoRepository;
+import com.estoque.repository.MovimentacaoEstoqueRepository;
+import com.estoque.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovimentacaoLoteServiceTest {
+
+    @Mock
+    private MovimentacaoEstoqueRepository movimentacaoRepository;
+
+    @Mock
+    private ProdutoRepository produtoRepository;
+
+    @Mock
+    private ConjuntoEstoqueBaixo estoqueBaixo;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @Mock
+    private CachesLeitura caches;
+
+    @Mock
+    private ResumosMovimentacao resumos;
+
+    @Mock
+    private AvaliacaoEstoqueMemoria avaliacao;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private MetricasEstoque metricas;
+
+    @Mock
+    private DepositoService depositos;
+
+    @Mock
+    private EstoqueDepositoRepository estoqueDepositoRepository;
+
+    @InjectMocks
+    private MovimentacaoLoteService loteService;
+
+    private static final Long PADRAO = 1L;
+    private static final Long LOJA = 2L;
+
+    private Produto produto;
+
+    @BeforeEach
+    void setUp() {
+        produto = new Produto();
+        produto.setId(1L);
+        produto.setNome("Smartphone");
+        produto.setPreco(new BigDecimal("1500.00"));
+        produto.setQuantidadeEstoque(10);
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+
+        // Todo o estoque do produto no depósito padrão; a loja começa sem linha
+        lenient().when(depositos.resolver(null)).thenReturn(PADRAO);
+        lenient().when(depositos.resolver(PADRAO)).thenReturn(PADRAO);
+        lenient().when(depositos.resolver(LOJA)).thenReturn(LOJA);
+        lenient().when(estoqueDepositoRepository.findAllParaAtualizacao(anyCollection())).thenAnswer(invocation ->
+                new ArrayList<>(List.of(new EstoqueDeposito(1L, PADRAO, produto.getQuantidadeEstoque()))));
+
+        AtomicLong sequencia = new AtomicLong();
+        lenient().when(movimentacaoRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            List<MovimentacaoEstoque> movimentacoes = invocation.getArgument(0);
+            movimentacoes.forEach(m -> m.setId(sequencia.incrementAndGet()));
+            return movimentacoes;
+        });
+    }
+
+    @Test
+    @DisplayName("Deve aplicar as linhas em ordem e encadear as quantidades")
+    void deveAplicarLinhasEmOrdem() {
+        when(produtoRepository.findAllByIdParaAtualizacao(anyCollection())).thenReturn(Collections.singletonList(produto));
+
+        ResultadoLoteDTO resultado = loteService.registrarLote(Arrays.asList(
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.ENTRADA, 5, "Fornecedor"),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.SAIDA, 12, "Venda"),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.AJUSTE, 7, "Inventário")
+        ).iterator());
+
+        assertEquals(3, resultado.getTotal());
+        assertEquals(3, resultado.getSucessos());
+        assertEquals(15, resultado.getLinhas().get(0).getQuantidadePosterior());
+        assertEquals(3, resultado.getLinhas().get(1).getQuantidadePosterior());
+        assertEquals(7, resultado.getLinhas().get(2).getQuantidadePosterior());
+        assertEquals(7, produto.getQuantidadeEstoque());
+        verify(produtoRepository, times(1)).findAllByIdParaAtualizacao(anyCollection());
+        verify(produtoRepository, never()).save(any(Produto.class));
+
+        ArgumentCaptor<EventoEstoqueDTO> evento = ArgumentCaptor.forClass(EventoEstoqueDTO.class);
+        verify(eventos, times(1)).publishEvent(evento.capture());
+        assertEquals(1, evento.getValue().getProdutos().size());
+        assertEquals(7, evento.getValue().getProdutos().get(0).getQuantidadeEstoque());
+        assertEquals(3, evento.getValue().getMovimentacoes().size());
+    }
+
+    @Test
+    @DisplayName("Deve reportar falhas por linha sem interromper o lote")
+    void deveReportarFalhasPorLinha() {
+        when(produtoRepository.findAllByIdParaAtualizacao(anyCollection())).thenReturn(Collections.singletonList(produto));
+
+        ResultadoLoteDTO resultado = loteService.registrarLote(Arrays.asList(
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.SAIDA, 50, "Venda"),
+                new ItemMovimentacaoLoteDTO(999L, TipoMovimentacao.ENTRADA, 1, null),
+                new ItemMovimentacaoLoteDTO(1L, null, 1, null),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.ENTRADA, 0, null),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.SAIDA, 10, "Venda")
+        ).iterator());
+
+        assertEquals(5, resultado.getTotal());
+        assertEquals(1, resultado.getSucessos());
+        assertEquals(4, resultado.getFalhas());
+        assertTrue(resultado.getLinhas().get(0).getErro().contains("insuficiente"));
+        assertTrue(resultado.getLinhas().get(1).getErro().contains("999"));
+        assertFalse(resultado.getLinhas().get(2).getSucesso());
+        assertFalse(resultado.getLinhas().get(3).getSucesso());
+        assertTrue(resultado.getLinhas().get(4).getSucesso());
+        assertEquals(5, resultado.getLinhas().get(4).getLinha());
+        verify(metricas).saidaRecusada(MetricasEstoque.ORIGEM_LOTE);
+        assertEquals(0, produto.getQuantidadeEstoque());
+    }
+
+    @Test
+    @DisplayName("Deve dividir lotes grandes em blocos transacionais")
+    void deveDividirEmBlocos() {
+        produto.setQuantidadeEstoque(0);
+        when(produtoRepository.findAllByIdParaAtualizacao(anyCollection())).thenReturn(Collections.singletonList(produto));
+
+        List<ItemMovimentacaoLoteDTO> itens = new ArrayList<>();
+        for (int i = 0; i < MovimentacaoLoteService.TAMANHO_BLOCO * 2 + 1; i++) {
+            itens.add(new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.ENTRADA, 1, null));
+        }
+
+        ResultadoLoteDTO resultado = loteService.registrarLote(itens.iterator());
+
+        assertEquals(itens.size(), resultado.getSucessos());
+        assertEquals(itens.size(), resultado.getLinhas().get(itens.size() - 1).getLinha());
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(movimentacaoRepository, times(3)).saveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar cada linha no estoque do seu depósito")
+    void deveAplicarNoEstoqueDoDeposito() {
+        when(produtoRepository.findAllByIdParaAtualizacao(anyCollection())).thenReturn(Collections.singletonList(produto));
+        when(depositos.resolver(99L)).thenThrow(new EntityNotFoundException("Depósito não encontrado com id: 99"));
+
+        ResultadoLoteDTO resultado = loteService.registrarLote(Arrays.asList(
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.SAIDA, 1, "Venda", LOJA),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.ENTRADA, 4, "Fornecedor", LOJA),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.SAIDA, 3, "Venda", LOJA),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.AJUSTE, 6, "Inventário", PADRAO),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.ENTRADA, 1, null, 99L),
+                new ItemMovimentacaoLoteDTO(1L, TipoMovimentacao.TRANSFERENCIA, 1, null, LOJA)
+        ).iterator());
+
+        assertEquals(3, resultado.getSucessos());
+        assertEquals("Quantidade em estoque insuficiente. Disponível: 0", resultado.getLinhas().get(0).getErro());
+        assertEquals(14, resultado.getLinhas().get(1).getQuantidadePosterior());
+        assertEquals(11, resultado.getLinhas().get(2).getQuantidadePosterior());
+        // O ajuste fixa o padrão em 6 (era 10): o total cai para 7, com 1 na loja
+        assertEquals(7, resultado.getLinhas().get(3).getQuantidadePosterior());
+        assertTrue(resultado.getLinhas().get(4).getErro().contains("99"));
+        assertFalse(resultado.getLinhas().get(5).getSucesso());
+        assertEquals(7, produto.getQuantidadeEstoque());
+        verify(estoqueDepositoRepository).saveAll(List.of(new EstoqueDeposito(1L, LOJA, 1)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.estoque.service;
+
+import com.estoque.dto.ItemMovimentacaoLoteDTO;
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.model.TipoMovimentacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/** Desfechos do pipeline quando a espera acaba ou a gravação do lote falha. */
+@ExtendWith(MockitoExtension.class)
+class PipelineMovimentacoesFalhasTest {
+
+    private static final long ESPERA_MS = 200;
+
+    @Mock
+    private MovimentacaoLoteService loteService;
+
+    @Mock
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PipelineMovimentacoes pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new PipelineMovimentacoes(loteService, movimentacaoService, transactionTemplate,
+                new SimpleMeterRegistry(), true, 1, 16, 16, ESPERA_MS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.encerrar();
+    }
+
+    @Test
+    @DisplayName("Pedido abandonado antes de alguma escritora pegá-lo não deve ser gravado")
+    void deveDescartarPedidoAbandonado() {
+        // Sem escritoras, ninguém pega o pedido: a espera acaba e ele é abandonado
+        assertThrows(CargaSaturadaException.class,
+                () -> pipeline.registrar(1L, null, TipoMovimentacao.SAIDA, 5, "Desistiu"));
+
+        executarCallback();
+        when(loteService.aplicar(anyList(), anyString())).thenAnswer(invocation -> {
+            List<ItemMovimentacaoLoteDTO> itens = invocation.getArgument(0);
+            return itens.stream()
+                    .map(i -> MovimentacaoLoteService.Aplicacao.falha(MovimentacaoLoteService.Falha.INSUFICIENTE, "Insuficiente"))
+                    .collect(Collectors.toList());
+        });
+        pipeline.iniciar();
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.registrar(1L, null, TipoMovimentacao.SAIDA, 7, "Esperou"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ItemMovimentacaoLoteDTO>> itens = ArgumentCaptor.forClass(List.class);
+        verify(loteService).aplicar(itens.capture(), anyString());
+        assertEquals(1, itens.getValue().size());
+        assertEquals(7, itens.getValue().get(0).getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Espera esgotada com o pedido já em gravação deve ter desfecho incerto")
+    void esperaEsgotadaEmGravacaoDeveSerIncerta() {
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            liberar.await(10, TimeUnit.SECONDS);
+            throw new TransactionSystemException("Conexão perdida no commit");
+        });
+        pipeline.iniciar();
+
+        try {
+            assertThrows(ResultadoIncertoException.class,
+                    () -> pipeline.registrar(1L, null, TipoMovimentacao.ENTRADA, 5, "Compra"));
+        } finally {
+            liberar.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Falha no commit não deve refazer o lote, que pode já estar gravado")
+    void falhaNoCommitNaoDeveRefazerLote() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            callback.doInTransaction(null);
+            throw new TransactionSystemException("Conexão perdida no commit");
+        });
+        when(loteService.aplicar(anyList(), anyString())).thenReturn(List.of());
+        pipeline.iniciar();
+
+        assertThrows(ResultadoIncertoException.class,
+                () -> pipeline.registrar(1L, null, TipoMovimentacao.ENTRADA, 5, "Compra"));
+        verifyNoInteractions(movimentacaoService);
+    }
+
+    @Test
+    @DisplayName("Falha antes do commit deve refazer cada pedido sozinho")
+    void falhaAntesDoCommitDeveRefazerPedidos() {
+        executarCallback();
+        when(loteService.aplicar(anyList(), anyString()))
+                .thenThrow(new DataIntegrityViolationException("Violação de integridade"));
+        MovimentacaoEstoqueDTO gravada = new MovimentacaoEstoqueDTO();
+        gravada.setId(42L);
+        when(movimentacaoService.registrarEntrada(eq(1L), isNull(), eq(5), eq("Compra"))).thenReturn(gravada);
+        pipeline.iniciar();
+
+        assertEquals(42L, pipeline.registrar(1L, null, TipoMovimentacao.ENTRADA, 5, "Compra").getId());
+    }
+
+    private void executarCallback() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+}
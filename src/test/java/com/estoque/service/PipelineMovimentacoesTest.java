@@ -0,0 +1,176 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import javax.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:pipeline-teste",
+        "estoque.pipeline.habilitado=true"
+})
+class PipelineMovimentacoesTest {
+
+    private static final int ESTOQUE_INICIAL = 200;
+    private static final int THREADS = 16;
+    private static final int TENTATIVAS_POR_THREAD = 25;
+
+    @Autowired
+    private PipelineMovimentacoes pipeline;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    @DisplayName("Saídas e entradas concorrentes pelo pipeline devem manter o saldo exato e a sequência de quantidades")
+    void deveManterSaldoExatoESequencia() throws Exception {
+        Long produtoId = criarProduto("PIPE-001", ESTOQUE_INICIAL);
+
+        AtomicInteger saidas = new AtomicInteger();
+        AtomicInteger entradas = new AtomicInteger();
+        AtomicInteger rejeicoes = new AtomicInteger();
+        AtomicInteger falhas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            boolean entrada = t == 0;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    try {
+                        if (entrada) {
+                            pipeline.registrar(produtoId, null, TipoMovimentacao.ENTRADA, 2, "Reposição concorrente");
+                            entradas.incrementAndGet();
+                        } else {
+                            pipeline.registrar(produtoId, null, TipoMovimentacao.SAIDA, 1, "Venda concorrente");
+                            saidas.incrementAndGet();
+                        }
+                    } catch (IllegalStateException ex) {
+                        rejeicoes.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        falhas.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        int tentativas = THREADS * TENTATIVAS_POR_THREAD;
+        assertTrue(registry.get("estoque.pipeline.lote").summary().count() > 0);
+        assertEquals(0, falhas.get());
+        assertEquals(TENTATIVAS_POR_THREAD, entradas.get());
+        assertEquals(tentativas, saidas.get() + entradas.get() + rejeicoes.get());
+        int saldo = ESTOQUE_INICIAL + 2 * entradas.get() - saidas.get();
+        assertTrue(saldo >= 0);
+        assertEquals(saldo, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+
+        // Cada movimentação parte exatamente do saldo deixado pela anterior
+        List<MovimentacaoEstoqueDTO> movimentacoes = movimentacoesDoProduto(produtoId).stream()
+                .sorted(Comparator.comparing(MovimentacaoEstoqueDTO::getId))
+                .collect(Collectors.toList());
+        assertEquals(saidas.get() + entradas.get(), movimentacoes.size());
+        int esperado = ESTOQUE_INICIAL;
+        for (MovimentacaoEstoqueDTO m : movimentacoes) {
+            assertEquals(esperado, m.getQuantidadeAnterior());
+            esperado += m.getTipo() == TipoMovimentacao.ENTRADA ? m.getQuantidade() : -m.getQuantidade();
+            assertEquals(esperado, m.getQuantidadePosterior());
+        }
+        assertEquals(saldo, esperado);
+    }
+
+    @Test
+    @DisplayName("Deve devolver as mesmas exceções do caminho sem pipeline")
+    void deveDevolverMesmasExcecoes() {
+        Long produtoId = criarProduto("PIPE-002", 3);
+
+        MovimentacaoEstoqueDTO saida = pipeline.registrar(produtoId, null, TipoMovimentacao.SAIDA, 3, "Venda");
+        assertEquals(3, saida.getQuantidadeAnterior());
+        assertEquals(0, saida.getQuantidadePosterior());
+        assertNotNull(saida.getId());
+
+        IllegalStateException insuficiente = assertThrows(IllegalStateException.class,
+                () -> pipeline.registrar(produtoId, null, TipoMovimentacao.SAIDA, 1, "Venda"));
+        assertEquals("Quantidade em estoque insuficiente. Disponível: 0", insuficiente.getMessage());
+        assertThrows(EntityNotFoundException.class, () -> pipeline.registrar(999_999L, null, TipoMovimentacao.ENTRADA, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.registrar(produtoId, null, TipoMovimentacao.ENTRADA, 0, null));
+    }
+
+    @Test
+    @DisplayName("Pedidos ainda na fila no encerramento devem ser recusados como saturação, que o cliente pode repetir")
+    void deveRecusarPendentesNoEncerramento() throws Exception {
+        // Sem escritoras iniciadas, o pedido fica na fila até o encerramento
+        SimpleMeterRegistry registroLocal = new SimpleMeterRegistry();
+        PipelineMovimentacoes parado = new PipelineMovimentacoes(null, null, null, registroLocal, true, 1, 4, 8, 30_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MovimentacaoEstoqueDTO> pedido = executor.submit(() -> parado.registrar(1L, null, TipoMovimentacao.ENTRADA, 1, null));
+            long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registroLocal.get("estoque.pipeline.fila").gauge().value() < 1) {
+                assertTrue(System.nanoTime() < prazo, "O pedido não entrou na fila");
+                Thread.onSpinWait();
+            }
+
+            parado.encerrar();
+
+            ExecutionException falha = assertThrows(ExecutionException.class, () -> pedido.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(CargaSaturadaException.class, falha.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long criarProduto(String sku, int estoque) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto pipeline " + sku);
+        dto.setSku(sku);
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(estoque);
+        dto.setQuantidadeMinima(1);
+        return produtoService.criar(dto).getId();
+    }
+
+    private List<MovimentacaoEstoqueDTO> movimentacoesDoProduto(Long produtoId) {
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarPorProduto(produtoId, cursor, 100);
+            todas.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todas;
+    }
+}
@@ -1,9 +1,14 @@
 package com.estoque.service;
 
 import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.EventoProdutoDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.SugestaoSkuDTO;
 import com.estoque.model.Categoria;
+import com.estoque.model.EstoqueDeposito;
 import com.estoque.model.Produto;
 import com.estoque.repository.CategoriaRepository;
+import com.estoque.repository.EstoqueDepositoRepository;
 import com.estoque.repository.ProdutoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,6 +17,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 
 import javax.persistence.EntityNotFoundException;
 import java.math.BigDecimal;
@@ -19,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +43,39 @@ class ProdutoServiceTest {
     @Mock
     private CategoriaRepository categoriaRepository;
 
+    @Mock
+    private IndiceBuscaProdutos indiceBusca;
+
+    @Mock
+    private IndiceSkus indiceSkus;
+
+    @Mock
+    private ConjuntoEstoqueBaixo estoqueBaixo;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @Mock
+    private CachesLeitura caches;
+
+    @Mock
+    private ResumosMovimentacao resumos;
+
+    @Mock
+    private AvaliacaoEstoqueMemoria avaliacao;
+
+    @Mock
+    private ArquivoMovimentacoes arquivo;
+
+    @Mock
+    private DepositoService depositos;
+
+    @Mock
+    private EstoqueDepositoRepository estoqueDepositoRepository;
+
+    @Mock
+    private MovimentacaoEstoqueService movimentacoes;
+
     @InjectMocks
     private ProdutoService produtoService;
 
@@ -70,6 +111,8 @@ class ProdutoServiceTest {
         produtoDTO.setQuantidadeMinima(10);
         produtoDTO.setAtivo(true);
         produtoDTO.setCategoriaId(1L);
+
+        lenient().when(depositos.resolver(null)).thenReturn(1L);
     }
 
     @Test
@@ -83,26 +126,27 @@ class ProdutoServiceTest {
         produto2.setQuantidadeMinima(5);
         produto2.setAtivo(true);
 
-        when(produtoRepository.findAll()).thenReturn(Arrays.asList(produto, produto2));
+        when(produtoRepository.findPagina(eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(projecao(produto), projecao(produto2)));
 
-        List<ProdutoDTO> resultado = produtoService.listarTodos();
+        PaginaDTO<ProdutoDTO> resultado = produtoService.listarTodos(null, 50);
 
-        assertEquals(2, resultado.size());
-        assertEquals("Smartphone", resultado.get(0).getNome());
-        assertEquals("Tablet", resultado.get(1).getNome());
-        verify(produtoRepository, times(1)).findAll();
+        assertEquals(2, resultado.getItens().size());
+        assertEquals("Smartphone", resultado.getItens().get(0).getNome());
+        assertEquals("Tablet", resultado.getItens().get(1).getNome());
+        assertNull(resultado.getProximoCursor());
+        verify(produtoRepository, times(1)).findPagina(eq(0L), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve listar apenas produtos ativos")
     void deveListarProdutosAtivos() {
-        when(produtoRepository.findByAtivoTrue()).thenReturn(Collections.singletonList(produto));
+        when(produtoRepository.findAtivos(eq(0L), any(Pageable.class))).thenReturn(Collections.singletonList(projecao(produto)));
 
-        List<ProdutoDTO> resultado = produtoService.listarAtivos();
+        PaginaDTO<ProdutoDTO> resultado = produtoService.listarAtivos(null, 50);
 
-        assertEquals(1, resultado.size());
-        assertTrue(resultado.get(0).getAtivo());
-        verify(produtoRepository, times(1)).findByAtivoTrue();
+        assertEquals(1, resultado.getItens().size());
+        assertTrue(resultado.getItens().get(0).getAtivo());
+        assertNull(resultado.getProximoCursor());
     }
 
     @Test
@@ -159,25 +203,55 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve buscar produtos por categoria")
     void deveBuscarProdutosPorCategoria() {
-        when(produtoRepository.findByCategoriaId(1L)).thenReturn(Collections.singletonList(produto));
+        when(produtoRepository.findByCategoriaId(eq(1L), eq(0L), any(Pageable.class))).thenReturn(Collections.singletonList(projecao(produto)));
 
-        List<ProdutoDTO> resultado = produtoService.buscarPorCategoria(1L);
+        PaginaDTO<ProdutoDTO> resultado = produtoService.buscarPorCategoria(1L, null, 50);
 
-        assertEquals(1, resultado.size());
-        assertEquals(1L, resultado.get(0).getCategoriaId());
-        verify(produtoRepository, times(1)).findByCategoriaId(1L);
+        assertEquals(1, resultado.getItens().size());
+        assertEquals(1L, resultado.getItens().get(0).getCategoriaId());
+        assertNull(resultado.getProximoCursor());
     }
 
     @Test
     @DisplayName("Deve buscar produtos por termo")
     void deveBuscarProdutosPorTermo() {
-        when(produtoRepository.buscarPorTermo("Smart")).thenReturn(Collections.singletonList(produto));
+        when(indiceBusca.buscar("Smart", ProdutoService.LIMITE_BUSCA)).thenReturn(Collections.singletonList(1L));
+        when(produtoRepository.findByIdIn(Collections.singletonList(1L))).thenReturn(Collections.singletonList(projecao(produto)));
 
         List<ProdutoDTO> resultado = produtoService.buscarPorTermo("Smart");
 
         assertEquals(1, resultado.size());
         assertTrue(resultado.get(0).getNome().contains("Smartphone"));
-        verify(produtoRepository, times(1)).buscarPorTermo("Smart");
+        verify(produtoRepository, never()).buscarPorTermo(anyString());
+    }
+
+    @Test
+    @DisplayName("Deve manter a ordem de relevância do índice ao hidratar a busca")
+    void deveManterOrdemDoIndiceNaBusca() {
+        Produto tablet = new Produto();
+        tablet.setId(2L);
+        tablet.setNome("Smart Tablet");
+        tablet.setPreco(new BigDecimal("800.00"));
+        tablet.setQuantidadeEstoque(20);
+        tablet.setQuantidadeMinima(5);
+        tablet.setAtivo(true);
+
+        when(indiceBusca.buscar("smart", ProdutoService.LIMITE_BUSCA)).thenReturn(Arrays.asList(2L, 1L));
+        when(produtoRepository.findByIdIn(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(projecao(produto), projecao(tablet)));
+
+        List<ProdutoDTO> resultado = produtoService.buscarPorTermo("smart");
+
+        assertEquals(2L, resultado.get(0).getId());
+        assertEquals(1L, resultado.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco quando o índice não encontrar produtos")
+    void naoDeveConsultarBancoQuandoIndiceVazio() {
+        when(indiceBusca.buscar("xyz", ProdutoService.LIMITE_BUSCA)).thenReturn(Collections.emptyList());
+
+        assertTrue(produtoService.buscarPorTermo("xyz").isEmpty());
+        verify(produtoRepository, never()).findByIdIn(any());
     }
 
     @Test
@@ -186,13 +260,69 @@ class ProdutoServiceTest {
         produto.setQuantidadeEstoque(5);
         produto.setQuantidadeMinima(10);
 
-        when(produtoRepository.findProdutosComEstoqueBaixo()).thenReturn(Collections.singletonList(produto));
+        when(estoqueBaixo.idsApos(0L, 51)).thenReturn(List.of(1L));
+        when(estoqueBaixo.idsApos(1L, 50)).thenReturn(List.of());
+        when(produtoRepository.findByIdIn(List.of(1L))).thenReturn(Collections.singletonList(projecao(produto)));
 
-        List<ProdutoDTO> resultado = produtoService.listarProdutosComEstoqueBaixo();
+        PaginaDTO<ProdutoDTO> resultado = produtoService.listarProdutosComEstoqueBaixo(null, 50);
 
-        assertEquals(1, resultado.size());
-        assertTrue(resultado.get(0).getEstoqueBaixo());
-        verify(produtoRepository, times(1)).findProdutosComEstoqueBaixo();
+        assertEquals(1, resultado.getItens().size());
+        assertTrue(resultado.getItens().get(0).getEstoqueBaixo());
+        assertNull(resultado.getProximoCursor());
+        verify(produtoRepository, never()).findProdutosComEstoqueBaixo();
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco quando nenhum produto está com estoque baixo")
+    void naoDeveConsultarBancoSemEstoqueBaixo() {
+        when(estoqueBaixo.idsApos(0L, 51)).thenReturn(List.of());
+
+        assertTrue(produtoService.listarProdutosComEstoqueBaixo(null, 50).getItens().isEmpty());
+        verifyNoInteractions(produtoRepository);
+    }
+
+    @Test
+    @DisplayName("Deve descartar produto que o conjunto ainda marca como estoque baixo mas já foi reposto")
+    void deveDescartarProdutoJaReposto() {
+        produto.setQuantidadeEstoque(50);
+        produto.setQuantidadeMinima(10);
+
+        when(estoqueBaixo.idsApos(0L, 51)).thenReturn(List.of(1L));
+        when(estoqueBaixo.idsApos(1L, 51)).thenReturn(List.of());
+        when(produtoRepository.findByIdIn(List.of(1L))).thenReturn(Collections.singletonList(projecao(produto)));
+
+        assertTrue(produtoService.listarProdutosComEstoqueBaixo(null, 50).getItens().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve completar a página de estoque baixo com os ids seguintes quando descarta um já reposto")
+    void deveCompletarPaginaDeEstoqueBaixo() {
+        produto.setQuantidadeEstoque(50);
+        produto.setQuantidadeMinima(10);
+        Produto tablet = new Produto();
+        tablet.setId(2L);
+        tablet.setNome("Tablet");
+        tablet.setPreco(new BigDecimal("800.00"));
+        tablet.setQuantidadeEstoque(2);
+        tablet.setQuantidadeMinima(5);
+        tablet.setAtivo(true);
+        Produto notebook = new Produto();
+        notebook.setId(3L);
+        notebook.setNome("Notebook");
+        notebook.setPreco(new BigDecimal("3000.00"));
+        notebook.setQuantidadeEstoque(1);
+        notebook.setQuantidadeMinima(5);
+        notebook.setAtivo(true);
+
+        when(estoqueBaixo.idsApos(0L, 2)).thenReturn(List.of(1L, 2L));
+        when(estoqueBaixo.idsApos(2L, 1)).thenReturn(List.of(3L));
+        when(produtoRepository.findByIdIn(List.of(1L, 2L))).thenReturn(Arrays.asList(projecao(produto), projecao(tablet)));
+        when(produtoRepository.findByIdIn(List.of(3L))).thenReturn(Collections.singletonList(projecao(notebook)));
+
+        PaginaDTO<ProdutoDTO> resultado = produtoService.listarProdutosComEstoqueBaixo(null, 1);
+
+        assertEquals(List.of(2L), resultado.getItens().stream().map(ProdutoDTO::getId).collect(Collectors.toList()));
+        assertNotNull(resultado.getProximoCursor());
     }
 
     @Test
@@ -208,6 +338,8 @@ class ProdutoServiceTest {
         assertEquals("Smartphone", resultado.getNome());
         verify(produtoRepository, times(1)).existsBySku("SMART-001");
         verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(indiceBusca, times(1)).indexar(1L, "Smartphone", "SMART-001", "Smartphone Android");
+        verify(estoqueDepositoRepository).save(new EstoqueDeposito(1L, 1L, 50));
     }
 
     @Test
@@ -280,7 +412,7 @@ class ProdutoServiceTest {
         novoDTO.setPreco(new BigDecimal("1600.00"));
         novoDTO.setCategoriaId(1L);
 
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.existsBySku("SMART-002")).thenReturn(false);
         when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
         when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
@@ -289,12 +421,14 @@ class ProdutoServiceTest {
 
         assertNotNull(resultado);
         verify(produtoRepository, times(1)).save(any(Produto.class));
+        verify(indiceSkus).remover(1L, "SMART-001");
+        verify(indiceSkus).adicionar(1L, "SMART-002");
     }
 
     @Test
     @DisplayName("Deve atualizar produto mantendo o mesmo SKU")
     void deveAtualizarProdutoComMesmoSku() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
         when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
 
@@ -302,6 +436,55 @@ class ProdutoServiceTest {
 
         assertNotNull(resultado);
         verify(produtoRepository, never()).existsBySku(anyString());
+        verify(indiceSkus, never()).remover(anyLong(), anyString());
+        verifyNoInteractions(indiceSkus);
+    }
+
+    @Test
+    @DisplayName("Deve registrar a mudança de quantidade do cadastro como ajuste no depósito padrão")
+    void deveRegistrarMudancaDeQuantidadeComoAjuste() {
+        produtoDTO.setQuantidadeEstoque(45);
+
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+        when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
+        when(estoqueDepositoRepository.findParaAtualizacao(1L, 1L)).thenReturn(Optional.of(new EstoqueDeposito(1L, 1L, 30)));
+        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
+
+        produtoService.atualizar(1L, produtoDTO);
+
+        // 20 em outros depósitos ficam onde estão: o padrão vai a 25
+        verify(movimentacoes).registrarAjuste(1L, 1L, 25, ProdutoService.MOTIVO_AJUSTE_CADASTRO);
+        verify(estoqueDepositoRepository, never()).save(any(EstoqueDeposito.class));
+    }
+
+    @Test
+    @DisplayName("Não deve registrar movimentação quando a quantidade do cadastro não muda")
+    void naoDeveRegistrarAjusteSemMudancaDeQuantidade() {
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+        when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
+        when(produtoRepository.save(any(Produto.class))).thenReturn(produto);
+
+        produtoService.atualizar(1L, produtoDTO);
+
+        verifyNoInteractions(movimentacoes);
+    }
+
+    @Test
+    @DisplayName("Deve recusar quantidade menor que o estoque dos outros depósitos")
+    void deveRecusarQuantidadeMenorQueOutrosDepositos() {
+        produtoDTO.setQuantidadeEstoque(10);
+
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
+        when(estoqueDepositoRepository.findParaAtualizacao(1L, 1L)).thenReturn(Optional.of(new EstoqueDeposito(1L, 1L, 30)));
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> produtoService.atualizar(1L, produtoDTO)
+        );
+
+        assertTrue(exception.getMessage().contains("20"));
+        verify(produtoRepository, never()).save(any(Produto.class));
+        verifyNoInteractions(movimentacoes);
     }
 
     @Test
@@ -310,7 +493,7 @@ class ProdutoServiceTest {
         ProdutoDTO novoDTO = new ProdutoDTO();
         novoDTO.setSku("OUTRO-SKU");
 
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.existsBySku("OUTRO-SKU")).thenReturn(true);
 
         IllegalArgumentException exception = assertThrows(
@@ -325,7 +508,7 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve lançar exceção ao atualizar produto inexistente")
     void deveLancarExcecaoAoAtualizarProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.findByIdParaAtualizacao(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -338,19 +521,24 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve deletar produto com sucesso")
     void deveDeletarProdutoComSucesso() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         doNothing().when(produtoRepository).delete(produto);
 
         assertDoesNotThrow(() -> produtoService.deletar(1L));
 
-        verify(produtoRepository, times(1)).findById(1L);
+        verify(produtoRepository, times(1)).findByIdParaAtualizacao(1L);
         verify(produtoRepository, times(1)).delete(produto);
+        verify(indiceBusca, times(1)).remover(1L);
+        verify(indiceSkus, times(1)).remover(1L, "SMART-001");
+        verify(estoqueBaixo, times(1)).remover(1L);
+        verify(estoqueDepositoRepository, times(1)).deleteByProdutoId(1L);
+        verify(eventos, times(1)).publishEvent(new EventoProdutoDTO(1L, null));
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao deletar produto inexistente")
     void deveLancarExcecaoAoDeletarProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.findByIdParaAtualizacao(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -366,7 +554,7 @@ class ProdutoServiceTest {
     void deveAtivarProdutoComSucesso() {
         produto.setAtivo(false);
 
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenAnswer(invocation -> {
             Produto p = invocation.getArgument(0);
             p.setAtivo(true);
@@ -383,7 +571,7 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve lançar exceção ao ativar produto inexistente")
     void deveLancarExcecaoAoAtivarProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.findByIdParaAtualizacao(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -396,7 +584,7 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve desativar produto com sucesso")
     void deveDesativarProdutoComSucesso() {
-        when(produtoRepository.findById(1L)).thenReturn(Optional.of(produto));
+        when(produtoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(produto));
         when(produtoRepository.save(any(Produto.class))).thenAnswer(invocation -> {
             Produto p = invocation.getArgument(0);
             p.setAtivo(false);
@@ -413,7 +601,7 @@ class ProdutoServiceTest {
     @Test
     @DisplayName("Deve lançar exceção ao desativar produto inexistente")
     void deveLancarExcecaoAoDesativarProdutoInexistente() {
-        when(produtoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(produtoRepository.findByIdParaAtualizacao(anyLong())).thenReturn(Optional.empty());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -448,4 +636,31 @@ class ProdutoServiceTest {
 
         assertFalse(resultado.getEstoqueBaixo());
     }
+
+    @Test
+    @DisplayName("Deve sugerir SKUs pelo índice de prefixos")
+    void deveSugerirSkusPeloIndice() {
+        when(indiceSkus.sugerir("SMA", 10)).thenReturn(List.of(new SugestaoSkuDTO(1L, "SMART-001")));
+
+        List<SugestaoSkuDTO> resultado = produtoService.sugerirSkus(" SMA ", 10);
+
+        assertEquals(1, resultado.size());
+        assertEquals("SMART-001", resultado.get(0).getSku());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar prefixo vazio ou limite fora da faixa nas sugestões de SKU")
+    void deveRejeitarParametrosInvalidosNasSugestoesDeSku() {
+        assertThrows(IllegalArgumentException.class, () -> produtoService.sugerirSkus(" ", 10));
+        assertThrows(IllegalArgumentException.class, () -> produtoService.sugerirSkus("SMA", 0));
+        assertThrows(IllegalArgumentException.class, () -> produtoService.sugerirSkus("SMA", ProdutoService.LIMITE_SUGESTOES + 1));
+        verifyNoInteractions(indiceSkus);
+    }
+
+    private ProdutoDTO projecao(Produto p) {
+        Categoria c = p.getCategoria();
+        return new ProdutoDTO(p.getId(), p.getNome(), p.getDescricao(), p.getSku(), p.getPreco(), p.getPrecoCusto(),
+                p.getQuantidadeEstoque(), p.getQuantidadeMinima(), p.getAtivo(),
+                c != null ? c.getId() : null, c != null ? c.getNome() : null, p.isEstoqueBaixo());
+    }
 }
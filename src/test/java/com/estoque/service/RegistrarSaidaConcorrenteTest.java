@@ -0,0 +1,161 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import com.estoque.dto.PaginaDTO;
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.model.TipoMovimentacao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class RegistrarSaidaConcorrenteTest {
+
+    private static final int ESTOQUE_INICIAL = 200;
+    private static final int THREADS = 16;
+    private static final int TENTATIVAS_POR_THREAD = 25;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private ConjuntoEstoqueBaixo estoqueBaixo;
+
+    @Test
+    @DisplayName("Saídas concorrentes não devem vender além do estoque nem perder atualizações")
+    void saidasConcorrentesNaoDevemVenderAlemDoEstoque() throws Exception {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto concorrência");
+        dto.setSku("CONC-001");
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(ESTOQUE_INICIAL);
+        dto.setQuantidadeMinima(ESTOQUE_INICIAL / 2);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        AtomicInteger sucessos = new AtomicInteger();
+        AtomicInteger rejeicoes = new AtomicInteger();
+        AtomicInteger falhas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    try {
+                        movimentacaoService.registrarSaida(produtoId, 1, "Venda concorrente");
+                        sucessos.incrementAndGet();
+                    } catch (IllegalStateException ex) {
+                        rejeicoes.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        falhas.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        int tentativas = THREADS * TENTATIVAS_POR_THREAD;
+
+        assertEquals(0, falhas.get());
+        assertEquals(ESTOQUE_INICIAL, sucessos.get());
+        assertEquals(tentativas - ESTOQUE_INICIAL, rejeicoes.get());
+        assertEquals(0, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+
+        List<MovimentacaoEstoqueDTO> saidas = movimentacoesDoProduto(produtoId).stream()
+                .filter(m -> m.getTipo() == TipoMovimentacao.SAIDA)
+                .collect(Collectors.toList());
+        assertEquals(ESTOQUE_INICIAL, saidas.size());
+        saidas.forEach(m -> assertEquals(m.getQuantidadePosterior() + 1, m.getQuantidadeAnterior()));
+
+        Set<Integer> posteriores = saidas.stream().map(MovimentacaoEstoqueDTO::getQuantidadePosterior).collect(Collectors.toSet());
+        assertEquals(IntStream.range(0, ESTOQUE_INICIAL).boxed().collect(Collectors.toSet()), posteriores);
+
+        assertTrue(estoqueBaixo.contem(produtoId));
+        assertEquals(0, estoqueBaixo.verificarConsistencia());
+    }
+
+    @Test
+    @DisplayName("Ativar e desativar durante saídas concorrentes não devem sobrescrever o estoque")
+    void ativarEDesativarNaoDevemSobrescreverSaidas() throws Exception {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto concorrência cadastro");
+        dto.setSku("CONC-002");
+        dto.setPreco(new BigDecimal("10.00"));
+        dto.setQuantidadeEstoque(ESTOQUE_INICIAL);
+        dto.setQuantidadeMinima(0);
+        Long produtoId = produtoService.criar(dto).getId();
+
+        AtomicInteger sucessos = new AtomicInteger();
+        AtomicInteger rejeicoes = new AtomicInteger();
+        AtomicInteger falhas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            boolean cadastro = t % 4 == 0;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    try {
+                        if (cadastro) {
+                            produtoService.desativar(produtoId);
+                            produtoService.ativar(produtoId);
+                        } else {
+                            movimentacaoService.registrarSaida(produtoId, 1, "Venda concorrente");
+                            sucessos.incrementAndGet();
+                        }
+                    } catch (IllegalStateException ex) {
+                        rejeicoes.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        falhas.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, falhas.get());
+        // Cada saída aceita tirou uma unidade, e nenhuma regravação do cadastro a devolveu
+        assertEquals(ESTOQUE_INICIAL, sucessos.get());
+        assertEquals(0, produtoService.buscarPorId(produtoId).getQuantidadeEstoque());
+        assertTrue(produtoService.buscarPorId(produtoId).getAtivo());
+    }
+
+    private List<MovimentacaoEstoqueDTO> movimentacoesDoProduto(Long produtoId) {
+        List<MovimentacaoEstoqueDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<MovimentacaoEstoqueDTO> pagina = movimentacaoService.listarPorProduto(produtoId, cursor, 100);
+            todas.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+        return todas;
+    }
+}
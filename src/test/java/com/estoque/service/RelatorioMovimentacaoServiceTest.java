@@ -0,0 +1,120 @@
+package com.estoque.service;
+
+import com.estoque.dto.ProdutoDTO;
+import com.estoque.dto.TotalMovimentacaoDTO;
+import com.estoque.model.TipoMovimentacao;
+import com.estoque.service.RelatorioMovimentacaoService.Granularidade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class RelatorioMovimentacaoServiceTest {
+
+    @Autowired
+    private RelatorioMovimentacaoService relatorioService;
+
+    @Autowired
+    private ResumosMovimentacao resumos;
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    private Long produtoId;
+
+    @BeforeEach
+    void setUp() {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setNome("Produto relatório");
+        dto.setSku("REL-" + System.nanoTime());
+        dto.setPreco(new BigDecimal("5.00"));
+        dto.setQuantidadeEstoque(10);
+        produtoId = produtoService.criar(dto).getId();
+
+        movimentacaoService.registrarEntrada(produtoId, 15, "Compra");
+        movimentacaoService.registrarEntrada(produtoId, 5, "Compra");
+        movimentacaoService.registrarSaida(produtoId, 8, "Venda");
+        movimentacaoService.registrarAjuste(produtoId, 20, "Inventário");
+    }
+
+    @Test
+    @DisplayName("Dias inteiros, vindos dos resumos, devem bater com a soma do razão")
+    void resumosDevemBaterComRazao() {
+        LocalDateTime hoje = LocalDate.now().atStartOfDay();
+
+        Map<TipoMovimentacao, TotalMovimentacaoDTO> resumidos = porTipo(relatorioService.totalizar(hoje, hoje.plusDays(1), Granularidade.DIA, produtoId));
+        Map<TipoMovimentacao, TotalMovimentacaoDTO> doRazao = porTipo(relatorioService.totalizar(hoje, LocalDateTime.now().plusSeconds(1), Granularidade.DIA, produtoId));
+
+        assertEquals(doRazao, resumidos);
+        assertTotal(resumidos.get(TipoMovimentacao.ENTRADA), hoje, 20, 2, 20);
+        assertTotal(resumidos.get(TipoMovimentacao.SAIDA), hoje, 8, 1, -8);
+        assertTotal(resumidos.get(TipoMovimentacao.AJUSTE), hoje, 2, 1, -2);
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por hora, semana e mês")
+    void deveAgruparPorGranularidade() {
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime hoje = agora.toLocalDate().atStartOfDay();
+
+        List<TotalMovimentacaoDTO> porHora = relatorioService.totalizar(hoje, agora.plusSeconds(1), Granularidade.HORA, produtoId);
+        assertTrue(porHora.stream().allMatch(t -> t.getInicio().getMinute() == 0 && t.getInicio().getSecond() == 0 && t.getInicio().getNano() == 0));
+        assertEquals(4L, porHora.stream().mapToLong(TotalMovimentacaoDTO::getMovimentacoes).sum());
+
+        LocalDate segunda = agora.toLocalDate().with(java.time.DayOfWeek.MONDAY);
+        List<TotalMovimentacaoDTO> porSemana = relatorioService.totalizar(segunda.minusWeeks(1).atStartOfDay(), segunda.plusWeeks(1).atStartOfDay(),
+                Granularidade.SEMANA, produtoId);
+        assertTotal(porTipo(porSemana).get(TipoMovimentacao.ENTRADA), segunda.atStartOfDay(), 20, 2, 20);
+
+        LocalDate primeiroDoMes = agora.toLocalDate().withDayOfMonth(1);
+        List<TotalMovimentacaoDTO> porMes = relatorioService.totalizar(primeiroDoMes.atStartOfDay().plusHours(1), agora.plusMinutes(1),
+                Granularidade.MES, produtoId);
+        assertTotal(porTipo(porMes).get(TipoMovimentacao.SAIDA), primeiroDoMes.atStartOfDay(), 8, 1, -8);
+    }
+
+    @Test
+    @DisplayName("Deve remover os resumos junto com o produto")
+    void deveRemoverResumosComProduto() {
+        LocalDateTime hoje = LocalDate.now().atStartOfDay();
+        produtoService.deletar(produtoId);
+
+        assertTrue(relatorioService.totalizar(hoje, hoje.plusDays(1), Granularidade.DIA, produtoId).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve validar intervalos")
+    void deveValidarIntervalos() {
+        LocalDateTime agora = LocalDateTime.now();
+
+        assertThrows(IllegalArgumentException.class, () -> relatorioService.totalizar(agora, agora, Granularidade.DIA, null));
+        assertThrows(IllegalArgumentException.class, () -> relatorioService.totalizar(agora.minusDays(40), agora, Granularidade.HORA, null));
+        assertThrows(IllegalArgumentException.class, () -> resumos.reconstruir(LocalDate.now(), LocalDate.now()));
+        assertEquals(0, resumos.reconstruir(LocalDate.now().minusDays(3), LocalDate.now().minusDays(1)));
+    }
+
+    private Map<TipoMovimentacao, TotalMovimentacaoDTO> porTipo(List<TotalMovimentacaoDTO> totais) {
+        return totais.stream().collect(Collectors.toMap(TotalMovimentacaoDTO::getTipo, t -> t));
+    }
+
+    private void assertTotal(TotalMovimentacaoDTO total, LocalDateTime inicio, long quantidade, long movimentacoes, long saldoLiquido) {
+        assertNotNull(total);
+        assertEquals(inicio, total.getInicio());
+        assertEquals(quantidade, total.getQuantidade());
+        assertEquals(movimentacoes, total.getMovimentacoes());
+        assertEquals(saldoLiquido, total.getSaldoLiquido());
+    }
+}
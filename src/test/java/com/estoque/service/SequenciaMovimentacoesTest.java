@@ -0,0 +1,42 @@
+package com.estoque.service;
+
+import com.estoque.dto.MovimentacaoEstoqueDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:sequencia-teste"
+})
+class SequenciaMovimentacoesTest {
+
+    private static final long ID_LEGADO = 10_000L;
+
+    @Autowired
+    private SequenciaMovimentacoes sequencia;
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("Deve avançar a sequência para depois dos ids gravados antes dela e não mexer quando já está à frente")
+    void deveAvancarSequenciaAtrasDosIdsExistentes() {
+        // Uma linha gravada pela coluna IDENTITY, antes da sequência existir
+        jdbc.update("INSERT INTO movimentacoes_estoque (id, produto_id, tipo, quantidade, motivo, data_movimentacao) "
+                + "VALUES (?, 1, 'ENTRADA', 1, 'Legado', CURRENT_TIMESTAMP)", ID_LEGADO);
+
+        assertTrue(sequencia.alinhar());
+        assertFalse(sequencia.alinhar());
+
+        MovimentacaoEstoqueDTO nova = movimentacaoService.registrarEntrada(1L, null, 1, "Depois da migração");
+        assertTrue(nova.getId() > ID_LEGADO);
+    }
+}